@@ -0,0 +1,136 @@
+package uk.ac.ed.acp.cw2.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.ed.acp.cw2.dto.DistanceRequest;
+import uk.ac.ed.acp.cw2.dto.IsInRegionRequest;
+import uk.ac.ed.acp.cw2.geometry.Geometry;
+import uk.ac.ed.acp.cw2.geometry.Polygon;
+import uk.ac.ed.acp.cw2.parser.RequestParser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * From request body to answer for /distanceTo and /isInRegion, comparing the original
+ * binding into {@code Map<String, Object>} with the streaming {@link RequestParser}.
+ * The region benchmarks are parameterized by vertex count, which is what grows the
+ * body. Run with the gc profiler to see the allocation per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BindingBenchmark {
+
+    private static final TypeReference<Map<String, Object>> MAP = new TypeReference<>() {
+    };
+
+    private ObjectMapper objectMapper;
+    private RequestParser parser;
+    private byte[] distanceBody;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        parser = new RequestParser(objectMapper);
+        distanceBody = ("{\"position1\":{\"lng\":-3.192473,\"lat\":55.946233},"
+                + "\"position2\":{\"lng\":-3.184319,\"lat\":55.942617}}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** The /isInRegion body, in its own state so only the region benchmarks vary with it. */
+    @State(Scope.Benchmark)
+    public static class RegionBody {
+
+        @Param({"5", "65", "1025"})
+        private int vertices;
+
+        private byte[] body;
+
+        @Setup
+        public void setUp() {
+            // a closed polygon around the position, the last vertex repeating the first
+            StringBuilder region = new StringBuilder("{\"position\":{\"lng\":-3.188,\"lat\":55.944},"
+                    + "\"region\":{\"name\":\"central\",\"vertices\":[");
+            int corners = vertices - 1;
+            for (int i = 0; i <= corners; i++) {
+                double radians = 2 * Math.PI * (i % corners + 0.5) / corners;
+                if (i > 0)
+                    region.append(',');
+                region.append("{\"lng\":").append(-3.188 + 0.005 * Math.cos(radians))
+                        .append(",\"lat\":").append(55.944 + 0.0025 * Math.sin(radians)).append('}');
+            }
+            body = region.append("]}}").toString().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public double distanceMap() throws IOException {
+        Map<String, Object> body = objectMapper.readValue(distanceBody, MAP);
+        Map<String, Object> position1 = asMap(body.get("position1"));
+        Map<String, Object> position2 = asMap(body.get("position2"));
+        return Geometry.distance((Double) position1.get("lng"), (Double) position1.get("lat"),
+                (Double) position2.get("lng"), (Double) position2.get("lat"));
+    }
+
+    @Benchmark
+    public double distanceStreaming() {
+        DistanceRequest request = parser.parseDistanceRequest(distanceBody);
+        return Geometry.distance(request.position1().lng(), request.position1().lat(),
+                request.position2().lng(), request.position2().lat());
+    }
+
+    /** The original controller's path: map binding, then a bounding-box test over the boxed vertices. */
+    @Benchmark
+    public boolean isInRegionMap(RegionBody regionBody) throws IOException {
+        Map<String, Object> body = objectMapper.readValue(regionBody.body, MAP);
+        Map<String, Object> position = asMap(body.get("position"));
+        double lng = (Double) position.get("lng");
+        double lat = (Double) position.get("lat");
+        List<Map<String, Object>> vertexMaps = asList(asMap(body.get("region")).get("vertices"));
+        double minLng = Double.POSITIVE_INFINITY;
+        double minLat = Double.POSITIVE_INFINITY;
+        double maxLng = Double.NEGATIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY;
+        for (Map<String, Object> vertex : vertexMaps) {
+            minLng = Math.min(minLng, (Double) vertex.get("lng"));
+            minLat = Math.min(minLat, (Double) vertex.get("lat"));
+            maxLng = Math.max(maxLng, (Double) vertex.get("lng"));
+            maxLat = Math.max(maxLat, (Double) vertex.get("lat"));
+        }
+        return minLng <= lng && lng <= maxLng && minLat <= lat && lat <= maxLat;
+    }
+
+    @Benchmark
+    public boolean isInRegionStreaming(RegionBody regionBody) {
+        IsInRegionRequest request = parser.parseIsInRegionRequest(regionBody.body);
+        return Polygon.compile(request.region().vertices())
+                .contains(request.position().lng(), request.position().lat());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object value) {
+        return (Map<String, Object>) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> asList(Object value) {
+        return (List<Map<String, Object>>) value;
+    }
+}
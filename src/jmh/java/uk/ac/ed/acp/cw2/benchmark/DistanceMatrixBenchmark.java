@@ -0,0 +1,80 @@
+package uk.ac.ed.acp.cw2.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.ed.acp.cw2.geometry.DistanceMatrix;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The /batch/distanceMatrix kernels, scalar against vectorised, for a
+ * {@code rows × 2000} matrix. The fork adds jdk.incubator.vector so that
+ * {@code kernel=vector} is the Vector API; without it both rows measure the scalar
+ * loops. Scores are microseconds per whole matrix.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class DistanceMatrixBenchmark {
+
+    private static final int COLUMNS = 2000;
+
+    @Param({"scalar", "vector"})
+    private String kernel;
+
+    @Param({"1", "100"})
+    private int rows;
+
+    private DistanceMatrix matrix;
+    private double[] fromLng;
+    private double[] fromLat;
+    private double[] toLng;
+    private double[] toLat;
+    private double[] distances;
+    private long[] bits;
+
+    @Setup
+    public void setUp() {
+        matrix = kernel.equals("vector") ? DistanceMatrix.get() : DistanceMatrix.scalar();
+        SplittableRandom random = new SplittableRandom(42);
+        fromLng = random.doubles(rows, -3.19, -3.17).toArray();
+        fromLat = random.doubles(rows, 55.94, 55.95).toArray();
+        toLng = random.doubles(COLUMNS, -3.19, -3.17).toArray();
+        toLat = random.doubles(COLUMNS, 55.94, 55.95).toArray();
+        distances = new double[rows * COLUMNS];
+        bits = new long[DistanceMatrix.words(rows * COLUMNS)];
+    }
+
+    @Benchmark
+    public double[] distances() {
+        matrix.distances(fromLng, fromLat, toLng, toLat, distances);
+        return distances;
+    }
+
+    @Benchmark
+    public double[] squaredDistances() {
+        matrix.squaredDistances(fromLng, fromLat, toLng, toLat, distances);
+        return distances;
+    }
+
+    @Benchmark
+    public long[] isClose() {
+        Arrays.fill(bits, 0);
+        matrix.isClose(fromLng, fromLat, toLng, toLat, bits);
+        return bits;
+    }
+}
@@ -0,0 +1,148 @@
+package uk.ac.ed.acp.cw2.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.geometry.Geometry;
+import uk.ac.ed.acp.cw2.geometry.Moves;
+import uk.ac.ed.acp.cw2.geometry.Polygon;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The kernels behind /distanceTo, /nextPosition and /isInRegion, each run over
+ * {@code size} inputs per invocation so the per-call overhead of the harness does
+ * not dominate. Scores are operations (whole batches) per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeometryBenchmark {
+
+    @Param({"1", "100", "10000"})
+    private int size;
+
+    private double[] lng1;
+    private double[] lat1;
+    private double[] lng2;
+    private double[] lat2;
+    private double[] angles;
+    private double[] distances;
+    private boolean[] inside;
+    private double[] next;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        lng1 = new double[size];
+        lat1 = new double[size];
+        lng2 = new double[size];
+        lat2 = new double[size];
+        angles = new double[size];
+        for (int i = 0; i < size; i++) {
+            lng1[i] = -3.19 + random.nextDouble(0.02);
+            lat1[i] = 55.94 + random.nextDouble(0.01);
+            lng2[i] = -3.19 + random.nextDouble(0.02);
+            lat2[i] = 55.94 + random.nextDouble(0.01);
+            angles[i] = random.nextInt(Moves.DIRECTION_COUNT) * Moves.DIRECTION_ANGLE;
+        }
+        distances = new double[size];
+        inside = new boolean[size];
+        next = new double[2];
+    }
+
+    /**
+     * The containment polygon, kept in its own state so only the containment
+     * benchmarks are multiplied by its vertex counts.
+     */
+    @State(Scope.Benchmark)
+    public static class Shape {
+
+        /** Corner count; 4 is the rectangle the original /isInRegion accepted. */
+        @Param({"4", "64"})
+        private int corners;
+
+        private Polygon polygon;
+
+        @Setup
+        public void setUp() {
+            // a regular polygon inscribed in the box the sample points are drawn from
+            List<LngLat> vertices = new ArrayList<>(corners + 1);
+            for (int i = 0; i < corners; i++) {
+                double radians = 2 * Math.PI * (i + 0.5) / corners;
+                vertices.add(new LngLat(-3.18 + 0.01 * Math.cos(radians), 55.945 + 0.005 * Math.sin(radians)));
+            }
+            vertices.add(vertices.get(0));
+            polygon = Polygon.compile(vertices);
+        }
+    }
+
+    @Benchmark
+    public double[] distance() {
+        Geometry.distances(lng1, lat1, lng2, lat2, distances);
+        return distances;
+    }
+
+    /** The distance as the original controller computed it, through {@link Math#pow}. */
+    @Benchmark
+    public double[] distancePow() {
+        for (int i = 0; i < size; i++) {
+            distances[i] = Math.sqrt(Math.pow(lng2[i] - lng1[i], 2) + Math.pow(lat2[i] - lat1[i], 2));
+        }
+        return distances;
+    }
+
+    @Benchmark
+    public void step(Blackhole blackhole) {
+        for (int i = 0; i < size; i++) {
+            Moves.next(lng1[i], lat1[i], angles[i], next);
+            blackhole.consume(next[0]);
+            blackhole.consume(next[1]);
+        }
+    }
+
+    @Benchmark
+    public void stepBigDecimal(Blackhole blackhole) {
+        for (int i = 0; i < size; i++) {
+            Moves.exactNext(lng1[i], lat1[i], angles[i], next);
+            blackhole.consume(next[0]);
+            blackhole.consume(next[1]);
+        }
+    }
+
+    @Benchmark
+    public boolean[] contains(Shape shape) {
+        shape.polygon.contains(lng1, lat1, inside);
+        return inside;
+    }
+
+    /** The bounding-box test the original rectangle-only /isInRegion amounted to. */
+    @Benchmark
+    public boolean[] containsBoundingBox(Shape shape) {
+        Polygon polygon = shape.polygon;
+        double minLng = polygon.minLng();
+        double minLat = polygon.minLat();
+        double maxLng = polygon.maxLng();
+        double maxLat = polygon.maxLat();
+        for (int i = 0; i < size; i++) {
+            inside[i] = minLng <= lng1[i] && lng1[i] <= maxLng && minLat <= lat1[i] && lat1[i] <= maxLat;
+        }
+        return inside;
+    }
+}
@@ -0,0 +1,92 @@
+package uk.ac.ed.acp.cw2.client;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * Thin client for the ILP REST service. Every fetch is conditional: the validators
+ * of the previous response are sent back, and a 304 hands back the previous value
+ * without parsing anything.
+ */
+@Component
+public class IlpRestClient {
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final URI baseUri;
+    private final Duration requestTimeout;
+
+    public IlpRestClient(HttpClient ilpHttpClient, ObjectMapper objectMapper,
+                         @Value("${ilp.service.url}") URL serviceUrl,
+                         @Value("${ilp.service.request-timeout-ms:10000}") long requestTimeoutMs) {
+        this.httpClient = ilpHttpClient;
+        this.objectMapper = objectMapper;
+        String base = serviceUrl.toString();
+        this.baseUri = URI.create(base.endsWith("/") ? base : base + "/");
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+    }
+
+    /**
+     * Fetches {@code path} relative to the service URL. Returns {@code previous} when
+     * nothing changed (a 304, or a 404 for something already absent), an absent
+     * resource on a 404, and a freshly parsed one otherwise.
+     */
+    public <T> Resource<T> fetch(String path, TypeReference<T> type, Resource<T> previous) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(baseUri.resolve(path))
+                .timeout(requestTimeout)
+                .header("Accept", "application/json")
+                .GET();
+        if (previous != null && previous.etag() != null)
+            request.header("If-None-Match", previous.etag());
+        if (previous != null && previous.lastModified() != null)
+            request.header("If-Modified-Since", previous.lastModified());
+
+        HttpResponse<byte[]> response;
+        try {
+            response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException("ILP service call to " + path + " failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while calling the ILP service", e);
+        }
+
+        int status = response.statusCode();
+        if (status == 304 && previous != null)
+            return previous;
+        if (status == 404)
+            return previous != null && previous.value() == null ? previous : Resource.absent();
+        if (status != 200)
+            throw new IllegalStateException("ILP service returned " + status + " for " + path);
+        try {
+            T value = objectMapper.readValue(response.body(), type);
+            return new Resource<>(value,
+                    response.headers().firstValue("ETag").orElse(null),
+                    response.headers().firstValue("Last-Modified").orElse(null));
+        } catch (IOException e) {
+            throw new UncheckedIOException("unreadable ILP response for " + path, e);
+        }
+    }
+
+    /**
+     * A fetched value with the validators needed to revalidate it. An absent
+     * resource has a null value.
+     */
+    public record Resource<T>(T value, String etag, String lastModified) {
+
+        public static <T> Resource<T> absent() {
+            return new Resource<>(null, null, null);
+        }
+    }
+}
@@ -1,15 +1,41 @@
 package uk.ac.ed.acp.cw2.configuration;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
-import java.net.URL;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Configuration
 @EnableScheduling
 public class IlpRestServiceConfig {
 
+    /**
+     * The client used for every call to the ILP REST service; it keeps connections
+     * alive between refreshes. In virtual-thread mode its internal work runs on
+     * virtual threads too, like the request threads that call it.
+     */
+    @Bean
+    public HttpClient ilpHttpClient(@Value("${ilp.service.connect-timeout-ms:5000}") long connectTimeoutMs,
+                                    @Qualifier("ilpHttpExecutor") ObjectProvider<ExecutorService> executor) {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL);
+        executor.ifAvailable(builder::executor);
+        return builder.build();
+    }
 
+    /** The executor of {@link #ilpHttpClient} in virtual-thread mode, closed with the context. */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+    public ExecutorService ilpHttpExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
 }
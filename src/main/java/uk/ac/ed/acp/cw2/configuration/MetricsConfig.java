@@ -0,0 +1,128 @@
+package uk.ac.ed.acp.cw2.configuration;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import uk.ac.ed.acp.cw2.dto.ReferenceData;
+import uk.ac.ed.acp.cw2.planner.PathCache;
+import uk.ac.ed.acp.cw2.service.GeofenceTracker;
+import uk.ac.ed.acp.cw2.service.JobService;
+import uk.ac.ed.acp.cw2.service.ReferenceDataService;
+import uk.ac.ed.acp.cw2.service.RegionRegistry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Gauges over the in-memory state: the region registry and its index, the
+ * geofence sessions, the planned path cache, the planning job queue, and the
+ * cached ILP reference data. Request timers and error counters come from
+ * {@code http.server.requests} and the {@code ApiExceptionHandler}.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder regionRegistryMetrics(RegionRegistry registry) {
+        return meters -> {
+            Gauge.builder("regions.registered", registry, RegionRegistry::size)
+                    .description("Regions registered through /api/v1/regions")
+                    .register(meters);
+            Gauge.builder("regions.version", registry, r -> r.snapshot().version())
+                    .description("Version of the region set and its spatial index, bumped on every change")
+                    .register(meters);
+        };
+    }
+
+    @Bean
+    public MeterBinder geofenceMetrics(GeofenceTracker tracker) {
+        return meters -> {
+            Gauge.builder("geofence.sessions", tracker, GeofenceTracker::sessionCount)
+                    .description("Drones with an open geofence session")
+                    .register(meters);
+            FunctionCounter.builder("geofence.updates", tracker, GeofenceTracker::skippedUpdates)
+                    .description("Geofence updates, by whether the clearance answered them without a containment test")
+                    .tag("evaluation", "skipped").register(meters);
+            FunctionCounter.builder("geofence.updates", tracker, GeofenceTracker::evaluatedUpdates)
+                    .description("Geofence updates, by whether the clearance answered them without a containment test")
+                    .tag("evaluation", "full").register(meters);
+        };
+    }
+
+    @Bean
+    public MeterBinder pathCacheMetrics(PathCache cache) {
+        return meters -> {
+            FunctionCounter.builder("path.cache.requests", cache, PathCache::hitCount)
+                    .description("Planned path lookups, by whether the cache answered them")
+                    .tag("result", "hit").register(meters);
+            FunctionCounter.builder("path.cache.requests", cache, PathCache::missCount)
+                    .description("Planned path lookups, by whether the cache answered them")
+                    .tag("result", "miss").register(meters);
+            Gauge.builder("path.cache.entries", cache, PathCache::size)
+                    .description("Planned paths held in the cache")
+                    .register(meters);
+            Gauge.builder("path.cache.weight", cache, PathCache::weight)
+                    .description("Positions across the cached paths, bounded by ilp.path-cache.max-positions")
+                    .register(meters);
+            FunctionCounter.builder("path.cache.evictions", cache, PathCache::evictionCount)
+                    .description("Cached paths dropped to stay within the weight limit")
+                    .register(meters);
+            FunctionCounter.builder("path.cache.invalidations", cache, PathCache::invalidationCount)
+                    .description("Times a change to the registered regions emptied the cache")
+                    .register(meters);
+        };
+    }
+
+    @Bean
+    public MeterBinder jobMetrics(JobService jobs) {
+        return meters -> {
+            Gauge.builder("jobs.queued", jobs, JobService::queuedCount)
+                    .description("Planning jobs waiting for a worker")
+                    .register(meters);
+            Gauge.builder("jobs.running", jobs, JobService::runningCount)
+                    .description("Planning jobs being worked on")
+                    .register(meters);
+            FunctionCounter.builder("jobs.rejected", jobs, JobService::rejectedCount)
+                    .description("Planning jobs refused with 429 because the queue was full")
+                    .register(meters);
+            for (JobService.State state : JobService.State.values()) {
+                if (state.finished())
+                    FunctionCounter.builder("jobs.finished", jobs, j -> j.finishedCount(state))
+                            .description("Planning jobs by the state they ended in")
+                            .tag("state", state.label()).register(meters);
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder referenceDataMetrics(ReferenceDataService service) {
+        return meters -> {
+            Gauge.builder("reference.data.version", service, loaded(ReferenceData::version))
+                    .description("Version of the cached ILP reference data, NaN until loaded")
+                    .register(meters);
+            TimeGauge.builder("reference.data.age", service, TimeUnit.MILLISECONDS,
+                            loaded(data -> System.currentTimeMillis() - data.loadedAt().toEpochMilli()))
+                    .description("Time since the cached reference data last changed")
+                    .register(meters);
+            Gauge.builder("reference.data.items", service, loaded(data -> data.drones().size()))
+                    .tag("type", "drones").register(meters);
+            Gauge.builder("reference.data.items", service, loaded(data -> data.servicePoints().size()))
+                    .tag("type", "service-points").register(meters);
+            Gauge.builder("reference.data.items", service, loaded(data -> data.restrictedAreas().size()))
+                    .tag("type", "restricted-areas").register(meters);
+            FunctionCounter.builder("reference.data.refresh.failures", service, ReferenceDataService::failureCount)
+                    .description("Refreshes of the ILP reference data that failed")
+                    .register(meters);
+        };
+    }
+
+    private static ToDoubleFunction<ReferenceDataService> loaded(ToDoubleFunction<ReferenceData> value) {
+        return service -> {
+            ReferenceData data = service.currentIfLoaded();
+            return data == null ? Double.NaN : value.applyAsDouble(data);
+        };
+    }
+}
@@ -0,0 +1,127 @@
+package uk.ac.ed.acp.cw2.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.ac.ed.acp.cw2.parser.ApiError;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-endpoint admission control for /api/v1: every uri template has its own
+ * {@link ConcurrencyLimit}, so a flood of path planning cannot starve distanceTo
+ * of slots and the other way round. The templates listed in
+ * {@code ilp.admission.expensive-endpoints} start from and are capped at much
+ * smaller limits than the rest. Those in {@code ilp.admission.streaming-endpoints}
+ * hold their slot for as long as the client keeps the stream open, so their
+ * duration says nothing about load: they get a fixed cap on open streams instead.
+ * <p>
+ * A request beyond its endpoint's limit is shed at once with
+ * {@link ApiError#OVERLOADED} and a {@code Retry-After} header, rather than queued.
+ * Limits, in-flight counts and admitted and shed requests are exported per
+ * endpoint as {@code admission.*} metrics.
+ */
+@Component
+public class AdmissionControl {
+
+    private final ApiErrorMetrics errorMetrics;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Set<String> expensive;
+    private final Set<String> streaming;
+    private final int cheapInitialLimit;
+    private final int cheapMaxLimit;
+    private final int expensiveInitialLimit;
+    private final int expensiveMaxLimit;
+    private final int streamingMaxConnections;
+    private final double tolerance;
+    private final long slackNanos;
+    private final String retryAfterSeconds;
+    private final byte[] overloadedBody;
+
+    private final ConcurrentHashMap<String, ConcurrencyLimit> limits = new ConcurrentHashMap<>();
+
+    public AdmissionControl(ApiErrorMetrics errorMetrics, MeterRegistry meterRegistry, ObjectMapper objectMapper,
+                            @Value("${ilp.admission.enabled:true}") boolean enabled,
+                            @Value("${ilp.admission.expensive-endpoints:}") List<String> expensive,
+                            @Value("${ilp.admission.streaming-endpoints:}") List<String> streaming,
+                            @Value("${ilp.admission.cheap.initial-limit:128}") int cheapInitialLimit,
+                            @Value("${ilp.admission.cheap.max-limit:1024}") int cheapMaxLimit,
+                            @Value("${ilp.admission.expensive.initial-limit:8}") int expensiveInitialLimit,
+                            @Value("${ilp.admission.expensive.max-limit:64}") int expensiveMaxLimit,
+                            @Value("${ilp.admission.streaming.max-connections:32}") int streamingMaxConnections,
+                            @Value("${ilp.admission.latency-tolerance:2.0}") double tolerance,
+                            @Value("${ilp.admission.latency-slack-ms:5}") long slackMs,
+                            @Value("${ilp.admission.retry-after-seconds:1}") int retryAfterSeconds) {
+        this.errorMetrics = errorMetrics;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.expensive = Set.copyOf(expensive);
+        this.streaming = Set.copyOf(streaming);
+        this.cheapInitialLimit = cheapInitialLimit;
+        this.cheapMaxLimit = cheapMaxLimit;
+        this.expensiveInitialLimit = expensiveInitialLimit;
+        this.expensiveMaxLimit = expensiveMaxLimit;
+        this.streamingMaxConnections = streamingMaxConnections;
+        this.tolerance = tolerance;
+        this.slackNanos = TimeUnit.MILLISECONDS.toNanos(slackMs);
+        this.retryAfterSeconds = String.valueOf(retryAfterSeconds);
+        try {
+            this.overloadedBody = objectMapper.writeValueAsBytes(ApiError.OVERLOADED.response().getBody());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** The limit for the endpoint with this uri template, or null when admission control is off. */
+    public ConcurrencyLimit limit(Object uri) {
+        if (!enabled || uri == null)
+            return null;
+        return limits.computeIfAbsent(uri.toString(), this::newLimit);
+    }
+
+    /** Counts a shed request in {@link ApiErrorMetrics} alongside the other rejections. */
+    public void shed(Object uri) {
+        errorMetrics.count(ApiError.OVERLOADED, uri);
+    }
+
+    /** The value of the {@code Retry-After} header on a shed request. */
+    public String retryAfter() {
+        return retryAfterSeconds;
+    }
+
+    /** The JSON body of a shed request, written once. */
+    public byte[] overloadedBody() {
+        return overloadedBody;
+    }
+
+    private ConcurrencyLimit newLimit(String uri) {
+        ConcurrencyLimit limit;
+        if (streaming.contains(uri))
+            limit = ConcurrencyLimit.fixed(streamingMaxConnections);
+        else if (expensive.contains(uri))
+            limit = new ConcurrencyLimit(expensiveInitialLimit, 1, expensiveMaxLimit, tolerance, slackNanos);
+        else
+            limit = new ConcurrencyLimit(cheapInitialLimit, 1, cheapMaxLimit, tolerance, slackNanos);
+        Gauge.builder("admission.limit", limit, ConcurrencyLimit::limit)
+                .description("Current concurrency limit of the endpoint")
+                .tag("uri", uri).register(meterRegistry);
+        Gauge.builder("admission.in.flight", limit, ConcurrencyLimit::inFlight)
+                .description("Requests the endpoint is serving")
+                .tag("uri", uri).register(meterRegistry);
+        FunctionCounter.builder("admission.requests", limit, ConcurrencyLimit::admittedCount)
+                .description("Requests by whether admission control let them in")
+                .tag("uri", uri).tag("decision", "admitted").register(meterRegistry);
+        FunctionCounter.builder("admission.requests", limit, ConcurrencyLimit::shedCount)
+                .description("Requests by whether admission control let them in")
+                .tag("uri", uri).tag("decision", "shed").register(meterRegistry);
+        return limit;
+    }
+}
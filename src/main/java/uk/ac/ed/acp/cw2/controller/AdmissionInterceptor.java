@@ -0,0 +1,66 @@
+package uk.ac.ed.acp.cw2.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import uk.ac.ed.acp.cw2.parser.ApiError;
+
+import java.io.IOException;
+
+/**
+ * Applies {@link AdmissionControl} to the MVC controllers. It runs once the
+ * handler is chosen, so the limit is per uri template, and a shed request never
+ * reaches the controller or reads its body.
+ */
+@Component
+@Profile("!reactive")
+public class AdmissionInterceptor implements HandlerInterceptor, WebMvcConfigurer {
+
+    private static final String LIMIT = AdmissionInterceptor.class.getName() + ".limit";
+    private static final String START = AdmissionInterceptor.class.getName() + ".start";
+
+    private final AdmissionControl admissionControl;
+
+    public AdmissionInterceptor(AdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(this).addPathPatterns("/api/v1/**");
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        ConcurrencyLimit limit = admissionControl.limit(uri);
+        if (limit == null)
+            return true;
+        if (!limit.tryAcquire()) {
+            admissionControl.shed(uri);
+            response.setStatus(ApiError.OVERLOADED.status().value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, admissionControl.retryAfter());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getOutputStream().write(admissionControl.overloadedBody());
+            return false;
+        }
+        request.setAttribute(LIMIT, limit);
+        request.setAttribute(START, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.getAttribute(LIMIT) instanceof ConcurrencyLimit limit)
+            limit.release(System.nanoTime() - (long) request.getAttribute(START));
+    }
+}
@@ -0,0 +1,31 @@
+package uk.ac.ed.acp.cw2.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import uk.ac.ed.acp.cw2.parser.ApiError;
+
+/**
+ * Counts rejected requests in {@code api.request.errors}, by endpoint, status and
+ * {@link ApiError} reason.
+ */
+@Component
+public class ApiErrorMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public ApiErrorMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /** Counts one request to the endpoint with this uri template that failed with the error. */
+    public void count(ApiError error, Object uri) {
+        Counter.builder("api.request.errors")
+                .description("Requests rejected by the API, by reason")
+                .tag("uri", uri == null ? "UNKNOWN" : uri.toString())
+                .tag("status", String.valueOf(error.status().value()))
+                .tag("reason", error.name().toLowerCase())
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,32 @@
+package uk.ac.ed.acp.cw2.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.HandlerMapping;
+import uk.ac.ed.acp.cw2.parser.InvalidRequestException;
+
+import java.util.Map;
+
+/**
+ * Turns any {@link InvalidRequestException} thrown by a controller into its
+ * precomputed error response, and counts it in {@link ApiErrorMetrics}.
+ */
+@RestControllerAdvice
+@Profile("!reactive")
+public class ApiExceptionHandler {
+
+    private final ApiErrorMetrics errorMetrics;
+
+    public ApiExceptionHandler(ApiErrorMetrics errorMetrics) {
+        this.errorMetrics = errorMetrics;
+    }
+
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<Map<String,Object>> invalidRequest(InvalidRequestException e, HttpServletRequest request){
+        errorMetrics.count(e.error(), request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE));
+        return e.error().response();
+    }
+}
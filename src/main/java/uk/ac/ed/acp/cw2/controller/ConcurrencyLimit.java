@@ -0,0 +1,116 @@
+package uk.ac.ed.acp.cw2.controller;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An adaptive cap on the requests one endpoint serves at once, adjusted by
+ * additive increase and multiplicative decrease on observed latency.
+ * <p>
+ * The baseline stands in for the endpoint's unloaded service time: the least
+ * latency seen, replaced after each window of {@link #WINDOW} completions by the
+ * least latency of the requests in it that ran while no more than the minimum
+ * limit were in flight. Latencies under load never raise it, so sustained queueing
+ * cannot pass for the new normal; if the endpoint itself gets slower, the limit
+ * backs off to the minimum and the next window measures it afresh.
+ * <p>
+ * A completion within {@code tolerance} times the baseline, plus a fixed slack
+ * for timer noise on microsecond endpoints, raises the limit by
+ * {@code 1/limit}, about one per limit's worth of completions, but only while
+ * the limit is actually being used. A slower one means requests are queueing
+ * somewhere behind the endpoint and cuts the limit by {@link #BACKOFF}, at most
+ * once per limit's worth of completions so one burst does not collapse it.
+ * By Little's law the limit then tracks throughput times the baseline latency.
+ * <p>
+ * A {@link #fixed} limit never adapts, for endpoints whose latency is the
+ * client's to choose.
+ */
+public final class ConcurrencyLimit {
+
+    static final int WINDOW = 256;
+    static final double BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final long slackNanos;
+
+    // guarded by this
+    private double limit;
+    private int inFlight;
+    /** The most requests in flight at once since the endpoint was last idle. */
+    private int peakInFlight;
+    private long baselineNanos = Long.MAX_VALUE;
+    private long unloadedMinNanos = Long.MAX_VALUE;
+    private int windowSamples;
+    private int sinceDecrease;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+
+    public ConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, long slackNanos) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.slackNanos = slackNanos;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /** A cap of {@code limit} requests at once that latency does not move. */
+    public static ConcurrencyLimit fixed(int limit) {
+        return new ConcurrencyLimit(limit, limit, limit, 1.0, 0);
+    }
+
+    /** Takes a slot if one is free; false means the request should be shed. */
+    public boolean tryAcquire() {
+        synchronized (this) {
+            if (inFlight < (int) limit) {
+                peakInFlight = Math.max(peakInFlight, ++inFlight);
+                admitted.increment();
+                return true;
+            }
+        }
+        shed.increment();
+        return false;
+    }
+
+    /** Frees the slot of a request that took {@code latencyNanos}, and adapts the limit. */
+    public synchronized void release(long latencyNanos) {
+        int load = inFlight--;
+        baselineNanos = Math.min(baselineNanos, latencyNanos);
+        if (peakInFlight <= minLimit)
+            unloadedMinNanos = Math.min(unloadedMinNanos, latencyNanos);
+        if (inFlight == 0)
+            peakInFlight = 0;
+        if (++windowSamples == WINDOW) {
+            if (unloadedMinNanos != Long.MAX_VALUE)
+                baselineNanos = unloadedMinNanos;
+            unloadedMinNanos = Long.MAX_VALUE;
+            windowSamples = 0;
+        }
+        sinceDecrease++;
+        if (latencyNanos > baselineNanos * tolerance + slackNanos) {
+            if (sinceDecrease >= limit) {
+                limit = Math.max(minLimit, limit * BACKOFF);
+                sinceDecrease = 0;
+            }
+        } else if (load * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public long admittedCount() {
+        return admitted.sum();
+    }
+
+    public long shedCount() {
+        return shed.sum();
+    }
+}
@@ -0,0 +1,35 @@
+package uk.ac.ed.acp.cw2.controller;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import uk.ac.ed.acp.cw2.parser.RequestParser;
+import uk.ac.ed.acp.cw2.service.DroneRegistry;
+
+import java.util.List;
+
+/**
+ * Finds drones for an order: the ids of the ILP drones with the capabilities it
+ * needs and, optionally, available at a service point on a day and time.
+ */
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/v1/drones")
+public class DroneController {
+
+    private final RequestParser requestParser;
+    private final DroneRegistry droneRegistry;
+
+    public DroneController(RequestParser requestParser, DroneRegistry droneRegistry) {
+        this.requestParser = requestParser;
+        this.droneRegistry = droneRegistry;
+    }
+
+    @PostMapping("/query")
+    public ResponseEntity<List<String>> query(@RequestBody byte[] body){
+        return ResponseEntity.ok(droneRegistry.query(requestParser.parseDroneQuery(body)));
+    }
+}
@@ -0,0 +1,53 @@
+package uk.ac.ed.acp.cw2.controller;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import uk.ac.ed.acp.cw2.dto.DroneGeofence;
+import uk.ac.ed.acp.cw2.dto.GeofenceEvent;
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.parser.ApiError;
+import uk.ac.ed.acp.cw2.parser.RequestParser;
+import uk.ac.ed.acp.cw2.service.GeofenceTracker;
+
+import java.util.List;
+
+/**
+ * Per-drone geofence sessions against the registered regions. Posting a position
+ * returns only the enter and exit events it caused; /api/v1/stream/geofence takes
+ * the same updates for many drones as one NDJSON stream.
+ */
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/v1/geofence/drones")
+public class GeofenceController {
+
+    private final RequestParser requestParser;
+    private final GeofenceTracker geofenceTracker;
+
+    public GeofenceController(RequestParser requestParser, GeofenceTracker geofenceTracker) {
+        this.requestParser = requestParser;
+        this.geofenceTracker = geofenceTracker;
+    }
+
+    @PostMapping("/{droneId}")
+    public ResponseEntity<List<GeofenceEvent>> update(@PathVariable String droneId, @RequestBody byte[] body){
+        LngLat position = requestParser.parsePositionRequest(body);
+        return ResponseEntity.ok(geofenceTracker.update(droneId, position.lng(), position.lat()));
+    }
+
+    @GetMapping("/{droneId}")
+    public ResponseEntity<DroneGeofence> get(@PathVariable String droneId){
+        DroneGeofence geofence = geofenceTracker.get(droneId);
+        if (geofence == null)
+            throw ApiError.UNKNOWN_DRONE.exception();
+        return ResponseEntity.ok(geofence);
+    }
+
+    @DeleteMapping("/{droneId}")
+    public ResponseEntity<Void> remove(@PathVariable String droneId){
+        if (!geofenceTracker.remove(droneId))
+            throw ApiError.UNKNOWN_DRONE.exception();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,87 @@
+package uk.ac.ed.acp.cw2.controller;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import uk.ac.ed.acp.cw2.dto.JobStatus;
+import uk.ac.ed.acp.cw2.dto.PathRequest;
+import uk.ac.ed.acp.cw2.dto.ScheduleRequest;
+import uk.ac.ed.acp.cw2.parser.ApiError;
+import uk.ac.ed.acp.cw2.parser.RequestParser;
+import uk.ac.ed.acp.cw2.planner.DeliveryScheduler;
+import uk.ac.ed.acp.cw2.planner.PathService;
+import uk.ac.ed.acp.cw2.service.JobService;
+
+import java.net.URI;
+
+/**
+ * Submit, poll and fetch for planning requests too long to hold an HTTP thread.
+ * A submission answers 202 with the job's status and its location, or 429 at
+ * once when the tenant's or the whole queue is full. The tenant is the
+ * {@code X-Tenant-Id} header, and {@code deadlineMs} bounds the job's life from
+ * submission.
+ */
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/v1/jobs")
+public class JobController {
+
+    static final String TENANT_HEADER = "X-Tenant-Id";
+    static final String DEFAULT_TENANT = "default";
+
+    private final RequestParser requestParser;
+    private final PathService pathService;
+    private final DeliveryScheduler deliveryScheduler;
+    private final JobService jobService;
+
+    public JobController(RequestParser requestParser, PathService pathService, DeliveryScheduler deliveryScheduler,
+                         JobService jobService) {
+        this.requestParser = requestParser;
+        this.pathService = pathService;
+        this.deliveryScheduler = deliveryScheduler;
+        this.jobService = jobService;
+    }
+
+    /** Queues a /path request; the result is the same flight path or error /path gives. */
+    @PostMapping("/path")
+    public ResponseEntity<JobStatus> path(@RequestHeader(name = TENANT_HEADER, defaultValue = DEFAULT_TENANT) String tenant,
+                                          @RequestParam(required = false) String deadlineMs,
+                                          @RequestBody byte[] body){
+        PathRequest request = requestParser.parsePathRequest(body);
+        JobStatus job = jobService.submit(tenant, requestParser.parseDeadline(deadlineMs), () -> pathService.plan(request));
+        return ResponseEntity.accepted().location(URI.create("/api/v1/jobs/" + job.id())).body(job);
+    }
+
+    /** Queues a /schedule request; the result is the same schedule or error /schedule gives. */
+    @PostMapping("/schedule")
+    public ResponseEntity<JobStatus> schedule(@RequestHeader(name = TENANT_HEADER, defaultValue = DEFAULT_TENANT) String tenant,
+                                              @RequestParam(required = false) String deadlineMs,
+                                              @RequestBody byte[] body){
+        ScheduleRequest request = requestParser.parseScheduleRequest(body);
+        JobStatus job = jobService.submit(tenant, requestParser.parseDeadline(deadlineMs),
+                () -> deliveryScheduler.schedule(request));
+        return ResponseEntity.accepted().location(URI.create("/api/v1/jobs/" + job.id())).body(job);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<JobStatus> status(@PathVariable String id){
+        JobStatus job = jobService.status(id);
+        if (job == null)
+            throw ApiError.UNKNOWN_JOB.exception();
+        return ResponseEntity.ok(job);
+    }
+
+    @GetMapping("/{id}/result")
+    public ResponseEntity<Object> result(@PathVariable String id){
+        return ResponseEntity.ok(jobService.result(id));
+    }
+
+    /** Cancels the job, answering with its status afterwards. */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<JobStatus> cancel(@PathVariable String id){
+        JobStatus job = jobService.cancel(id);
+        if (job == null)
+            throw ApiError.UNKNOWN_JOB.exception();
+        return ResponseEntity.ok(job);
+    }
+}
@@ -0,0 +1,67 @@
+package uk.ac.ed.acp.cw2.controller;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import uk.ac.ed.acp.cw2.dto.FlightPath;
+import uk.ac.ed.acp.cw2.dto.PathCheck;
+import uk.ac.ed.acp.cw2.dto.PathCheckRequest;
+import uk.ac.ed.acp.cw2.dto.Schedule;
+import uk.ac.ed.acp.cw2.parser.RequestParser;
+import uk.ac.ed.acp.cw2.planner.DeliveryScheduler;
+import uk.ac.ed.acp.cw2.planner.PathCache;
+import uk.ac.ed.acp.cw2.planner.PathService;
+import uk.ac.ed.acp.cw2.service.PathValidator;
+
+import java.util.List;
+
+/**
+ * Server-side flight planning over the /nextPosition move lattice.
+ */
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/v1")
+public class PathController {
+
+    private final RequestParser requestParser;
+    private final PathService pathService;
+    private final PathValidator pathValidator;
+    private final DeliveryScheduler deliveryScheduler;
+
+    public PathController(RequestParser requestParser, PathService pathService, PathValidator pathValidator,
+                          DeliveryScheduler deliveryScheduler) {
+        this.requestParser = requestParser;
+        this.pathService = pathService;
+        this.pathValidator = pathValidator;
+        this.deliveryScheduler = deliveryScheduler;
+    }
+
+    /**
+     * Plans a path from {@code from} to a position close to {@code to}. The no-fly
+     * zones are the registered regions listed in {@code noFlyZones}, or those
+     * registered as no-fly zones when the list is left out. Repeat routes are answered from {@link PathCache}.
+     */
+    @PostMapping("/path")
+    public ResponseEntity<FlightPath> path(@RequestBody byte[] body){
+        return ResponseEntity.ok(pathService.plan(requestParser.parsePathRequest(body)));
+    }
+
+    /**
+     * Checks candidate paths against the same no-fly zones /path avoids, reporting
+     * for each the first move that touches one.
+     */
+    @PostMapping("/path/check")
+    public ResponseEntity<List<PathCheck>> check(@RequestBody byte[] body){
+        PathCheckRequest request = requestParser.parsePathCheckRequest(body);
+        return ResponseEntity.ok(pathValidator.check(request.paths(), request.noFlyZones()));
+    }
+
+    /**
+     * Assigns deliveries to candidate drones and orders each drone's stops, on
+     * estimated move counts; the legs themselves are planned with /path.
+     */
+    @PostMapping("/schedule")
+    public ResponseEntity<Schedule> schedule(@RequestBody byte[] body){
+        return ResponseEntity.ok(deliveryScheduler.schedule(requestParser.parseScheduleRequest(body)));
+    }
+}
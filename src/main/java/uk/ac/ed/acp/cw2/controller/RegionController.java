@@ -0,0 +1,97 @@
+package uk.ac.ed.acp.cw2.controller;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.dto.PositionBatch;
+import uk.ac.ed.acp.cw2.dto.Region;
+import uk.ac.ed.acp.cw2.parser.ApiError;
+import uk.ac.ed.acp.cw2.parser.RequestParser;
+import uk.ac.ed.acp.cw2.service.RegionRegistry;
+import uk.ac.ed.acp.cw2.service.RegisteredRegion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Endpoints for registering a region once and querying it by id afterwards.
+ */
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/v1/regions")
+public class RegionController {
+
+    private final RequestParser requestParser;
+    private final RegionRegistry regionRegistry;
+
+    public RegionController(RequestParser requestParser, RegionRegistry regionRegistry) {
+        this.requestParser = requestParser;
+        this.regionRegistry = regionRegistry;
+    }
+
+    /**
+     * Registers a region; with {@code noFly=true} it is also one of the no-fly zones
+     * paths avoid when they name none of their own.
+     */
+    @PostMapping
+    public ResponseEntity<Map<String,String>> register(@RequestParam(required = false) String noFly,
+                                                       @RequestBody byte[] body){
+        Region region = requestParser.parseRegion(body);
+        RegisteredRegion registered = regionRegistry.register(region, requestParser.parseNoFly(noFly));
+        return ResponseEntity.status(HttpStatus.CREATED).body(Map.of("id", registered.id()));
+    }
+
+    /**
+     * Ids of every registered region containing the position, answered from the
+     * spatial index instead of one /isInRegion call per region.
+     */
+    @PostMapping("/containing")
+    public ResponseEntity<Map<String,List<String>>> containing(@RequestBody byte[] body){
+        LngLat position = requestParser.parsePositionRequest(body);
+        List<RegisteredRegion> regions = regionRegistry.snapshot().containing(position.lng(), position.lat());
+        List<String> ids = new ArrayList<>(regions.size());
+        for (RegisteredRegion region : regions) {
+            ids.add(region.id());
+        }
+        return ResponseEntity.ok(Map.of("regions", ids));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Region> get(@PathVariable String id){
+        return ResponseEntity.ok(lookup(id).region());
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> remove(@PathVariable String id){
+        if (!regionRegistry.remove(id))
+            throw ApiError.UNKNOWN_REGION.exception();
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/{id}/isInRegion")
+    public ResponseEntity<Map<String,Boolean>> isInRegion(@PathVariable String id, @RequestBody byte[] body){
+        RegisteredRegion region = lookup(id);
+        LngLat position = requestParser.parsePositionRequest(body);
+        boolean inRegion = region.polygon().contains(position.lng(), position.lat());
+        return ResponseEntity.ok(inRegion ? ServiceController.IN_REGION : ServiceController.NOT_IN_REGION);
+    }
+
+    @PostMapping("/{id}/batch/isInRegion")
+    public ResponseEntity<boolean[]> isInRegionBatch(@PathVariable String id, @RequestBody byte[] body){
+        RegisteredRegion region = lookup(id);
+        PositionBatch positions = requestParser.parsePositionBatch(body);
+        boolean[] inRegion = new boolean[positions.size()];
+        region.polygon().contains(positions.lng(), positions.lat(), inRegion);
+        return ResponseEntity.ok(inRegion);
+    }
+
+    private RegisteredRegion lookup(String id) {
+        RegisteredRegion region = regionRegistry.get(id);
+        if (region == null)
+            throw ApiError.UNKNOWN_REGION.exception();
+        return region;
+    }
+}
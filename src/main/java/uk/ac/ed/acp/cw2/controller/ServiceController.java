@@ -4,10 +4,29 @@ import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.HealthComponent;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.web.bind.annotation.*;
+import uk.ac.ed.acp.cw2.dto.BatchDistanceRequest;
+import uk.ac.ed.acp.cw2.dto.BatchRegionRequest;
+import uk.ac.ed.acp.cw2.dto.DistanceMatrixRequest;
+import uk.ac.ed.acp.cw2.dto.DistanceMatrixResponse;
+import uk.ac.ed.acp.cw2.dto.DistanceRequest;
+import uk.ac.ed.acp.cw2.dto.IsInRegionRequest;
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.dto.NextPositionRequest;
+import uk.ac.ed.acp.cw2.dto.NextPositionsRequest;
+import uk.ac.ed.acp.cw2.geometry.DistanceMatrix;
+import uk.ac.ed.acp.cw2.geometry.Geometry;
+import uk.ac.ed.acp.cw2.geometry.Moves;
+import uk.ac.ed.acp.cw2.geometry.Polygon;
+import uk.ac.ed.acp.cw2.parser.ApiError;
+import uk.ac.ed.acp.cw2.parser.RequestParser;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -26,14 +45,29 @@ import static java.lang.Math.*;
  * and managing key-value pairs through POST requests.
  */
 @RestController()
+@Profile("!reactive")
 @RequestMapping("/api/v1")
 public class ServiceController {
 
     private static final Logger logger = LoggerFactory.getLogger(ServiceController.class);
 
+    static final Map<String,Boolean> IN_REGION = Map.of("isInRegion", true);
+    static final Map<String,Boolean> NOT_IN_REGION = Map.of("isInRegion", false);
+
+    private final RequestParser requestParser;
+    private final HealthEndpoint healthEndpoint;
+    private final long maxMatrixCells;
+
     @Value("${ilp.service.url}")
     public URL serviceUrl;
 
+    public ServiceController(RequestParser requestParser, HealthEndpoint healthEndpoint,
+                             @Value("${ilp.matrix.max-cells:4000000}") long maxMatrixCells) {
+        this.requestParser = requestParser;
+        this.healthEndpoint = healthEndpoint;
+        this.maxMatrixCells = maxMatrixCells;
+    }
+
 
     @GetMapping("/")
     public String index() {
@@ -48,161 +82,114 @@ public class ServiceController {
         return "s1802871";
     }
 
+    /**
+     * Kept for clients of the old path; answers with the real actuator health, 503
+     * when it is DOWN or OUT_OF_SERVICE as /actuator/health does.
+     */
     @GetMapping("actuator/health")
-    public ResponseEntity<Map<String,String>> health(){
-        return ResponseEntity.ok(Map.of("status","UP"));
+    public ResponseEntity<HealthComponent> health(){
+        HealthComponent health = healthEndpoint.health();
+        Status status = health.getStatus();
+        boolean unavailable = Status.DOWN.equals(status) || Status.OUT_OF_SERVICE.equals(status);
+        return ResponseEntity.status(unavailable ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.OK).body(health);
     }
 
     @PostMapping("/distanceTo")
-    public ResponseEntity<?> distanceTo(@RequestBody Map<String,Object> body){
-
-        Map<String,Object> position1 = (Map<String,Object>)body.get("position1");
-        Map<String,Object> position2 = (Map<String,Object>)body.get("position2");
-        if (position1 == null || position2 == null)
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("status",400,"error","bad request","message","missing position1 or position2"));
-
-
-
-        try {
-            Double position1_lng = (Double) position1.get("lng"); // getting lng and lat
-            Double position1_lat = (Double) position1.get("lat");
-            Double position2_lng = (Double) position2.get("lng");
-            Double position2_lat = (Double) position2.get("lat");
-
-            if (position1_lng == null || position1_lat == null || position2_lng == null || position2_lat == null )
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("status",400,"error","bad request","message","lack of lng or lat"));
-
-
-            Double euclidianDistance = sqrt(pow(position2_lng - position1_lng, 2) + pow(position2_lat - position1_lat, 2)); // calculating disitance.
-
-            return ResponseEntity.ok(euclidianDistance);
-        }catch (ClassCastException e){
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("status",400,"error","bad request","message","lng or lat type error "));
-        }
-
-
-
-
+    public ResponseEntity<?> distanceTo(@RequestBody byte[] body){
+        DistanceRequest request = requestParser.parseDistanceRequest(body);
+        LngLat p1 = request.position1();
+        LngLat p2 = request.position2();
+        return ResponseEntity.ok(Geometry.distance(p1.lng(), p1.lat(), p2.lng(), p2.lat()));
     }
-    @PostMapping("/isCloseTo")
-    public ResponseEntity<?> isCloseTo(@RequestBody Map<String,Object> body){
-
-        ResponseEntity<?> distanceOfTwoPosition = distanceTo(body);;
 
-        if (distanceOfTwoPosition.getStatusCode()!= HttpStatus.OK){
-            return distanceOfTwoPosition;
-        } else {
-            return ResponseEntity.ok((double) distanceOfTwoPosition.getBody() < 0.00015);
-        }
+    @PostMapping("/isCloseTo")
+    public ResponseEntity<?> isCloseTo(@RequestBody byte[] body){
+        DistanceRequest request = requestParser.parseDistanceRequest(body);
+        LngLat p1 = request.position1();
+        LngLat p2 = request.position2();
+        return ResponseEntity.ok(Geometry.isClose(p1.lng(), p1.lat(), p2.lng(), p2.lat()));
     }
 
     @PostMapping("/nextPosition")
-    public ResponseEntity<?> nextPosition(@RequestBody Map<String,Object> body){
-        Map<String, Object> lngAndlat = (Map<String, Object>) body.get("start");
-
+    public ResponseEntity<?> nextPosition(@RequestBody byte[] body){
+        NextPositionRequest request = requestParser.parseNextPositionRequest(body);
+        LngLat start = request.start();
 
-        if (lngAndlat == null || lngAndlat.get("lng") == null || lngAndlat.get("lat")  == null ||  body.get("angle")  == null)
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("status",400,"error","bad request","message","missing lngOfPosition or latOfPosition or angleOfMovement"));
-
-        BigDecimal lngOfPosition = new BigDecimal(lngAndlat.get("lng").toString());
-        BigDecimal latOfPosition = new BigDecimal(lngAndlat.get("lat").toString());
-        BigDecimal angleOfMovement = new BigDecimal((body.get("angle")).toString());
-        BigDecimal step = new BigDecimal(0.00015);
-
-        double angle = angleOfMovement.doubleValue();
-
-
-
-        try {
-            BigDecimal xCoefficient =  new BigDecimal(Math.cos(Math.toRadians(angle)));
-            BigDecimal yCoefficient =  new BigDecimal(Math.sin(Math.toRadians(angle)));
-            BigDecimal dx = step.multiply(xCoefficient);
-            BigDecimal dy = step.multiply(yCoefficient);
-
-
-            BigDecimal updatedLng = lngOfPosition.add(dx).setScale(6, RoundingMode.HALF_UP);
-            BigDecimal updatedLat = latOfPosition.add(dy).setScale(6, RoundingMode.HALF_UP);
+        double[] next = new double[2];
+        Moves.next(start.lng(), start.lat(), request.angle(), next);
+        return ResponseEntity.ok(new LngLat(next[0], next[1]));
+    }
 
-            return ResponseEntity.ok(Map.of("lat", updatedLat,"lng",updatedLng));
-        }catch (ClassCastException e){
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("status",400,"error","bad request","message","lng or lat type error "));
+    /**
+     * Applies a sequence of moves server-side. The trajectory starts with the start
+     * position and has one more entry per angle, each computed from the previous
+     * rounded position exactly as chained /nextPosition calls would.
+     */
+    @PostMapping("/nextPositions")
+    public ResponseEntity<LngLat[]> nextPositions(@RequestBody byte[] body){
+        NextPositionsRequest request = requestParser.parseNextPositionsRequest(body);
+        double[] angles = request.angles();
+        LngLat[] trajectory = new LngLat[angles.length + 1];
+        trajectory[0] = request.start();
+        double[] position = {request.start().lng(), request.start().lat()};
+        for (int i = 0; i < angles.length; i++) {
+            Moves.next(position[0], position[1], angles[i], position);
+            trajectory[i + 1] = new LngLat(position[0], position[1]);
         }
+        return ResponseEntity.ok(trajectory);
     }
 
     @PostMapping("/isInRegion")
-    public ResponseEntity<?> isInRegion(@RequestBody Map<String,Object> body){
-        Map<String,Object> position = (Map<String,Object>)body.get("position");
-        if (position == null||position.get("lng") == null ||position.get("lat") == null )
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("status",400,"error","bad request","message","missing  position or lng or lat"));
-        Double position_lng = (Double) position.get("lng");
-        Double position_lat = (Double) position.get("lat");
-        Map<String,Object> region_test = (Map<String,Object>)body.get("region");
-        if (region_test == null)
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("status",400,"error","bad request","message","missing  region"));
-
-
-        Map<String,Object> region = (Map<String,Object>)body.get("region");
-        List<Map<String,Object>> vertices =(List<Map<String,Object>>) region.get("vertices");
-
-        if ((vertices== null)||(vertices.size() != 5)) // to determine wether the  5 vertices form a rectangle
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("status",400,"error","bad request","message","invalid input, missing vertices or ordinates number less that 5 "));
-        //for robustness input, when lng or lat in each vertice was missing, error will be catched and 400 will be cast.
-        for (int i = 0; i < vertices.size(); i++) {
-            Map<String, Object> point = vertices.get(i);
-            Object lng = point.get("lng");
-            Object lat = point.get("lat");
-
-            if (lng == null || lat == null) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                        .body(Map.of("status", 400, "error", "Missing lng or lat in vertex at index " + i));
-            }
-        }
-//The user input data may be out of order. Here, we loop through the
-//coordinate system to find the lower left and upper right corners of
-//the rectangle. We then use the diagonal of the rectangle to
-//determine the data.
-        try {
-            Map<String,Object> ordinatesFrist = vertices.get(0);
-            Map<String,Object> ordinatesLast = vertices.get(4);
-
-            double ordinatesFrist_lat = (Double) ordinatesFrist.get("lat");
-            double ordinatesFrist_lng = (Double) ordinatesFrist.get("lng");
-            double ordinatesLast_lat =  (Double) ordinatesLast.get("lat");
-            double ordinatesLast_lng =  (Double) ordinatesLast.get("lng");
-
-
-            if((ordinatesFrist_lat != ordinatesLast_lat)||(ordinatesFrist_lng != ordinatesLast_lng))
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("status",400,"error","bad request","message","invalid input,last ordinates does not match with the first one"));
-        }catch (ClassCastException e){
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("status",400,"error","bad request","message","invalid input  "));
-        }
-
-        double x_max = Double.NEGATIVE_INFINITY;
-        double x_min = Double.POSITIVE_INFINITY;
-        double y_max = Double.NEGATIVE_INFINITY;
-        double y_min = Double.POSITIVE_INFINITY;
-        for(Map<String,Object> ordinates: vertices){
-            if(x_max < (Double) ordinates.get("lat"))
-                x_max = (Double) ordinates.get("lat");
-            if(x_min > (Double) ordinates.get("lat"))
-                x_min = (Double) ordinates.get("lat");
-            if(y_max < (Double) ordinates.get("lng"))
-                y_max = (Double) ordinates.get("lng");
-            if(y_min > (Double) ordinates.get("lng"))
-                y_min = (Double) ordinates.get("lng");
-        }
-
-        if ((y_min<=position_lng && position_lng <= y_max)&&(x_min <= position_lat && position_lat <= x_max))
-            return ResponseEntity.ok(Map.of("isInRegion", true));
-        else return ResponseEntity.ok(Map.of("isInRegion", false));
-
-
+    public ResponseEntity<?> isInRegion(@RequestBody byte[] body){
+        IsInRegionRequest request = requestParser.parseIsInRegionRequest(body);
+        LngLat position = request.position();
 
+        Polygon polygon = Polygon.compile(request.region().vertices());
+        boolean inRegion = polygon.contains(position.lng(), position.lat());
+        return ResponseEntity.ok(inRegion ? IN_REGION : NOT_IN_REGION);
     }
 
+    /**
+     * Batch form of /distanceTo: distances for every pair, in request order.
+     */
+    @PostMapping("/batch/distanceTo")
+    public ResponseEntity<double[]> distanceToBatch(@RequestBody byte[] body){
+        BatchDistanceRequest request = requestParser.parseBatchDistanceRequest(body);
+        double[] distances = new double[request.size()];
+        Geometry.distances(request.lng1(), request.lat1(), request.lng2(), request.lat2(), distances);
+        return ResponseEntity.ok(distances);
+    }
 
+    @PostMapping("/batch/isCloseTo")
+    public ResponseEntity<boolean[]> isCloseToBatch(@RequestBody byte[] body){
+        BatchDistanceRequest request = requestParser.parseBatchDistanceRequest(body);
+        boolean[] close = new boolean[request.size()];
+        Geometry.isClose(request.lng1(), request.lat1(), request.lng2(), request.lat2(), close);
+        return ResponseEntity.ok(close);
+    }
 
+    /**
+     * Batch form of /isInRegion: one region, many positions, one verdict per position.
+     */
+    @PostMapping("/batch/isInRegion")
+    public ResponseEntity<boolean[]> isInRegionBatch(@RequestBody byte[] body){
+        BatchRegionRequest request = requestParser.parseBatchRegionRequest(body);
+        Polygon polygon = Polygon.compile(request.region().vertices());
+        boolean[] inRegion = new boolean[request.size()];
+        polygon.contains(request.lng(), request.lat(), inRegion);
+        return ResponseEntity.ok(inRegion);
+    }
 
-
-
+    /**
+     * Every from × to distance at once, computed by the vectorised kernel when the
+     * JVM has jdk.incubator.vector. Asking for squared distances or isCloseTo bits
+     * instead skips the square roots and shrinks the response.
+     */
+    @PostMapping("/batch/distanceMatrix")
+    public ResponseEntity<DistanceMatrixResponse> distanceMatrix(@RequestBody byte[] body){
+        DistanceMatrixRequest request = requestParser.parseDistanceMatrixRequest(body);
+        if (request.cells() > maxMatrixCells)
+            throw ApiError.MATRIX_TOO_LARGE.exception();
+        return ResponseEntity.ok(DistanceMatrixResponse.compute(request, DistanceMatrix.get()));
+    }
 }
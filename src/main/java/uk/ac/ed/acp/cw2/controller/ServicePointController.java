@@ -0,0 +1,45 @@
+package uk.ac.ed.acp.cw2.controller;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import uk.ac.ed.acp.cw2.dto.NearbyServicePoint;
+import uk.ac.ed.acp.cw2.dto.ServicePointQuery;
+import uk.ac.ed.acp.cw2.parser.RequestParser;
+import uk.ac.ed.acp.cw2.service.ServicePointIndex;
+
+import java.util.List;
+
+/**
+ * Finds launch points for an order: the ILP service points nearest to a position,
+ * or within a distance of it, each with its distance and nearest first.
+ */
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/v1/servicePoints")
+public class ServicePointController {
+
+    private final RequestParser requestParser;
+    private final ServicePointIndex servicePointIndex;
+
+    public ServicePointController(RequestParser requestParser, ServicePointIndex servicePointIndex) {
+        this.requestParser = requestParser;
+        this.servicePointIndex = servicePointIndex;
+    }
+
+    @PostMapping("/nearest")
+    public ResponseEntity<List<NearbyServicePoint>> nearest(@RequestBody byte[] body){
+        ServicePointQuery query = requestParser.parseNearestQuery(body);
+        return ResponseEntity.ok(servicePointIndex.nearest(query.position().lng(), query.position().lat(), query.k()));
+    }
+
+    @PostMapping("/within")
+    public ResponseEntity<List<NearbyServicePoint>> within(@RequestBody byte[] body){
+        ServicePointQuery query = requestParser.parseWithinQuery(body);
+        return ResponseEntity.ok(servicePointIndex.within(query.position().lng(), query.position().lat(),
+                query.distance()));
+    }
+}
@@ -0,0 +1,187 @@
+package uk.ac.ed.acp.cw2.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import uk.ac.ed.acp.cw2.dto.GeofenceEvent;
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.geometry.Geometry;
+import uk.ac.ed.acp.cw2.geometry.Polygon;
+import uk.ac.ed.acp.cw2.parser.ApiError;
+import uk.ac.ed.acp.cw2.parser.InvalidRequestException;
+import uk.ac.ed.acp.cw2.parser.PositionStream;
+import uk.ac.ed.acp.cw2.parser.RequestParser;
+import uk.ac.ed.acp.cw2.service.GeofenceTracker;
+import uk.ac.ed.acp.cw2.service.RegionRegistry;
+import uk.ac.ed.acp.cw2.service.RegisteredRegion;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Live telemetry endpoints: the request body is a long-lived stream of positions,
+ * one {@code {"lng": ..., "lat": ...}} per line, and the response streams the
+ * answers back line by line in the same order. Positions are parsed as they arrive and
+ * answered before the next one is waited for, so memory stays flat however long
+ * the stream runs.
+ * <p>
+ * An unknown region is rejected before streaming starts. Once verdicts are flowing
+ * the status is 200, so a bad line ends the stream with the usual error body as its
+ * last line.
+ */
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/v1/stream")
+public class StreamController {
+
+    private static final byte[] IN_REGION = line("{\"isInRegion\":true}");
+    private static final byte[] NOT_IN_REGION = line("{\"isInRegion\":false}");
+    private static final byte[] CLOSE = line("true");
+    private static final byte[] NOT_CLOSE = line("false");
+
+    private final RequestParser requestParser;
+    private final RegionRegistry regionRegistry;
+    private final GeofenceTracker geofenceTracker;
+    private final ApiErrorMetrics errorMetrics;
+    private final ObjectMapper objectMapper;
+
+    public StreamController(RequestParser requestParser, RegionRegistry regionRegistry,
+                            GeofenceTracker geofenceTracker, ApiErrorMetrics errorMetrics,
+                            ObjectMapper objectMapper) {
+        this.requestParser = requestParser;
+        this.regionRegistry = regionRegistry;
+        this.geofenceTracker = geofenceTracker;
+        this.errorMetrics = errorMetrics;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Whether each position is in the registered region. The region is looked up
+     * once, so the whole stream is answered against the same polygon.
+     */
+    @PostMapping("/isInRegion")
+    public void isInRegion(@RequestParam(required = false) String region, InputStream body,
+                           HttpServletResponse response) throws IOException {
+        if (region == null || region.isEmpty())
+            throw ApiError.MISSING_REGION.exception();
+        RegisteredRegion registered = regionRegistry.get(region);
+        if (registered == null)
+            throw ApiError.UNKNOWN_REGION.exception();
+        Polygon polygon = registered.polygon();
+        evaluate(body, response, "/api/v1/stream/isInRegion",
+                (positions, lng, lat) -> polygon.contains(lng, lat) ? IN_REGION : NOT_IN_REGION);
+    }
+
+    /** Whether each position is close to the target given by {@code lng} and {@code lat}. */
+    @PostMapping("/isCloseTo")
+    public void isCloseTo(@RequestParam(required = false) String lng, @RequestParam(required = false) String lat,
+                          InputStream body, HttpServletResponse response) throws IOException {
+        LngLat target = requestParser.parseQueryPosition(lng, lat);
+        evaluate(body, response, "/api/v1/stream/isCloseTo", (positions, positionLng, positionLat) ->
+                Geometry.isClose(positionLng, positionLat, target.lng(), target.lat()) ? CLOSE : NOT_CLOSE);
+    }
+
+    /**
+     * Telemetry from any number of drones, each line carrying a {@code "droneId"}
+     * next to its position. Every line updates that drone's geofence session, and
+     * only the resulting enter and exit events are streamed back.
+     */
+    @PostMapping("/geofence")
+    public void geofence(InputStream body, HttpServletResponse response) throws IOException {
+        evaluate(body, response, "/api/v1/stream/geofence", (positions, lng, lat) -> {
+            String droneId = positions.droneId();
+            if (droneId == null)
+                throw ApiError.MISSING_DRONE_ID.exception();
+            List<GeofenceEvent> events = geofenceTracker.update(droneId, lng, lat);
+            if (events.isEmpty())
+                return null;
+            ByteArrayOutputStream lines = new ByteArrayOutputStream();
+            for (GeofenceEvent event : events) {
+                objectMapper.writeValue(lines, event);
+                lines.write('\n');
+            }
+            return lines.toByteArray();
+        });
+    }
+
+    private void evaluate(InputStream body, HttpServletResponse response, String uri, Verdict verdict)
+            throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        OutputStream out = response.getOutputStream();
+        FlushingInput in = new FlushingInput(body, out);
+        double[] point = new double[2];
+        try (PositionStream positions = requestParser.openPositionStream(in)) {
+            while (positions.next(point)) {
+                byte[] lines = verdict.of(positions, point[0], point[1]);
+                if (lines != null)
+                    in.write(lines);
+            }
+        } catch (InvalidRequestException e) {
+            ApiError error = e.error();
+            errorMetrics.count(error, uri);
+            out.write(objectMapper.writeValueAsBytes(error.response().getBody()));
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    private static byte[] line(String json) {
+        return (json + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** The response lines for one position, or null for none. */
+    @FunctionalInterface
+    private interface Verdict {
+        byte[] of(PositionStream positions, double lng, double lat) throws IOException;
+    }
+
+    /**
+     * The request body, flushing the verdicts written so far whenever the parser
+     * needs more input. Lines that arrive together are answered in one write, and
+     * no verdict is held back while the server waits for the client.
+     */
+    private static final class FlushingInput extends FilterInputStream {
+
+        private final OutputStream out;
+        private boolean pending;
+
+        FlushingInput(InputStream in, OutputStream out) {
+            super(in);
+            this.out = out;
+        }
+
+        void write(byte[] line) throws IOException {
+            out.write(line);
+            pending = true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            flushPending();
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            flushPending();
+            return super.read(b, off, len);
+        }
+
+        private void flushPending() throws IOException {
+            if (pending) {
+                out.flush();
+                pending = false;
+            }
+        }
+    }
+}
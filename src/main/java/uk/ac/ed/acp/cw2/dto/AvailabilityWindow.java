@@ -0,0 +1,13 @@
+package uk.ac.ed.acp.cw2.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+/**
+ * A weekly time window in which a drone can fly.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record AvailabilityWindow(DayOfWeek dayOfWeek, LocalTime from, LocalTime until) {
+}
@@ -0,0 +1,13 @@
+package uk.ac.ed.acp.cw2.dto;
+
+/**
+ * Body of the batch /distanceTo and /isCloseTo endpoints, held as parallel
+ * coordinate arrays: pair {@code i} is {@code (lng1[i], lat1[i])} and
+ * {@code (lng2[i], lat2[i])}.
+ */
+public record BatchDistanceRequest(double[] lng1, double[] lat1, double[] lng2, double[] lat2) {
+
+    public int size() {
+        return lng1.length;
+    }
+}
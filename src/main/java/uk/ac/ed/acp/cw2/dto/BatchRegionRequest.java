@@ -0,0 +1,12 @@
+package uk.ac.ed.acp.cw2.dto;
+
+/**
+ * Body of the batch /isInRegion endpoint: one region and many positions, held as
+ * parallel coordinate arrays.
+ */
+public record BatchRegionRequest(Region region, double[] lng, double[] lat) {
+
+    public int size() {
+        return lng.length;
+    }
+}
@@ -0,0 +1,15 @@
+package uk.ac.ed.acp.cw2.dto;
+
+/**
+ * A drone a schedule may use, starting from and returning to {@code start}. An
+ * unlimited capacity or move budget is {@code Infinity} and
+ * {@link Integer#MAX_VALUE}; the costs are those of {@link DroneCapability}.
+ */
+public record CandidateDrone(String id, LngLat start, double capacity, int maxMoves, double costPerMove,
+                             double costInitial, double costFinal) {
+
+    /** What a trip of {@code moves} moves costs with this drone. */
+    public double cost(long moves) {
+        return costInitial + moves * costPerMove + costFinal;
+    }
+}
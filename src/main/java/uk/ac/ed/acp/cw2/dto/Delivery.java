@@ -0,0 +1,7 @@
+package uk.ac.ed.acp.cw2.dto;
+
+/**
+ * One delivery to schedule: where it goes and the capacity it takes up.
+ */
+public record Delivery(String id, LngLat location, double weight) {
+}
@@ -0,0 +1,36 @@
+package uk.ac.ed.acp.cw2.dto;
+
+/**
+ * Body of /batch/distanceMatrix: two position lists, each as parallel coordinate
+ * arrays, and the form the {@code from.size() × to.size()} result should take.
+ */
+public record DistanceMatrixRequest(PositionBatch from, PositionBatch to, Output output) {
+
+    public enum Output {
+        /** Euclidean distances, as /distanceTo. */
+        DISTANCE("distance"),
+        /** Squared distances, for callers that only compare or rank them. */
+        SQUARED("squared"),
+        /** /isCloseTo verdicts packed into a bitset. */
+        IS_CLOSE_TO("isCloseTo");
+
+        private final String value;
+
+        Output(String value) {
+            this.value = value;
+        }
+
+        /** The name used in requests, or null for an unknown name. */
+        public static Output of(String value) {
+            for (Output output : values()) {
+                if (output.value.equals(value))
+                    return output;
+            }
+            return null;
+        }
+    }
+
+    public long cells() {
+        return (long) from.size() * to.size();
+    }
+}
@@ -0,0 +1,48 @@
+package uk.ac.ed.acp.cw2.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import uk.ac.ed.acp.cw2.geometry.DistanceMatrix;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Result of /batch/distanceMatrix, row-major with one row per {@code from}
+ * position. Exactly one of the result fields is set, as the request asked.
+ * {@code isCloseTo} is a bitset, the cell for {@code (i, j)} being bit
+ * {@code (i * columns + j) % 8} of byte {@code (i * columns + j) / 8}; as a
+ * {@code byte[]} it is sent base64-encoded, about a sixth of the size of a
+ * JSON boolean array.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record DistanceMatrixResponse(int rows, int columns, double[] distances, double[] squaredDistances,
+                                     byte[] isCloseTo) {
+
+    /** Computes the matrix the request asks for with {@code kernel}. */
+    public static DistanceMatrixResponse compute(DistanceMatrixRequest request, DistanceMatrix kernel) {
+        PositionBatch from = request.from();
+        PositionBatch to = request.to();
+        int cells = Math.toIntExact(request.cells());
+        return switch (request.output()) {
+            case DISTANCE -> {
+                double[] distances = new double[cells];
+                kernel.distances(from.lng(), from.lat(), to.lng(), to.lat(), distances);
+                yield new DistanceMatrixResponse(from.size(), to.size(), distances, null, null);
+            }
+            case SQUARED -> {
+                double[] squared = new double[cells];
+                kernel.squaredDistances(from.lng(), from.lat(), to.lng(), to.lat(), squared);
+                yield new DistanceMatrixResponse(from.size(), to.size(), null, squared, null);
+            }
+            case IS_CLOSE_TO -> {
+                long[] bits = new long[DistanceMatrix.words(cells)];
+                kernel.isClose(from.lng(), from.lat(), to.lng(), to.lat(), bits);
+                ByteBuffer bytes = ByteBuffer.allocate(bits.length * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                bytes.asLongBuffer().put(bits);
+                byte[] packed = new byte[(cells + 7) >>> 3];
+                bytes.get(packed);
+                yield new DistanceMatrixResponse(from.size(), to.size(), null, null, packed);
+            }
+        };
+    }
+}
@@ -0,0 +1,7 @@
+package uk.ac.ed.acp.cw2.dto;
+
+/**
+ * Body of /distanceTo and /isCloseTo.
+ */
+public record DistanceRequest(LngLat position1, LngLat position2) {
+}
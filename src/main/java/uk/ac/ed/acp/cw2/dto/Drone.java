@@ -0,0 +1,10 @@
+package uk.ac.ed.acp.cw2.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * A drone as published by the ILP REST service.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record Drone(String name, String id, DroneCapability capability) {
+}
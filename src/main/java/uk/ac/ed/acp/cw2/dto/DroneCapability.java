@@ -0,0 +1,11 @@
+package uk.ac.ed.acp.cw2.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * What a drone can carry and what flying it costs.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record DroneCapability(boolean cooling, boolean heating, double capacity, int maxMoves,
+                              double costPerMove, double costInitial, double costFinal) {
+}
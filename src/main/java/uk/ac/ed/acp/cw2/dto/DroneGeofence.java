@@ -0,0 +1,9 @@
+package uk.ac.ed.acp.cw2.dto;
+
+import java.util.List;
+
+/**
+ * A drone's last reported position and the ids of the registered regions containing it.
+ */
+public record DroneGeofence(String droneId, LngLat position, List<String> regions) {
+}
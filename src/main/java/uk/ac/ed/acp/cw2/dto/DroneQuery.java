@@ -0,0 +1,14 @@
+package uk.ac.ed.acp.cw2.dto;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+/**
+ * Body of /drones/query: every criterion given must hold. Absent flags, ids,
+ * days and times are null and absent bounds NaN. A day or time is matched
+ * against the drone's availability windows, at {@code servicePointId} when that
+ * is given too.
+ */
+public record DroneQuery(Boolean cooling, Boolean heating, double minCapacity, double minMaxMoves,
+                         double maxCostPerMove, Integer servicePointId, DayOfWeek dayOfWeek, LocalTime time) {
+}
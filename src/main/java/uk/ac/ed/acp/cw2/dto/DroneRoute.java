@@ -0,0 +1,10 @@
+package uk.ac.ed.acp.cw2.dto;
+
+import java.util.List;
+
+/**
+ * One drone's trip in a schedule: the ids of its deliveries in the order it makes
+ * them, and the estimated moves and cost of flying out, between them and back.
+ */
+public record DroneRoute(String droneId, List<String> deliveries, long moves, double cost) {
+}
@@ -0,0 +1,15 @@
+package uk.ac.ed.acp.cw2.dto;
+
+import java.util.List;
+
+/**
+ * A planned flight: every position from the start to the final one, and the angle
+ * of each move between them ({@code angles[i]} leads from {@code path[i]} to
+ * {@code path[i + 1]}).
+ */
+public record FlightPath(List<LngLat> path, double[] angles) {
+
+    public int moves() {
+        return angles.length;
+    }
+}
@@ -0,0 +1,15 @@
+package uk.ac.ed.acp.cw2.dto;
+
+/**
+ * A drone crossing a region boundary: {@code event} is "enter" or "exit".
+ */
+public record GeofenceEvent(String droneId, String event, String region) {
+
+    public static GeofenceEvent enter(String droneId, String region) {
+        return new GeofenceEvent(droneId, "enter", region);
+    }
+
+    public static GeofenceEvent exit(String droneId, String region) {
+        return new GeofenceEvent(droneId, "exit", region);
+    }
+}
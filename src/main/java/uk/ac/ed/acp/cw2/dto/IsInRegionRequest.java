@@ -0,0 +1,7 @@
+package uk.ac.ed.acp.cw2.dto;
+
+/**
+ * Body of /isInRegion.
+ */
+public record IsInRegionRequest(LngLat position, Region region) {
+}
@@ -0,0 +1,15 @@
+package uk.ac.ed.acp.cw2.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
+/**
+ * Where an asynchronous job is: {@code state} is "queued", "running", "succeeded",
+ * "failed", "cancelled" or "expired" (missed its deadline). {@code error} is the
+ * message of a failed job; the result itself is fetched separately.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record JobStatus(String id, String tenant, String state, Instant submittedAt, Instant startedAt,
+                        Instant finishedAt, Instant deadline, String error) {
+}
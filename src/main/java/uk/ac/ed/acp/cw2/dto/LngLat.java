@@ -0,0 +1,7 @@
+package uk.ac.ed.acp.cw2.dto;
+
+/**
+ * An immutable longitude / latitude pair, the unit every geometry endpoint works in.
+ */
+public record LngLat(double lng, double lat) {
+}
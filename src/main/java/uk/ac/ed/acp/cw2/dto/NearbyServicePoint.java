@@ -0,0 +1,7 @@
+package uk.ac.ed.acp.cw2.dto;
+
+/**
+ * A service point found near a position, with its distance from it.
+ */
+public record NearbyServicePoint(int id, String name, LngLat location, double distance) {
+}
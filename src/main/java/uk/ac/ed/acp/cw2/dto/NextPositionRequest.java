@@ -0,0 +1,7 @@
+package uk.ac.ed.acp.cw2.dto;
+
+/**
+ * Body of /nextPosition: a start position and the angle of movement in degrees.
+ */
+public record NextPositionRequest(LngLat start, double angle) {
+}
@@ -0,0 +1,8 @@
+package uk.ac.ed.acp.cw2.dto;
+
+/**
+ * Body of /nextPositions: a start position and the angles of the moves to apply
+ * to it, in order.
+ */
+public record NextPositionsRequest(LngLat start, double[] angles) {
+}
@@ -0,0 +1,18 @@
+package uk.ac.ed.acp.cw2.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * The verdict on one candidate path. An illegal path names its first move that
+ * touches a no-fly zone: its index, counted from 0 like {@link FlightPath#angles()},
+ * its two ends and the region it touches.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PathCheck(boolean legal, Integer move, LngLat from, LngLat to, String noFlyZone) {
+
+    public static final PathCheck LEGAL = new PathCheck(true, null, null, null, null);
+
+    public static PathCheck illegal(int move, LngLat from, LngLat to, String noFlyZone) {
+        return new PathCheck(false, move, from, to, noFlyZone);
+    }
+}
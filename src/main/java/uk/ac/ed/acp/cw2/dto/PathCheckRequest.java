@@ -0,0 +1,11 @@
+package uk.ac.ed.acp.cw2.dto;
+
+import java.util.List;
+
+/**
+ * Body of /path/check: candidate paths, each a list of positions, and the
+ * registered region ids to check them against; null means every registered
+ * region, as for /path.
+ */
+public record PathCheckRequest(List<PositionBatch> paths, List<String> noFlyZones) {
+}
@@ -0,0 +1,10 @@
+package uk.ac.ed.acp.cw2.dto;
+
+import java.util.List;
+
+/**
+ * Body of /path. {@code noFlyZones} lists registered region ids to avoid; null
+ * means every registered region.
+ */
+public record PathRequest(LngLat from, LngLat to, List<String> noFlyZones) {
+}
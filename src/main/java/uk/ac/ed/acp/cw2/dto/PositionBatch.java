@@ -0,0 +1,11 @@
+package uk.ac.ed.acp.cw2.dto;
+
+/**
+ * Many positions held as parallel coordinate arrays.
+ */
+public record PositionBatch(double[] lng, double[] lat) {
+
+    public int size() {
+        return lng.length;
+    }
+}
@@ -0,0 +1,21 @@
+package uk.ac.ed.acp.cw2.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * An immutable snapshot of the ILP reference data. {@code version} increases
+ * whenever a refresh brings any change; {@code centralArea} is null when the
+ * service does not publish one.
+ */
+public record ReferenceData(long version, Instant loadedAt, List<Drone> drones, List<ServicePoint> servicePoints,
+                            List<RestrictedArea> restrictedAreas, Region centralArea,
+                            List<ServicePointDrones> dronesForServicePoints) {
+
+    public ReferenceData {
+        drones = List.copyOf(drones);
+        servicePoints = List.copyOf(servicePoints);
+        restrictedAreas = List.copyOf(restrictedAreas);
+        dronesForServicePoints = List.copyOf(dronesForServicePoints);
+    }
+}
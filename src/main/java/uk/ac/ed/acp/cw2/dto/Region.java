@@ -0,0 +1,10 @@
+package uk.ac.ed.acp.cw2.dto;
+
+import java.util.List;
+
+/**
+ * A named region given by its vertices. The last vertex repeats the first one
+ * so the polygon is closed.
+ */
+public record Region(String name, List<LngLat> vertices) {
+}
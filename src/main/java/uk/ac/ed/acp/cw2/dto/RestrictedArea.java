@@ -0,0 +1,16 @@
+package uk.ac.ed.acp.cw2.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/**
+ * A no-fly zone as published by the ILP REST service.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record RestrictedArea(String name, Integer id, List<LngLat> vertices) {
+
+    public Region toRegion() {
+        return new Region(name, vertices);
+    }
+}
@@ -0,0 +1,11 @@
+package uk.ac.ed.acp.cw2.dto;
+
+import java.util.List;
+
+/**
+ * Result of /schedule: one route per drone used, in the order they were chosen,
+ * the ids of the deliveries no drone could take, and the routes' total moves and
+ * cost.
+ */
+public record Schedule(List<DroneRoute> routes, List<String> unassigned, long moves, double cost) {
+}
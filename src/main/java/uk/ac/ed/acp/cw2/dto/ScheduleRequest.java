@@ -0,0 +1,9 @@
+package uk.ac.ed.acp.cw2.dto;
+
+import java.util.List;
+
+/**
+ * Body of /schedule: the deliveries to make and the drones that may make them.
+ */
+public record ScheduleRequest(List<Delivery> deliveries, List<CandidateDrone> drones) {
+}
@@ -0,0 +1,10 @@
+package uk.ac.ed.acp.cw2.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * A place drones launch from and return to.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ServicePoint(String name, int id, LngLat location) {
+}
@@ -0,0 +1,12 @@
+package uk.ac.ed.acp.cw2.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/**
+ * The drones based at one service point and when each of them is available.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ServicePointDrones(int servicePointId, List<DroneAvailability> drones) {
+}
@@ -0,0 +1,8 @@
+package uk.ac.ed.acp.cw2.dto;
+
+/**
+ * Body of the service point queries: the position to search from, with {@code k}
+ * for /servicePoints/nearest or {@code distance} for /servicePoints/within.
+ */
+public record ServicePointQuery(LngLat position, int k, double distance) {
+}
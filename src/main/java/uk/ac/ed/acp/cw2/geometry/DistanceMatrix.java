@@ -0,0 +1,77 @@
+package uk.ac.ed.acp.cw2.geometry;
+
+/**
+ * Every pairwise distance between two position lists, each held as parallel
+ * coordinate arrays. Results are row-major: the entry for {@code from[i]} and
+ * {@code to[j]} is at {@code i * to.length + j}. Every kernel gives bit-for-bit the
+ * answers of {@link Geometry#distance} and {@link Geometry#isClose}.
+ * <p>
+ * {@link #get()} is the vectorised kernel when the JVM runs with
+ * {@code --add-modules jdk.incubator.vector}, and the scalar loops otherwise.
+ */
+public abstract class DistanceMatrix {
+
+    /**
+     * The least squared distance whose square root is not below
+     * {@link Geometry#CLOSE_DISTANCE}. Square root is monotonic, so
+     * {@code squared < CLOSE_SQUARED} exactly when {@link Geometry#isClose} holds,
+     * without taking the root.
+     */
+    static final double CLOSE_SQUARED = closeSquared();
+
+    private static final DistanceMatrix DEFAULT = load();
+
+    DistanceMatrix() {
+    }
+
+    /** The fastest kernel available in this JVM. */
+    public static DistanceMatrix get() {
+        return DEFAULT;
+    }
+
+    /** The plain loops, available everywhere. */
+    public static DistanceMatrix scalar() {
+        return ScalarDistanceMatrix.INSTANCE;
+    }
+
+    /** Names the kernel and, when vectorised, its vector width. */
+    public abstract String name();
+
+    public abstract void distances(double[] fromLng, double[] fromLat, double[] toLng, double[] toLat,
+                                   double[] out);
+
+    /** Squared distances, skipping the square root for callers that only compare them. */
+    public abstract void squaredDistances(double[] fromLng, double[] fromLat, double[] toLng, double[] toLat,
+                                          double[] out);
+
+    /**
+     * Sets bit {@code i * to.length + j} of {@code bits}, counted from the low bit of
+     * {@code bits[0]}, when the pair is close; {@code bits} must start out clear.
+     */
+    public abstract void isClose(double[] fromLng, double[] fromLat, double[] toLng, double[] toLat, long[] bits);
+
+    /** Words needed by {@link #isClose} for a matrix of this many cells. */
+    public static int words(int cells) {
+        return (cells + 63) >>> 6;
+    }
+
+    private static double closeSquared() {
+        double squared = Geometry.CLOSE_DISTANCE * Geometry.CLOSE_DISTANCE;
+        while (Math.sqrt(squared) >= Geometry.CLOSE_DISTANCE)
+            squared = Math.nextDown(squared);
+        while (Math.sqrt(squared) < Geometry.CLOSE_DISTANCE)
+            squared = Math.nextUp(squared);
+        return squared;
+    }
+
+    private static DistanceMatrix load() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty())
+            return ScalarDistanceMatrix.INSTANCE;
+        try {
+            return (DistanceMatrix) Class.forName(DistanceMatrix.class.getPackageName() + ".VectorDistanceMatrix")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return ScalarDistanceMatrix.INSTANCE;
+        }
+    }
+}
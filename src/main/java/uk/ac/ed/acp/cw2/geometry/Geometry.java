@@ -0,0 +1,40 @@
+package uk.ac.ed.acp.cw2.geometry;
+
+/**
+ * The geometry kernels behind the /api/v1 endpoints. Single and batch endpoints
+ * both go through these methods, so a pair gives the same answer either way.
+ */
+public final class Geometry {
+
+    /** Two positions closer than this are considered close to each other. */
+    public static final double CLOSE_DISTANCE = 0.00015;
+
+    private Geometry() {
+    }
+
+    public static double distance(double lng1, double lat1, double lng2, double lat2) {
+        double dLng = lng2 - lng1;
+        double dLat = lat2 - lat1;
+        return Math.sqrt(dLng * dLng + dLat * dLat);
+    }
+
+    public static boolean isClose(double lng1, double lat1, double lng2, double lat2) {
+        return distance(lng1, lat1, lng2, lat2) < CLOSE_DISTANCE;
+    }
+
+    /**
+     * Writes the distance between {@code (lng1[i], lat1[i])} and {@code (lng2[i], lat2[i])}
+     * to {@code out[i]} for every index of {@code out}.
+     */
+    public static void distances(double[] lng1, double[] lat1, double[] lng2, double[] lat2, double[] out) {
+        for (int i = 0; i < out.length; i++) {
+            out[i] = distance(lng1[i], lat1[i], lng2[i], lat2[i]);
+        }
+    }
+
+    public static void isClose(double[] lng1, double[] lat1, double[] lng2, double[] lat2, boolean[] out) {
+        for (int i = 0; i < out.length; i++) {
+            out[i] = isClose(lng1[i], lat1[i], lng2[i], lat2[i]);
+        }
+    }
+}
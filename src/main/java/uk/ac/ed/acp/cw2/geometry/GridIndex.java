@@ -0,0 +1,199 @@
+package uk.ac.ed.acp.cw2.geometry;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A uniform grid over the bounding boxes of a fixed set of polygons. Each cell lists
+ * the polygons whose box overlaps it, so a point query only runs the exact test on
+ * the few polygons near the point. Cell lists are stored flat: the polygons of cell
+ * {@code c} are {@code items[cellStart[c] .. cellStart[c + 1])}.
+ * <p>
+ * Instances are immutable; a changed polygon set gets a new index.
+ */
+public final class GridIndex {
+
+    private static final int MAX_CELLS_PER_AXIS = 256;
+    private static final int[] NONE = new int[0];
+
+    private final Polygon[] polygons;
+    private final double minLng;
+    private final double minLat;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final int columns;
+    private final int rows;
+    private final int[] cellStart;
+    private final int[] items;
+
+    private GridIndex(Polygon[] polygons, double minLng, double minLat, double cellWidth, double cellHeight,
+                      int columns, int rows, int[] cellStart, int[] items) {
+        this.polygons = polygons;
+        this.minLng = minLng;
+        this.minLat = minLat;
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.columns = columns;
+        this.rows = rows;
+        this.cellStart = cellStart;
+        this.items = items;
+    }
+
+    /**
+     * Indexes the polygons. The grid has about twice as many cells per axis as the
+     * square root of the polygon count, so cells stay small relative to the regions.
+     */
+    public static GridIndex build(Polygon[] polygons) {
+        Polygon[] copy = polygons.clone();
+        if (copy.length == 0)
+            return new GridIndex(copy, 0, 0, 1, 1, 1, 1, new int[2], NONE);
+
+        double minLng = Double.POSITIVE_INFINITY;
+        double minLat = Double.POSITIVE_INFINITY;
+        double maxLng = Double.NEGATIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY;
+        for (Polygon polygon : copy) {
+            minLng = Math.min(minLng, polygon.minLng());
+            minLat = Math.min(minLat, polygon.minLat());
+            maxLng = Math.max(maxLng, polygon.maxLng());
+            maxLat = Math.max(maxLat, polygon.maxLat());
+        }
+        int perAxis = Math.min(MAX_CELLS_PER_AXIS, 2 * (int) Math.ceil(Math.sqrt(copy.length)));
+        double cellWidth = Math.max((maxLng - minLng) / perAxis, Double.MIN_NORMAL);
+        double cellHeight = Math.max((maxLat - minLat) / perAxis, Double.MIN_NORMAL);
+
+        // two passes: count the polygons per cell, then fill the flat item array
+        int[] cellStart = new int[perAxis * perAxis + 1];
+        for (Polygon polygon : copy) {
+            forEachCell(polygon, minLng, minLat, cellWidth, cellHeight, perAxis, cell -> cellStart[cell + 1]++);
+        }
+        for (int cell = 0; cell < perAxis * perAxis; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        int[] items = new int[cellStart[perAxis * perAxis]];
+        int[] fill = Arrays.copyOf(cellStart, perAxis * perAxis);
+        for (int i = 0; i < copy.length; i++) {
+            int index = i;
+            forEachCell(copy[i], minLng, minLat, cellWidth, cellHeight, perAxis, cell -> items[fill[cell]++] = index);
+        }
+        return new GridIndex(copy, minLng, minLat, cellWidth, cellHeight, perAxis, perAxis, cellStart, items);
+    }
+
+    /**
+     * Indices, in the array the index was built from, of every polygon containing the point.
+     */
+    public int[] containing(double lng, double lat) {
+        int cell = cellOf(lng, lat);
+        if (cell < 0)
+            return NONE;
+        int from = cellStart[cell];
+        int to = cellStart[cell + 1];
+        int[] found = null;
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            int candidate = items[i];
+            if (polygons[candidate].contains(lng, lat)) {
+                if (found == null)
+                    found = new int[to - from];
+                found[count++] = candidate;
+            }
+        }
+        return found == null ? NONE : Arrays.copyOf(found, count);
+    }
+
+    /** Whether any polygon contains the point. */
+    public boolean anyContains(double lng, double lat) {
+        int cell = cellOf(lng, lat);
+        if (cell < 0)
+            return false;
+        for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+            if (polygons[items[i]].contains(lng, lat))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Whether any polygon touches the segment from {@code (ax, ay)} to {@code (bx, by)}.
+     * Only polygons listed in the cells under the segment's bounding box are tested.
+     */
+    public boolean anyIntersects(double ax, double ay, double bx, double by) {
+        if (polygons.length == 0)
+            return false;
+        int column0 = clamp((int) Math.floor((Math.min(ax, bx) - minLng) / cellWidth), columns);
+        int column1 = clamp((int) Math.floor((Math.max(ax, bx) - minLng) / cellWidth), columns);
+        int row0 = clamp((int) Math.floor((Math.min(ay, by) - minLat) / cellHeight), rows);
+        int row1 = clamp((int) Math.floor((Math.max(ay, by) - minLat) / cellHeight), rows);
+        for (int row = row0; row <= row1; row++) {
+            for (int column = column0; column <= column1; column++) {
+                int cell = row * columns + column;
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                    if (polygons[items[i]].intersectsSegment(ax, ay, bx, by))
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The lowest index of a polygon touching the segment from {@code (ax, ay)} to
+     * {@code (bx, by)}, or -1 when {@link #anyIntersects} would be false.
+     */
+    public int firstIntersecting(double ax, double ay, double bx, double by) {
+        for (int i = 0; i < polygons.length; i++) {
+            if (polygons[i].intersectsSegment(ax, ay, bx, by))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * The first move of a path, counted from 0 for the move from position 0 to
+     * position 1, that touches any polygon, or -1 when every move is clear. This is
+     * the rule {@code PathPlanner} plans by, so a planned path always passes.
+     */
+    public int firstIllegalMove(double[] lng, double[] lat) {
+        if (polygons.length == 0)
+            return -1;
+        for (int i = 0; i + 1 < lng.length; i++) {
+            if (anyIntersects(lng[i], lat[i], lng[i + 1], lat[i + 1]))
+                return i;
+        }
+        return -1;
+    }
+
+    public int size() {
+        return polygons.length;
+    }
+
+    private int cellOf(double lng, double lat) {
+        double column = Math.floor((lng - minLng) / cellWidth);
+        double row = Math.floor((lat - minLat) / cellHeight);
+        // the far edge of the extent belongs to the last cell
+        if (column == columns)
+            column--;
+        if (row == rows)
+            row--;
+        if (!(column >= 0 && column < columns && row >= 0 && row < rows))
+            return -1;
+        return (int) row * columns + (int) column;
+    }
+
+    private static void forEachCell(Polygon polygon, double minLng, double minLat, double cellWidth,
+                                    double cellHeight, int perAxis, IntConsumer consumer) {
+        int column0 = clamp((int) Math.floor((polygon.minLng() - minLng) / cellWidth), perAxis);
+        int column1 = clamp((int) Math.floor((polygon.maxLng() - minLng) / cellWidth), perAxis);
+        int row0 = clamp((int) Math.floor((polygon.minLat() - minLat) / cellHeight), perAxis);
+        int row1 = clamp((int) Math.floor((polygon.maxLat() - minLat) / cellHeight), perAxis);
+        for (int row = row0; row <= row1; row++) {
+            for (int column = column0; column <= column1; column++) {
+                consumer.accept(row * perAxis + column);
+            }
+        }
+    }
+
+    private static int clamp(int cell, int perAxis) {
+        return Math.max(0, Math.min(perAxis - 1, cell));
+    }
+}
@@ -0,0 +1,238 @@
+package uk.ac.ed.acp.cw2.geometry;
+
+import java.util.Arrays;
+
+/**
+ * A static 2-d tree over a set of positions, for nearest and within-distance
+ * queries in logarithmic rather than linear time. Points are kept in flat arrays
+ * in tree order: the node of a range {@code [lo, hi)} is its middle entry, split on
+ * the axis with the wider spread, with its two halves as subtrees. Ranges of at
+ * most {@link #LEAF_SIZE} points are leaves and simply scanned, which is also all
+ * a set as small as today's service points needs.
+ * <p>
+ * Queries answer with indices into the arrays the tree was built from, ordered by
+ * {@link Geometry#distance}, ties by index, so they agree exactly with a linear
+ * scan. A subtree is skipped only when the coordinate difference across its
+ * splitting line already exceeds the bound; that difference can never be more
+ * than the rounded distance to any point beyond the line, so the pruning is exact.
+ */
+public final class KdTree {
+
+    static final int LEAF_SIZE = 8;
+
+    private static final KdTree EMPTY = new KdTree(new double[0], new double[0], new int[0], new boolean[0]);
+
+    private final double[] lng;
+    private final double[] lat;
+    private final int[] index;
+    /** Whether the node at each position splits on lng rather than lat. */
+    private final boolean[] splitsLng;
+
+    private KdTree(double[] lng, double[] lat, int[] index, boolean[] splitsLng) {
+        this.lng = lng;
+        this.lat = lat;
+        this.index = index;
+        this.splitsLng = splitsLng;
+    }
+
+    /** Builds a tree over the positions {@code (lng[i], lat[i])}; the arrays are not kept. */
+    public static KdTree build(double[] lng, double[] lat) {
+        if (lng.length == 0)
+            return EMPTY;
+        int size = lng.length;
+        int[] index = new int[size];
+        for (int i = 0; i < size; i++) {
+            index[i] = i;
+        }
+        KdTree tree = new KdTree(lng.clone(), lat.clone(), index, new boolean[size]);
+        tree.split(0, size);
+        return tree;
+    }
+
+    public int size() {
+        return index.length;
+    }
+
+    /**
+     * The {@code k} positions nearest to {@code (lng, lat)}, nearest first, or all
+     * of them when there are fewer.
+     */
+    public int[] nearest(double lng, double lat, int k) {
+        Nearest best = new Nearest(Math.min(k, size()));
+        if (best.capacity > 0)
+            nearest(0, size(), lng, lat, best);
+        return Arrays.copyOf(best.index, best.count);
+    }
+
+    /** Every position at most {@code distance} from {@code (lng, lat)}, nearest first. */
+    public int[] within(double lng, double lat, double distance) {
+        Within found = new Within();
+        within(0, size(), lng, lat, distance, found);
+        return found.sorted();
+    }
+
+    /** Arranges {@code [lo, hi)} into a subtree: median in the middle, halves either side. */
+    private void split(int lo, int hi) {
+        if (hi - lo <= LEAF_SIZE)
+            return;
+        double minLng = Double.POSITIVE_INFINITY, maxLng = Double.NEGATIVE_INFINITY;
+        double minLat = Double.POSITIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+        for (int i = lo; i < hi; i++) {
+            minLng = Math.min(minLng, lng[i]);
+            maxLng = Math.max(maxLng, lng[i]);
+            minLat = Math.min(minLat, lat[i]);
+            maxLat = Math.max(maxLat, lat[i]);
+        }
+        boolean onLng = maxLng - minLng >= maxLat - minLat;
+        int mid = (lo + hi) >>> 1;
+        select(onLng ? lng : lat, lo, hi - 1, mid);
+        splitsLng[mid] = onLng;
+        split(lo, mid);
+        split(mid + 1, hi);
+    }
+
+    /** Quickselect on {@code keys}: afterwards no entry left of {@code k} is greater, none right is smaller. */
+    private void select(double[] keys, int left, int right, int k) {
+        while (left < right) {
+            double pivot = keys[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (keys[i] < pivot)
+                    i++;
+                while (keys[j] > pivot)
+                    j--;
+                if (i <= j)
+                    swap(i++, j--);
+            }
+            if (k <= j)
+                right = j;
+            else if (k >= i)
+                left = i;
+            else
+                return;
+        }
+    }
+
+    private void swap(int i, int j) {
+        double t = lng[i];
+        lng[i] = lng[j];
+        lng[j] = t;
+        t = lat[i];
+        lat[i] = lat[j];
+        lat[j] = t;
+        int n = index[i];
+        index[i] = index[j];
+        index[j] = n;
+    }
+
+    private void nearest(int lo, int hi, double qLng, double qLat, Nearest best) {
+        if (hi - lo <= LEAF_SIZE) {
+            for (int i = lo; i < hi; i++) {
+                best.offer(index[i], Geometry.distance(qLng, qLat, lng[i], lat[i]));
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        best.offer(index[mid], Geometry.distance(qLng, qLat, lng[mid], lat[mid]));
+        double across = splitsLng[mid] ? qLng - lng[mid] : qLat - lat[mid];
+        if (across < 0) {
+            nearest(lo, mid, qLng, qLat, best);
+            if (best.reaches(-across))
+                nearest(mid + 1, hi, qLng, qLat, best);
+        } else {
+            nearest(mid + 1, hi, qLng, qLat, best);
+            if (best.reaches(across))
+                nearest(lo, mid, qLng, qLat, best);
+        }
+    }
+
+    private void within(int lo, int hi, double qLng, double qLat, double bound, Within found) {
+        if (hi - lo <= LEAF_SIZE) {
+            for (int i = lo; i < hi; i++) {
+                double distance = Geometry.distance(qLng, qLat, lng[i], lat[i]);
+                if (distance <= bound)
+                    found.add(index[i], distance);
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        double distance = Geometry.distance(qLng, qLat, lng[mid], lat[mid]);
+        if (distance <= bound)
+            found.add(index[mid], distance);
+        double across = splitsLng[mid] ? qLng - lng[mid] : qLat - lat[mid];
+        if (across <= bound)
+            within(lo, mid, qLng, qLat, bound, found);
+        if (-across <= bound)
+            within(mid + 1, hi, qLng, qLat, bound, found);
+    }
+
+    /** The best {@code capacity} candidates so far, kept sorted by distance then index. */
+    private static final class Nearest {
+
+        final int capacity;
+        final int[] index;
+        final double[] distance;
+        int count;
+
+        Nearest(int capacity) {
+            this.capacity = capacity;
+            this.index = new int[capacity];
+            this.distance = new double[capacity];
+        }
+
+        /** Whether a point this far away could still be among the best. */
+        boolean reaches(double bound) {
+            return count < capacity || bound <= distance[count - 1];
+        }
+
+        void offer(int candidate, double candidateDistance) {
+            int at = count;
+            while (at > 0 && (distance[at - 1] > candidateDistance
+                    || distance[at - 1] == candidateDistance && index[at - 1] > candidate))
+                at--;
+            if (at == capacity)
+                return;
+            int moved = Math.min(count, capacity - 1) - at;
+            System.arraycopy(index, at, index, at + 1, moved);
+            System.arraycopy(distance, at, distance, at + 1, moved);
+            index[at] = candidate;
+            distance[at] = candidateDistance;
+            count = Math.min(count + 1, capacity);
+        }
+    }
+
+    /** Every match, sorted once the search is done. */
+    private static final class Within {
+
+        int[] index = new int[16];
+        double[] distance = new double[16];
+        int count;
+
+        void add(int match, double matchDistance) {
+            if (count == index.length) {
+                index = Arrays.copyOf(index, count * 2);
+                distance = Arrays.copyOf(distance, count * 2);
+            }
+            index[count] = match;
+            distance[count] = matchDistance;
+            count++;
+        }
+
+        int[] sorted() {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> {
+                int byDistance = Double.compare(distance[a], distance[b]);
+                return byDistance != 0 ? byDistance : Integer.compare(index[a], index[b]);
+            });
+            int[] result = new int[count];
+            for (int i = 0; i < count; i++) {
+                result[i] = index[order[i]];
+            }
+            return result;
+        }
+    }
+}
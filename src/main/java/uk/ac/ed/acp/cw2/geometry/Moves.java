@@ -0,0 +1,120 @@
+package uk.ac.ed.acp.cw2.geometry;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * The drone move kernel: one step of {@link #STEP} degrees in a given direction,
+ * rounded HALF_UP to six decimal places.
+ * <p>
+ * The reference result is defined by BigDecimal arithmetic ({@link #exactNext}).
+ * {@link #next} gets the same answer in plain doubles: the step offsets of the 16
+ * compass directions are precomputed, and the double sum is rounded with
+ * {@link Math#rint}. Floating-point error in that sum is many orders of magnitude
+ * below {@link #TIE_MARGIN}, so rounding to nearest gives the exact answer whenever
+ * the sum is not within the margin of a half-way point. The rare sums that are (and
+ * coordinates too large for the error bound) fall back to {@link #exactNext}.
+ */
+public final class Moves {
+
+    /** Length of one move in degrees. */
+    public static final double STEP = 0.00015;
+
+    /** Angle between two neighbouring compass directions, in degrees. */
+    public static final double DIRECTION_ANGLE = 22.5;
+
+    public static final int DIRECTION_COUNT = 16;
+
+    private static final double SCALE = 1e6;
+    private static final double TIE_MARGIN = 1e-5;
+    private static final double MAX_FAST_COORDINATE = 1000;
+    private static final BigDecimal EXACT_STEP = new BigDecimal(STEP);
+
+    private static final double[] DX = new double[DIRECTION_COUNT];
+    private static final double[] DY = new double[DIRECTION_COUNT];
+
+    static {
+        for (int i = 0; i < DIRECTION_COUNT; i++) {
+            double radians = Math.toRadians(i * DIRECTION_ANGLE);
+            DX[i] = STEP * Math.cos(radians);
+            DY[i] = STEP * Math.sin(radians);
+        }
+    }
+
+    private Moves() {
+    }
+
+    /**
+     * Index of the compass direction for {@code angle}, or -1 when the angle is not
+     * one of 0, 22.5, ..., 337.5.
+     */
+    public static int directionIndex(double angle) {
+        double index = angle / DIRECTION_ANGLE;
+        if (index < 0 || index >= DIRECTION_COUNT || index != Math.rint(index))
+            return -1;
+        return (int) index;
+    }
+
+    public static double dx(int direction) {
+        return DX[direction];
+    }
+
+    public static double dy(int direction) {
+        return DY[direction];
+    }
+
+    /**
+     * Moves one step from {@code (lng, lat)} at {@code angle} degrees and writes the
+     * rounded position to {@code out[0]} (lng) and {@code out[1]} (lat). Always equal
+     * to {@link #exactNext}.
+     */
+    public static void next(double lng, double lat, double angle, double[] out) {
+        int direction = directionIndex(angle);
+        double dx;
+        double dy;
+        if (direction >= 0) {
+            dx = DX[direction];
+            dy = DY[direction];
+        } else {
+            double radians = Math.toRadians(angle);
+            dx = STEP * Math.cos(radians);
+            dy = STEP * Math.sin(radians);
+        }
+        double nextLng = round6(lng + dx);
+        double nextLat = round6(lat + dy);
+        if (Double.isNaN(nextLng) || Double.isNaN(nextLat)) {
+            exactNext(lng, lat, angle, out);
+            return;
+        }
+        out[0] = nextLng;
+        out[1] = nextLat;
+    }
+
+    /**
+     * The BigDecimal reference: the decimal form of the start position plus the
+     * exact product of the step and the direction cosines, rounded HALF_UP.
+     */
+    public static void exactNext(double lng, double lat, double angle, double[] out) {
+        double radians = Math.toRadians(angle);
+        BigDecimal dx = EXACT_STEP.multiply(new BigDecimal(Math.cos(radians)));
+        BigDecimal dy = EXACT_STEP.multiply(new BigDecimal(Math.sin(radians)));
+        out[0] = BigDecimal.valueOf(lng).add(dx).setScale(6, RoundingMode.HALF_UP).doubleValue();
+        out[1] = BigDecimal.valueOf(lat).add(dy).setScale(6, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    /**
+     * Rounds to six decimals, or returns NaN when the double result cannot be
+     * trusted to match HALF_UP rounding of the exact sum.
+     */
+    private static double round6(double value) {
+        if (!(Math.abs(value) < MAX_FAST_COORDINATE))
+            return Double.NaN;
+        double scaled = value * SCALE;
+        double rounded = Math.rint(scaled);
+        if (Math.abs(Math.abs(scaled - rounded) - 0.5) < TIE_MARGIN)
+            return Double.NaN;
+        // n / 1e6 is correctly rounded, so it is the double nearest the decimal result;
+        // adding 0.0 turns a rounded -0.0 into the 0.0 BigDecimal would give.
+        return rounded / SCALE + 0.0;
+    }
+}
@@ -0,0 +1,202 @@
+package uk.ac.ed.acp.cw2.geometry;
+
+import uk.ac.ed.acp.cw2.dto.LngLat;
+
+import java.util.List;
+
+/**
+ * A closed polygon compiled into primitive edge arrays for repeated containment
+ * queries. Points on the boundary count as inside, as they always have for
+ * /isInRegion.
+ */
+public final class Polygon {
+
+    private final double[] x0;
+    private final double[] y0;
+    private final double[] dx;
+    private final double[] dy;
+    // 1 / (dx² + dy²) per edge, zero for a repeated vertex
+    private final double[] inverseLengthSquared;
+    private final int edges;
+
+    private final double minLng;
+    private final double minLat;
+    private final double maxLng;
+    private final double maxLat;
+
+    private Polygon(double[] x0, double[] y0, double[] dx, double[] dy,
+                    double minLng, double minLat, double maxLng, double maxLat) {
+        this.x0 = x0;
+        this.y0 = y0;
+        this.dx = dx;
+        this.dy = dy;
+        this.inverseLengthSquared = new double[x0.length];
+        for (int i = 0; i < x0.length; i++) {
+            double lengthSquared = dx[i] * dx[i] + dy[i] * dy[i];
+            inverseLengthSquared[i] = lengthSquared == 0 ? 0 : 1 / lengthSquared;
+        }
+        this.edges = x0.length;
+        this.minLng = minLng;
+        this.minLat = minLat;
+        this.maxLng = maxLng;
+        this.maxLat = maxLat;
+    }
+
+    /**
+     * Compiles a closed vertex list, the last vertex repeating the first.
+     */
+    public static Polygon compile(List<LngLat> vertices) {
+        int edges = vertices.size() - 1;
+        double[] x0 = new double[edges];
+        double[] y0 = new double[edges];
+        double[] dx = new double[edges];
+        double[] dy = new double[edges];
+        double minLng = Double.POSITIVE_INFINITY;
+        double minLat = Double.POSITIVE_INFINITY;
+        double maxLng = Double.NEGATIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < edges; i++) {
+            LngLat from = vertices.get(i);
+            LngLat to = vertices.get(i + 1);
+            x0[i] = from.lng();
+            y0[i] = from.lat();
+            dx[i] = to.lng() - from.lng();
+            dy[i] = to.lat() - from.lat();
+            minLng = Math.min(minLng, from.lng());
+            minLat = Math.min(minLat, from.lat());
+            maxLng = Math.max(maxLng, from.lng());
+            maxLat = Math.max(maxLat, from.lat());
+        }
+        return new Polygon(x0, y0, dx, dy, minLng, minLat, maxLng, maxLat);
+    }
+
+    /**
+     * Crossing-number test behind a bounding-box check. Each edge contributes a
+     * crossing when it straddles the point's latitude and the point lies on the
+     * side of it facing the ray, which is computed without branching.
+     */
+    public boolean contains(double lng, double lat) {
+        if (lng < minLng || lng > maxLng || lat < minLat || lat > maxLat)
+            return false;
+        boolean inside = false;
+        for (int i = 0; i < edges; i++) {
+            double px = lng - x0[i];
+            double py = lat - y0[i];
+            double cross = dx[i] * py - dy[i] * px;
+            if (cross == 0 && onSegment(px, py, dx[i], dy[i]))
+                return true;
+            boolean straddles = (py < 0) != (py < dy[i]);
+            inside ^= straddles & ((cross > 0) == (dy[i] > 0));
+        }
+        return inside;
+    }
+
+    public void contains(double[] lng, double[] lat, boolean[] out) {
+        for (int i = 0; i < out.length; i++) {
+            out[i] = contains(lng[i], lat[i]);
+        }
+    }
+
+    /**
+     * Whether the segment from {@code (ax, ay)} to {@code (bx, by)} touches the polygon:
+     * an end inside it, or any contact with an edge, grazing included.
+     */
+    public boolean intersectsSegment(double ax, double ay, double bx, double by) {
+        if (Math.max(ax, bx) < minLng || Math.min(ax, bx) > maxLng
+                || Math.max(ay, by) < minLat || Math.min(ay, by) > maxLat)
+            return false;
+        if (contains(ax, ay) || contains(bx, by))
+            return true;
+        double sx = bx - ax;
+        double sy = by - ay;
+        for (int i = 0; i < edges; i++) {
+            // which side of the edge each end of the segment is on, and vice versa
+            double d1 = dx[i] * (ay - y0[i]) - dy[i] * (ax - x0[i]);
+            double d2 = dx[i] * (by - y0[i]) - dy[i] * (bx - x0[i]);
+            double d3 = sx * (y0[i] - ay) - sy * (x0[i] - ax);
+            double d4 = sx * (y0[i] + dy[i] - ay) - sy * (x0[i] + dx[i] - ax);
+            if (d1 == 0 && d2 == 0) {
+                if (collinearOverlap(ax - x0[i], ay - y0[i], bx - x0[i], by - y0[i], dx[i], dy[i]))
+                    return true;
+            } else if (d1 * d2 <= 0 && d3 * d4 <= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The distance from the point to the nearest edge, positive or zero when
+     * {@link #contains} holds and negative otherwise, from a single pass over the
+     * edges. A point that moves less than this cannot change sides of the polygon.
+     */
+    public double signedDistance(double lng, double lat) {
+        boolean inside = false;
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < edges; i++) {
+            double px = lng - x0[i];
+            double py = lat - y0[i];
+            double cross = dx[i] * py - dy[i] * px;
+            if (cross == 0 && onSegment(px, py, dx[i], dy[i]))
+                return 0;
+            boolean straddles = (py < 0) != (py < dy[i]);
+            inside ^= straddles & ((cross > 0) == (dy[i] > 0));
+            // the closest point of the edge, as a fraction of the way along it
+            double t = (px * dx[i] + py * dy[i]) * inverseLengthSquared[i];
+            t = t < 0 ? 0 : t > 1 ? 1 : t;
+            double ex = px - t * dx[i];
+            double ey = py - t * dy[i];
+            double squared = ex * ex + ey * ey;
+            if (squared < best)
+                best = squared;
+        }
+        double distance = Math.sqrt(best);
+        return inside ? distance : -distance;
+    }
+
+    /**
+     * Distance from the point to the bounding box, zero inside it. A point outside
+     * the box is outside the polygon and at least this far from its boundary.
+     */
+    public double distanceToBounds(double lng, double lat) {
+        double outLng = Math.max(0, Math.max(minLng - lng, lng - maxLng));
+        double outLat = Math.max(0, Math.max(minLat - lat, lat - maxLat));
+        return Math.sqrt(outLng * outLng + outLat * outLat);
+    }
+
+    public int edgeCount() {
+        return edges;
+    }
+
+    public double minLng() {
+        return minLng;
+    }
+
+    public double minLat() {
+        return minLat;
+    }
+
+    public double maxLng() {
+        return maxLng;
+    }
+
+    public double maxLat() {
+        return maxLat;
+    }
+
+    /**
+     * Whether two collinear segments overlap: one from {@code a} to {@code b}, the
+     * other from the origin to {@code (dx, dy)}, compared along the dominant axis.
+     */
+    private static boolean collinearOverlap(double ax, double ay, double bx, double by, double dx, double dy) {
+        if (Math.abs(dx) >= Math.abs(dy))
+            return Math.max(ax, bx) >= Math.min(0, dx) && Math.min(ax, bx) <= Math.max(0, dx);
+        return Math.max(ay, by) >= Math.min(0, dy) && Math.min(ay, by) <= Math.max(0, dy);
+    }
+
+    /** Whether a point already known to be collinear with the edge lies between its ends. */
+    private static boolean onSegment(double px, double py, double dx, double dy) {
+        return Math.min(0, dx) <= px && px <= Math.max(0, dx)
+                && Math.min(0, dy) <= py && py <= Math.max(0, dy);
+    }
+}
@@ -0,0 +1,58 @@
+package uk.ac.ed.acp.cw2.geometry;
+
+/**
+ * The {@link DistanceMatrix} kernels as plain loops over the coordinate arrays.
+ */
+final class ScalarDistanceMatrix extends DistanceMatrix {
+
+    static final ScalarDistanceMatrix INSTANCE = new ScalarDistanceMatrix();
+
+    private ScalarDistanceMatrix() {
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    public void distances(double[] fromLng, double[] fromLat, double[] toLng, double[] toLat, double[] out) {
+        squaredDistances(fromLng, fromLat, toLng, toLat, out);
+        for (int k = 0; k < out.length; k++) {
+            out[k] = Math.sqrt(out[k]);
+        }
+    }
+
+    @Override
+    public void squaredDistances(double[] fromLng, double[] fromLat, double[] toLng, double[] toLat, double[] out) {
+        int columns = toLng.length;
+        for (int i = 0; i < fromLng.length; i++) {
+            double lng = fromLng[i];
+            double lat = fromLat[i];
+            int row = i * columns;
+            for (int j = 0; j < columns; j++) {
+                double dLng = toLng[j] - lng;
+                double dLat = toLat[j] - lat;
+                out[row + j] = dLng * dLng + dLat * dLat;
+            }
+        }
+    }
+
+    @Override
+    public void isClose(double[] fromLng, double[] fromLat, double[] toLng, double[] toLat, long[] bits) {
+        int columns = toLng.length;
+        for (int i = 0; i < fromLng.length; i++) {
+            double lng = fromLng[i];
+            double lat = fromLat[i];
+            int row = i * columns;
+            for (int j = 0; j < columns; j++) {
+                double dLng = toLng[j] - lng;
+                double dLat = toLat[j] - lat;
+                if (dLng * dLng + dLat * dLat < CLOSE_SQUARED) {
+                    int bit = row + j;
+                    bits[bit >>> 6] |= 1L << bit;
+                }
+            }
+        }
+    }
+}
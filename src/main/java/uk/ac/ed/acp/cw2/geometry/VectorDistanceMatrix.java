@@ -0,0 +1,98 @@
+package uk.ac.ed.acp.cw2.geometry;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The {@link DistanceMatrix} kernels on the incubating Vector API, one row of the
+ * matrix at a time with the destination coordinates as the vector lanes. Lane-wise
+ * multiply, add and square root round exactly like their scalar counterparts, so
+ * the answers match {@link ScalarDistanceMatrix} bit for bit; the tail of each row
+ * that does not fill a vector is finished by the scalar loop.
+ * <p>
+ * Only loaded by {@link DistanceMatrix} once the module is known to be present.
+ */
+final class VectorDistanceMatrix extends DistanceMatrix {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    @Override
+    public String name() {
+        return "vector (" + SPECIES.vectorBitSize() + " bits)";
+    }
+
+    @Override
+    public void distances(double[] fromLng, double[] fromLat, double[] toLng, double[] toLat, double[] out) {
+        rows(fromLng, fromLat, toLng, toLat, out, true);
+    }
+
+    @Override
+    public void squaredDistances(double[] fromLng, double[] fromLat, double[] toLng, double[] toLat, double[] out) {
+        rows(fromLng, fromLat, toLng, toLat, out, false);
+    }
+
+    private static void rows(double[] fromLng, double[] fromLat, double[] toLng, double[] toLat, double[] out,
+                             boolean root) {
+        int columns = toLng.length;
+        int bound = SPECIES.loopBound(columns);
+        for (int i = 0; i < fromLng.length; i++) {
+            double lng = fromLng[i];
+            double lat = fromLat[i];
+            int row = i * columns;
+            int j = 0;
+            for (; j < bound; j += LANES) {
+                DoubleVector dLng = DoubleVector.fromArray(SPECIES, toLng, j).sub(lng);
+                DoubleVector dLat = DoubleVector.fromArray(SPECIES, toLat, j).sub(lat);
+                DoubleVector squared = dLng.mul(dLng).add(dLat.mul(dLat));
+                (root ? squared.lanewise(VectorOperators.SQRT) : squared).intoArray(out, row + j);
+            }
+            for (; j < columns; j++) {
+                double dLng = toLng[j] - lng;
+                double dLat = toLat[j] - lat;
+                double squared = dLng * dLng + dLat * dLat;
+                out[row + j] = root ? Math.sqrt(squared) : squared;
+            }
+        }
+    }
+
+    @Override
+    public void isClose(double[] fromLng, double[] fromLat, double[] toLng, double[] toLat, long[] bits) {
+        int columns = toLng.length;
+        int bound = SPECIES.loopBound(columns);
+        for (int i = 0; i < fromLng.length; i++) {
+            double lng = fromLng[i];
+            double lat = fromLat[i];
+            int row = i * columns;
+            int j = 0;
+            for (; j < bound; j += LANES) {
+                DoubleVector dLng = DoubleVector.fromArray(SPECIES, toLng, j).sub(lng);
+                DoubleVector dLat = DoubleVector.fromArray(SPECIES, toLat, j).sub(lat);
+                VectorMask<Double> close = dLng.mul(dLng).add(dLat.mul(dLat))
+                        .compare(VectorOperators.LT, CLOSE_SQUARED);
+                long lanes = close.toLong();
+                if (lanes != 0)
+                    setBits(bits, row + j, lanes);
+            }
+            for (; j < columns; j++) {
+                double dLng = toLng[j] - lng;
+                double dLat = toLat[j] - lat;
+                if (dLng * dLng + dLat * dLat < CLOSE_SQUARED) {
+                    int bit = row + j;
+                    bits[bit >>> 6] |= 1L << bit;
+                }
+            }
+        }
+    }
+
+    /** ORs the lane bits in at bit {@code offset}, spilling into the next word when they straddle two. */
+    private static void setBits(long[] bits, int offset, long lanes) {
+        int word = offset >>> 6;
+        int shift = offset & 63;
+        bits[word] |= lanes << shift;
+        if (shift + LANES > 64)
+            bits[word + 1] |= lanes >>> (64 - shift);
+    }
+}
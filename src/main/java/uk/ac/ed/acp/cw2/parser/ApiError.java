@@ -0,0 +1,96 @@
+package uk.ac.ed.acp.cw2.parser;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Map;
+
+/**
+ * Every way a geometry request can be rejected. The error response and the exception
+ * used to signal it are built once per constant, so a bad request costs no more
+ * than a good one.
+ */
+public enum ApiError {
+
+    MALFORMED_BODY("malformed json body"),
+    MISSING_POSITIONS("missing position1 or position2"),
+    MISSING_PAIRS("missing pairs"),
+    MISSING_LNG_LAT("lack of lng or lat"),
+    LNG_LAT_TYPE("lng or lat type error "),
+    MISSING_NEXT_POSITION_FIELDS("missing lngOfPosition or latOfPosition or angleOfMovement"),
+    ANGLE_TYPE("angle type error"),
+    MISSING_POSITION("missing  position or lng or lat"),
+    MISSING_REGION("missing  region"),
+    INVALID_VERTICES("invalid input, missing vertices or ordinates number less than 4 "),
+    MISSING_VERTEX_LNG_LAT("Missing lng or lat in vertex"),
+    REGION_NOT_CLOSED("invalid input,last ordinates does not match with the first one"),
+    DEGENERATE_REGION("a region needs three distinct vertices not all on one line"),
+    UNKNOWN_REGION(HttpStatus.NOT_FOUND, "not found", "unknown region id"),
+    MISSING_PATH_ENDS("missing from or to"),
+    INVALID_REGION_IDS("region ids must be an array of strings"),
+    INVALID_NO_FLY("noFly must be true or false"),
+    MISSING_DRONE_ID("missing droneId"),
+    UNKNOWN_DRONE(HttpStatus.NOT_FOUND, "not found", "no geofence session for this drone"),
+    MISSING_MATRIX_ENDS("missing from or to"),
+    COORDINATE_ARRAYS("lng and lat must be number arrays of equal length"),
+    MATRIX_OUTPUT("output must be distance, squared or isCloseTo"),
+    MATRIX_TOO_LARGE(HttpStatus.PAYLOAD_TOO_LARGE, "content too large", "too many from x to pairs"),
+    INVALID_K("k must be a positive whole number"),
+    INVALID_DISTANCE("missing or negative distance"),
+    REFERENCE_DATA_UNAVAILABLE(HttpStatus.SERVICE_UNAVAILABLE, "service unavailable", "ILP reference data is not available"),
+    MISSING_PATHS("missing paths"),
+    SHORT_PATH("every path needs at least two positions"),
+    NO_PATH(HttpStatus.UNPROCESSABLE_ENTITY, "unprocessable entity", "no path avoiding the no-fly zones was found"),
+    INVALID_DEADLINE("deadlineMs must be a positive whole number"),
+    JOB_QUEUE_FULL(HttpStatus.TOO_MANY_REQUESTS, "too many requests", "the job queue is full"),
+    UNKNOWN_JOB(HttpStatus.NOT_FOUND, "not found", "unknown or expired job id"),
+    JOB_NOT_FINISHED(HttpStatus.CONFLICT, "conflict", "the job has not finished"),
+    JOB_CANCELLED(HttpStatus.CONFLICT, "conflict", "the job was cancelled"),
+    JOB_EXPIRED(HttpStatus.CONFLICT, "conflict", "the job did not finish before its deadline"),
+    JOB_FAILED(HttpStatus.INTERNAL_SERVER_ERROR, "internal server error", "the job failed"),
+    OVERLOADED(HttpStatus.SERVICE_UNAVAILABLE, "service unavailable", "too many concurrent requests, retry later"),
+    MISSING_SCHEDULE_FIELDS("missing deliveries or drones"),
+    DELIVERY_FIELDS("every delivery needs an id and a location"),
+    SCHEDULE_DRONE_FIELDS("every drone needs an id and a start"),
+    SCHEDULE_NUMBERS("weights, capacities, maxMoves and costs must be non-negative numbers"),
+    SCHEDULE_TOO_LARGE(HttpStatus.PAYLOAD_TOO_LARGE, "content too large", "too many deliveries or drones"),
+    DRONE_QUERY_FLAGS("cooling and heating must be true or false"),
+    DRONE_QUERY_NUMBERS("minCapacity, minMaxMoves and maxCostPerMove must be numbers"),
+    DRONE_QUERY_SERVICE_POINT("servicePointId must be a whole number"),
+    DRONE_QUERY_TIME("dayOfWeek must be a day name and time a time of day such as 14:30");
+
+    private final HttpStatus status;
+    private final String message;
+    private final ResponseEntity<Map<String, Object>> response;
+    private final InvalidRequestException exception;
+
+    ApiError(String message) {
+        this(HttpStatus.BAD_REQUEST, "bad request", message);
+    }
+
+    ApiError(HttpStatus status, String error, String message) {
+        this.status = status;
+        this.message = message;
+        this.response = ResponseEntity.status(status)
+                .body(Map.of("status", status.value(), "error", error, "message", message));
+        this.exception = new InvalidRequestException(this);
+    }
+
+    public HttpStatus status() {
+        return status;
+    }
+
+    public String message() {
+        return message;
+    }
+
+    /** The ready-made response for this error. */
+    public ResponseEntity<Map<String, Object>> response() {
+        return response;
+    }
+
+    /** The shared, stack-trace-free exception for this error, ready to be thrown. */
+    public InvalidRequestException exception() {
+        return exception;
+    }
+}
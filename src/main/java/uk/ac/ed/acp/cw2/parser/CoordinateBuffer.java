@@ -0,0 +1,41 @@
+package uk.ac.ed.acp.cw2.parser;
+
+import java.util.Arrays;
+
+/**
+ * A growable pair of primitive lng / lat arrays, used to collect positions while
+ * a body is streamed without boxing each one.
+ */
+final class CoordinateBuffer {
+
+    private double[] lng;
+    private double[] lat;
+    private int size;
+
+    CoordinateBuffer(int initialCapacity) {
+        lng = new double[Math.max(initialCapacity, 4)];
+        lat = new double[lng.length];
+    }
+
+    void add(double lngValue, double latValue) {
+        if (size == lng.length) {
+            lng = Arrays.copyOf(lng, size * 2);
+            lat = Arrays.copyOf(lat, size * 2);
+        }
+        lng[size] = lngValue;
+        lat[size] = latValue;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    double[] lngs() {
+        return Arrays.copyOf(lng, size);
+    }
+
+    double[] lats() {
+        return Arrays.copyOf(lat, size);
+    }
+}
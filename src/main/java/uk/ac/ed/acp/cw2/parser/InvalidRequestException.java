@@ -0,0 +1,19 @@
+package uk.ac.ed.acp.cw2.parser;
+
+/**
+ * Thrown by {@link RequestParser} when a body cannot be turned into a request.
+ * Instances are shared per {@link ApiError} and never fill in a stack trace.
+ */
+public final class InvalidRequestException extends RuntimeException {
+
+    private final transient ApiError error;
+
+    InvalidRequestException(ApiError error) {
+        super(error.message(), null, false, false);
+        this.error = error;
+    }
+
+    public ApiError error() {
+        return error;
+    }
+}
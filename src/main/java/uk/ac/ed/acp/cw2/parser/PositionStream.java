@@ -0,0 +1,50 @@
+package uk.ac.ed.acp.cw2.parser;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Positions read one at a time from newline-delimited JSON. Only the parser's read
+ * buffer is held, however long the stream runs, and each position is available as
+ * soon as its closing brace has arrived.
+ */
+public final class PositionStream implements Closeable {
+
+    private final JsonParser parser;
+    private final String[] droneId = new String[1];
+
+    PositionStream(JsonParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Stores the next position in {@code point[0]} and {@code point[1]}; false at the
+     * end of the stream. A line that is not a position fails with the matching
+     * {@link ApiError}, an I/O failure of the underlying stream is passed on.
+     */
+    public boolean next(double[] point) throws IOException {
+        try {
+            droneId[0] = null;
+            if (parser.nextToken() == null)
+                return false;
+            if (!RequestParser.readPoint(parser, ApiError.MISSING_POSITION, point, droneId))
+                throw ApiError.MISSING_POSITION.exception();
+            return true;
+        } catch (JsonProcessingException e) {
+            throw ApiError.MALFORMED_BODY.exception();
+        }
+    }
+
+    /** The {@code "droneId"} of the last position read, or null if it had none. */
+    public String droneId() {
+        return droneId[0];
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
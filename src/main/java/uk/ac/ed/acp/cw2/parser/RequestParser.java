@@ -0,0 +1,876 @@
+package uk.ac.ed.acp.cw2.parser;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import uk.ac.ed.acp.cw2.dto.BatchDistanceRequest;
+import uk.ac.ed.acp.cw2.dto.BatchRegionRequest;
+import uk.ac.ed.acp.cw2.dto.CandidateDrone;
+import uk.ac.ed.acp.cw2.dto.Delivery;
+import uk.ac.ed.acp.cw2.dto.DistanceMatrixRequest;
+import uk.ac.ed.acp.cw2.dto.DistanceRequest;
+import uk.ac.ed.acp.cw2.dto.DroneQuery;
+import uk.ac.ed.acp.cw2.dto.IsInRegionRequest;
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.dto.NextPositionRequest;
+import uk.ac.ed.acp.cw2.dto.NextPositionsRequest;
+import uk.ac.ed.acp.cw2.dto.PathCheckRequest;
+import uk.ac.ed.acp.cw2.dto.PathRequest;
+import uk.ac.ed.acp.cw2.dto.PositionBatch;
+import uk.ac.ed.acp.cw2.dto.Region;
+import uk.ac.ed.acp.cw2.dto.ScheduleRequest;
+import uk.ac.ed.acp.cw2.dto.ServicePointQuery;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads geometry request bodies straight from the raw bytes with a streaming JSON
+ * parser, so no intermediate maps or boxed numbers are created. Any problem is
+ * reported by throwing the shared {@link InvalidRequestException} of the matching
+ * {@link ApiError}.
+ */
+@Component
+public class RequestParser {
+
+    private final JsonFactory jsonFactory;
+
+    public RequestParser(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public DistanceRequest parseDistanceRequest(byte[] body) {
+        try (JsonParser p = open(body)) {
+            LngLat position1 = null;
+            LngLat position2 = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                p.nextToken();
+                switch (field) {
+                    case "position1" -> position1 = readLngLat(p, ApiError.MISSING_LNG_LAT);
+                    case "position2" -> position2 = readLngLat(p, ApiError.MISSING_LNG_LAT);
+                    default -> p.skipChildren();
+                }
+            }
+            if (position1 == null || position2 == null)
+                throw ApiError.MISSING_POSITIONS.exception();
+            return new DistanceRequest(position1, position2);
+        } catch (IOException e) {
+            throw ApiError.MALFORMED_BODY.exception();
+        }
+    }
+
+    public NextPositionRequest parseNextPositionRequest(byte[] body) {
+        try (JsonParser p = open(body)) {
+            LngLat start = null;
+            double angle = Double.NaN;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                p.nextToken();
+                switch (field) {
+                    case "start" -> start = readLngLat(p, ApiError.MISSING_NEXT_POSITION_FIELDS);
+                    case "angle" -> angle = readNumber(p, ApiError.ANGLE_TYPE);
+                    default -> p.skipChildren();
+                }
+            }
+            if (start == null || Double.isNaN(angle))
+                throw ApiError.MISSING_NEXT_POSITION_FIELDS.exception();
+            return new NextPositionRequest(start, angle);
+        } catch (IOException e) {
+            throw ApiError.MALFORMED_BODY.exception();
+        }
+    }
+
+    public NextPositionsRequest parseNextPositionsRequest(byte[] body) {
+        try (JsonParser p = open(body)) {
+            LngLat start = null;
+            double[] angles = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                p.nextToken();
+                switch (field) {
+                    case "start" -> start = readLngLat(p, ApiError.MISSING_NEXT_POSITION_FIELDS);
+                    case "angles" -> angles = readNumbers(p, ApiError.ANGLE_TYPE);
+                    default -> p.skipChildren();
+                }
+            }
+            if (start == null || angles == null)
+                throw ApiError.MISSING_NEXT_POSITION_FIELDS.exception();
+            return new NextPositionsRequest(start, angles);
+        } catch (IOException e) {
+            throw ApiError.MALFORMED_BODY.exception();
+        }
+    }
+
+    public IsInRegionRequest parseIsInRegionRequest(byte[] body) {
+        try (JsonParser p = open(body)) {
+            LngLat position = null;
+            Region region = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                p.nextToken();
+                switch (field) {
+                    case "position" -> position = readLngLat(p, ApiError.MISSING_POSITION);
+                    case "region" -> region = readRegion(p);
+                    default -> p.skipChildren();
+                }
+            }
+            if (position == null)
+                throw ApiError.MISSING_POSITION.exception();
+            if (region == null)
+                throw ApiError.MISSING_REGION.exception();
+            validatePolygon(region);
+            return new IsInRegionRequest(position, region);
+        } catch (IOException e) {
+            throw ApiError.MALFORMED_BODY.exception();
+        }
+    }
+
+    public PathRequest parsePathRequest(byte[] body) {
+        try (JsonParser p = open(body)) {
+            LngLat from = null;
+            LngLat to = null;
+            List<String> noFlyZones = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                p.nextToken();
+                switch (field) {
+                    case "from" -> from = readLngLat(p, ApiError.MISSING_PATH_ENDS);
+                    case "to" -> to = readLngLat(p, ApiError.MISSING_PATH_ENDS);
+                    case "noFlyZones" -> noFlyZones = readStrings(p, ApiError.INVALID_REGION_IDS);
+                    default -> p.skipChildren();
+                }
+            }
+            if (from == null || to == null)
+                throw ApiError.MISSING_PATH_ENDS.exception();
+            return new PathRequest(from, to, noFlyZones);
+        } catch (IOException e) {
+            throw ApiError.MALFORMED_BODY.exception();
+        }
+    }
+
+    /**
+     * Reads {@code {"paths": [...], "noFlyZones": [...]}}, each path being an array
+     * of positions or parallel {@code "lng"} and {@code "lat"} arrays.
+     */
+    public PathCheckRequest parsePathCheckRequest(byte[] body) {
+        try (JsonParser p = open(body)) {
+            List<PositionBatch> paths = null;
+            List<String> noFlyZones = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken token = p.nextToken();
+                if (field.equals("paths") && token == JsonToken.START_ARRAY) {
+                    paths = new ArrayList<>();
+                    while (p.nextToken() != JsonToken.END_ARRAY) {
+                        PositionBatch path = readPositionBatch(p);
+                        if (path == null || path.size() < 2)
+                            throw ApiError.SHORT_PATH.exception();
+                        paths.add(path);
+                    }
+                } else if (field.equals("noFlyZones")) {
+                    noFlyZones = readStrings(p, ApiError.INVALID_REGION_IDS);
+                } else {
+                    p.skipChildren();
+                }
+            }
+            if (paths == null)
+                throw ApiError.MISSING_PATHS.exception();
+            return new PathCheckRequest(paths, noFlyZones);
+        } catch (IOException e) {
+            throw ApiError.MALFORMED_BODY.exception();
+        }
+    }
+
+    /**
+     * Reads a bare region, as sent to /regions to register it.
+     */
+    public Region parseRegion(byte[] body) {
+        try (JsonParser p = open(body)) {
+            Region region = readRegionFields(p);
+            validatePolygon(region);
+            return region;
+        } catch (IOException e) {
+            throw ApiError.MALFORMED_BODY.exception();
+        }
+    }
+
+    /**
+     * Reads {@code {"position": ...}}, the body of a query against a registered region.
+     */
+    public LngLat parsePositionRequest(byte[] body) {
+        try (JsonParser p = open(body)) {
+            LngLat position = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                p.nextToken();
+                if (field.equals("position"))
+                    position = readLngLat(p, ApiError.MISSING_POSITION);
+                else
+                    p.skipChildren();
+            }
+            if (position == null)
+                throw ApiError.MISSING_POSITION.exception();
+            return position;
+        } catch (IOException e) {
+            throw ApiError.MALFORMED_BODY.exception();
+        }
+    }
+
+    /**
+     * Reads {@code {"positions": [...]}} into parallel coordinate arrays.
+     */
+    public PositionBatch parsePositionBatch(byte[] body) {
+        try (JsonParser p = open(body)) {
+            CoordinateBuffer positions = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                if (p.nextToken() == JsonToken.START_ARRAY && field.equals("positions")) {
+                    positions = new CoordinateBuffer(64);
+                    readPositions(p, positions, ApiError.MISSING_POSITION);
+                } else {
+                    p.skipChildren();
+                }
+            }
+            if (positions == null)
+                throw ApiError.MISSING_POSITION.exception();
+            return new PositionBatch(positions.lngs(), positions.lats());
+        } catch (IOException e) {
+            throw ApiError.MALFORMED_BODY.exception();
+        }
+    }
+
+    /**
+     * Reads {@code {"pairs": [{"position1": ..., "position2": ...}, ...]}} into
+     * parallel coordinate arrays.
+     */
+    public BatchDistanceRequest parseBatchDistanceRequest(byte[] body) {
+        try (JsonParser p = open(body)) {
+            CoordinateBuffer first = null;
+            CoordinateBuffer second = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                if (p.nextToken() == JsonToken.START_ARRAY && field.equals("pairs")) {
+                    first = new CoordinateBuffer(64);
+                    second = new CoordinateBuffer(64);
+                    readPairs(p, first, second);
+                } else {
+                    p.skipChildren();
+                }
+            }
+            if (first == null)
+                throw ApiError.MISSING_PAIRS.exception();
+            return new BatchDistanceRequest(first.lngs(), first.lats(), second.lngs(), second.lats());
+        } catch (IOException e) {
+            throw ApiError.MALFORMED_BODY.exception();
+        }
+    }
+
+    /**
+     * Reads {@code {"region": ..., "positions": [...]}}; the region is validated the
+     * same way as for a single /isInRegion request.
+     */
+    public BatchRegionRequest parseBatchRegionRequest(byte[] body) {
+        try (JsonParser p = open(body)) {
+            Region region = null;
+            CoordinateBuffer positions = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken token = p.nextToken();
+                if (field.equals("region")) {
+                    region = readRegion(p);
+                } else if (field.equals("positions") && token == JsonToken.START_ARRAY) {
+                    positions = new CoordinateBuffer(64);
+                    readPositions(p, positions, ApiError.MISSING_POSITION);
+                } else {
+                    p.skipChildren();
+                }
+            }
+            if (positions == null)
+                throw ApiError.MISSING_POSITION.exception();
+            if (region == null)
+                throw ApiError.MISSING_REGION.exception();
+            validatePolygon(region);
+            return new BatchRegionRequest(region, positions.lngs(), positions.lats());
+        } catch (IOException e) {
+            throw ApiError.MALFORMED_BODY.exception();
+        }
+    }
+
+    /**
+     * Reads {@code {"from": ..., "to": ..., "output": ...}}. Each end is either an
+     * array of positions or, already in columns, {@code {"lng": [...], "lat": [...]}};
+     * the output defaults to distances.
+     */
+    public DistanceMatrixRequest parseDistanceMatrixRequest(byte[] body) {
+        try (JsonParser p = open(body)) {
+            PositionBatch from = null;
+            PositionBatch to = null;
+            DistanceMatrixRequest.Output output = DistanceMatrixRequest.Output.DISTANCE;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken token = p.nextToken();
+                if (field.equals("from")) {
+                    from = readPositionBatch(p);
+                } else if (field.equals("to")) {
+                    to = readPositionBatch(p);
+                } else if (field.equals("output")) {
+                    output = token == JsonToken.VALUE_STRING ? DistanceMatrixRequest.Output.of(p.getText()) : null;
+                    if (output == null)
+                        throw ApiError.MATRIX_OUTPUT.exception();
+                } else {
+                    p.skipChildren();
+                }
+            }
+            if (from == null || to == null)
+                throw ApiError.MISSING_MATRIX_ENDS.exception();
+            return new DistanceMatrixRequest(from, to, output);
+        } catch (IOException e) {
+            throw ApiError.MALFORMED_BODY.exception();
+        }
+    }
+
+    /**
+     * Reads {@code {"deliveries": [...], "drones": [...]}}. A delivery is
+     * {@code {"id", "location", "weight"}}, the weight defaulting to 0; a drone is
+     * {@code {"id", "start", "capacity", "maxMoves", "costPerMove", "costInitial",
+     * "costFinal"}}, its capacity and move budget unlimited and its costs those of one
+     * move each unless given.
+     */
+    public ScheduleRequest parseScheduleRequest(byte[] body) {
+        try (JsonParser p = open(body)) {
+            List<Delivery> deliveries = null;
+            List<CandidateDrone> drones = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken token = p.nextToken();
+                if (field.equals("deliveries") && token == JsonToken.START_ARRAY) {
+                    deliveries = new ArrayList<>();
+                    while (p.nextToken() != JsonToken.END_ARRAY) {
+                        deliveries.add(readDelivery(p));
+                    }
+                } else if (field.equals("drones") && token == JsonToken.START_ARRAY) {
+                    drones = new ArrayList<>();
+                    while (p.nextToken() != JsonToken.END_ARRAY) {
+                        drones.add(readCandidateDrone(p));
+                    }
+                } else {
+                    p.skipChildren();
+                }
+            }
+            if (deliveries == null || drones == null)
+                throw ApiError.MISSING_SCHEDULE_FIELDS.exception();
+            return new ScheduleRequest(Collections.unmodifiableList(deliveries), Collections.unmodifiableList(drones));
+        } catch (IOException e) {
+            throw ApiError.MALFORMED_BODY.exception();
+        }
+    }
+
+    /**
+     * Reads a drone query: {@code cooling} and {@code heating} flags, the
+     * {@code minCapacity}, {@code minMaxMoves} and {@code maxCostPerMove} bounds,
+     * a {@code servicePointId}, a {@code dayOfWeek} name and a {@code time} of
+     * day, all optional.
+     */
+    public DroneQuery parseDroneQuery(byte[] body) {
+        try (JsonParser p = open(body)) {
+            Boolean cooling = null;
+            Boolean heating = null;
+            double minCapacity = Double.NaN;
+            double minMaxMoves = Double.NaN;
+            double maxCostPerMove = Double.NaN;
+            Integer servicePointId = null;
+            DayOfWeek dayOfWeek = null;
+            LocalTime time = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken token = p.nextToken();
+                switch (field) {
+                    case "cooling" -> cooling = readFlag(p);
+                    case "heating" -> heating = readFlag(p);
+                    case "minCapacity" -> minCapacity = readNumber(p, ApiError.DRONE_QUERY_NUMBERS);
+                    case "minMaxMoves" -> minMaxMoves = readNumber(p, ApiError.DRONE_QUERY_NUMBERS);
+                    case "maxCostPerMove" -> maxCostPerMove = readNumber(p, ApiError.DRONE_QUERY_NUMBERS);
+                    case "servicePointId" -> {
+                        if (token == JsonToken.VALUE_NUMBER_INT && p.getNumberType() == JsonParser.NumberType.INT)
+                            servicePointId = p.getIntValue();
+                        else if (token != JsonToken.VALUE_NULL)
+                            throw ApiError.DRONE_QUERY_SERVICE_POINT.exception();
+                    }
+                    case "dayOfWeek" -> {
+                        String day = readTimeText(p);
+                        dayOfWeek = day == null ? null : DayOfWeek.valueOf(day.toUpperCase(Locale.ROOT));
+                    }
+                    case "time" -> {
+                        String text = readTimeText(p);
+                        time = text == null ? null : LocalTime.parse(text);
+                    }
+                    default -> p.skipChildren();
+                }
+            }
+            return new DroneQuery(cooling, heating, minCapacity, minMaxMoves, maxCostPerMove, servicePointId,
+                    dayOfWeek, time);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw ApiError.DRONE_QUERY_TIME.exception();
+        } catch (IOException e) {
+            throw ApiError.MALFORMED_BODY.exception();
+        }
+    }
+
+    /** Reads {@code {"position": ..., "k": ...}}; {@code k} defaults to 1. */
+    public ServicePointQuery parseNearestQuery(byte[] body) {
+        ServicePointQuery query = parseServicePointQuery(body);
+        if (query.k() < 1)
+            throw ApiError.INVALID_K.exception();
+        return query;
+    }
+
+    /** Reads {@code {"position": ..., "distance": ...}}. */
+    public ServicePointQuery parseWithinQuery(byte[] body) {
+        ServicePointQuery query = parseServicePointQuery(body);
+        if (!(query.distance() >= 0))
+            throw ApiError.INVALID_DISTANCE.exception();
+        return query;
+    }
+
+    private ServicePointQuery parseServicePointQuery(byte[] body) {
+        try (JsonParser p = open(body)) {
+            LngLat position = null;
+            int k = 1;
+            double distance = Double.NaN;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken token = p.nextToken();
+                switch (field) {
+                    case "position" -> position = readLngLat(p, ApiError.MISSING_POSITION);
+                    case "k" -> k = token == JsonToken.VALUE_NUMBER_INT && p.getNumberType() == JsonParser.NumberType.INT
+                            ? p.getIntValue() : 0;
+                    case "distance" -> distance = readNumber(p, ApiError.INVALID_DISTANCE);
+                    default -> p.skipChildren();
+                }
+            }
+            if (position == null)
+                throw ApiError.MISSING_POSITION.exception();
+            return new ServicePointQuery(position, k, distance);
+        } catch (IOException e) {
+            throw ApiError.MALFORMED_BODY.exception();
+        }
+    }
+
+    /**
+     * Reads a position given as {@code lng} and {@code lat} query parameters, as
+     * /stream/isCloseTo takes its target.
+     */
+    public LngLat parseQueryPosition(String lng, String lat) {
+        if (lng == null || lat == null)
+            throw ApiError.MISSING_POSITION.exception();
+        try {
+            return new LngLat(Double.parseDouble(lng), Double.parseDouble(lat));
+        } catch (NumberFormatException e) {
+            throw ApiError.LNG_LAT_TYPE.exception();
+        }
+    }
+
+    /** Reads the {@code noFly} query parameter of a region registration; absent is false. */
+    public boolean parseNoFly(String noFly) {
+        if (noFly == null || noFly.equals("false"))
+            return false;
+        if (noFly.equals("true"))
+            return true;
+        throw ApiError.INVALID_NO_FLY.exception();
+    }
+
+    /** Reads the {@code deadlineMs} query parameter of a job submission; null when absent. */
+    public Long parseDeadline(String deadlineMs) {
+        if (deadlineMs == null)
+            return null;
+        try {
+            long deadline = Long.parseLong(deadlineMs);
+            if (deadline <= 0)
+                throw ApiError.INVALID_DEADLINE.exception();
+            return deadline;
+        } catch (NumberFormatException e) {
+            throw ApiError.INVALID_DEADLINE.exception();
+        }
+    }
+
+    /**
+     * Reads one {@code {"lng": ..., "lat": ...}} object, a single line of a position
+     * stream.
+     */
+    public LngLat parsePosition(byte[] line) {
+        try (JsonParser p = open(line)) {
+            return readLngLat(p, ApiError.MISSING_POSITION);
+        } catch (IOException e) {
+            throw ApiError.MALFORMED_BODY.exception();
+        }
+    }
+
+    /**
+     * Opens a stream of {@code {"lng": ..., "lat": ...}} objects, one per line.
+     * Nothing is read until the first {@link PositionStream#next}.
+     */
+    public PositionStream openPositionStream(InputStream in) throws IOException {
+        return new PositionStream(jsonFactory.createParser(in));
+    }
+
+    private JsonParser open(byte[] body) throws IOException {
+        JsonParser p = jsonFactory.createParser(body);
+        if (p.nextToken() != JsonToken.START_OBJECT) {
+            p.close();
+            throw ApiError.MALFORMED_BODY.exception();
+        }
+        return p;
+    }
+
+    /**
+     * Reads the position the parser is positioned on. A JSON null gives null, an
+     * object without both lng and lat fails with {@code missing}.
+     */
+    private static LngLat readLngLat(JsonParser p, ApiError missing) throws IOException {
+        double[] point = new double[2];
+        return readPoint(p, missing, point) ? new LngLat(point[0], point[1]) : null;
+    }
+
+    /**
+     * Allocation-free form of {@link #readLngLat}: stores lng and lat in
+     * {@code point[0]} and {@code point[1]} and returns false for a JSON null.
+     */
+    static boolean readPoint(JsonParser p, ApiError missing, double[] point) throws IOException {
+        return readPoint(p, missing, point, null);
+    }
+
+    /**
+     * {@link #readPoint(JsonParser, ApiError, double[])} that also stores a string
+     * {@code "droneId"} field in {@code droneId[0]}, when {@code droneId} is given.
+     */
+    static boolean readPoint(JsonParser p, ApiError missing, double[] point, String[] droneId) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.VALUE_NULL)
+            return false;
+        if (token != JsonToken.START_OBJECT)
+            throw ApiError.LNG_LAT_TYPE.exception();
+        double lng = Double.NaN;
+        double lat = Double.NaN;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "lng" -> lng = readNumber(p, ApiError.LNG_LAT_TYPE);
+                case "lat" -> lat = readNumber(p, ApiError.LNG_LAT_TYPE);
+                case "droneId" -> {
+                    if (droneId != null && p.currentToken() == JsonToken.VALUE_STRING)
+                        droneId[0] = p.getText();
+                    else
+                        p.skipChildren();
+                }
+                default -> p.skipChildren();
+            }
+        }
+        if (Double.isNaN(lng) || Double.isNaN(lat))
+            throw missing.exception();
+        point[0] = lng;
+        point[1] = lat;
+        return true;
+    }
+
+    /** Reads an array of positions into {@code into}; null entries are rejected. */
+    private static void readPositions(JsonParser p, CoordinateBuffer into, ApiError missing) throws IOException {
+        double[] point = new double[2];
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            if (!readPoint(p, missing, point))
+                throw missing.exception();
+            into.add(point[0], point[1]);
+        }
+    }
+
+    /**
+     * Reads positions given either as an array of objects or as an object of
+     * parallel lng and lat arrays; a JSON null gives null.
+     */
+    private static PositionBatch readPositionBatch(JsonParser p) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.START_ARRAY) {
+            CoordinateBuffer positions = new CoordinateBuffer(64);
+            readPositions(p, positions, ApiError.MISSING_POSITION);
+            return new PositionBatch(positions.lngs(), positions.lats());
+        }
+        if (token != JsonToken.START_OBJECT) {
+            if (token == JsonToken.VALUE_NULL)
+                return null;
+            throw ApiError.COORDINATE_ARRAYS.exception();
+        }
+        double[] lng = null;
+        double[] lat = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            if (field.equals("lng")) {
+                lng = readNumbers(p, ApiError.COORDINATE_ARRAYS);
+            } else if (field.equals("lat")) {
+                lat = readNumbers(p, ApiError.COORDINATE_ARRAYS);
+            } else {
+                p.skipChildren();
+            }
+        }
+        if (lng == null || lat == null || lng.length != lat.length)
+            throw ApiError.COORDINATE_ARRAYS.exception();
+        return new PositionBatch(lng, lat);
+    }
+
+    private static void readPairs(JsonParser p, CoordinateBuffer first, CoordinateBuffer second) throws IOException {
+        double[] point1 = new double[2];
+        double[] point2 = new double[2];
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            if (p.currentToken() != JsonToken.START_OBJECT)
+                throw ApiError.MISSING_POSITIONS.exception();
+            boolean has1 = false;
+            boolean has2 = false;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                p.nextToken();
+                switch (field) {
+                    case "position1" -> has1 = readPoint(p, ApiError.MISSING_LNG_LAT, point1);
+                    case "position2" -> has2 = readPoint(p, ApiError.MISSING_LNG_LAT, point2);
+                    default -> p.skipChildren();
+                }
+            }
+            if (!has1 || !has2)
+                throw ApiError.MISSING_POSITIONS.exception();
+            first.add(point1[0], point1[1]);
+            second.add(point2[0], point2[1]);
+        }
+    }
+
+    private static Delivery readDelivery(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT)
+            throw ApiError.DELIVERY_FIELDS.exception();
+        String id = null;
+        LngLat location = null;
+        double weight = 0;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "id" -> id = readId(p);
+                case "location" -> location = readLngLat(p, ApiError.DELIVERY_FIELDS);
+                case "weight" -> weight = readAmount(p, weight);
+                default -> p.skipChildren();
+            }
+        }
+        if (id == null || location == null)
+            throw ApiError.DELIVERY_FIELDS.exception();
+        return new Delivery(id, location, weight);
+    }
+
+    private static CandidateDrone readCandidateDrone(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT)
+            throw ApiError.SCHEDULE_DRONE_FIELDS.exception();
+        String id = null;
+        LngLat start = null;
+        double capacity = Double.POSITIVE_INFINITY;
+        double maxMoves = Integer.MAX_VALUE;
+        double costPerMove = 1;
+        double costInitial = 0;
+        double costFinal = 0;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "id" -> id = readId(p);
+                case "start" -> start = readLngLat(p, ApiError.SCHEDULE_DRONE_FIELDS);
+                case "capacity" -> capacity = readAmount(p, capacity);
+                case "maxMoves" -> maxMoves = readAmount(p, maxMoves);
+                case "costPerMove" -> costPerMove = readAmount(p, costPerMove);
+                case "costInitial" -> costInitial = readAmount(p, costInitial);
+                case "costFinal" -> costFinal = readAmount(p, costFinal);
+                default -> p.skipChildren();
+            }
+        }
+        if (id == null || start == null)
+            throw ApiError.SCHEDULE_DRONE_FIELDS.exception();
+        if (maxMoves != Math.rint(maxMoves))
+            throw ApiError.SCHEDULE_NUMBERS.exception();
+        return new CandidateDrone(id, start, capacity, (int) Math.min(maxMoves, Integer.MAX_VALUE), costPerMove,
+                costInitial, costFinal);
+    }
+
+    /** Reads true, false or null. */
+    private static Boolean readFlag(JsonParser p) throws IOException {
+        return switch (p.currentToken()) {
+            case VALUE_TRUE -> Boolean.TRUE;
+            case VALUE_FALSE -> Boolean.FALSE;
+            case VALUE_NULL -> null;
+            default -> throw ApiError.DRONE_QUERY_FLAGS.exception();
+        };
+    }
+
+    /** Reads a string or null, for a day or time of day. */
+    private static String readTimeText(JsonParser p) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.VALUE_STRING)
+            return p.getText();
+        if (token == JsonToken.VALUE_NULL)
+            return null;
+        throw ApiError.DRONE_QUERY_TIME.exception();
+    }
+
+    /** Reads an id given as a string or a whole number; anything else gives null. */
+    private static String readId(JsonParser p) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.VALUE_STRING || token == JsonToken.VALUE_NUMBER_INT)
+            return p.getText();
+        p.skipChildren();
+        return null;
+    }
+
+    /** Reads a non-negative number; a JSON null keeps {@code otherwise}. */
+    private static double readAmount(JsonParser p, double otherwise) throws IOException {
+        double value = readNumber(p, ApiError.SCHEDULE_NUMBERS);
+        if (Double.isNaN(value))
+            return otherwise;
+        if (!(value >= 0))
+            throw ApiError.SCHEDULE_NUMBERS.exception();
+        return value;
+    }
+
+    private static Region readRegion(JsonParser p) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.VALUE_NULL)
+            return null;
+        if (token != JsonToken.START_OBJECT)
+            throw ApiError.MISSING_REGION.exception();
+        return readRegionFields(p);
+    }
+
+    /** Reads the fields of a region object whose START_OBJECT has been consumed. */
+    private static Region readRegionFields(JsonParser p) throws IOException {
+        String name = null;
+        List<LngLat> vertices = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken token = p.nextToken();
+            switch (field) {
+                case "name" -> {
+                    if (token == JsonToken.VALUE_STRING)
+                        name = p.getText();
+                    else
+                        p.skipChildren();
+                }
+                case "vertices" -> vertices = readVertices(p);
+                default -> p.skipChildren();
+            }
+        }
+        if (vertices == null)
+            throw ApiError.INVALID_VERTICES.exception();
+        return new Region(name, vertices);
+    }
+
+    private static List<LngLat> readVertices(JsonParser p) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.VALUE_NULL)
+            return null;
+        if (token != JsonToken.START_ARRAY)
+            throw ApiError.INVALID_VERTICES.exception();
+        List<LngLat> vertices = new ArrayList<>(8);
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            LngLat vertex = readLngLat(p, ApiError.MISSING_VERTEX_LNG_LAT);
+            if (vertex == null)
+                throw ApiError.MISSING_VERTEX_LNG_LAT.exception();
+            vertices.add(vertex);
+        }
+        return Collections.unmodifiableList(vertices);
+    }
+
+    private static double readNumber(JsonParser p, ApiError typeError) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_FLOAT || token == JsonToken.VALUE_NUMBER_INT)
+            return p.getDoubleValue();
+        if (token == JsonToken.VALUE_NULL)
+            return Double.NaN;
+        throw typeError.exception();
+    }
+
+    /** Reads an array of numbers; a JSON null gives null, null elements are rejected. */
+    private static double[] readNumbers(JsonParser p, ApiError typeError) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.VALUE_NULL)
+            return null;
+        if (token != JsonToken.START_ARRAY)
+            throw typeError.exception();
+        double[] values = new double[16];
+        int size = 0;
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            double value = readNumber(p, typeError);
+            if (Double.isNaN(value))
+                throw typeError.exception();
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+        return Arrays.copyOf(values, size);
+    }
+
+    /** Reads an array of strings; a JSON null gives null. */
+    private static List<String> readStrings(JsonParser p, ApiError typeError) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.VALUE_NULL)
+            return null;
+        if (token != JsonToken.START_ARRAY)
+            throw typeError.exception();
+        List<String> values = new ArrayList<>();
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            if (p.currentToken() != JsonToken.VALUE_STRING)
+                throw typeError.exception();
+            values.add(p.getText());
+        }
+        return Collections.unmodifiableList(values);
+    }
+
+    /**
+     * The region must be a closed polygon: at least a triangle, the last vertex
+     * repeating the first.
+     */
+    private static void validatePolygon(Region region) {
+        List<LngLat> vertices = region.vertices();
+        if (vertices.size() < 4)
+            throw ApiError.INVALID_VERTICES.exception();
+        LngLat first = vertices.get(0);
+        LngLat last = vertices.get(vertices.size() - 1);
+        if (first.lng() != last.lng() || first.lat() != last.lat())
+            throw ApiError.REGION_NOT_CLOSED.exception();
+        if (!spansArea(vertices))
+            throw ApiError.DEGENERATE_REGION.exception();
+    }
+
+    /**
+     * Whether the vertices include three distinct ones not all on one line: some
+     * vertex off the line through the first vertex and the first one apart from it.
+     */
+    private static boolean spansArea(List<LngLat> vertices) {
+        LngLat first = vertices.get(0);
+        double dLng = 0;
+        double dLat = 0;
+        for (LngLat vertex : vertices) {
+            double vLng = vertex.lng() - first.lng();
+            double vLat = vertex.lat() - first.lat();
+            if (dLng == 0 && dLat == 0) {
+                dLng = vLng;
+                dLat = vLat;
+            } else if (dLng * vLat - dLat * vLng != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,338 @@
+package uk.ac.ed.acp.cw2.planner;
+
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.geometry.GridIndex;
+import uk.ac.ed.acp.cw2.geometry.Moves;
+import uk.ac.ed.acp.cw2.geometry.Polygon;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The moves from every position around a target to a position close to it,
+ * avoiding the no-fly zones, found by one backward search over the move lattice.
+ * <p>
+ * Positions are binned into square cells half a {@link Moves#STEP} wide, the
+ * target at the centre of its own; each cell keeps its move count, the lattice
+ * position it was reached at and the direction of that position's first move, in
+ * five bytes. The search is breadth first from the target: a cell's predecessors
+ * are the moves against each direction from its position, and each is kept only
+ * if the move forward from it lands back in a cell no further out and touches no
+ * zone. Of the positions a cell is reached at in one round it keeps the one
+ * furthest from the target, which carries the search outward fastest; keeping
+ * the first instead loses part of a step wherever a move stays in its cell, and
+ * the counts drift high with distance. In open sky the counts are then within a
+ * move of what /path plans, and within a couple around zones.
+ * <p>
+ * A field is immutable. {@link #update} repairs a copy after zones are added or
+ * removed instead of searching again: cells whose first move meets an added zone,
+ * and every cell whose moves lead through one of those, are cleared, and the
+ * search restarts from the cells around them and around the removed zones.
+ */
+public final class CostToGoField {
+
+    private static final char UNREACHED = Character.MAX_VALUE;
+    private static final double CELL = Moves.STEP / 2;
+    private static final double SCALE = 1e6;
+    /** A move can land this many cells from its start's cell. */
+    private static final int REACH = 3;
+
+    private final double targetLng;
+    private final double targetLat;
+    private final double minLng;
+    private final double minLat;
+    private final int side;
+    private final int target;
+    private final char[] moves;
+    private final byte[] direction;
+    /**
+     * Positions in millionths of a degree past the cell's corner, exact since every
+     * move rounds to six decimals; a cell is 75 millionths wide.
+     */
+    private final byte[] positionLng;
+    private final byte[] positionLat;
+
+    private CostToGoField(double targetLng, double targetLat, int side, char[] moves, byte[] direction,
+                          byte[] positionLng, byte[] positionLat) {
+        this.targetLng = targetLng;
+        this.targetLat = targetLat;
+        this.side = side;
+        this.minLng = targetLng - (side / 2 + 0.5) * CELL;
+        this.minLat = targetLat - (side / 2 + 0.5) * CELL;
+        this.target = (side / 2) * side + side / 2;
+        this.moves = moves;
+        this.direction = direction;
+        this.positionLng = positionLng;
+        this.positionLat = positionLat;
+    }
+
+    /** Searches the square of cells within {@code radius} degrees of the target. */
+    public static CostToGoField build(LngLat target, double radius, GridIndex noFlyZones) {
+        int side = 2 * (int) Math.ceil(radius / CELL) + 1;
+        int cells = side * side;
+        CostToGoField field = new CostToGoField(target.lng(), target.lat(), side, new char[cells], new byte[cells],
+                new byte[cells], new byte[cells]);
+        Arrays.fill(field.moves, UNREACHED);
+        field.search(new long[0], noFlyZones);
+        return field;
+    }
+
+    /**
+     * This field after the change from {@code removed} to {@code added} zones, for
+     * {@code noFlyZones}, the zones now in force.
+     */
+    public CostToGoField update(GridIndex noFlyZones, List<Polygon> added, List<Polygon> removed) {
+        CostToGoField next = new CostToGoField(targetLng, targetLat, side, moves.clone(), direction.clone(),
+                positionLng.clone(), positionLat.clone());
+        next.repair(noFlyZones, added, removed);
+        return next;
+    }
+
+    public double targetLng() {
+        return targetLng;
+    }
+
+    public double targetLat() {
+        return targetLat;
+    }
+
+    /** Whether the target is exactly {@code (lng, lat)}. */
+    public boolean targets(double lng, double lat) {
+        return targetLng == lng && targetLat == lat;
+    }
+
+    /**
+     * The moves from {@code (lng, lat)} to a position close to the target, to
+     * within one; -1 outside the field or where no flight was found.
+     */
+    public int moves(double lng, double lat) {
+        int cell = cellOf(lng, lat);
+        if (cell < 0 || moves[cell] == UNREACHED)
+            return -1;
+        return moves[cell];
+    }
+
+    /** Cells with a move count. */
+    public int reached() {
+        int reached = 0;
+        for (char count : moves) {
+            if (count != UNREACHED)
+                reached++;
+        }
+        return reached;
+    }
+
+    /**
+     * Breadth-first search from the target, or from {@code seeds}, packed as
+     * {@code moves << 32 | cell} and sorted, when given. A cell is only ever
+     * lowered, so the search also carries decreases outward from the seeds.
+     */
+    private void search(long[] seeds, GridIndex noFlyZones) {
+        if (noFlyZones.anyContains(targetLng, targetLat)) {
+            Arrays.fill(moves, UNREACHED);
+            return;
+        }
+        if (moves[target] != 0) {
+            moves[target] = 0;
+            direction[target] = -1;
+            seeds = new long[]{target};
+        }
+        long[] queue = new long[Math.max(1024, seeds.length)];
+        int head = 0;
+        int tail = 0;
+        int nextSeed = 0;
+        double[] position = new double[2];
+        double[] back = new double[2];
+        double[] queuedAt = new double[2];
+        while (head < tail || nextSeed < seeds.length) {
+            long entry = head == tail || (nextSeed < seeds.length && seeds[nextSeed] < queue[head])
+                    ? seeds[nextSeed++] : queue[head++];
+            int cell = (int) entry;
+            int count = (int) (entry >>> 32);
+            if (moves[cell] != count)
+                continue;
+            position(cell, position);
+            for (int d = 0; d < Moves.DIRECTION_COUNT; d++) {
+                Moves.next(position[0], position[1], ((d + Moves.DIRECTION_COUNT / 2) % Moves.DIRECTION_COUNT)
+                        * Moves.DIRECTION_ANGLE, back);
+                int from = cellOf(back[0], back[1]);
+                if (from < 0 || moves[from] < count + 1)
+                    continue;
+                boolean queued = moves[from] == count + 1;
+                if (queued && !further(back[0], back[1], from, queuedAt))
+                    continue;
+                double backLng = back[0];
+                double backLat = back[1];
+                Moves.next(backLng, backLat, d * Moves.DIRECTION_ANGLE, back);
+                int to = cellOf(back[0], back[1]);
+                if (to < 0 || moves[to] > count || noFlyZones.anyIntersects(backLng, backLat, back[0], back[1]))
+                    continue;
+                moves[from] = (char) (count + 1);
+                direction[from] = (byte) d;
+                positionLng[from] = (byte) (Math.round(backLng * SCALE) - cornerLng(from % side));
+                positionLat[from] = (byte) (Math.round(backLat * SCALE) - cornerLat(from / side));
+                if (queued)
+                    continue;
+                if (tail == queue.length) {
+                    System.arraycopy(queue, head, queue, 0, tail - head);
+                    tail -= head;
+                    head = 0;
+                    if (tail == queue.length)
+                        queue = Arrays.copyOf(queue, queue.length * 2);
+                }
+                queue[tail++] = (long) (count + 1) << 32 | from;
+            }
+        }
+    }
+
+    private void repair(GridIndex noFlyZones, List<Polygon> added, List<Polygon> removed) {
+        BitSet cleared = new BitSet(moves.length);
+        if (!added.isEmpty())
+            clearBlocked(added, cleared);
+        if (moves[target] != 0 && !noFlyZones.anyContains(targetLng, targetLat)) {
+            // the target was in a zone that has gone: nothing to keep
+            Arrays.fill(moves, UNREACHED);
+            search(new long[0], noFlyZones);
+            return;
+        }
+
+        // restart from the cells that might reach a cleared cell or cross a removed zone in one move
+        BitSet seeds = new BitSet(moves.length);
+        for (int cell = cleared.nextSetBit(0); cell >= 0; cell = cleared.nextSetBit(cell + 1)) {
+            addSeeds(cell % side - REACH, cell / side - REACH, cell % side + REACH, cell / side + REACH, seeds);
+        }
+        for (Polygon polygon : removed) {
+            addSeeds(column(polygon.minLng()) - REACH, row(polygon.minLat()) - REACH,
+                    column(polygon.maxLng()) + REACH, row(polygon.maxLat()) + REACH, seeds);
+        }
+        long[] packed = new long[seeds.cardinality()];
+        int count = 0;
+        for (int cell = seeds.nextSetBit(0); cell >= 0; cell = seeds.nextSetBit(cell + 1)) {
+            packed[count++] = (long) moves[cell] << 32 | cell;
+        }
+        Arrays.sort(packed);
+        search(packed, noFlyZones);
+    }
+
+    /**
+     * Clears the cells whose first move touches an added zone, then, nearest the
+     * target first, every cell whose first move lands in a cleared one.
+     */
+    private void clearBlocked(List<Polygon> added, BitSet cleared) {
+        double[] next = new double[2];
+        double[] position = new double[2];
+        for (Polygon polygon : added) {
+            int column0 = Math.max(0, column(polygon.minLng()) - REACH);
+            int column1 = Math.min(side - 1, column(polygon.maxLng()) + REACH);
+            int row0 = Math.max(0, row(polygon.minLat()) - REACH);
+            int row1 = Math.min(side - 1, row(polygon.maxLat()) + REACH);
+            for (int row = row0; row <= row1; row++) {
+                for (int column = column0; column <= column1; column++) {
+                    int cell = row * side + column;
+                    if (moves[cell] == UNREACHED)
+                        continue;
+                    position(cell, position);
+                    if (cell == target) {
+                        if (polygon.contains(position[0], position[1]))
+                            cleared.set(cell);
+                        continue;
+                    }
+                    Moves.next(position[0], position[1], direction[cell] * Moves.DIRECTION_ANGLE, next);
+                    if (polygon.intersectsSegment(position[0], position[1], next[0], next[1]))
+                        cleared.set(cell);
+                }
+            }
+        }
+        if (cleared.isEmpty())
+            return;
+
+        // counting sort of the reached cells by moves, so each follows the cell it moves into
+        int most = 0;
+        for (char count : moves) {
+            if (count != UNREACHED)
+                most = Math.max(most, count);
+        }
+        int[] start = new int[most + 2];
+        for (char count : moves) {
+            if (count != UNREACHED)
+                start[count + 1]++;
+        }
+        for (int i = 1; i < start.length; i++) {
+            start[i] += start[i - 1];
+        }
+        int[] order = new int[start[most + 1]];
+        for (int cell = 0; cell < moves.length; cell++) {
+            if (moves[cell] != UNREACHED)
+                order[start[moves[cell]]++] = cell;
+        }
+        for (int cell : order) {
+            if (cleared.get(cell) || cell == target)
+                continue;
+            position(cell, position);
+            Moves.next(position[0], position[1], direction[cell] * Moves.DIRECTION_ANGLE, next);
+            int to = cellOf(next[0], next[1]);
+            if (to < 0 || cleared.get(to))
+                cleared.set(cell);
+        }
+        for (int cell = cleared.nextSetBit(0); cell >= 0; cell = cleared.nextSetBit(cell + 1)) {
+            moves[cell] = UNREACHED;
+        }
+    }
+
+    /** Marks the reached cells of the clamped range. */
+    private void addSeeds(int column0, int row0, int column1, int row1, BitSet seeds) {
+        for (int row = Math.max(0, row0); row <= Math.min(side - 1, row1); row++) {
+            for (int column = Math.max(0, column0); column <= Math.min(side - 1, column1); column++) {
+                int cell = row * side + column;
+                if (moves[cell] != UNREACHED)
+                    seeds.set(cell);
+            }
+        }
+    }
+
+    /** Whether {@code (lng, lat)} is further from the target than the position of the cell. */
+    private boolean further(double lng, double lat, int cell, double[] position) {
+        position(cell, position);
+        double cellLng = position[0] - targetLng;
+        double cellLat = position[1] - targetLat;
+        double dLng = lng - targetLng;
+        double dLat = lat - targetLat;
+        return dLng * dLng + dLat * dLat > cellLng * cellLng + cellLat * cellLat;
+    }
+
+    private void position(int cell, double[] out) {
+        if (cell == target) {
+            out[0] = targetLng;
+            out[1] = targetLat;
+        } else {
+            out[0] = (cornerLng(cell % side) + positionLng[cell]) / SCALE + 0.0;
+            out[1] = (cornerLat(cell / side) + positionLat[cell]) / SCALE + 0.0;
+        }
+    }
+
+    /** The last millionth of a degree at or before the column's western edge. */
+    private long cornerLng(int column) {
+        return (long) Math.floor((minLng + column * CELL) * SCALE);
+    }
+
+    private long cornerLat(int row) {
+        return (long) Math.floor((minLat + row * CELL) * SCALE);
+    }
+
+    private int column(double lng) {
+        return (int) Math.floor((lng - minLng) / CELL);
+    }
+
+    private int row(double lat) {
+        return (int) Math.floor((lat - minLat) / CELL);
+    }
+
+    private int cellOf(double lng, double lat) {
+        int column = column(lng);
+        int row = row(lat);
+        if (column < 0 || row < 0 || column >= side || row >= side)
+            return -1;
+        return row * side + column;
+    }
+}
@@ -0,0 +1,287 @@
+package uk.ac.ed.acp.cw2.planner;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.ac.ed.acp.cw2.dto.CandidateDrone;
+import uk.ac.ed.acp.cw2.dto.Delivery;
+import uk.ac.ed.acp.cw2.dto.DroneRoute;
+import uk.ac.ed.acp.cw2.dto.Schedule;
+import uk.ac.ed.acp.cw2.dto.ScheduleRequest;
+import uk.ac.ed.acp.cw2.parser.ApiError;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Assigns deliveries to drones and orders each drone's stops, one trip per drone
+ * out from its start and back.
+ * <p>
+ * Every candidate drone's best trip over the deliveries still open is built by
+ * nearest neighbour, taking the closest delivery that still fits its capacity and
+ * move budget with the flight home, then shortened by 2-opt. The trip with the
+ * least cost per delivery is kept, and the rest are built again over what is left;
+ * a trip that took none of the deliveries just kept is still the one nearest
+ * neighbour would build, so only the others are rebuilt. Candidates are built in
+ * parallel on a fork-join pool of {@code ilp.schedule.parallelism} threads, by
+ * default one per core. Leg costs come from one {@link MoveMatrix} per request.
+ */
+@Service
+public class DeliveryScheduler {
+
+    private final int maxDeliveries;
+    private final int maxDrones;
+    private final ForkJoinPool pool;
+
+    public DeliveryScheduler(@Value("${ilp.schedule.max-deliveries:1000}") int maxDeliveries,
+                             @Value("${ilp.schedule.max-drones:200}") int maxDrones,
+                             @Value("${ilp.schedule.parallelism:0}") int parallelism) {
+        this.maxDeliveries = maxDeliveries;
+        this.maxDrones = maxDrones;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Schedules the deliveries, leaving out any no drone can take. Throws
+     * {@link ApiError#SCHEDULE_TOO_LARGE} beyond the configured sizes, and
+     * {@link CancellationException} if the thread is interrupted, as a cancelled
+     * job is.
+     */
+    public Schedule schedule(ScheduleRequest request) {
+        List<Delivery> deliveries = request.deliveries();
+        List<CandidateDrone> drones = request.drones();
+        if (deliveries.size() > maxDeliveries || drones.size() > maxDrones)
+            throw ApiError.SCHEDULE_TOO_LARGE.exception();
+
+        // drone starts first, then the deliveries
+        int starts = drones.size();
+        double[] lng = new double[starts + deliveries.size()];
+        double[] lat = new double[lng.length];
+        for (int i = 0; i < starts; i++) {
+            lng[i] = drones.get(i).start().lng();
+            lat[i] = drones.get(i).start().lat();
+        }
+        for (int i = 0; i < deliveries.size(); i++) {
+            lng[starts + i] = deliveries.get(i).location().lng();
+            lat[starts + i] = deliveries.get(i).location().lat();
+        }
+        Trips trips = new Trips(request, MoveMatrix.of(lng, lat));
+
+        Trip[] best = new Trip[starts];
+        boolean[] used = new boolean[starts];
+        List<Integer> stale = new ArrayList<>();
+        for (int i = 0; i < starts; i++) {
+            stale.add(i);
+        }
+        List<DroneRoute> routes = new ArrayList<>();
+        long totalMoves = 0;
+        double totalCost = 0;
+        while (true) {
+            if (Thread.currentThread().isInterrupted())
+                throw new CancellationException("scheduling interrupted");
+            if (!stale.isEmpty())
+                rebuild(trips, stale, best);
+            Trip chosen = null;
+            for (int i = 0; i < starts; i++) {
+                if (!used[i] && best[i] != null && (chosen == null || best[i].betterThan(chosen)))
+                    chosen = best[i];
+            }
+            if (chosen == null)
+                break;
+            used[chosen.drone] = true;
+            trips.take(chosen);
+            routes.add(chosen.route(request));
+            totalMoves += chosen.moves;
+            totalCost += chosen.cost;
+
+            stale.clear();
+            for (int i = 0; i < starts; i++) {
+                if (!used[i] && best[i] != null && trips.overlaps(best[i]))
+                    stale.add(i);
+            }
+        }
+
+        List<String> unassigned = new ArrayList<>();
+        for (int i = 0; i < deliveries.size(); i++) {
+            if (!trips.taken[i])
+                unassigned.add(deliveries.get(i).id());
+        }
+        return new Schedule(routes, unassigned, totalMoves, totalCost);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /** Builds the best trip of each stale drone, in parallel when there are several. */
+    private void rebuild(Trips trips, List<Integer> stale, Trip[] best) {
+        if (stale.size() == 1) {
+            int drone = stale.get(0);
+            best[drone] = trips.build(drone);
+            return;
+        }
+        List<Callable<Trip>> tasks = new ArrayList<>(stale.size());
+        for (int drone : stale) {
+            tasks.add(() -> trips.build(drone));
+        }
+        try {
+            List<Future<Trip>> built = pool.invokeAll(tasks);
+            for (int i = 0; i < built.size(); i++) {
+                best[stale.get(i)] = built.get(i).get();
+            }
+        } catch (InterruptedException e) {
+            trips.cancelled = true;
+            throw new CancellationException("scheduling interrupted");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+        }
+    }
+
+    /** The request's legs and the deliveries already taken, shared by the builders of one round. */
+    private static final class Trips {
+
+        final List<Delivery> deliveries;
+        final List<CandidateDrone> drones;
+        final MoveMatrix moves;
+        /** Written between rounds only. */
+        final boolean[] taken;
+        volatile boolean cancelled;
+
+        Trips(ScheduleRequest request, MoveMatrix moves) {
+            this.deliveries = request.deliveries();
+            this.drones = request.drones();
+            this.moves = moves;
+            this.taken = new boolean[deliveries.size()];
+        }
+
+        /** The drone's best trip over the open deliveries, or null when it can take none. */
+        Trip build(int drone) {
+            CandidateDrone candidate = drones.get(drone);
+            int starts = drones.size();
+            int[] stops = new int[deliveries.size()];
+            boolean[] visited = new boolean[deliveries.size()];
+            int count = 0;
+            double load = 0;
+            long flown = 0;
+            int at = drone;
+            while (true) {
+                int next = -1;
+                int nextMoves = Integer.MAX_VALUE;
+                for (int i = 0; i < deliveries.size(); i++) {
+                    int point = starts + i;
+                    if (taken[i] || visited[i])
+                        continue;
+                    int leg = moves.moves(at, point);
+                    if (leg < nextMoves && fits(candidate, load + deliveries.get(i).weight(),
+                            flown + leg + moves.moves(point, drone))) {
+                        next = point;
+                        nextMoves = leg;
+                    }
+                }
+                if (next < 0)
+                    break;
+                stops[count++] = next;
+                visited[next - starts] = true;
+                load += deliveries.get(next - starts).weight();
+                flown += nextMoves;
+                at = next;
+            }
+            if (count == 0)
+                return null;
+            int[] tour = new int[count + 1];
+            tour[0] = drone;
+            System.arraycopy(stops, 0, tour, 1, count);
+            twoOpt(tour);
+            long total = 0;
+            for (int i = 0; i < tour.length; i++) {
+                total += moves.moves(tour[i], tour[(i + 1) % tour.length]);
+            }
+            return new Trip(drone, tour, total, candidate.cost(total));
+        }
+
+        /**
+         * Reverses stretches of the closed tour while that makes it shorter. The
+         * start stays first; the moves only ever shrink, so the trip stays within
+         * the drone's budget.
+         */
+        private void twoOpt(int[] tour) {
+            int n = tour.length;
+            boolean improved = true;
+            while (improved && !cancelled) {
+                improved = false;
+                for (int i = 1; i < n - 1; i++) {
+                    for (int j = i + 1; j < n; j++) {
+                        int before = tour[i - 1];
+                        int after = tour[(j + 1) % n];
+                        long delta = (long) moves.moves(before, tour[j]) + moves.moves(tour[i], after)
+                                - moves.moves(before, tour[i]) - moves.moves(tour[j], after);
+                        if (delta < 0) {
+                            reverse(tour, i, j);
+                            improved = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        void take(Trip trip) {
+            for (int i = 1; i < trip.tour.length; i++) {
+                taken[trip.tour[i] - drones.size()] = true;
+            }
+        }
+
+        /** Whether the trip visits a delivery that has been taken since it was built. */
+        boolean overlaps(Trip trip) {
+            for (int i = 1; i < trip.tour.length; i++) {
+                if (taken[trip.tour[i] - drones.size()])
+                    return true;
+            }
+            return false;
+        }
+
+        private static boolean fits(CandidateDrone drone, double load, long flown) {
+            return load <= drone.capacity() && flown <= drone.maxMoves();
+        }
+
+        private static void reverse(int[] tour, int from, int to) {
+            while (from < to) {
+                int swap = tour[from];
+                tour[from++] = tour[to];
+                tour[to--] = swap;
+            }
+        }
+    }
+
+    /** A closed tour from a drone's start through some deliveries, as matrix indexes. */
+    private record Trip(int drone, int[] tour, long moves, double cost) {
+
+        /** Cheaper per delivery; then more deliveries; then the lower drone index, for a stable result. */
+        boolean betterThan(Trip other) {
+            int compare = Double.compare(cost * other.stops(), other.cost * stops());
+            if (compare != 0)
+                return compare < 0;
+            if (stops() != other.stops())
+                return stops() > other.stops();
+            return drone < other.drone;
+        }
+
+        int stops() {
+            return tour.length - 1;
+        }
+
+        DroneRoute route(ScheduleRequest request) {
+            int starts = request.drones().size();
+            List<String> ids = new ArrayList<>(stops());
+            for (int i = 1; i < tour.length; i++) {
+                ids.add(request.deliveries().get(tour[i] - starts).id());
+            }
+            return new DroneRoute(request.drones().get(drone).id(), ids, moves, cost);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package uk.ac.ed.acp.cw2.planner;
+
+import uk.ac.ed.acp.cw2.geometry.DistanceMatrix;
+import uk.ac.ed.acp.cw2.geometry.Geometry;
+import uk.ac.ed.acp.cw2.geometry.Moves;
+
+/**
+ * Estimated moves between every pair of a set of positions, for ordering stops
+ * without planning each leg.
+ * <p>
+ * A leg is flown in the two compass directions either side of its bearing, so its
+ * length on the move lattice is its /distanceTo distance times
+ * {@code cos(a - 11.25°) / cos(11.25°)}, where {@code a} is how far the bearing is
+ * past the lower of the two; the leg ends on the first move that is /isCloseTo the
+ * target. The estimate ignores no-fly zones; in open sky it is within a move of
+ * what /path plans, the difference being the six-decimal rounding of
+ * /nextPosition. It is symmetric, a bearing and its reverse being the same angle
+ * past a compass direction.
+ */
+public final class MoveMatrix {
+
+    private static final double HALF_ANGLE = Math.toRadians(Moves.DIRECTION_ANGLE / 2);
+    private static final double COS_HALF_ANGLE = Math.cos(HALF_ANGLE);
+
+    private final int size;
+    private final int[] moves;
+
+    private MoveMatrix(int size, int[] moves) {
+        this.size = size;
+        this.moves = moves;
+    }
+
+    /** The matrix for the positions {@code (lng[i], lat[i])}, distances from the fastest kernel. */
+    public static MoveMatrix of(double[] lng, double[] lat) {
+        int size = lng.length;
+        double[] distances = new double[size * size];
+        DistanceMatrix.get().distances(lng, lat, lng, lat, distances);
+        int[] moves = new int[size * size];
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                int estimate = estimate(distances[i * size + j], lng[j] - lng[i], lat[j] - lat[i]);
+                moves[i * size + j] = estimate;
+                moves[j * size + i] = estimate;
+            }
+        }
+        return new MoveMatrix(size, moves);
+    }
+
+    /** Estimated moves for a leg of {@code distance} along {@code (dLng, dLat)}. */
+    static int estimate(double distance, double dLng, double dLat) {
+        if (distance < Geometry.CLOSE_DISTANCE)
+            return 0;
+        double bearing = Math.atan2(dLat, dLng);
+        double past = Math.IEEEremainder(bearing, 2 * HALF_ANGLE);
+        double length = distance * Math.cos(Math.abs(past) - HALF_ANGLE) / COS_HALF_ANGLE;
+        // the first move to end strictly less than CLOSE_DISTANCE short of the target
+        double moves = Math.floor((length - Geometry.CLOSE_DISTANCE) / Moves.STEP) + 1;
+        return moves >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) moves;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int moves(int from, int to) {
+        return moves[from * size + to];
+    }
+}
@@ -0,0 +1,65 @@
+package uk.ac.ed.acp.cw2.planner;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of node ids ordered by a double priority, stored in two
+ * parallel primitive arrays. A node may be pushed more than once; callers skip
+ * stale entries when they pop them.
+ */
+final class NodeHeap {
+
+    private double[] priorities;
+    private int[] nodes;
+    private int size;
+
+    NodeHeap(int initialCapacity) {
+        priorities = new double[Math.max(initialCapacity, 16)];
+        nodes = new int[priorities.length];
+    }
+
+    void push(int node, double priority) {
+        if (size == nodes.length) {
+            priorities = Arrays.copyOf(priorities, size * 2);
+            nodes = Arrays.copyOf(nodes, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (priorities[parent] <= priority)
+                break;
+            priorities[i] = priorities[parent];
+            nodes[i] = nodes[parent];
+            i = parent;
+        }
+        priorities[i] = priority;
+        nodes[i] = node;
+    }
+
+    /** Removes and returns the node with the lowest priority. */
+    int pop() {
+        int top = nodes[0];
+        size--;
+        double priority = priorities[size];
+        int node = nodes[size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && priorities[child + 1] < priorities[child])
+                child++;
+            if (priority <= priorities[child])
+                break;
+            priorities[i] = priorities[child];
+            nodes[i] = nodes[child];
+            i = child;
+        }
+        priorities[i] = priority;
+        nodes[i] = node;
+        return top;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+}
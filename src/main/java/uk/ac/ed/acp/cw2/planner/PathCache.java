@@ -0,0 +1,163 @@
+package uk.ac.ed.acp.cw2.planner;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.ac.ed.acp.cw2.dto.FlightPath;
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.geometry.GridIndex;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A least-recently-used cache of planned paths in front of {@link PathPlanner},
+ * for the repeat routes between service points and popular drop-offs.
+ * <p>
+ * Entries are keyed on the exact endpoints, since a path starts at its
+ * {@code from}, and on the no-fly zone ids asked for; near-duplicates are planned
+ * and cached on their own. Results with no path are cached too, as they cost the
+ * whole expansion budget to find.
+ * <p>
+ * The cache holds paths for one version of the region set at a time: a request
+ * against a newer version empties it, one against an older version bypasses it.
+ * Eviction is by weight, one unit per position of each cached path, up to
+ * {@code ilp.path-cache.max-positions}; zero turns the cache off.
+ * <p>
+ * Misses are planned with the {@link ServicePointFields} for the request's zones
+ * when there are any, which mostly matters for routes to and from service points.
+ */
+@Component
+public class PathCache {
+
+    private final PathPlanner pathPlanner;
+    private final ServicePointFields fields;
+    private final long maxWeight;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long version = -1;
+    private long weight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    @Autowired
+    public PathCache(PathPlanner pathPlanner, ServicePointFields fields,
+                     @Value("${ilp.path-cache.max-positions:200000}") long maxWeight) {
+        this.pathPlanner = pathPlanner;
+        this.fields = fields;
+        this.maxWeight = maxWeight;
+    }
+
+    /** A cache planning without cost-to-go fields. */
+    public PathCache(PathPlanner pathPlanner, long maxWeight) {
+        this(pathPlanner, null, maxWeight);
+    }
+
+    /**
+     * The path from {@code from} to {@code to} around the zones, from the cache or
+     * planned and cached; null when there is none. {@code noFlyZones} is only asked
+     * for on a miss, so a hit costs no index build.
+     *
+     * @param zoneIds       the zone ids the request named, null for the no-fly zones
+     * @param regionVersion the version of the region set the zones come from
+     */
+    public FlightPath plan(LngLat from, LngLat to, List<String> zoneIds, long regionVersion,
+                           Supplier<GridIndex> noFlyZones) {
+        Key key = maxWeight > 0 ? Key.of(from, to, zoneIds) : null;
+        if (key != null) {
+            synchronized (this) {
+                if (regionVersion > version)
+                    invalidate(regionVersion);
+                Entry entry = regionVersion == version ? entries.get(key) : null;
+                if (entry != null) {
+                    hits.increment();
+                    return entry.path;
+                }
+            }
+        }
+        misses.increment();
+        FlightPath path = pathPlanner.plan(from, to, noFlyZones.get(),
+                fields == null ? null : fields.forZones(zoneIds, regionVersion));
+        if (key != null)
+            store(key, new Entry(path), regionVersion);
+        return path;
+    }
+
+    /** Cached paths, stale ones included until the next request drops them. */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** Total weight of the cached paths, in positions. */
+    public synchronized long weight() {
+        return weight;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /** Entries dropped to stay within the weight limit. */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /** Times a change to the region set emptied the cache. */
+    public long invalidationCount() {
+        return invalidations.sum();
+    }
+
+    private synchronized void store(Key key, Entry entry, long regionVersion) {
+        if (regionVersion > version)
+            invalidate(regionVersion);
+        if (regionVersion != version || entry.weight > maxWeight)
+            return;
+        Entry replaced = entries.put(key, entry);
+        if (replaced != null)
+            weight -= replaced.weight;
+        weight += entry.weight;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (weight > maxWeight) {
+            weight -= eldest.next().weight;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private void invalidate(long regionVersion) {
+        if (!entries.isEmpty()) {
+            entries.clear();
+            invalidations.increment();
+        }
+        weight = 0;
+        version = regionVersion;
+    }
+
+    private record Key(double fromLng, double fromLat, double toLng, double toLat, List<String> zoneIds) {
+
+        static Key of(LngLat from, LngLat to, List<String> zoneIds) {
+            return new Key(from.lng(), from.lat(), to.lng(), to.lat(), zoneIds);
+        }
+    }
+
+    private static final class Entry {
+
+        final FlightPath path;
+        final int weight;
+
+        Entry(FlightPath path) {
+            this.path = path;
+            this.weight = path == null ? 1 : path.path().size();
+        }
+    }
+}
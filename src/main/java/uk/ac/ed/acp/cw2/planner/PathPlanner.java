@@ -0,0 +1,230 @@
+package uk.ac.ed.acp.cw2.planner;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.ac.ed.acp.cw2.dto.FlightPath;
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.geometry.Geometry;
+import uk.ac.ed.acp.cw2.geometry.GridIndex;
+import uk.ac.ed.acp.cw2.geometry.Moves;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * A* search over the lattice of positions reachable with {@link Moves#next}: 16
+ * compass directions, one {@link Moves#STEP} each, rounded to six decimals exactly
+ * as /nextPosition does. The flight ends at the first position close to the target
+ * ({@link Geometry#isClose}); no move may touch a no-fly polygon.
+ * <p>
+ * Node state lives in parallel primitive arrays indexed by node id. Nodes are
+ * found by their quantized coordinates packed into a long, and the open list is a
+ * primitive binary heap.
+ * <p>
+ * {@link CostToGoField}s computed for the same zones sharpen the heuristic: a
+ * field of the target is looked up directly, and any other bounds the moves by
+ * the difference of its counts at the node and at the target, less the move each
+ * count may be out by.
+ */
+@Service
+public class PathPlanner {
+
+    private static final double SCALE = 1e6;
+    /**
+     * Visited positions are keyed on a grid of a quarter step. Lattice points closer
+     * than that are treated as the same node, which keeps the near-duplicates that
+     * rounding produces from multiplying the search space.
+     */
+    private static final double KEY_SCALE = 4 / Moves.STEP;
+    /** Distance from the centre of the 16-gon of unit moves to each of its sides. */
+    private static final double SIDE_DISTANCE = Moves.STEP * Math.cos(Math.toRadians(Moves.DIRECTION_ANGLE / 2));
+    /** Rounding to six decimals can stretch a move by up to this fraction. */
+    private static final double ROUNDING_SLACK = 1 + Math.sqrt(0.5) / SCALE / Moves.STEP;
+    private static final double[] SIDE_NORMAL_LNG = new double[Moves.DIRECTION_COUNT];
+    private static final double[] SIDE_NORMAL_LAT = new double[Moves.DIRECTION_COUNT];
+    /**
+     * Slightly inflates the heuristic so the search dives through the plateau of
+     * equally short paths instead of expanding all of them, at the price of paths up
+     * to about 2% longer than optimal.
+     */
+    private static final double HEURISTIC_WEIGHT = 1.02;
+    /** The search looks for an interrupt once per this many expansions, plus one. */
+    private static final int INTERRUPT_CHECK_MASK = 1023;
+
+    static {
+        for (int i = 0; i < Moves.DIRECTION_COUNT; i++) {
+            double radians = Math.toRadians((i + 0.5) * Moves.DIRECTION_ANGLE);
+            SIDE_NORMAL_LNG[i] = Math.cos(radians);
+            SIDE_NORMAL_LAT[i] = Math.sin(radians);
+        }
+    }
+
+    private final int maxExpansions;
+
+    public PathPlanner(@Value("${ilp.planner.max-expansions:200000}") int maxExpansions) {
+        this.maxExpansions = maxExpansions;
+    }
+
+    /**
+     * Plans a flight from one position to another, or returns null when there is none
+     * within the expansion budget. Throws {@link CancellationException} if the
+     * thread is interrupted during the search, as a cancelled planning job is.
+     */
+    public FlightPath plan(LngLat from, LngLat to, GridIndex noFlyZones) {
+        return plan(from, to, noFlyZones, null);
+    }
+
+    /**
+     * {@link #plan(LngLat, LngLat, GridIndex)} guided by {@code fields}, which must
+     * have been computed for exactly these zones; null for none.
+     */
+    public FlightPath plan(LngLat from, LngLat to, GridIndex noFlyZones, CostToGoField[] fields) {
+        if (noFlyZones.anyContains(from.lng(), from.lat()) || noFlyZones.anyContains(to.lng(), to.lat()))
+            return null;
+        return new Search(from, to, noFlyZones, fields).run();
+    }
+
+    /** Packs a position, quantized to the key grid, into a long. */
+    static long key(double lng, double lat) {
+        long x = Math.round(lng * KEY_SCALE);
+        long y = Math.round(lat * KEY_SCALE);
+        return (x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    private final class Search {
+
+        private final double targetLng;
+        private final double targetLat;
+        private final GridIndex noFlyZones;
+        /** The fields that know the target, and what each needs taken off its count at a node. */
+        private final CostToGoField[] fields;
+        private final int[] fieldOffset;
+
+        private final LongIntHashMap nodesByKey = new LongIntHashMap(4096);
+        private final NodeHeap open = new NodeHeap(4096);
+        private double[] lng = new double[1024];
+        private double[] lat = new double[1024];
+        private int[] cost = new int[1024];
+        private int[] parent = new int[1024];
+        private byte[] direction = new byte[1024];
+        private boolean[] closed = new boolean[1024];
+        private int nodeCount;
+
+        Search(LngLat from, LngLat to, GridIndex noFlyZones, CostToGoField[] fields) {
+            this.targetLng = to.lng();
+            this.targetLat = to.lat();
+            this.noFlyZones = noFlyZones;
+            int usable = 0;
+            CostToGoField[] guides = new CostToGoField[fields == null ? 0 : fields.length];
+            int[] offsets = new int[guides.length];
+            for (int i = 0; i < guides.length; i++) {
+                if (fields[i].targets(targetLng, targetLat)) {
+                    guides[usable] = fields[i];
+                    offsets[usable++] = 1;
+                } else if (fields[i].moves(targetLng, targetLat) >= 0) {
+                    guides[usable] = fields[i];
+                    offsets[usable++] = fields[i].moves(targetLng, targetLat) + 2;
+                }
+            }
+            this.fields = Arrays.copyOf(guides, usable);
+            this.fieldOffset = Arrays.copyOf(offsets, usable);
+            int start = addNode(from.lng(), from.lat());
+            nodesByKey.put(key(from.lng(), from.lat()), start);
+            parent[start] = -1;
+            open.push(start, heuristic(from.lng(), from.lat()));
+        }
+
+        FlightPath run() {
+            double[] next = new double[2];
+            int expansions = 0;
+            while (!open.isEmpty()) {
+                int node = open.pop();
+                if (closed[node])
+                    continue;
+                closed[node] = true;
+                if (Geometry.isClose(lng[node], lat[node], targetLng, targetLat))
+                    return path(node);
+                if (++expansions > maxExpansions)
+                    return null;
+                if ((expansions & INTERRUPT_CHECK_MASK) == 0 && Thread.currentThread().isInterrupted())
+                    throw new CancellationException("path planning interrupted");
+
+                int nextCost = cost[node] + 1;
+                for (int d = 0; d < Moves.DIRECTION_COUNT; d++) {
+                    Moves.next(lng[node], lat[node], d * Moves.DIRECTION_ANGLE, next);
+                    long key = key(next[0], next[1]);
+                    int neighbour = nodesByKey.get(key);
+                    if (neighbour >= 0 && (closed[neighbour] || cost[neighbour] <= nextCost))
+                        continue;
+                    if (noFlyZones.anyIntersects(lng[node], lat[node], next[0], next[1]))
+                        continue;
+                    if (neighbour < 0) {
+                        neighbour = addNode(next[0], next[1]);
+                        nodesByKey.put(key, neighbour);
+                    } else {
+                        lng[neighbour] = next[0];
+                        lat[neighbour] = next[1];
+                    }
+                    cost[neighbour] = nextCost;
+                    parent[neighbour] = node;
+                    direction[neighbour] = (byte) d;
+                    open.push(neighbour, nextCost + heuristic(next[0], next[1]));
+                }
+            }
+            return null;
+        }
+
+        /**
+         * A lower bound on the moves still needed. With 16 directions the fewest moves
+         * covering a vector is its length in the gauge of the 16-gon of single moves,
+         * the largest projection onto a side normal over the side distance. The close
+         * radius and rounding slack are taken off so the bound stays admissible, before
+         * the weighting. The fields' bounds, which see around the zones, replace it
+         * where they are larger; they are near exact already, so are not weighted.
+         */
+        private double heuristic(double fromLng, double fromLat) {
+            double vLng = targetLng - fromLng;
+            double vLat = targetLat - fromLat;
+            double projection = 0;
+            for (int i = 0; i < Moves.DIRECTION_COUNT; i++) {
+                projection = Math.max(projection, vLng * SIDE_NORMAL_LNG[i] + vLat * SIDE_NORMAL_LAT[i]);
+            }
+            double remaining = (projection - Geometry.CLOSE_DISTANCE) / SIDE_DISTANCE;
+            double bound = remaining > 0 ? remaining / ROUNDING_SLACK * HEURISTIC_WEIGHT : 0;
+            for (int i = 0; i < fields.length; i++) {
+                int moves = fields[i].moves(fromLng, fromLat);
+                if (moves >= 0)
+                    bound = Math.max(bound, moves - fieldOffset[i]);
+            }
+            return bound;
+        }
+
+        private int addNode(double nodeLng, double nodeLat) {
+            if (nodeCount == lng.length) {
+                int capacity = nodeCount * 2;
+                lng = Arrays.copyOf(lng, capacity);
+                lat = Arrays.copyOf(lat, capacity);
+                cost = Arrays.copyOf(cost, capacity);
+                parent = Arrays.copyOf(parent, capacity);
+                direction = Arrays.copyOf(direction, capacity);
+                closed = Arrays.copyOf(closed, capacity);
+            }
+            lng[nodeCount] = nodeLng;
+            lat[nodeCount] = nodeLat;
+            return nodeCount++;
+        }
+
+        private FlightPath path(int last) {
+            int moves = cost[last];
+            LngLat[] positions = new LngLat[moves + 1];
+            double[] angles = new double[moves];
+            for (int node = last, i = moves; node >= 0; node = parent[node], i--) {
+                positions[i] = new LngLat(lng[node], lat[node]);
+                if (i > 0)
+                    angles[i - 1] = direction[node] * Moves.DIRECTION_ANGLE;
+            }
+            return new FlightPath(List.of(positions), angles);
+        }
+    }
+}
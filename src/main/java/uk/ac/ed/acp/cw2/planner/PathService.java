@@ -0,0 +1,51 @@
+package uk.ac.ed.acp.cw2.planner;
+
+import org.springframework.stereotype.Service;
+import uk.ac.ed.acp.cw2.dto.FlightPath;
+import uk.ac.ed.acp.cw2.dto.PathRequest;
+import uk.ac.ed.acp.cw2.geometry.GridIndex;
+import uk.ac.ed.acp.cw2.parser.ApiError;
+import uk.ac.ed.acp.cw2.service.RegionRegistry;
+import uk.ac.ed.acp.cw2.service.RegionSet;
+
+import java.util.List;
+
+/**
+ * Answers /path requests, for /path itself and for path jobs on either web stack.
+ * The no-fly zones are the registered regions the request lists, or those
+ * registered as no-fly zones when it lists none, taken from one snapshot of the
+ * region set so they agree with the version {@link PathCache} keys on.
+ */
+@Service
+public class PathService {
+
+    private final RegionRegistry regionRegistry;
+    private final PathCache pathCache;
+
+    public PathService(RegionRegistry regionRegistry, PathCache pathCache) {
+        this.regionRegistry = regionRegistry;
+        this.pathCache = pathCache;
+    }
+
+    /**
+     * The path for the request. Throws {@link ApiError#UNKNOWN_REGION} for a zone id
+     * that is not registered and {@link ApiError#NO_PATH} when there is none.
+     */
+    public FlightPath plan(PathRequest request) {
+        RegionSet regions = regionRegistry.snapshot();
+        FlightPath path = pathCache.plan(request.from(), request.to(), request.noFlyZones(), regions.version(),
+                () -> noFlyZones(regions, request.noFlyZones()));
+        if (path == null)
+            throw ApiError.NO_PATH.exception();
+        return path;
+    }
+
+    private static GridIndex noFlyZones(RegionSet regions, List<String> ids) {
+        if (ids == null)
+            return regions.noFlyIndex();
+        GridIndex index = regions.index(ids);
+        if (index == null)
+            throw ApiError.UNKNOWN_REGION.exception();
+        return index;
+    }
+}
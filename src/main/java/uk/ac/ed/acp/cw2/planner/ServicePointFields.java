@@ -0,0 +1,166 @@
+package uk.ac.ed.acp.cw2.planner;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.dto.ReferenceData;
+import uk.ac.ed.acp.cw2.dto.ServicePoint;
+import uk.ac.ed.acp.cw2.geometry.Polygon;
+import uk.ac.ed.acp.cw2.service.ReferenceDataService;
+import uk.ac.ed.acp.cw2.service.RegionRegistry;
+import uk.ac.ed.acp.cw2.service.RegionSet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link CostToGoField} toward each ILP service point, around the regions
+ * registered as no-fly zones, for {@link PathCache} to plan with.
+ * <p>
+ * The fields are computed on a background thread whenever the service points or
+ * the regions change, changes arriving during a computation being folded into the
+ * next one. A region change repairs the existing fields rather than searching
+ * again. The finished fields are published with a single volatile write together
+ * with the region set they avoid, and are only handed out for requests against
+ * that same set that name no zones of their own; anything else plans without.
+ * At most {@code ilp.fields.max-service-points} locations get a field, each out
+ * to {@code ilp.fields.radius} degrees.
+ */
+@Component
+public class ServicePointFields {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServicePointFields.class);
+
+    private final ReferenceDataService referenceData;
+    private final RegionRegistry regions;
+    private final double radius;
+    private final int maxServicePoints;
+    private final ExecutorService executor;
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private volatile Fields current;
+
+    public ServicePointFields(ReferenceDataService referenceData, RegionRegistry regions,
+                              @Value("${ilp.fields.enabled:true}") boolean enabled,
+                              @Value("${ilp.fields.radius:0.03}") double radius,
+                              @Value("${ilp.fields.max-service-points:16}") int maxServicePoints) {
+        this.referenceData = referenceData;
+        this.regions = regions;
+        this.radius = radius;
+        this.maxServicePoints = maxServicePoints;
+        if (!enabled || maxServicePoints <= 0) {
+            this.executor = null;
+            return;
+        }
+        this.executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "cost-to-go-fields");
+            thread.setDaemon(true);
+            return thread;
+        });
+        referenceData.addListener(data -> schedule());
+        regions.addListener(set -> schedule());
+        if (referenceData.currentIfLoaded() != null)
+            schedule();
+    }
+
+    /**
+     * The fields to plan with against version {@code regionVersion} of the region
+     * set, or null when there are none for it.
+     *
+     * @param zoneIds the zone ids the request named, null for the no-fly zones
+     */
+    public CostToGoField[] forZones(List<String> zoneIds, long regionVersion) {
+        Fields fields = current;
+        if (zoneIds != null || fields == null || fields.regions.version() != regionVersion)
+            return null;
+        return fields.fields;
+    }
+
+    /** The region set version the current fields avoid, or -1 before the first are ready. */
+    public long regionVersion() {
+        Fields fields = current;
+        return fields == null ? -1 : fields.regions.version();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null)
+            executor.shutdownNow();
+    }
+
+    private void schedule() {
+        if (pending.compareAndSet(false, true))
+            executor.execute(this::refresh);
+    }
+
+    private void refresh() {
+        pending.set(false);
+        ReferenceData data = referenceData.currentIfLoaded();
+        if (data == null)
+            return;
+        try {
+            long start = System.nanoTime();
+            current = compute(current, targets(data), regions.snapshot());
+            logger.info("computed cost-to-go fields for {} service points against region set version {} in {} ms",
+                    current.fields.length, current.regions.version(), (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            logger.warn("cost-to-go fields failed for reference data version {}", data.version(), e);
+        }
+    }
+
+    /** The distinct service point locations, in listing order, up to the limit. */
+    private List<LngLat> targets(ReferenceData data) {
+        Set<LngLat> targets = new LinkedHashSet<>();
+        for (ServicePoint point : data.servicePoints()) {
+            if (point.location() != null && targets.size() < maxServicePoints)
+                targets.add(point.location());
+        }
+        return new ArrayList<>(targets);
+    }
+
+    /**
+     * Fields toward every target around the no-fly zones of {@code set}, repairing those
+     * of {@code previous} for targets it already had and building the rest.
+     */
+    private Fields compute(Fields previous, List<LngLat> targets, RegionSet set) {
+        Map<LngLat, CostToGoField> reusable = new HashMap<>();
+        List<Polygon> added = new ArrayList<>();
+        List<Polygon> removed = new ArrayList<>();
+        if (previous != null) {
+            for (CostToGoField field : previous.fields) {
+                reusable.put(new LngLat(field.targetLng(), field.targetLat()), field);
+            }
+            // a region is a no-fly zone or not from registration on, so ids are enough
+            for (String id : set.noFlyIds()) {
+                if (previous.regions.get(id) == null)
+                    added.add(set.get(id).polygon());
+            }
+            for (String id : previous.regions.noFlyIds()) {
+                if (set.get(id) == null)
+                    removed.add(previous.regions.get(id).polygon());
+            }
+        }
+        boolean changed = !added.isEmpty() || !removed.isEmpty();
+        CostToGoField[] fields = new CostToGoField[targets.size()];
+        for (int i = 0; i < fields.length; i++) {
+            CostToGoField field = reusable.get(targets.get(i));
+            if (field == null)
+                fields[i] = CostToGoField.build(targets.get(i), radius, set.noFlyIndex());
+            else
+                fields[i] = changed ? field.update(set.noFlyIndex(), added, removed) : field;
+        }
+        return new Fields(set, fields);
+    }
+
+    private record Fields(RegionSet regions, CostToGoField[] fields) {
+    }
+}
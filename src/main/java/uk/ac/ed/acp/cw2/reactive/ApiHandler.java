@@ -0,0 +1,229 @@
+package uk.ac.ed.acp.cw2.reactive;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.HealthComponent;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import uk.ac.ed.acp.cw2.dto.BatchDistanceRequest;
+import uk.ac.ed.acp.cw2.dto.BatchRegionRequest;
+import uk.ac.ed.acp.cw2.dto.DistanceMatrixRequest;
+import uk.ac.ed.acp.cw2.dto.DistanceMatrixResponse;
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.geometry.DistanceMatrix;
+import uk.ac.ed.acp.cw2.geometry.Geometry;
+import uk.ac.ed.acp.cw2.geometry.Moves;
+import uk.ac.ed.acp.cw2.geometry.Polygon;
+import uk.ac.ed.acp.cw2.parser.ApiError;
+import uk.ac.ed.acp.cw2.parser.RequestParser;
+import uk.ac.ed.acp.cw2.planner.DeliveryScheduler;
+import uk.ac.ed.acp.cw2.planner.PathService;
+import uk.ac.ed.acp.cw2.service.PathValidator;
+
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * Functional-endpoint handlers for the /api/v1 geometry and path endpoints of
+ * {@code ServiceController} and {@code PathController}, with the same request and
+ * response formats. Batch results and trajectories are streamed element by element,
+ * computed only as fast as the client reads them.
+ */
+@Component
+@Profile("reactive")
+public class ApiHandler {
+
+    static final Map<String, Boolean> IN_REGION = Map.of("isInRegion", true);
+    static final Map<String, Boolean> NOT_IN_REGION = Map.of("isInRegion", false);
+
+    private static final byte[] EMPTY_BODY = new byte[0];
+
+    private final RequestParser requestParser;
+    private final PathService pathService;
+    private final PathValidator pathValidator;
+    private final DeliveryScheduler deliveryScheduler;
+    private final HealthEndpoint healthEndpoint;
+    private final URL serviceUrl;
+    private final long maxMatrixCells;
+
+    public ApiHandler(RequestParser requestParser, PathService pathService, PathValidator pathValidator,
+                      DeliveryScheduler deliveryScheduler, HealthEndpoint healthEndpoint,
+                      @Value("${ilp.service.url}") URL serviceUrl,
+                      @Value("${ilp.matrix.max-cells:4000000}") long maxMatrixCells) {
+        this.requestParser = requestParser;
+        this.pathService = pathService;
+        this.pathValidator = pathValidator;
+        this.deliveryScheduler = deliveryScheduler;
+        this.healthEndpoint = healthEndpoint;
+        this.serviceUrl = serviceUrl;
+        this.maxMatrixCells = maxMatrixCells;
+    }
+
+    public Mono<ServerResponse> index(ServerRequest request) {
+        return ServerResponse.ok().contentType(MediaType.TEXT_HTML).bodyValue("<html><body>" +
+                "<h1>Welcome from ILP</h1>" +
+                "<h4>ILP-REST-Service-URL:</h4> <a href=\"" + serviceUrl + "\" target=\"_blank\"> " + serviceUrl + " </a>" +
+                "</body></html>");
+    }
+
+    public Mono<ServerResponse> uid(ServerRequest request) {
+        return ServerResponse.ok().contentType(MediaType.TEXT_PLAIN).bodyValue("s1802871");
+    }
+
+    public Mono<ServerResponse> health(ServerRequest request) {
+        HealthComponent health = healthEndpoint.health();
+        Status status = health.getStatus();
+        boolean unavailable = Status.DOWN.equals(status) || Status.OUT_OF_SERVICE.equals(status);
+        return ServerResponse.status(unavailable ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.OK)
+                .contentType(MediaType.APPLICATION_JSON).bodyValue(health);
+    }
+
+    public Mono<ServerResponse> distanceTo(ServerRequest request) {
+        return body(request).map(requestParser::parseDistanceRequest).flatMap(distance -> {
+            LngLat p1 = distance.position1();
+            LngLat p2 = distance.position2();
+            return json(Geometry.distance(p1.lng(), p1.lat(), p2.lng(), p2.lat()));
+        });
+    }
+
+    public Mono<ServerResponse> isCloseTo(ServerRequest request) {
+        return body(request).map(requestParser::parseDistanceRequest).flatMap(distance -> {
+            LngLat p1 = distance.position1();
+            LngLat p2 = distance.position2();
+            return json(Geometry.isClose(p1.lng(), p1.lat(), p2.lng(), p2.lat()));
+        });
+    }
+
+    public Mono<ServerResponse> nextPosition(ServerRequest request) {
+        return body(request).map(requestParser::parseNextPositionRequest).flatMap(move -> {
+            double[] next = new double[2];
+            Moves.next(move.start().lng(), move.start().lat(), move.angle(), next);
+            return json(new LngLat(next[0], next[1]));
+        });
+    }
+
+    /** The trajectory of /nextPositions, each position computed when the client asks for it. */
+    public Mono<ServerResponse> nextPositions(ServerRequest request) {
+        return body(request).map(requestParser::parseNextPositionsRequest).flatMap(moves -> {
+            double[] angles = moves.angles();
+            Flux<LngLat> trajectory = Flux.generate(
+                    () -> new double[]{moves.start().lng(), moves.start().lat(), -1},
+                    (state, sink) -> {
+                        int move = (int) state[2];
+                        if (move >= 0)
+                            Moves.next(state[0], state[1], angles[move], state);
+                        sink.next(move < 0 ? moves.start() : new LngLat(state[0], state[1]));
+                        state[2] = move + 1;
+                        if (move + 1 == angles.length)
+                            sink.complete();
+                        return state;
+                    });
+            return stream(request, trajectory, LngLat.class);
+        });
+    }
+
+    public Mono<ServerResponse> isInRegion(ServerRequest request) {
+        return body(request).map(requestParser::parseIsInRegionRequest).flatMap(query -> {
+            Polygon polygon = Polygon.compile(query.region().vertices());
+            boolean inRegion = polygon.contains(query.position().lng(), query.position().lat());
+            return json(inRegion ? IN_REGION : NOT_IN_REGION);
+        });
+    }
+
+    public Mono<ServerResponse> distanceToBatch(ServerRequest request) {
+        return body(request).map(requestParser::parseBatchDistanceRequest).flatMap(batch ->
+                stream(request, Flux.range(0, batch.size()).map(i -> distance(batch, i)), Double.class));
+    }
+
+    public Mono<ServerResponse> isCloseToBatch(ServerRequest request) {
+        return body(request).map(requestParser::parseBatchDistanceRequest).flatMap(batch ->
+                stream(request, Flux.range(0, batch.size()).map(i -> isClose(batch, i)), Boolean.class));
+    }
+
+    public Mono<ServerResponse> isInRegionBatch(ServerRequest request) {
+        return body(request).map(requestParser::parseBatchRegionRequest).flatMap(batch -> {
+            Polygon polygon = Polygon.compile(batch.region().vertices());
+            return stream(request, Flux.range(0, batch.size()).map(i -> contains(polygon, batch, i)), Boolean.class);
+        });
+    }
+
+    /** /batch/distanceMatrix; a full matrix takes milliseconds, so off the event loop like /path. */
+    public Mono<ServerResponse> distanceMatrix(ServerRequest request) {
+        return body(request).map(requestParser::parseDistanceMatrixRequest)
+                .publishOn(Schedulers.parallel())
+                .map(this::distanceMatrix)
+                .flatMap(ApiHandler::json);
+    }
+
+    private DistanceMatrixResponse distanceMatrix(DistanceMatrixRequest request) {
+        if (request.cells() > maxMatrixCells)
+            throw ApiError.MATRIX_TOO_LARGE.exception();
+        return DistanceMatrixResponse.compute(request, DistanceMatrix.get());
+    }
+
+    /**
+     * /path. Planning can take tens of milliseconds, so it runs on the parallel
+     * scheduler instead of holding up the event loop.
+     */
+    public Mono<ServerResponse> path(ServerRequest request) {
+        return body(request).map(requestParser::parsePathRequest)
+                .publishOn(Schedulers.parallel())
+                .map(pathService::plan)
+                .flatMap(ApiHandler::json);
+    }
+
+    /** /path/check, on the parallel scheduler like /path since a bulk check can be large. */
+    public Mono<ServerResponse> checkPaths(ServerRequest request) {
+        return body(request).map(requestParser::parsePathCheckRequest)
+                .publishOn(Schedulers.parallel())
+                .map(check -> pathValidator.check(check.paths(), check.noFlyZones()))
+                .flatMap(ApiHandler::json);
+    }
+
+    /** /schedule, on the parallel scheduler like /path; the candidates are built on the scheduler's own pool. */
+    public Mono<ServerResponse> schedule(ServerRequest request) {
+        return body(request).map(requestParser::parseScheduleRequest)
+                .publishOn(Schedulers.parallel())
+                .map(deliveryScheduler::schedule)
+                .flatMap(ApiHandler::json);
+    }
+
+    /** The whole request body as bytes, for {@link RequestParser} to decode. */
+    static Mono<byte[]> body(ServerRequest request) {
+        return request.bodyToMono(byte[].class).defaultIfEmpty(EMPTY_BODY);
+    }
+
+    static Mono<ServerResponse> json(Object value) {
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(value);
+    }
+
+    /**
+     * Streams the elements as a JSON array, or as one JSON value per line when the
+     * client accepts {@code application/x-ndjson}.
+     */
+    static <T> Mono<ServerResponse> stream(ServerRequest request, Flux<T> elements, Class<T> type) {
+        MediaType mediaType = request.headers().accept().contains(MediaType.APPLICATION_NDJSON)
+                ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON;
+        return ServerResponse.ok().contentType(mediaType).body(elements, type);
+    }
+
+    private static double distance(BatchDistanceRequest batch, int i) {
+        return Geometry.distance(batch.lng1()[i], batch.lat1()[i], batch.lng2()[i], batch.lat2()[i]);
+    }
+
+    private static boolean isClose(BatchDistanceRequest batch, int i) {
+        return Geometry.isClose(batch.lng1()[i], batch.lat1()[i], batch.lng2()[i], batch.lat2()[i]);
+    }
+
+    private static boolean contains(Polygon polygon, BatchRegionRequest batch, int i) {
+        return polygon.contains(batch.lng()[i], batch.lat()[i]);
+    }
+}
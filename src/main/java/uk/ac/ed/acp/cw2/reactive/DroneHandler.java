@@ -0,0 +1,38 @@
+package uk.ac.ed.acp.cw2.reactive;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import uk.ac.ed.acp.cw2.dto.DroneQuery;
+import uk.ac.ed.acp.cw2.parser.RequestParser;
+import uk.ac.ed.acp.cw2.service.DroneRegistry;
+
+/**
+ * Functional-endpoint handler for /api/v1/drones, matching {@code DroneController}.
+ */
+@Component
+@Profile("reactive")
+public class DroneHandler {
+
+    private final RequestParser requestParser;
+    private final DroneRegistry droneRegistry;
+
+    public DroneHandler(RequestParser requestParser, DroneRegistry droneRegistry) {
+        this.requestParser = requestParser;
+        this.droneRegistry = droneRegistry;
+    }
+
+    /**
+     * Answered on the event loop once the table exists; until then the first
+     * query loads the reference data on a worker, as in {@code ServicePointHandler}.
+     */
+    public Mono<ServerResponse> query(ServerRequest request) {
+        Mono<DroneQuery> query = ApiHandler.body(request).map(requestParser::parseDroneQuery);
+        return (droneRegistry.version() > 0 ? query : query.publishOn(Schedulers.boundedElastic()))
+                .map(droneRegistry::query)
+                .flatMap(ApiHandler::json);
+    }
+}
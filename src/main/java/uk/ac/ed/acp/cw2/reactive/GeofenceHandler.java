@@ -0,0 +1,46 @@
+package uk.ac.ed.acp.cw2.reactive;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import uk.ac.ed.acp.cw2.dto.DroneGeofence;
+import uk.ac.ed.acp.cw2.parser.ApiError;
+import uk.ac.ed.acp.cw2.parser.RequestParser;
+import uk.ac.ed.acp.cw2.service.GeofenceTracker;
+
+/**
+ * Functional-endpoint handlers for /api/v1/geofence/drones, matching {@code GeofenceController}.
+ */
+@Component
+@Profile("reactive")
+public class GeofenceHandler {
+
+    private final RequestParser requestParser;
+    private final GeofenceTracker geofenceTracker;
+
+    public GeofenceHandler(RequestParser requestParser, GeofenceTracker geofenceTracker) {
+        this.requestParser = requestParser;
+        this.geofenceTracker = geofenceTracker;
+    }
+
+    public Mono<ServerResponse> update(ServerRequest request) {
+        String droneId = request.pathVariable("droneId");
+        return ApiHandler.body(request).map(requestParser::parsePositionRequest).flatMap(position ->
+                ApiHandler.json(geofenceTracker.update(droneId, position.lng(), position.lat())));
+    }
+
+    public Mono<ServerResponse> get(ServerRequest request) {
+        DroneGeofence geofence = geofenceTracker.get(request.pathVariable("droneId"));
+        if (geofence == null)
+            return Mono.error(ApiError.UNKNOWN_DRONE.exception());
+        return ApiHandler.json(geofence);
+    }
+
+    public Mono<ServerResponse> remove(ServerRequest request) {
+        if (!geofenceTracker.remove(request.pathVariable("droneId")))
+            return Mono.error(ApiError.UNKNOWN_DRONE.exception());
+        return ServerResponse.noContent().build();
+    }
+}
@@ -0,0 +1,80 @@
+package uk.ac.ed.acp.cw2.reactive;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import uk.ac.ed.acp.cw2.dto.JobStatus;
+import uk.ac.ed.acp.cw2.dto.ScheduleRequest;
+import uk.ac.ed.acp.cw2.parser.ApiError;
+import uk.ac.ed.acp.cw2.parser.RequestParser;
+import uk.ac.ed.acp.cw2.planner.DeliveryScheduler;
+import uk.ac.ed.acp.cw2.planner.PathService;
+import uk.ac.ed.acp.cw2.service.JobService;
+
+import java.net.URI;
+
+/**
+ * Functional-endpoint handlers for /api/v1/jobs, matching {@code JobController}.
+ * Submitting only queues the job, so none of these leave the event loop.
+ */
+@Component
+@Profile("reactive")
+public class JobHandler {
+
+    static final String TENANT_HEADER = "X-Tenant-Id";
+    static final String DEFAULT_TENANT = "default";
+
+    private final RequestParser requestParser;
+    private final PathService pathService;
+    private final DeliveryScheduler deliveryScheduler;
+    private final JobService jobService;
+
+    public JobHandler(RequestParser requestParser, PathService pathService, DeliveryScheduler deliveryScheduler,
+                      JobService jobService) {
+        this.requestParser = requestParser;
+        this.pathService = pathService;
+        this.deliveryScheduler = deliveryScheduler;
+        this.jobService = jobService;
+    }
+
+    public Mono<ServerResponse> path(ServerRequest request) {
+        String header = request.headers().firstHeader(TENANT_HEADER);
+        String tenant = header == null ? DEFAULT_TENANT : header;
+        String deadlineMs = request.queryParam("deadlineMs").orElse(null);
+        return ApiHandler.body(request).map(requestParser::parsePathRequest)
+                .map(path -> jobService.submit(tenant, requestParser.parseDeadline(deadlineMs), () -> pathService.plan(path)))
+                .flatMap(job -> ServerResponse.accepted().location(URI.create("/api/v1/jobs/" + job.id()))
+                        .bodyValue(job));
+    }
+
+    public Mono<ServerResponse> schedule(ServerRequest request) {
+        String header = request.headers().firstHeader(TENANT_HEADER);
+        String tenant = header == null ? DEFAULT_TENANT : header;
+        String deadlineMs = request.queryParam("deadlineMs").orElse(null);
+        return ApiHandler.body(request).map(requestParser::parseScheduleRequest)
+                .map(schedule -> jobService.submit(tenant, requestParser.parseDeadline(deadlineMs),
+                        () -> deliveryScheduler.schedule(schedule)))
+                .flatMap(job -> ServerResponse.accepted().location(URI.create("/api/v1/jobs/" + job.id()))
+                        .bodyValue(job));
+    }
+
+    public Mono<ServerResponse> status(ServerRequest request) {
+        JobStatus job = jobService.status(request.pathVariable("id"));
+        if (job == null)
+            return Mono.error(ApiError.UNKNOWN_JOB.exception());
+        return ApiHandler.json(job);
+    }
+
+    public Mono<ServerResponse> result(ServerRequest request) {
+        return Mono.fromSupplier(() -> jobService.result(request.pathVariable("id"))).flatMap(ApiHandler::json);
+    }
+
+    public Mono<ServerResponse> cancel(ServerRequest request) {
+        JobStatus job = jobService.cancel(request.pathVariable("id"));
+        if (job == null)
+            return Mono.error(ApiError.UNKNOWN_JOB.exception());
+        return ApiHandler.json(job);
+    }
+}
@@ -0,0 +1,110 @@
+package uk.ac.ed.acp.cw2.reactive;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import uk.ac.ed.acp.cw2.controller.AdmissionControl;
+import uk.ac.ed.acp.cw2.controller.ApiErrorMetrics;
+import uk.ac.ed.acp.cw2.controller.ConcurrencyLimit;
+import uk.ac.ed.acp.cw2.parser.ApiError;
+import uk.ac.ed.acp.cw2.parser.InvalidRequestException;
+
+/**
+ * The /api/v1 contract as WebFlux functional endpoints on Netty, active with the
+ * "reactive" profile (see application-reactive.yml) in place of the MVC controllers.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveApiConfig {
+
+    @Bean
+    public RouterFunction<ServerResponse> apiRoutes(ApiHandler api, RegionHandler regions,
+                                                    GeofenceHandler geofence, StreamHandler streams,
+                                                    ServicePointHandler servicePoints, DroneHandler drones,
+                                                    JobHandler jobs,
+                                                    ApiErrorMetrics errorMetrics, AdmissionControl admission) {
+        return RouterFunctions.route()
+                .path("/api/v1", builder -> builder
+                        .GET("/", api::index)
+                        .GET("/uid", api::uid)
+                        .GET("/actuator/health", api::health)
+                        .POST("/distanceTo", api::distanceTo)
+                        .POST("/isCloseTo", api::isCloseTo)
+                        .POST("/nextPosition", api::nextPosition)
+                        .POST("/nextPositions", api::nextPositions)
+                        .POST("/isInRegion", api::isInRegion)
+                        .POST("/batch/distanceTo", api::distanceToBatch)
+                        .POST("/batch/isCloseTo", api::isCloseToBatch)
+                        .POST("/batch/isInRegion", api::isInRegionBatch)
+                        .POST("/batch/distanceMatrix", api::distanceMatrix)
+                        .POST("/path", api::path)
+                        .POST("/path/check", api::checkPaths)
+                        .POST("/schedule", api::schedule)
+                        .POST("/regions", regions::register)
+                        .POST("/regions/containing", regions::containing)
+                        .GET("/regions/{id}", regions::get)
+                        .DELETE("/regions/{id}", regions::remove)
+                        .POST("/regions/{id}/isInRegion", regions::isInRegion)
+                        .POST("/regions/{id}/batch/isInRegion", regions::isInRegionBatch)
+                        .POST("/stream/isInRegion", streams::isInRegion)
+                        .POST("/stream/isCloseTo", streams::isCloseTo)
+                        .POST("/stream/geofence", streams::geofence)
+                        .POST("/geofence/drones/{droneId}", geofence::update)
+                        .GET("/geofence/drones/{droneId}", geofence::get)
+                        .DELETE("/geofence/drones/{droneId}", geofence::remove)
+                        .POST("/servicePoints/nearest", servicePoints::nearest)
+                        .POST("/servicePoints/within", servicePoints::within)
+                        .POST("/drones/query", drones::query)
+                        .POST("/jobs/path", jobs::path)
+                        .POST("/jobs/schedule", jobs::schedule)
+                        .GET("/jobs/{id}", jobs::status)
+                        .GET("/jobs/{id}/result", jobs::result)
+                        .DELETE("/jobs/{id}", jobs::cancel))
+                .onError(InvalidRequestException.class, (e, request) ->
+                        invalidRequest(((InvalidRequestException) e).error(), request, errorMetrics))
+                .filter((request, next) -> admit(request, next, admission))
+                .build();
+    }
+
+    /**
+     * The reactive counterpart of {@code AdmissionInterceptor}: holds a slot of the
+     * endpoint's limit until the response is ready, or sheds the request at once.
+     */
+    private static Mono<ServerResponse> admit(ServerRequest request, HandlerFunction<ServerResponse> next,
+                                              AdmissionControl admission) {
+        Object uri = request.attribute(RouterFunctions.MATCHING_PATTERN_ATTRIBUTE).orElse(null);
+        ConcurrencyLimit limit = admission.limit(uri);
+        if (limit == null)
+            return next.handle(request);
+        if (!limit.tryAcquire()) {
+            admission.shed(uri);
+            return ServerResponse.status(ApiError.OVERLOADED.status())
+                    .header(HttpHeaders.RETRY_AFTER, admission.retryAfter())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(admission.overloadedBody());
+        }
+        long start = System.nanoTime();
+        try {
+            return next.handle(request).doFinally(signal -> limit.release(System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            limit.release(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    /** The reactive counterpart of {@code ApiExceptionHandler}. */
+    private static Mono<ServerResponse> invalidRequest(ApiError error, ServerRequest request,
+                                                       ApiErrorMetrics errorMetrics) {
+        errorMetrics.count(error, request.attribute(RouterFunctions.MATCHING_PATTERN_ATTRIBUTE).orElse(null));
+        return ServerResponse.status(error.status()).contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(error.response().getBody());
+    }
+}
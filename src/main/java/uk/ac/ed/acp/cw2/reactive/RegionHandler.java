@@ -0,0 +1,86 @@
+package uk.ac.ed.acp.cw2.reactive;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import uk.ac.ed.acp.cw2.parser.ApiError;
+import uk.ac.ed.acp.cw2.parser.RequestParser;
+import uk.ac.ed.acp.cw2.service.RegionRegistry;
+import uk.ac.ed.acp.cw2.service.RegisteredRegion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Functional-endpoint handlers for /api/v1/regions, matching {@code RegionController}.
+ */
+@Component
+@Profile("reactive")
+public class RegionHandler {
+
+    private final RequestParser requestParser;
+    private final RegionRegistry regionRegistry;
+
+    public RegionHandler(RequestParser requestParser, RegionRegistry regionRegistry) {
+        this.requestParser = requestParser;
+        this.regionRegistry = regionRegistry;
+    }
+
+    public Mono<ServerResponse> register(ServerRequest request) {
+        return ApiHandler.body(request).map(requestParser::parseRegion).flatMap(region -> {
+            boolean noFly = requestParser.parseNoFly(request.queryParam("noFly").orElse(null));
+            RegisteredRegion registered = regionRegistry.register(region, noFly);
+            return ServerResponse.status(HttpStatus.CREATED).contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(Map.of("id", registered.id()));
+        });
+    }
+
+    public Mono<ServerResponse> containing(ServerRequest request) {
+        return ApiHandler.body(request).map(requestParser::parsePositionRequest).flatMap(position -> {
+            List<RegisteredRegion> regions = regionRegistry.snapshot().containing(position.lng(), position.lat());
+            List<String> ids = new ArrayList<>(regions.size());
+            for (RegisteredRegion region : regions) {
+                ids.add(region.id());
+            }
+            return ApiHandler.json(Map.of("regions", ids));
+        });
+    }
+
+    public Mono<ServerResponse> get(ServerRequest request) {
+        return lookup(request).flatMap(region -> ApiHandler.json(region.region()));
+    }
+
+    public Mono<ServerResponse> remove(ServerRequest request) {
+        if (!regionRegistry.remove(request.pathVariable("id")))
+            return Mono.error(ApiError.UNKNOWN_REGION.exception());
+        return ServerResponse.noContent().build();
+    }
+
+    public Mono<ServerResponse> isInRegion(ServerRequest request) {
+        return lookup(request).flatMap(region -> ApiHandler.body(request)
+                .map(requestParser::parsePositionRequest)
+                .flatMap(position -> {
+                    boolean inRegion = region.polygon().contains(position.lng(), position.lat());
+                    return ApiHandler.json(inRegion ? ApiHandler.IN_REGION : ApiHandler.NOT_IN_REGION);
+                }));
+    }
+
+    public Mono<ServerResponse> isInRegionBatch(ServerRequest request) {
+        return lookup(request).flatMap(region -> ApiHandler.body(request)
+                .map(requestParser::parsePositionBatch)
+                .flatMap(positions -> ApiHandler.stream(request, Flux.range(0, positions.size())
+                        .map(i -> region.polygon().contains(positions.lng()[i], positions.lat()[i])), Boolean.class)));
+    }
+
+    /** The region named by the {@code id} path variable, or UNKNOWN_REGION. */
+    private Mono<RegisteredRegion> lookup(ServerRequest request) {
+        RegisteredRegion region = regionRegistry.get(request.pathVariable("id"));
+        return region == null ? Mono.error(ApiError.UNKNOWN_REGION.exception()) : Mono.just(region);
+    }
+}
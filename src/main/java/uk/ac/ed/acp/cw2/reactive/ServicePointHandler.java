@@ -0,0 +1,48 @@
+package uk.ac.ed.acp.cw2.reactive;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import uk.ac.ed.acp.cw2.dto.ServicePointQuery;
+import uk.ac.ed.acp.cw2.parser.RequestParser;
+import uk.ac.ed.acp.cw2.service.ServicePointIndex;
+
+/**
+ * Functional-endpoint handlers for /api/v1/servicePoints, matching {@code ServicePointController}.
+ */
+@Component
+@Profile("reactive")
+public class ServicePointHandler {
+
+    private final RequestParser requestParser;
+    private final ServicePointIndex servicePointIndex;
+
+    public ServicePointHandler(RequestParser requestParser, ServicePointIndex servicePointIndex) {
+        this.requestParser = requestParser;
+        this.servicePointIndex = servicePointIndex;
+    }
+
+    public Mono<ServerResponse> nearest(ServerRequest request) {
+        return indexed(ApiHandler.body(request).map(requestParser::parseNearestQuery))
+                .map(query -> servicePointIndex.nearest(query.position().lng(), query.position().lat(), query.k()))
+                .flatMap(ApiHandler::json);
+    }
+
+    public Mono<ServerResponse> within(ServerRequest request) {
+        return indexed(ApiHandler.body(request).map(requestParser::parseWithinQuery))
+                .map(query -> servicePointIndex.within(query.position().lng(), query.position().lat(),
+                        query.distance()))
+                .flatMap(ApiHandler::json);
+    }
+
+    /**
+     * Queries are answered on the event loop once the tree exists; until then the
+     * first one loads the reference data, a blocking call, on a worker instead.
+     */
+    private Mono<ServicePointQuery> indexed(Mono<ServicePointQuery> query) {
+        return servicePointIndex.version() > 0 ? query : query.publishOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,110 @@
+package uk.ac.ed.acp.cw2.reactive;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import uk.ac.ed.acp.cw2.controller.ApiErrorMetrics;
+import uk.ac.ed.acp.cw2.dto.GeofenceEvent;
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.geometry.Geometry;
+import uk.ac.ed.acp.cw2.geometry.Polygon;
+import uk.ac.ed.acp.cw2.parser.ApiError;
+import uk.ac.ed.acp.cw2.parser.InvalidRequestException;
+import uk.ac.ed.acp.cw2.parser.PositionStream;
+import uk.ac.ed.acp.cw2.parser.RequestParser;
+import uk.ac.ed.acp.cw2.service.GeofenceTracker;
+import uk.ac.ed.acp.cw2.service.RegionRegistry;
+import uk.ac.ed.acp.cw2.service.RegisteredRegion;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Functional-endpoint handlers for /api/v1/stream, matching {@code StreamController}.
+ * The body is decoded line by line as it arrives and each verdict is written as
+ * soon as the client can take it.
+ */
+@Component
+@Profile("reactive")
+public class StreamHandler {
+
+    private final RequestParser requestParser;
+    private final RegionRegistry regionRegistry;
+    private final GeofenceTracker geofenceTracker;
+    private final ApiErrorMetrics errorMetrics;
+
+    public StreamHandler(RequestParser requestParser, RegionRegistry regionRegistry,
+                         GeofenceTracker geofenceTracker, ApiErrorMetrics errorMetrics) {
+        this.requestParser = requestParser;
+        this.regionRegistry = regionRegistry;
+        this.geofenceTracker = geofenceTracker;
+        this.errorMetrics = errorMetrics;
+    }
+
+    public Mono<ServerResponse> isInRegion(ServerRequest request) {
+        String id = request.queryParam("region").orElse("");
+        if (id.isEmpty())
+            return Mono.error(ApiError.MISSING_REGION.exception());
+        RegisteredRegion region = regionRegistry.get(id);
+        if (region == null)
+            return Mono.error(ApiError.UNKNOWN_REGION.exception());
+        Polygon polygon = region.polygon();
+        return stream("/api/v1/stream/isInRegion", positions(request).map(position ->
+                polygon.contains(position.lng(), position.lat()) ? ApiHandler.IN_REGION : ApiHandler.NOT_IN_REGION));
+    }
+
+    public Mono<ServerResponse> isCloseTo(ServerRequest request) {
+        LngLat target;
+        try {
+            target = requestParser.parseQueryPosition(request.queryParam("lng").orElse(null),
+                    request.queryParam("lat").orElse(null));
+        } catch (InvalidRequestException e) {
+            return Mono.error(e);
+        }
+        return stream("/api/v1/stream/isCloseTo", positions(request).map(position ->
+                Geometry.isClose(position.lng(), position.lat(), target.lng(), target.lat())));
+    }
+
+    public Mono<ServerResponse> geofence(ServerRequest request) {
+        return stream("/api/v1/stream/geofence", request.bodyToFlux(String.class)
+                .filter(line -> !line.isBlank())
+                .concatMapIterable(this::geofence));
+    }
+
+    /** Applies one {@code {"droneId": ..., "lng": ..., "lat": ...}} line to its drone's session. */
+    private List<GeofenceEvent> geofence(String line) {
+        double[] point = new double[2];
+        try (PositionStream positions = requestParser.openPositionStream(
+                new ByteArrayInputStream(line.getBytes(StandardCharsets.UTF_8)))) {
+            positions.next(point);
+            if (positions.droneId() == null)
+                throw ApiError.MISSING_DRONE_ID.exception();
+            return geofenceTracker.update(positions.droneId(), point[0], point[1]);
+        } catch (IOException e) {
+            throw ApiError.MALFORMED_BODY.exception();
+        }
+    }
+
+    /** The positions in the body, one per non-blank line. */
+    private Flux<LngLat> positions(ServerRequest request) {
+        return request.bodyToFlux(String.class)
+                .filter(line -> !line.isBlank())
+                .map(line -> requestParser.parsePosition(line.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /** The verdicts as NDJSON, ending with the error body if a line was rejected. */
+    private Mono<ServerResponse> stream(String uri, Flux<?> verdicts) {
+        Flux<Object> lines = verdicts.<Object>map(verdict -> verdict)
+                .onErrorResume(InvalidRequestException.class, e -> {
+                    errorMetrics.count(e.error(), uri);
+                    return Flux.just(e.error().response().getBody());
+                });
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON).body(lines, Object.class);
+    }
+}
@@ -0,0 +1,69 @@
+package uk.ac.ed.acp.cw2.service;
+
+import org.springframework.stereotype.Service;
+import uk.ac.ed.acp.cw2.dto.DroneQuery;
+import uk.ac.ed.acp.cw2.dto.ReferenceData;
+import uk.ac.ed.acp.cw2.parser.ApiError;
+
+import java.util.List;
+
+/**
+ * Capability and availability queries over the ILP drones, answered from a
+ * {@link DroneTable} of the current reference data.
+ * <p>
+ * As with {@link ServicePointIndex}, the table is rebuilt by the refresh that
+ * loads new reference data and published with a single volatile write, so
+ * queries only ever read a finished table.
+ */
+@Service
+public class DroneRegistry {
+
+    private final ReferenceDataService referenceData;
+    private volatile Snapshot current;
+
+    public DroneRegistry(ReferenceDataService referenceData) {
+        this.referenceData = referenceData;
+        referenceData.addListener(this::rebuild);
+        ReferenceData loaded = referenceData.currentIfLoaded();
+        if (loaded != null)
+            rebuild(loaded);
+    }
+
+    /** The ids of the drones matching every criterion of the query, in the order the service lists them. */
+    public List<String> query(DroneQuery query) {
+        return snapshot().table.query(query);
+    }
+
+    /** The reference data version the current table was built from, or 0 before the first load. */
+    public long version() {
+        Snapshot snapshot = current;
+        return snapshot == null ? 0 : snapshot.version;
+    }
+
+    /** Tabulates the drones of {@code data} unless a newer version is already tabulated. */
+    synchronized void rebuild(ReferenceData data) {
+        Snapshot snapshot = current;
+        if (snapshot != null && snapshot.version >= data.version())
+            return;
+        current = new Snapshot(data.version(), DroneTable.of(data));
+    }
+
+    /**
+     * The current table; before the first refresh, loading the reference data
+     * builds it through the listener.
+     */
+    private Snapshot snapshot() {
+        Snapshot snapshot = current;
+        if (snapshot != null)
+            return snapshot;
+        try {
+            rebuild(referenceData.current());
+        } catch (RuntimeException e) {
+            throw ApiError.REFERENCE_DATA_UNAVAILABLE.exception();
+        }
+        return current;
+    }
+
+    private record Snapshot(long version, DroneTable table) {
+    }
+}
@@ -0,0 +1,255 @@
+package uk.ac.ed.acp.cw2.service;
+
+import uk.ac.ed.acp.cw2.dto.AvailabilityWindow;
+import uk.ac.ed.acp.cw2.dto.Drone;
+import uk.ac.ed.acp.cw2.dto.DroneAvailability;
+import uk.ac.ed.acp.cw2.dto.DroneCapability;
+import uk.ac.ed.acp.cw2.dto.DroneQuery;
+import uk.ac.ed.acp.cw2.dto.ReferenceData;
+import uk.ac.ed.acp.cw2.dto.ServicePointDrones;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The ILP drones of one reference data version in columns, one row per drone in
+ * the order the service lists them, indexed for {@link DroneQuery}.
+ * <p>
+ * The flags and the enumerated fields, service point and day of the week, are
+ * one {@link BitSet} of rows per value; the numeric capabilities are row numbers
+ * sorted by value, so a bound is a binary search and a run of rows. A query
+ * starts from every row and intersects the set of each criterion in turn. Day
+ * and service point sets only say a drone has some window that day or some
+ * listing there; when a time is asked for, or a day at a given service point,
+ * the rows left are checked against their windows, held in flat arrays by
+ * listing. Drones without a capability match no capability criterion.
+ */
+public final class DroneTable {
+
+    private static final BitSet NONE = new BitSet();
+
+    private final int size;
+    private final String[] ids;
+    private final BitSet capable = new BitSet();
+    private final BitSet cooling = new BitSet();
+    private final BitSet heating = new BitSet();
+    private final RangeIndex capacity;
+    private final RangeIndex maxMoves;
+    private final RangeIndex costPerMove;
+    private final BitSet[] byDay = new BitSet[7];
+    private final Map<Integer, BitSet> byServicePoint = new HashMap<>();
+
+    // availability by listing, a drone's listings being [listingStart[row], listingStart[row + 1])
+    private final int[] listingStart;
+    private final int[] listingServicePoint;
+    private final int[] windowStart;
+    private final byte[] windowDay;
+    private final int[] windowFrom;
+    private final int[] windowUntil;
+
+    private DroneTable(ReferenceData data) {
+        List<Drone> drones = data.drones();
+        size = drones.size();
+        ids = new String[size];
+        double[] capacities = new double[size];
+        double[] moves = new double[size];
+        double[] costs = new double[size];
+        Map<String, Integer> rows = new HashMap<>();
+        for (int row = 0; row < size; row++) {
+            Drone drone = drones.get(row);
+            ids[row] = drone.id();
+            if (drone.id() != null)
+                rows.putIfAbsent(drone.id(), row);
+            DroneCapability capability = drone.capability();
+            if (capability == null)
+                continue;
+            capable.set(row);
+            cooling.set(row, capability.cooling());
+            heating.set(row, capability.heating());
+            capacities[row] = capability.capacity();
+            moves[row] = capability.maxMoves();
+            costs[row] = capability.costPerMove();
+        }
+        capacity = RangeIndex.of(capacities, capable);
+        maxMoves = RangeIndex.of(moves, capable);
+        costPerMove = RangeIndex.of(costs, capable);
+        for (int day = 0; day < byDay.length; day++) {
+            byDay[day] = new BitSet(size);
+        }
+
+        // group the listings by drone, then lay them and their windows out flat
+        List<List<Listing>> listings = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            listings.add(new ArrayList<>(1));
+        }
+        int listingCount = 0;
+        int windowCount = 0;
+        for (ServicePointDrones servicePoint : data.dronesForServicePoints()) {
+            if (servicePoint == null || servicePoint.drones() == null)
+                continue;
+            for (DroneAvailability available : servicePoint.drones()) {
+                Integer row = available == null ? null : rows.get(available.id());
+                if (row == null)
+                    continue;
+                List<AvailabilityWindow> windows = available.availability() == null
+                        ? List.of() : available.availability();
+                listings.get(row).add(new Listing(servicePoint.servicePointId(), windows));
+                byServicePoint.computeIfAbsent(servicePoint.servicePointId(), id -> new BitSet(size)).set(row);
+                listingCount++;
+                windowCount += windows.size();
+            }
+        }
+        listingStart = new int[size + 1];
+        listingServicePoint = new int[listingCount];
+        windowStart = new int[listingCount + 1];
+        windowDay = new byte[windowCount];
+        windowFrom = new int[windowCount];
+        windowUntil = new int[windowCount];
+        int listing = 0;
+        int window = 0;
+        for (int row = 0; row < size; row++) {
+            listingStart[row] = listing;
+            for (Listing entry : listings.get(row)) {
+                listingServicePoint[listing] = entry.servicePointId;
+                windowStart[listing++] = window;
+                for (AvailabilityWindow w : entry.windows) {
+                    if (w == null || w.dayOfWeek() == null || w.from() == null || w.until() == null)
+                        continue;
+                    int day = w.dayOfWeek().ordinal();
+                    byDay[day].set(row);
+                    windowDay[window] = (byte) day;
+                    windowFrom[window] = w.from().toSecondOfDay();
+                    windowUntil[window++] = w.until().toSecondOfDay();
+                }
+            }
+        }
+        listingStart[size] = listing;
+        windowStart[listing] = window;
+    }
+
+    public static DroneTable of(ReferenceData data) {
+        return new DroneTable(data);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** The ids of the drones matching every criterion of the query, in listing order. */
+    public List<String> query(DroneQuery query) {
+        BitSet found = new BitSet(size);
+        found.set(0, size);
+        if (query.cooling() != null)
+            flag(found, cooling, query.cooling());
+        if (query.heating() != null)
+            flag(found, heating, query.heating());
+        if (!Double.isNaN(query.minCapacity()))
+            found.and(capacity.atLeast(query.minCapacity()));
+        if (!Double.isNaN(query.minMaxMoves()))
+            found.and(maxMoves.atLeast(query.minMaxMoves()));
+        if (!Double.isNaN(query.maxCostPerMove()))
+            found.and(costPerMove.atMost(query.maxCostPerMove()));
+        if (query.servicePointId() != null)
+            found.and(byServicePoint.getOrDefault(query.servicePointId(), NONE));
+        if (query.dayOfWeek() != null)
+            found.and(byDay[query.dayOfWeek().ordinal()]);
+
+        boolean byWindow = query.time() != null || (query.dayOfWeek() != null && query.servicePointId() != null);
+        int day = query.dayOfWeek() == null ? -1 : query.dayOfWeek().ordinal();
+        int second = query.time() == null ? -1 : query.time().toSecondOfDay();
+        List<String> matched = new ArrayList<>(found.cardinality());
+        for (int row = found.nextSetBit(0); row >= 0; row = found.nextSetBit(row + 1)) {
+            if (!byWindow || available(row, query.servicePointId(), day, second))
+                matched.add(ids[row]);
+        }
+        return matched;
+    }
+
+    /**
+     * Whether a window of the drone, at the service point unless that is null,
+     * covers the day and second of the day, either -1 for any.
+     */
+    private boolean available(int row, Integer servicePointId, int day, int second) {
+        for (int listing = listingStart[row]; listing < listingStart[row + 1]; listing++) {
+            if (servicePointId != null && listingServicePoint[listing] != servicePointId)
+                continue;
+            for (int w = windowStart[listing]; w < windowStart[listing + 1]; w++) {
+                if ((day < 0 || windowDay[w] == day)
+                        && (second < 0 || (windowFrom[w] <= second && second <= windowUntil[w])))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private void flag(BitSet found, BitSet set, boolean wanted) {
+        if (wanted) {
+            found.and(set);
+        } else {
+            found.and(capable);
+            found.andNot(set);
+        }
+    }
+
+    private record Listing(int servicePointId, List<AvailabilityWindow> windows) {
+    }
+
+    /** The rows with a value in one numeric column, in ascending order of it. */
+    private static final class RangeIndex {
+
+        private final int size;
+        private final int[] rows;
+        private final double[] values;
+
+        private RangeIndex(int size, int[] rows, double[] values) {
+            this.size = size;
+            this.rows = rows;
+            this.values = values;
+        }
+
+        static RangeIndex of(double[] column, BitSet present) {
+            int[] rows = present.stream().boxed()
+                    .sorted(Comparator.comparingDouble(row -> column[row]))
+                    .mapToInt(Integer::intValue).toArray();
+            double[] values = new double[rows.length];
+            for (int i = 0; i < rows.length; i++) {
+                values[i] = column[rows[i]];
+            }
+            return new RangeIndex(column.length, rows, values);
+        }
+
+        BitSet atLeast(double bound) {
+            return rows(firstAbove(bound, false), rows.length);
+        }
+
+        BitSet atMost(double bound) {
+            return rows(0, firstAbove(bound, true));
+        }
+
+        /** The first position whose value is above the bound, or equal to it too unless {@code inclusive}. */
+        private int firstAbove(double bound, boolean inclusive) {
+            int lo = 0;
+            int hi = values.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (values[mid] < bound || (inclusive && values[mid] == bound))
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            return lo;
+        }
+
+        private BitSet rows(int from, int to) {
+            BitSet set = new BitSet(size);
+            for (int i = from; i < to; i++) {
+                set.set(rows[i]);
+            }
+            return set;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package uk.ac.ed.acp.cw2.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import uk.ac.ed.acp.cw2.dto.DroneGeofence;
+import uk.ac.ed.acp.cw2.dto.GeofenceEvent;
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.geometry.Moves;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-drone geofence sessions against the registered regions. A session remembers
+ * the drone's last position and the regions containing it, and each update reports
+ * only the regions entered and left since the one before.
+ * <p>
+ * A full evaluation also records the clearance: how far the drone can move from
+ * there before any region's containment of it may change, measured from the edges
+ * of the regions whose bounding box holds it and the boxes of the rest. Consecutive
+ * positions are one move apart, so most updates are answered by comparing a single
+ * distance with the clearance. The clearance is capped at {@link #MAX_CLEARANCE},
+ * and any change to the registered regions forces a full evaluation on the next
+ * update, which reports an exit from a removed region.
+ */
+@Service
+public class GeofenceTracker {
+
+    /** Sixty-four moves: a drone clear of every region re-evaluates once per this many updates. */
+    static final double MAX_CLEARANCE = 64 * Moves.STEP;
+
+    /** Taken off every clearance so rounding in the edge distances cannot hide a crossing. */
+    private static final double CLEARANCE_MARGIN = 1e-12;
+
+    private final RegionRegistry regionRegistry;
+    private final long idleTimeoutNanos;
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final LongAdder skippedUpdates = new LongAdder();
+    private final LongAdder evaluatedUpdates = new LongAdder();
+    /**
+     * System.nanoTime() at the latest sweep. Sessions are stamped with this rather
+     * than the exact time, which would cost more than the rest of a skipped update.
+     */
+    private volatile long clock = System.nanoTime();
+
+    public GeofenceTracker(RegionRegistry regionRegistry,
+                           @Value("${ilp.geofence.idle-timeout-ms:600000}") long idleTimeoutMs) {
+        this.regionRegistry = regionRegistry;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+    }
+
+    /**
+     * Moves the drone to the position, starting its session on first sight, and
+     * returns the regions it entered and left on the way, exits first.
+     */
+    public List<GeofenceEvent> update(String droneId, double lng, double lat) {
+        RegionSet regions = regionRegistry.snapshot();
+        long now = clock;
+        while (true) {
+            Session session = sessions.get(droneId);
+            if (session == null)
+                session = sessions.computeIfAbsent(droneId, Session::new);
+            synchronized (session) {
+                // expired or removed between the lookup and the lock: start afresh
+                if (session.closed)
+                    continue;
+                session.lastSeen = now;
+                if (session.unchanged(regions, lng, lat)) {
+                    skippedUpdates.increment();
+                    return List.of();
+                }
+                evaluatedUpdates.increment();
+                return session.evaluate(regions, lng, lat);
+            }
+        }
+    }
+
+    /** The drone's last position and containing regions, or null without a session. */
+    public DroneGeofence get(String droneId) {
+        Session session = sessions.get(droneId);
+        if (session == null)
+            return null;
+        synchronized (session) {
+            return session.closed ? null
+                    : new DroneGeofence(droneId, new LngLat(session.lng, session.lat), List.of(session.inside));
+        }
+    }
+
+    /** Ends the drone's session; false if it had none. */
+    public boolean remove(String droneId) {
+        Session session = sessions.remove(droneId);
+        if (session == null)
+            return false;
+        synchronized (session) {
+            session.closed = true;
+        }
+        return true;
+    }
+
+    /**
+     * Ends the sessions of drones that have not reported within the idle timeout,
+     * give or take one sweep interval.
+     */
+    @Scheduled(fixedDelayString = "${ilp.geofence.sweep-interval-ms:60000}")
+    public void expireIdleSessions() {
+        long now = System.nanoTime();
+        clock = now;
+        for (Session session : sessions.values()) {
+            synchronized (session) {
+                if (now - session.lastSeen > idleTimeoutNanos) {
+                    session.closed = true;
+                    sessions.remove(session.droneId, session);
+                }
+            }
+        }
+    }
+
+    public int sessionCount() {
+        return sessions.size();
+    }
+
+    /** Updates answered from the clearance alone. */
+    public long skippedUpdates() {
+        return skippedUpdates.sum();
+    }
+
+    /** Updates that needed a full containment test. */
+    public long evaluatedUpdates() {
+        return evaluatedUpdates.sum();
+    }
+
+    /** One drone's state, guarded by its own monitor. */
+    private static final class Session {
+
+        private final String droneId;
+        private boolean closed;
+        private long lastSeen;
+        private double lng;
+        private double lat;
+        private String[] inside = new String[0];
+        // the region set, position and clearance of the last full evaluation
+        private long version = -1;
+        private double anchorLng;
+        private double anchorLat;
+        private double clearanceSquared;
+
+        Session(String droneId) {
+            this.droneId = droneId;
+        }
+
+        /** Records the move if it cannot have changed any containment. */
+        boolean unchanged(RegionSet regions, double lng, double lat) {
+            double dLng = lng - anchorLng;
+            double dLat = lat - anchorLat;
+            if (version != regions.version() || dLng * dLng + dLat * dLat >= clearanceSquared)
+                return false;
+            this.lng = lng;
+            this.lat = lat;
+            return true;
+        }
+
+        List<GeofenceEvent> evaluate(RegionSet regions, double lng, double lat) {
+            double[] clearance = new double[1];
+            List<RegisteredRegion> containing = regions.containing(lng, lat, MAX_CLEARANCE, clearance);
+            String[] now = new String[containing.size()];
+            for (int i = 0; i < now.length; i++) {
+                now[i] = containing.get(i).id();
+            }
+            List<GeofenceEvent> events = List.of();
+            for (String id : inside) {
+                if (!contains(now, id))
+                    events = add(events, GeofenceEvent.exit(droneId, id));
+            }
+            for (String id : now) {
+                if (!contains(inside, id))
+                    events = add(events, GeofenceEvent.enter(droneId, id));
+            }
+            this.lng = lng;
+            this.lat = lat;
+            this.inside = now;
+            this.version = regions.version();
+            this.anchorLng = lng;
+            this.anchorLat = lat;
+            double safe = Math.max(0, clearance[0] - CLEARANCE_MARGIN);
+            this.clearanceSquared = safe * safe;
+            return events;
+        }
+
+        private static boolean contains(String[] ids, String id) {
+            for (String candidate : ids) {
+                if (candidate.equals(id))
+                    return true;
+            }
+            return false;
+        }
+
+        private static List<GeofenceEvent> add(List<GeofenceEvent> events, GeofenceEvent event) {
+            List<GeofenceEvent> result = events.isEmpty() ? new ArrayList<>(2) : events;
+            result.add(event);
+            return result;
+        }
+    }
+}
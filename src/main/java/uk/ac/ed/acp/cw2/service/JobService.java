@@ -0,0 +1,372 @@
+package uk.ac.ed.acp.cw2.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import uk.ac.ed.acp.cw2.dto.JobStatus;
+import uk.ac.ed.acp.cw2.parser.ApiError;
+import uk.ac.ed.acp.cw2.parser.InvalidRequestException;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Runs long planning requests as asynchronous jobs on a fixed pool of worker
+ * threads, so they hold no HTTP thread and no gateway timeout applies.
+ * <p>
+ * Waiting jobs are queued per tenant and workers take from the tenants in turn,
+ * so one tenant's burst delays the others by at most one job each. The queue is
+ * bounded both in total and per tenant; a submission beyond either bound is
+ * rejected at once with {@link ApiError#JOB_QUEUE_FULL} rather than left to wait.
+ * <p>
+ * Every job has a deadline, counted from submission. A job still queued at its
+ * deadline is dropped and one still running is interrupted, both ending "expired";
+ * cancelling works the same way. Planning checks for interruption as it searches.
+ * Finished jobs and their results are kept for {@code ilp.jobs.result-ttl-ms} and
+ * then forgotten.
+ */
+@Service
+public class JobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobService.class);
+
+    /** The lifecycle of a job; every state but the first two is final. */
+    public enum State {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED, EXPIRED;
+
+        private final String label = name().toLowerCase();
+
+        public String label() {
+            return label;
+        }
+
+        public boolean finished() {
+            return this != QUEUED && this != RUNNING;
+        }
+    }
+
+    private final int queueCapacity;
+    private final int tenantCapacity;
+    private final long defaultDeadlineMs;
+    private final long maxDeadlineMs;
+    private final long resultTtlNanos;
+
+    private final ConcurrentHashMap<String, Job> jobs = new ConcurrentHashMap<>();
+
+    // tenants with waiting jobs, in the order the workers will next serve them
+    private final ReentrantLock queueLock = new ReentrantLock();
+    private final Condition jobWaiting = queueLock.newCondition();
+    private final LinkedHashMap<String, ArrayDeque<Job>> waiting = new LinkedHashMap<>();
+    private int queued;
+    private boolean shutdown;
+
+    private final Thread[] workers;
+    private final ScheduledThreadPoolExecutor deadlines;
+
+    private final LongAdder running = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final Map<State, LongAdder> finished = new ConcurrentHashMap<>();
+
+    public JobService(@Value("${ilp.jobs.workers:4}") int workerCount,
+                      @Value("${ilp.jobs.queue-capacity:256}") int queueCapacity,
+                      @Value("${ilp.jobs.tenant-queue-capacity:64}") int tenantCapacity,
+                      @Value("${ilp.jobs.default-deadline-ms:60000}") long defaultDeadlineMs,
+                      @Value("${ilp.jobs.max-deadline-ms:600000}") long maxDeadlineMs,
+                      @Value("${ilp.jobs.result-ttl-ms:600000}") long resultTtlMs) {
+        this.queueCapacity = queueCapacity;
+        this.tenantCapacity = tenantCapacity;
+        this.defaultDeadlineMs = defaultDeadlineMs;
+        this.maxDeadlineMs = maxDeadlineMs;
+        this.resultTtlNanos = TimeUnit.MILLISECONDS.toNanos(resultTtlMs);
+        for (State state : State.values()) {
+            if (state.finished())
+                finished.put(state, new LongAdder());
+        }
+
+        this.deadlines = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, "job-deadlines");
+            thread.setDaemon(true);
+            return thread;
+        });
+        deadlines.setRemoveOnCancelPolicy(true);
+        this.workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Thread(this::work, "job-worker-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Queues the task for the tenant, to finish within {@code deadlineMs}, at most
+     * {@code ilp.jobs.max-deadline-ms}, or the default deadline when null. An
+     * {@link InvalidRequestException} thrown by the task fails the job with that
+     * error; its result must be serializable as JSON. The status returned is the
+     * job's as queued.
+     */
+    public JobStatus submit(String tenant, Long deadlineMs, Supplier<?> task) {
+        long timeout = Math.min(deadlineMs == null ? defaultDeadlineMs : deadlineMs, maxDeadlineMs);
+        Job job = new Job(UUID.randomUUID().toString(), tenant, task, timeout);
+
+        queueLock.lock();
+        try {
+            ArrayDeque<Job> queue = waiting.get(tenant);
+            if (shutdown || queued >= queueCapacity || queue != null && queue.size() >= tenantCapacity) {
+                rejected.increment();
+                throw ApiError.JOB_QUEUE_FULL.exception();
+            }
+            if (queue == null)
+                waiting.put(tenant, queue = new ArrayDeque<>());
+            queue.add(job);
+            queued++;
+            jobs.put(job.id, job);
+            job.deadlineTimer = deadlines.schedule(() -> stop(job, State.EXPIRED), timeout, TimeUnit.MILLISECONDS);
+            jobWaiting.signal();
+            // taken before a worker, which needs the queue lock, can start the job
+            return job.status();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    /** The job's status, or null when it is unknown or its result has expired. */
+    public JobStatus status(String id) {
+        Job job = live(id);
+        return job == null ? null : job.status();
+    }
+
+    /**
+     * The result of a job that succeeded. Otherwise throws: {@link ApiError#UNKNOWN_JOB},
+     * {@link ApiError#JOB_NOT_FINISHED}, or the error the job ended with.
+     */
+    public Object result(String id) {
+        Job job = live(id);
+        if (job == null)
+            throw ApiError.UNKNOWN_JOB.exception();
+        synchronized (job) {
+            return switch (job.state) {
+                case SUCCEEDED -> job.result;
+                case QUEUED, RUNNING -> throw ApiError.JOB_NOT_FINISHED.exception();
+                case FAILED -> throw job.error.exception();
+                case CANCELLED -> throw ApiError.JOB_CANCELLED.exception();
+                case EXPIRED -> throw ApiError.JOB_EXPIRED.exception();
+            };
+        }
+    }
+
+    /**
+     * Cancels a queued or running job and returns its status, which is unchanged
+     * if it had already finished; null when the job is unknown.
+     */
+    public JobStatus cancel(String id) {
+        Job job = live(id);
+        if (job == null)
+            return null;
+        stop(job, State.CANCELLED);
+        return job.status();
+    }
+
+    public int queuedCount() {
+        queueLock.lock();
+        try {
+            return queued;
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    public long runningCount() {
+        return running.sum();
+    }
+
+    /** Submissions refused because the queue was full. */
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    /** Jobs that ended in the given final state. */
+    public long finishedCount(State state) {
+        LongAdder count = finished.get(state);
+        return count == null ? 0 : count.sum();
+    }
+
+    /** Forgets finished jobs whose results have outlived the result TTL. */
+    @Scheduled(fixedDelayString = "${ilp.jobs.sweep-interval-ms:60000}")
+    public void expireResults() {
+        long now = System.nanoTime();
+        jobs.values().removeIf(job -> job.expired(now));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        queueLock.lock();
+        try {
+            shutdown = true;
+            jobWaiting.signalAll();
+        } finally {
+            queueLock.unlock();
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        deadlines.shutdownNow();
+    }
+
+    private Job live(String id) {
+        Job job = jobs.get(id);
+        return job == null || job.expired(System.nanoTime()) ? null : job;
+    }
+
+    /** Ends a job that has not finished yet as cancelled or expired. */
+    private void stop(Job job, State state) {
+        queueLock.lock();
+        try {
+            synchronized (job) {
+                if (job.state == State.QUEUED) {
+                    ArrayDeque<Job> queue = waiting.get(job.tenant);
+                    queue.remove(job);
+                    if (queue.isEmpty())
+                        waiting.remove(job.tenant);
+                    queued--;
+                } else if (job.state == State.RUNNING) {
+                    job.runner.interrupt();
+                } else {
+                    return;
+                }
+                finish(job, state, null, null);
+            }
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    private void work() {
+        while (true) {
+            Job job;
+            try {
+                job = take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (job == null)
+                return;
+            run(job);
+        }
+    }
+
+    /** The next job, from the tenant served longest ago; null once shut down. */
+    private Job take() throws InterruptedException {
+        queueLock.lock();
+        try {
+            while (queued == 0 && !shutdown)
+                jobWaiting.await();
+            if (shutdown)
+                return null;
+            Iterator<Map.Entry<String, ArrayDeque<Job>>> tenants = waiting.entrySet().iterator();
+            Map.Entry<String, ArrayDeque<Job>> next = tenants.next();
+            tenants.remove();
+            Job job = next.getValue().poll();
+            if (!next.getValue().isEmpty())
+                waiting.put(next.getKey(), next.getValue());
+            queued--;
+            synchronized (job) {
+                job.state = State.RUNNING;
+                job.startedAt = Instant.now();
+                job.runner = Thread.currentThread();
+            }
+            return job;
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    private void run(Job job) {
+        running.increment();
+        Object result = null;
+        ApiError error = null;
+        try {
+            result = job.task.get();
+        } catch (InvalidRequestException e) {
+            error = e.error();
+        } catch (CancellationException e) {
+            // stopped by cancel() or its deadline, which already ended the job, unless
+            // the task gave up on its own
+            error = ApiError.JOB_FAILED;
+        } catch (RuntimeException e) {
+            logger.warn("job {} failed", job.id, e);
+            error = ApiError.JOB_FAILED;
+        } finally {
+            running.decrement();
+        }
+        synchronized (job) {
+            job.runner = null;
+            if (job.state == State.RUNNING)
+                finish(job, error == null ? State.SUCCEEDED : State.FAILED, result, error);
+        }
+        // an interrupt meant for this job must not reach the next one
+        Thread.interrupted();
+    }
+
+    /** Called holding the job's lock. */
+    private void finish(Job job, State state, Object result, ApiError error) {
+        job.state = state;
+        job.result = result;
+        job.error = error;
+        job.finishedAt = Instant.now();
+        job.finishedNanos = System.nanoTime();
+        job.task = null;
+        job.deadlineTimer.cancel(false);
+        finished.get(state).increment();
+    }
+
+    private final class Job {
+
+        final String id;
+        final String tenant;
+        final long timeoutMs;
+        final Instant submittedAt = Instant.now();
+        Supplier<?> task;
+        ScheduledFuture<?> deadlineTimer;
+
+        // guarded by the job's lock
+        State state = State.QUEUED;
+        Thread runner;
+        Instant startedAt;
+        Instant finishedAt;
+        long finishedNanos;
+        Object result;
+        ApiError error;
+
+        Job(String id, String tenant, Supplier<?> task, long timeoutMs) {
+            this.id = id;
+            this.tenant = tenant;
+            this.task = task;
+            this.timeoutMs = timeoutMs;
+        }
+
+        synchronized boolean expired(long now) {
+            return state.finished() && now - finishedNanos > resultTtlNanos;
+        }
+
+        synchronized JobStatus status() {
+            return new JobStatus(id, tenant, state.label(), submittedAt, startedAt, finishedAt,
+                    submittedAt.plusMillis(timeoutMs), error == null ? null : error.message());
+        }
+    }
+}
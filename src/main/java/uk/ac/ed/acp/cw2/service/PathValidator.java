@@ -0,0 +1,64 @@
+package uk.ac.ed.acp.cw2.service;
+
+import org.springframework.stereotype.Service;
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.dto.PathCheck;
+import uk.ac.ed.acp.cw2.dto.PositionBatch;
+import uk.ac.ed.acp.cw2.geometry.GridIndex;
+import uk.ac.ed.acp.cw2.parser.ApiError;
+
+import java.util.List;
+
+/**
+ * Checks whole candidate paths move by move against the registered no-fly zones.
+ * A move is illegal when the segment it flies touches a zone, which catches moves
+ * that clip a corner between two positions that are both outside every region.
+ * <p>
+ * Each move costs a grid lookup and a bounding-box test per nearby zone; edges
+ * are only walked for the zones whose box the move overlaps. Every path of a
+ * request is checked against the same region snapshot.
+ */
+@Service
+public class PathValidator {
+
+    private final RegionRegistry regionRegistry;
+
+    public PathValidator(RegionRegistry regionRegistry) {
+        this.regionRegistry = regionRegistry;
+    }
+
+    /**
+     * One verdict per path, in order, against the regions listed in
+     * {@code noFlyZones}, or the regions registered as no-fly zones when it is null.
+     */
+    public List<PathCheck> check(List<PositionBatch> paths, List<String> noFlyZones) {
+        RegionSet regions = regionRegistry.snapshot();
+        GridIndex index;
+        List<String> ids;
+        if (noFlyZones == null) {
+            index = regions.noFlyIndex();
+            ids = regions.noFlyIds();
+        } else {
+            index = regions.index(noFlyZones);
+            if (index == null)
+                throw ApiError.UNKNOWN_REGION.exception();
+            ids = noFlyZones;
+        }
+        PathCheck[] checks = new PathCheck[paths.size()];
+        for (int i = 0; i < checks.length; i++) {
+            checks[i] = check(paths.get(i), index, ids);
+        }
+        return List.of(checks);
+    }
+
+    private static PathCheck check(PositionBatch path, GridIndex index, List<String> ids) {
+        double[] lng = path.lng();
+        double[] lat = path.lat();
+        int move = index.firstIllegalMove(lng, lat);
+        if (move < 0)
+            return PathCheck.LEGAL;
+        int zone = index.firstIntersecting(lng[move], lat[move], lng[move + 1], lat[move + 1]);
+        return PathCheck.illegal(move, new LngLat(lng[move], lat[move]), new LngLat(lng[move + 1], lat[move + 1]),
+                ids.get(zone));
+    }
+}
@@ -0,0 +1,47 @@
+package uk.ac.ed.acp.cw2.service;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+import uk.ac.ed.acp.cw2.dto.ReferenceData;
+
+/**
+ * Reports whether the ILP reference data is available, as "referenceData" in
+ * /actuator/health and the readiness group.
+ * <p>
+ * Until the first load the instance is OUT_OF_SERVICE, or DOWN once a load has
+ * failed. After that it stays UP: a failed refresh keeps serving the previous
+ * snapshot and only shows up in the details, as does serving a snapshot restored
+ * at startup that no refresh has confirmed yet.
+ */
+@Component
+public class ReferenceDataHealthIndicator implements HealthIndicator {
+
+    private final ReferenceDataService referenceData;
+
+    public ReferenceDataHealthIndicator(ReferenceDataService referenceData) {
+        this.referenceData = referenceData;
+    }
+
+    @Override
+    public Health health() {
+        ReferenceData data = referenceData.currentIfLoaded();
+        RuntimeException failure = referenceData.lastFailure();
+        if (data == null) {
+            return failure == null
+                    ? Health.outOfService().withDetail("reason", "reference data not loaded yet").build()
+                    : Health.down(failure).build();
+        }
+        Health.Builder health = Health.up()
+                .withDetail("version", data.version())
+                .withDetail("loadedAt", data.loadedAt().toString())
+                .withDetail("drones", data.drones().size())
+                .withDetail("servicePoints", data.servicePoints().size())
+                .withDetail("restrictedAreas", data.restrictedAreas().size());
+        if (referenceData.restored())
+            health.withDetail("restoredFromSnapshot", true);
+        if (failure != null)
+            health.withDetail("lastRefreshError", String.valueOf(failure.getMessage()));
+        return health.build();
+    }
+}
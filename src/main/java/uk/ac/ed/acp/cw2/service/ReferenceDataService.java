@@ -0,0 +1,224 @@
+package uk.ac.ed.acp.cw2.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import uk.ac.ed.acp.cw2.client.IlpRestClient;
+import uk.ac.ed.acp.cw2.client.IlpRestClient.Resource;
+import uk.ac.ed.acp.cw2.dto.Drone;
+import uk.ac.ed.acp.cw2.dto.ReferenceData;
+import uk.ac.ed.acp.cw2.dto.Region;
+import uk.ac.ed.acp.cw2.dto.RestrictedArea;
+import uk.ac.ed.acp.cw2.dto.ServicePoint;
+import uk.ac.ed.acp.cw2.dto.ServicePointDrones;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Keeps an immutable snapshot of the ILP reference data in memory.
+ * <p>
+ * A scheduled refresh revalidates every resource with conditional requests, so an
+ * unchanged upstream costs five 304s and no parsing. Refreshes are coalesced: while
+ * one is running, any other caller, scheduled or on a cache miss, waits for it
+ * instead of starting its own upstream calls. Listeners derive their own indexes
+ * from each new snapshot as it is published, so queries never build them.
+ * <p>
+ * Each published snapshot is also saved to {@link ReferenceDataSnapshot}, and a
+ * new instance starts from the saved one, so it serves straight away while the
+ * first scheduled refresh reconciles with upstream in the background. That
+ * refresh has no validators to send yet; if what it fetches matches the restored
+ * data, the restored snapshot stays current and nothing is republished.
+ */
+@Service
+public class ReferenceDataService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceDataService.class);
+
+    private static final TypeReference<List<Drone>> DRONES = new TypeReference<>() {};
+    private static final TypeReference<List<ServicePoint>> SERVICE_POINTS = new TypeReference<>() {};
+    private static final TypeReference<List<RestrictedArea>> RESTRICTED_AREAS = new TypeReference<>() {};
+    private static final TypeReference<Region> CENTRAL_AREA = new TypeReference<>() {};
+    private static final TypeReference<List<ServicePointDrones>> DRONES_FOR_SERVICE_POINTS = new TypeReference<>() {};
+
+    private final IlpRestClient client;
+    private final ReferenceDataSnapshot saved;
+    private final String centralAreaPath;
+
+    private final AtomicReference<CompletableFuture<ReferenceData>> inFlight = new AtomicReference<>();
+    private volatile ReferenceData snapshot;
+    private volatile boolean restored;
+    private volatile RuntimeException lastFailure;
+    private final AtomicLong failures = new AtomicLong();
+    private final List<Consumer<ReferenceData>> listeners = new CopyOnWriteArrayList<>();
+
+    // validators of the last responses, only touched by the thread running a refresh
+    private Resource<List<Drone>> drones;
+    private Resource<List<ServicePoint>> servicePoints;
+    private Resource<List<RestrictedArea>> restrictedAreas;
+    private Resource<Region> centralArea;
+    private Resource<List<ServicePointDrones>> dronesForServicePoints;
+
+    public ReferenceDataService(IlpRestClient client, ReferenceDataSnapshot saved,
+                                @Value("${ilp.service.central-area-path:central-area}") String centralAreaPath) {
+        this.client = client;
+        this.saved = saved;
+        this.centralAreaPath = centralAreaPath;
+        this.snapshot = saved.load();
+        this.restored = snapshot != null;
+    }
+
+    /**
+     * The current snapshot, loading it first if nothing has been loaded yet.
+     */
+    public ReferenceData current() {
+        ReferenceData data = snapshot;
+        if (data != null)
+            return data;
+        try {
+            return coalesced(true).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /** The current snapshot, or null when nothing has been loaded yet. */
+    public ReferenceData currentIfLoaded() {
+        return snapshot;
+    }
+
+    /**
+     * Calls {@code listener} with every snapshot published from now on, on the
+     * thread that loaded it. An unchanged refresh publishes nothing.
+     */
+    public void addListener(Consumer<ReferenceData> listener) {
+        listeners.add(listener);
+    }
+
+    /** Whether the current snapshot was restored at startup and no refresh has succeeded since. */
+    public boolean restored() {
+        return restored;
+    }
+
+    /** Why the last refresh failed, or null when it succeeded or none has run. */
+    public RuntimeException lastFailure() {
+        return lastFailure;
+    }
+
+    /** Refreshes that have failed since startup. */
+    public long failureCount() {
+        return failures.get();
+    }
+
+    @Scheduled(initialDelayString = "${ilp.service.refresh-initial-delay-ms:0}",
+            fixedDelayString = "${ilp.service.refresh-interval-ms:300000}")
+    public void scheduledRefresh() {
+        try {
+            refresh().join();
+        } catch (CompletionException e) {
+            logger.warn("ILP reference data refresh failed, keeping the previous snapshot", e.getCause());
+        }
+    }
+
+    /**
+     * Revalidates all reference data. If a refresh is already running, returns that
+     * refresh's result rather than starting another.
+     */
+    public CompletableFuture<ReferenceData> refresh() {
+        return coalesced(false);
+    }
+
+    /**
+     * Joins the running refresh or starts one. With {@code onlyIfMissing}, a snapshot
+     * that was published just before this call won the race is used as is.
+     */
+    private CompletableFuture<ReferenceData> coalesced(boolean onlyIfMissing) {
+        CompletableFuture<ReferenceData> mine = new CompletableFuture<>();
+        CompletableFuture<ReferenceData> running = inFlight.compareAndExchange(null, mine);
+        if (running != null)
+            return running;
+        try {
+            ReferenceData loaded = onlyIfMissing ? snapshot : null;
+            mine.complete(loaded != null ? loaded : load());
+            lastFailure = null;
+            if (loaded == null)
+                restored = false;
+        } catch (RuntimeException e) {
+            lastFailure = e;
+            failures.incrementAndGet();
+            mine.completeExceptionally(e);
+        } finally {
+            inFlight.set(null);
+        }
+        return mine;
+    }
+
+    private ReferenceData load() {
+        Resource<List<Drone>> newDrones = client.fetch("drones", DRONES, drones);
+        Resource<List<ServicePoint>> newServicePoints = client.fetch("service-points", SERVICE_POINTS, servicePoints);
+        Resource<List<RestrictedArea>> newRestrictedAreas = client.fetch("restricted-areas", RESTRICTED_AREAS, restrictedAreas);
+        Resource<Region> newCentralArea = client.fetch(centralAreaPath, CENTRAL_AREA, centralArea);
+        Resource<List<ServicePointDrones>> newDronesForServicePoints =
+                client.fetch("drones-for-service-points", DRONES_FOR_SERVICE_POINTS, dronesForServicePoints);
+
+        ReferenceData previous = snapshot;
+        boolean unchanged = previous != null
+                && newDrones == drones
+                && newServicePoints == servicePoints
+                && newRestrictedAreas == restrictedAreas
+                && newCentralArea == centralArea
+                && newDronesForServicePoints == dronesForServicePoints;
+        drones = newDrones;
+        servicePoints = newServicePoints;
+        restrictedAreas = newRestrictedAreas;
+        centralArea = newCentralArea;
+        dronesForServicePoints = newDronesForServicePoints;
+        if (unchanged || previous != null && sameContent(previous, newDrones.value(), newServicePoints.value(),
+                newRestrictedAreas.value(), newCentralArea.value(), newDronesForServicePoints.value()))
+            return previous;
+
+        ReferenceData data = new ReferenceData(previous == null ? 1 : previous.version() + 1, Instant.now(),
+                orEmpty(newDrones.value()), orEmpty(newServicePoints.value()), orEmpty(newRestrictedAreas.value()),
+                newCentralArea.value(), orEmpty(newDronesForServicePoints.value()));
+        snapshot = data;
+        logger.info("loaded ILP reference data version {}: {} drones, {} service points, {} restricted areas",
+                data.version(), data.drones().size(), data.servicePoints().size(), data.restrictedAreas().size());
+        for (Consumer<ReferenceData> listener : listeners) {
+            try {
+                listener.accept(data);
+            } catch (RuntimeException e) {
+                logger.warn("reference data listener failed for version {}", data.version(), e);
+            }
+        }
+        try {
+            saved.save(data);
+        } catch (RuntimeException e) {
+            logger.warn("could not save reference data version {}", data.version(), e);
+        }
+        return data;
+    }
+
+    private static boolean sameContent(ReferenceData data, List<Drone> drones, List<ServicePoint> servicePoints,
+                                       List<RestrictedArea> restrictedAreas, Region centralArea,
+                                       List<ServicePointDrones> dronesForServicePoints) {
+        return data.drones().equals(orEmpty(drones))
+                && data.servicePoints().equals(orEmpty(servicePoints))
+                && data.restrictedAreas().equals(orEmpty(restrictedAreas))
+                && Objects.equals(data.centralArea(), centralArea)
+                && data.dronesForServicePoints().equals(orEmpty(dronesForServicePoints));
+    }
+
+    private static <T> List<T> orEmpty(List<T> list) {
+        return list == null ? List.of() : list;
+    }
+}
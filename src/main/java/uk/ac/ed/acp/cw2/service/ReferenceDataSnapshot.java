@@ -0,0 +1,405 @@
+package uk.ac.ed.acp.cw2.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.ac.ed.acp.cw2.dto.AvailabilityWindow;
+import uk.ac.ed.acp.cw2.dto.Drone;
+import uk.ac.ed.acp.cw2.dto.DroneAvailability;
+import uk.ac.ed.acp.cw2.dto.DroneCapability;
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.dto.ReferenceData;
+import uk.ac.ed.acp.cw2.dto.Region;
+import uk.ac.ed.acp.cw2.dto.RestrictedArea;
+import uk.ac.ed.acp.cw2.dto.ServicePoint;
+import uk.ac.ed.acp.cw2.dto.ServicePointDrones;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * The last loaded ILP reference data, kept in a binary file at
+ * {@code ilp.snapshot.path} so a restarted instance can serve at once and even
+ * while the ILP service is down; a blank path turns it off.
+ * <p>
+ * The file is a fixed header (magic, format, payload length, CRC32, data version,
+ * load time and coordinate count) followed by the payload: every coordinate of the
+ * data in one flat array of lng, lat pairs, then the records, which refer to their
+ * coordinates by offset and length. The checksum covers everything after itself.
+ * It is read through a memory-mapped channel, the coordinates in one bulk copy. A
+ * file with the wrong magic, an unknown format or a bad checksum is ignored; a new
+ * one replaces it atomically, so readers never see half of it.
+ */
+@Component
+public class ReferenceDataSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceDataSnapshot.class);
+
+    static final int MAGIC = 0x494c5053; // "ILPS"
+    static final int FORMAT = 1;
+    static final int HEADER_BYTES = 40;
+    /** Where the checksummed bytes start. */
+    private static final int CHECKED = 16;
+
+    private static final int NONE = -1;
+
+    private final Path path;
+
+    public ReferenceDataSnapshot(@Value("${ilp.snapshot.path:}") String path) {
+        this.path = path.isBlank() ? null : Path.of(path);
+    }
+
+    public boolean enabled() {
+        return path != null;
+    }
+
+    /** The data in the snapshot file, or null when there is none or it cannot be read. */
+    public ReferenceData load() {
+        if (path == null)
+            return null;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ReferenceData data = decode(buffer);
+            logger.info("restored ILP reference data version {} loaded at {} from {}",
+                    data.version(), data.loadedAt(), path);
+            return data;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("ignoring unreadable reference data snapshot {}", path, e);
+            return null;
+        }
+    }
+
+    /** Replaces the snapshot file with {@code data}. */
+    public void save(ReferenceData data) {
+        if (path == null)
+            return;
+        try {
+            Path dir = path.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            Path temp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    ByteBuffer bytes = ByteBuffer.wrap(encode(data));
+                    while (bytes.hasRemaining())
+                        channel.write(bytes);
+                    channel.force(true);
+                }
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static byte[] encode(ReferenceData data) {
+        Encoder encoder = new Encoder();
+        try {
+            encoder.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] records = encoder.records.toByteArray();
+        int coordinates = encoder.coordinateCount;
+        int payloadBytes = coordinates * 2 * Double.BYTES + records.length;
+
+        ByteBuffer file = ByteBuffer.allocate(HEADER_BYTES + payloadBytes);
+        file.putInt(0, MAGIC)
+                .putInt(4, FORMAT)
+                .putInt(8, payloadBytes)
+                .putLong(16, data.version())
+                .putLong(24, data.loadedAt().getEpochSecond())
+                .putInt(32, data.loadedAt().getNano())
+                .putInt(36, coordinates);
+        file.position(HEADER_BYTES);
+        file.asDoubleBuffer().put(encoder.coordinates, 0, coordinates * 2);
+        file.position(HEADER_BYTES + coordinates * 2 * Double.BYTES);
+        file.put(records);
+
+        CRC32 crc = new CRC32();
+        crc.update(file.array(), CHECKED, file.capacity() - CHECKED);
+        file.putInt(12, (int) crc.getValue());
+        return file.array();
+    }
+
+    static ReferenceData decode(ByteBuffer file) {
+        if (file.remaining() < HEADER_BYTES || file.getInt(0) != MAGIC)
+            throw new IllegalStateException("not a reference data snapshot");
+        if (file.getInt(4) != FORMAT)
+            throw new IllegalStateException("unknown snapshot format " + file.getInt(4));
+        int payloadBytes = file.getInt(8);
+        if (payloadBytes < 0 || payloadBytes > file.limit() - HEADER_BYTES)
+            throw new IllegalStateException("truncated snapshot");
+        CRC32 crc = new CRC32();
+        crc.update(file.slice(CHECKED, HEADER_BYTES - CHECKED + payloadBytes));
+        if ((int) crc.getValue() != file.getInt(12))
+            throw new IllegalStateException("snapshot checksum mismatch");
+
+        try {
+            Decoder decoder = new Decoder(file.slice(HEADER_BYTES, payloadBytes), file.getInt(36));
+            return decoder.read(file.getLong(16), Instant.ofEpochSecond(file.getLong(24), file.getInt(32)));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalStateException("corrupt snapshot", e);
+        }
+    }
+
+    /** Writes the records, collecting their coordinates into one flat array as it goes. */
+    private static final class Encoder {
+
+        final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(records);
+        double[] coordinates = new double[256];
+        int coordinateCount;
+
+        void write(ReferenceData data) throws IOException {
+            out.writeInt(data.drones().size());
+            for (Drone drone : data.drones()) {
+                string(drone.name());
+                string(drone.id());
+                DroneCapability capability = drone.capability();
+                out.writeBoolean(capability != null);
+                if (capability != null) {
+                    out.writeBoolean(capability.cooling());
+                    out.writeBoolean(capability.heating());
+                    out.writeDouble(capability.capacity());
+                    out.writeInt(capability.maxMoves());
+                    out.writeDouble(capability.costPerMove());
+                    out.writeDouble(capability.costInitial());
+                    out.writeDouble(capability.costFinal());
+                }
+            }
+
+            out.writeInt(data.servicePoints().size());
+            for (ServicePoint servicePoint : data.servicePoints()) {
+                string(servicePoint.name());
+                out.writeInt(servicePoint.id());
+                out.writeInt(servicePoint.location() == null ? NONE : coordinate(servicePoint.location()));
+            }
+
+            out.writeInt(data.restrictedAreas().size());
+            for (RestrictedArea area : data.restrictedAreas()) {
+                string(area.name());
+                out.writeBoolean(area.id() != null);
+                if (area.id() != null)
+                    out.writeInt(area.id());
+                vertices(area.vertices());
+            }
+
+            Region central = data.centralArea();
+            out.writeBoolean(central != null);
+            if (central != null) {
+                string(central.name());
+                vertices(central.vertices());
+            }
+
+            out.writeInt(data.dronesForServicePoints().size());
+            for (ServicePointDrones based : data.dronesForServicePoints()) {
+                out.writeInt(based.servicePointId());
+                out.writeInt(size(based.drones()));
+                if (based.drones() == null)
+                    continue;
+                for (DroneAvailability drone : based.drones()) {
+                    string(drone.id());
+                    out.writeInt(size(drone.availability()));
+                    if (drone.availability() == null)
+                        continue;
+                    for (AvailabilityWindow window : drone.availability()) {
+                        out.writeByte(window.dayOfWeek() == null ? NONE : window.dayOfWeek().ordinal());
+                        out.writeLong(window.from() == null ? NONE : window.from().toNanoOfDay());
+                        out.writeLong(window.until() == null ? NONE : window.until().toNanoOfDay());
+                    }
+                }
+            }
+            out.flush();
+        }
+
+        /** Offset and count of the vertices in the coordinate array; a null list has offset -1. */
+        private void vertices(List<LngLat> vertices) throws IOException {
+            if (vertices == null) {
+                out.writeInt(NONE);
+                out.writeInt(0);
+                return;
+            }
+            out.writeInt(coordinateCount);
+            out.writeInt(vertices.size());
+            for (LngLat vertex : vertices) {
+                coordinate(vertex);
+            }
+        }
+
+        private int coordinate(LngLat point) {
+            if (coordinateCount * 2 == coordinates.length)
+                coordinates = Arrays.copyOf(coordinates, coordinates.length * 2);
+            coordinates[coordinateCount * 2] = point.lng();
+            coordinates[coordinateCount * 2 + 1] = point.lat();
+            return coordinateCount++;
+        }
+
+        private void string(String value) throws IOException {
+            if (value == null) {
+                out.writeInt(NONE);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private static int size(List<?> list) {
+            return list == null ? NONE : list.size();
+        }
+    }
+
+    private static final class Decoder {
+
+        final ByteBuffer in;
+        final double[] coordinates;
+
+        Decoder(ByteBuffer payload, int count) {
+            this.in = payload;
+            if (count < 0 || count > in.remaining() / (2 * Double.BYTES))
+                throw new IllegalStateException("corrupt snapshot");
+            this.coordinates = new double[count * 2];
+            in.asDoubleBuffer().get(coordinates);
+            in.position(in.position() + coordinates.length * Double.BYTES);
+        }
+
+        ReferenceData read(long version, Instant loadedAt) {
+            int droneCount = count();
+            List<Drone> drones = new ArrayList<>(droneCount);
+            for (int i = 0; i < droneCount; i++) {
+                String name = string();
+                String id = string();
+                DroneCapability capability = in.get() == 0 ? null : new DroneCapability(in.get() != 0, in.get() != 0,
+                        in.getDouble(), in.getInt(), in.getDouble(), in.getDouble(), in.getDouble());
+                drones.add(new Drone(name, id, capability));
+            }
+
+            int servicePointCount = count();
+            List<ServicePoint> servicePoints = new ArrayList<>(servicePointCount);
+            for (int i = 0; i < servicePointCount; i++) {
+                String name = string();
+                int id = in.getInt();
+                int location = in.getInt();
+                servicePoints.add(new ServicePoint(name, id, location == NONE ? null : point(location)));
+            }
+
+            int areaCount = count();
+            List<RestrictedArea> restrictedAreas = new ArrayList<>(areaCount);
+            for (int i = 0; i < areaCount; i++) {
+                String name = string();
+                Integer id = in.get() == 0 ? null : in.getInt();
+                restrictedAreas.add(new RestrictedArea(name, id, vertices()));
+            }
+
+            Region centralArea = null;
+            if (in.get() != 0) {
+                String name = string();
+                centralArea = new Region(name, vertices());
+            }
+
+            int basedCount = count();
+            List<ServicePointDrones> dronesForServicePoints = new ArrayList<>(basedCount);
+            for (int i = 0; i < basedCount; i++) {
+                int servicePointId = in.getInt();
+                int availabilityCount = nullableCount();
+                List<DroneAvailability> availability = null;
+                if (availabilityCount != NONE) {
+                    availability = new ArrayList<>(availabilityCount);
+                    for (int j = 0; j < availabilityCount; j++) {
+                        String id = string();
+                        availability.add(new DroneAvailability(id, windows()));
+                    }
+                }
+                dronesForServicePoints.add(new ServicePointDrones(servicePointId, availability));
+            }
+            if (in.hasRemaining())
+                throw new IllegalStateException("corrupt snapshot");
+
+            return new ReferenceData(version, loadedAt, drones, servicePoints, restrictedAreas, centralArea,
+                    dronesForServicePoints);
+        }
+
+        private List<AvailabilityWindow> windows() {
+            int count = nullableCount();
+            if (count == NONE)
+                return null;
+            List<AvailabilityWindow> windows = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte day = in.get();
+                long from = in.getLong();
+                long until = in.getLong();
+                windows.add(new AvailabilityWindow(day == NONE ? null : DayOfWeek.values()[day],
+                        from == NONE ? null : LocalTime.ofNanoOfDay(from),
+                        until == NONE ? null : LocalTime.ofNanoOfDay(until)));
+            }
+            return windows;
+        }
+
+        private List<LngLat> vertices() {
+            int offset = in.getInt();
+            int count = in.getInt();
+            if (offset == NONE)
+                return null;
+            if (count < 0 || offset < 0 || offset + count > coordinates.length / 2)
+                throw new IllegalStateException("corrupt snapshot");
+            List<LngLat> vertices = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                vertices.add(point(offset + i));
+            }
+            return vertices;
+        }
+
+        private LngLat point(int index) {
+            return new LngLat(coordinates[index * 2], coordinates[index * 2 + 1]);
+        }
+
+        private String string() {
+            int length = nullableCount();
+            if (length == NONE)
+                return null;
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private int nullableCount() {
+            int count = in.getInt();
+            return count == NONE ? NONE : checked(count);
+        }
+
+        private int count() {
+            return checked(in.getInt());
+        }
+
+        /** Every element takes at least a byte, which bounds what a corrupt count can allocate. */
+        private int checked(int count) {
+            if (count < 0 || count > in.remaining())
+                throw new IllegalStateException("corrupt snapshot");
+            return count;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package uk.ac.ed.acp.cw2.service;
+
+import org.springframework.stereotype.Service;
+import uk.ac.ed.acp.cw2.dto.Region;
+import uk.ac.ed.acp.cw2.geometry.Polygon;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Holds regions registered by clients, compiled once at registration so queries by
+ * id never re-parse or re-validate the vertices.
+ * <p>
+ * The regions live in an immutable {@link RegionSet}. Writers build a new set,
+ * spatial index included, and publish it with a single volatile write, so readers
+ * never block and never see a half-applied change. Listeners hear of each new set
+ * after it is published.
+ */
+@Service
+public class RegionRegistry {
+
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final List<Consumer<RegionSet>> listeners = new CopyOnWriteArrayList<>();
+    private volatile RegionSet current = RegionSet.EMPTY;
+
+    /** Registers a region that is not a no-fly zone. */
+    public RegisteredRegion register(Region region) {
+        return register(region, false);
+    }
+
+    /**
+     * Compiles and stores a validated region and returns it with its new id. Paths
+     * that name no zones of their own avoid the regions registered as no-fly zones.
+     */
+    public RegisteredRegion register(Region region, boolean noFly) {
+        RegisteredRegion registered = new RegisteredRegion("region-" + nextId.getAndIncrement(),
+                region, Polygon.compile(region.vertices()), noFly);
+        synchronized (this) {
+            List<RegisteredRegion> regions = new ArrayList<>(current.regions());
+            regions.add(registered);
+            current = new RegionSet(current.version() + 1, regions);
+        }
+        publish();
+        return registered;
+    }
+
+    /** The region with this id, or null. */
+    public RegisteredRegion get(String id) {
+        return current.get(id);
+    }
+
+    public boolean remove(String id) {
+        synchronized (this) {
+            RegionSet set = current;
+            if (set.get(id) == null)
+                return false;
+            List<RegisteredRegion> regions = new ArrayList<>(set.regions());
+            regions.removeIf(region -> region.id().equals(id));
+            current = new RegionSet(set.version() + 1, regions);
+        }
+        publish();
+        return true;
+    }
+
+    /**
+     * Calls {@code listener} on the writing thread after every change from now on,
+     * with the set current at that point, which a later change may already have
+     * replaced.
+     */
+    public void addListener(Consumer<RegionSet> listener) {
+        listeners.add(listener);
+    }
+
+    /** The current snapshot; it never changes once returned. */
+    public RegionSet snapshot() {
+        return current;
+    }
+
+    public int size() {
+        return current.size();
+    }
+
+    private void publish() {
+        RegionSet set = current;
+        for (Consumer<RegionSet> listener : listeners) {
+            listener.accept(set);
+        }
+    }
+}
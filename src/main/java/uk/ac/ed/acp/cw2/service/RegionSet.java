@@ -0,0 +1,144 @@
+package uk.ac.ed.acp.cw2.service;
+
+import uk.ac.ed.acp.cw2.geometry.GridIndex;
+import uk.ac.ed.acp.cw2.geometry.Polygon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of the registered regions together with the spatial index
+ * over them. {@link RegionRegistry} replaces the whole snapshot on every change, so
+ * readers always see a consistent set without locking.
+ */
+public final class RegionSet {
+
+    static final RegionSet EMPTY = new RegionSet(0, List.of());
+
+    private final long version;
+    private final Map<String, RegisteredRegion> byId;
+    private final RegisteredRegion[] regions;
+    private final GridIndex index;
+    private final List<String> noFlyIds;
+    private final GridIndex noFlyIndex;
+
+    RegionSet(long version, List<RegisteredRegion> regions) {
+        this.version = version;
+        this.regions = regions.toArray(new RegisteredRegion[0]);
+        Map<String, RegisteredRegion> byId = new LinkedHashMap<>();
+        Polygon[] polygons = new Polygon[this.regions.length];
+        List<String> noFlyIds = new ArrayList<>();
+        List<Polygon> noFly = new ArrayList<>();
+        for (int i = 0; i < this.regions.length; i++) {
+            byId.put(this.regions[i].id(), this.regions[i]);
+            polygons[i] = this.regions[i].polygon();
+            if (this.regions[i].noFly()) {
+                noFlyIds.add(this.regions[i].id());
+                noFly.add(polygons[i]);
+            }
+        }
+        this.byId = Collections.unmodifiableMap(byId);
+        this.index = GridIndex.build(polygons);
+        this.noFlyIds = List.copyOf(noFlyIds);
+        this.noFlyIndex = GridIndex.build(noFly.toArray(new Polygon[0]));
+    }
+
+    /** Increases by one with every change to the region set. */
+    public long version() {
+        return version;
+    }
+
+    /** The region with this id, or null. */
+    public RegisteredRegion get(String id) {
+        return byId.get(id);
+    }
+
+    public List<RegisteredRegion> regions() {
+        return List.copyOf(byId.values());
+    }
+
+    public int size() {
+        return regions.length;
+    }
+
+    /** Every region containing the point, in registration order. */
+    public List<RegisteredRegion> containing(double lng, double lat) {
+        int[] found = index.containing(lng, lat);
+        if (found.length == 0)
+            return List.of();
+        RegisteredRegion[] result = new RegisteredRegion[found.length];
+        for (int i = 0; i < found.length; i++) {
+            result[i] = regions[found[i]];
+        }
+        return List.of(result);
+    }
+
+    /**
+     * {@link #containing} together with a clearance: a distance, at most
+     * {@code limit}, that the point can move without any region's containment of
+     * it changing, stored in {@code clearance[0]}. Regions whose bounding box holds
+     * the point are measured edge by edge in the same pass as their containment
+     * test; for the others the distance to the box is bound enough.
+     */
+    public List<RegisteredRegion> containing(double lng, double lat, double limit, double[] clearance) {
+        RegisteredRegion[] found = null;
+        int count = 0;
+        double best = limit;
+        for (RegisteredRegion region : regions) {
+            Polygon polygon = region.polygon();
+            double bounds = polygon.distanceToBounds(lng, lat);
+            if (bounds > 0) {
+                best = Math.min(best, bounds);
+                continue;
+            }
+            double distance = polygon.signedDistance(lng, lat);
+            if (distance >= 0) {
+                if (found == null)
+                    found = new RegisteredRegion[regions.length];
+                found[count++] = region;
+            }
+            best = Math.min(best, Math.abs(distance));
+        }
+        clearance[0] = best;
+        return found == null ? List.of() : List.of(Arrays.copyOf(found, count));
+    }
+
+    /** The spatial index over every region in this set. */
+    public GridIndex index() {
+        return index;
+    }
+
+    /** The ids of the regions registered as no-fly zones, in registration order. */
+    public List<String> noFlyIds() {
+        return noFlyIds;
+    }
+
+    /** The spatial index over the no-fly zones, in the order of {@link #noFlyIds()}. */
+    public GridIndex noFlyIndex() {
+        return noFlyIndex;
+    }
+
+    /**
+     * A spatial index over just the listed regions, or null when an id is not in
+     * this set.
+     */
+    public GridIndex index(List<String> ids) {
+        Polygon[] polygons = new Polygon[ids.size()];
+        for (int i = 0; i < polygons.length; i++) {
+            RegisteredRegion region = byId.get(ids.get(i));
+            if (region == null)
+                return null;
+            polygons[i] = region.polygon();
+        }
+        return GridIndex.build(polygons);
+    }
+
+    /** Whether any region contains the point. */
+    public boolean anyContains(double lng, double lat) {
+        return index.anyContains(lng, lat);
+    }
+}
@@ -0,0 +1,11 @@
+package uk.ac.ed.acp.cw2.service;
+
+import uk.ac.ed.acp.cw2.dto.Region;
+import uk.ac.ed.acp.cw2.geometry.Polygon;
+
+/**
+ * A region registered with {@link RegionRegistry}: the region as it was sent, the
+ * polygon compiled from it and whether it was registered as a no-fly zone.
+ */
+public record RegisteredRegion(String id, Region region, Polygon polygon, boolean noFly) {
+}
@@ -0,0 +1,105 @@
+package uk.ac.ed.acp.cw2.service;
+
+import org.springframework.stereotype.Service;
+import uk.ac.ed.acp.cw2.dto.NearbyServicePoint;
+import uk.ac.ed.acp.cw2.dto.ReferenceData;
+import uk.ac.ed.acp.cw2.dto.ServicePoint;
+import uk.ac.ed.acp.cw2.geometry.Geometry;
+import uk.ac.ed.acp.cw2.geometry.KdTree;
+import uk.ac.ed.acp.cw2.parser.ApiError;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Nearest and within-distance queries over the ILP service points, answered from a
+ * {@link KdTree} over their locations.
+ * <p>
+ * The tree is rebuilt by the refresh that loads new reference data and published
+ * with a single volatile write, so queries only ever read a finished tree. Service
+ * points without a location are left out.
+ */
+@Service
+public class ServicePointIndex {
+
+    private final ReferenceDataService referenceData;
+    private volatile Snapshot current;
+
+    public ServicePointIndex(ReferenceDataService referenceData) {
+        this.referenceData = referenceData;
+        referenceData.addListener(this::rebuild);
+        ReferenceData loaded = referenceData.currentIfLoaded();
+        if (loaded != null)
+            rebuild(loaded);
+    }
+
+    /** The {@code k} service points nearest to the position, nearest first. */
+    public List<NearbyServicePoint> nearest(double lng, double lat, int k) {
+        Snapshot snapshot = snapshot();
+        return snapshot.describe(snapshot.tree.nearest(lng, lat, k), lng, lat);
+    }
+
+    /** Every service point at most {@code distance} from the position, nearest first. */
+    public List<NearbyServicePoint> within(double lng, double lat, double distance) {
+        Snapshot snapshot = snapshot();
+        return snapshot.describe(snapshot.tree.within(lng, lat, distance), lng, lat);
+    }
+
+    /** The reference data version the current tree was built from, or 0 before the first load. */
+    public long version() {
+        Snapshot snapshot = current;
+        return snapshot == null ? 0 : snapshot.version;
+    }
+
+    /**
+     * Indexes the service points of {@code data} unless a newer version is already
+     * indexed.
+     */
+    synchronized void rebuild(ReferenceData data) {
+        Snapshot snapshot = current;
+        if (snapshot != null && snapshot.version >= data.version())
+            return;
+        List<ServicePoint> located = new ArrayList<>(data.servicePoints().size());
+        for (ServicePoint point : data.servicePoints()) {
+            if (point.location() != null)
+                located.add(point);
+        }
+        ServicePoint[] points = located.toArray(new ServicePoint[0]);
+        double[] lng = new double[points.length];
+        double[] lat = new double[points.length];
+        for (int i = 0; i < points.length; i++) {
+            lng[i] = points[i].location().lng();
+            lat[i] = points[i].location().lat();
+        }
+        current = new Snapshot(data.version(), points, KdTree.build(lng, lat));
+    }
+
+    /**
+     * The current tree; before the first refresh, loading the reference data
+     * builds it through the listener.
+     */
+    private Snapshot snapshot() {
+        Snapshot snapshot = current;
+        if (snapshot != null)
+            return snapshot;
+        try {
+            rebuild(referenceData.current());
+        } catch (RuntimeException e) {
+            throw ApiError.REFERENCE_DATA_UNAVAILABLE.exception();
+        }
+        return current;
+    }
+
+    private record Snapshot(long version, ServicePoint[] points, KdTree tree) {
+
+        List<NearbyServicePoint> describe(int[] found, double lng, double lat) {
+            NearbyServicePoint[] nearby = new NearbyServicePoint[found.length];
+            for (int i = 0; i < found.length; i++) {
+                ServicePoint point = points[found[i]];
+                nearby[i] = new NearbyServicePoint(point.id(), point.name(), point.location(),
+                        Geometry.distance(lng, lat, point.location().lng(), point.location().lat()));
+            }
+            return List.of(nearby);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package uk.ac.ed.acp.cw2.tracing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.ac.ed.acp.cw2.tracing.PhaseTrace.Phase;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The slowest recently sampled requests with their phase breakdowns, and the
+ * share of all sampled time each phase took.
+ * <p>
+ * Requests are sampled at {@code ilp.tracing.sample-rate}. The slowest are kept
+ * per window of {@code ilp.tracing.window-ms}, at most {@code ilp.tracing.keep}
+ * each, and the current and previous windows are reported together, so a spike
+ * stays visible for at least one full window after it ends.
+ */
+@Component
+public class PhaseProfile {
+
+    private static final Comparator<SlowRequest> BY_TOTAL = Comparator.comparingDouble(SlowRequest::totalMs);
+
+    private final double sampleRate;
+    private final int keep;
+    private final long windowNanos;
+
+    private final LongAdder sampled = new LongAdder();
+    private final LongAdder[] phaseNanos = new LongAdder[Phase.values().length];
+
+    // guarded by this
+    private PriorityQueue<SlowRequest> current = new PriorityQueue<>(BY_TOTAL);
+    private PriorityQueue<SlowRequest> previous = new PriorityQueue<>(BY_TOTAL);
+    private long windowStart = System.nanoTime();
+
+    public PhaseProfile(@Value("${ilp.tracing.sample-rate:0.01}") double sampleRate,
+                        @Value("${ilp.tracing.keep:20}") int keep,
+                        @Value("${ilp.tracing.window-ms:300000}") long windowMs) {
+        this.sampleRate = sampleRate;
+        this.keep = keep;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = new LongAdder();
+        }
+    }
+
+    /** Whether to trace the request about to start. */
+    public boolean sample() {
+        return sampleRate > 0 && (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    public double sampleRate() {
+        return sampleRate;
+    }
+
+    public long sampledCount() {
+        return sampled.sum();
+    }
+
+    /** Records a finished trace. */
+    void record(String method, String uri, int status, PhaseTrace trace) {
+        sampled.increment();
+        Map<String, Double> phases = new LinkedHashMap<>();
+        for (Phase phase : Phase.values()) {
+            long nanos = trace.nanos(phase);
+            phaseNanos[phase.ordinal()].add(nanos);
+            phases.put(phase.label(), millis(nanos));
+        }
+        SlowRequest request = new SlowRequest(method, uri, status, Instant.now(), millis(trace.totalNanos()), phases);
+        synchronized (this) {
+            rotate(System.nanoTime());
+            if (current.size() < keep) {
+                current.add(request);
+            } else if (keep > 0 && BY_TOTAL.compare(request, current.peek()) > 0) {
+                current.poll();
+                current.add(request);
+            }
+        }
+    }
+
+    /** The slowest requests of the current and previous windows, slowest first. */
+    public List<SlowRequest> slowest() {
+        List<SlowRequest> slowest;
+        synchronized (this) {
+            rotate(System.nanoTime());
+            slowest = new ArrayList<>(current);
+            slowest.addAll(previous);
+        }
+        slowest.sort(BY_TOTAL.reversed());
+        return slowest.size() > keep ? slowest.subList(0, keep) : slowest;
+    }
+
+    /** The fraction of all sampled request time spent in each phase. */
+    public Map<String, Double> phaseShares() {
+        long total = 0;
+        long[] nanos = new long[phaseNanos.length];
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] = phaseNanos[i].sum();
+            total += nanos[i];
+        }
+        Map<String, Double> shares = new LinkedHashMap<>();
+        for (Phase phase : Phase.values()) {
+            shares.put(phase.label(), total == 0 ? 0 : (double) nanos[phase.ordinal()] / total);
+        }
+        return shares;
+    }
+
+    private void rotate(long now) {
+        if (now - windowStart < windowNanos)
+            return;
+        // a window with nothing recorded in it leaves nothing to carry over
+        previous = now - windowStart < 2 * windowNanos ? current : new PriorityQueue<>(BY_TOTAL);
+        current = new PriorityQueue<>(BY_TOTAL);
+        windowStart = now;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
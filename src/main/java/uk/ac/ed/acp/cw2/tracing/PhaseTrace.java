@@ -0,0 +1,82 @@
+package uk.ac.ed.acp.cw2.tracing;
+
+/**
+ * The phase timings of one sampled request, kept in a thread local for the
+ * request's thread. Time is charged to exactly one phase at any moment: entering
+ * a nested phase, such as parsing inside a handler, pauses the enclosing one until
+ * the nested phase exits, so the phases add up to the whole request.
+ */
+public final class PhaseTrace {
+
+    /** Where a request's time goes. */
+    public enum Phase {
+        /** Reading and checking the request body, one streaming pass in {@code RequestParser}. */
+        DESERIALIZE,
+        /** The handler's own work, less the other phases nested in it. */
+        COMPUTE,
+        /** Calls to, or waits for, the ILP REST service. */
+        UPSTREAM,
+        /** Writing the response body once the handler has returned. */
+        SERIALIZE,
+        /** Dispatch, interceptors and everything else outside the handler. */
+        OTHER;
+
+        private final String label = name().toLowerCase();
+
+        public String label() {
+            return label;
+        }
+    }
+
+    private static final ThreadLocal<PhaseTrace> CURRENT = new ThreadLocal<>();
+
+    private final long start;
+    private final long[] nanos = new long[Phase.values().length];
+    private Phase phase = Phase.OTHER;
+    private long mark;
+
+    private PhaseTrace(long start) {
+        this.start = start;
+        this.mark = start;
+    }
+
+    /** Starts tracing the current thread's request. */
+    static PhaseTrace begin() {
+        PhaseTrace trace = new PhaseTrace(System.nanoTime());
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    /** The trace of the current thread's request, or null when it is not sampled. */
+    static PhaseTrace current() {
+        return CURRENT.get();
+    }
+
+    /** Stops tracing the current thread, charging the time since the last switch. */
+    static PhaseTrace end() {
+        PhaseTrace trace = CURRENT.get();
+        if (trace != null) {
+            CURRENT.remove();
+            trace.switchTo(Phase.OTHER);
+        }
+        return trace;
+    }
+
+    /** Charges the time so far to the current phase and moves to {@code next}, returning the one left. */
+    Phase switchTo(Phase next) {
+        long now = System.nanoTime();
+        nanos[phase.ordinal()] += now - mark;
+        mark = now;
+        Phase previous = phase;
+        phase = next;
+        return previous;
+    }
+
+    long totalNanos() {
+        return mark - start;
+    }
+
+    long nanos(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+}
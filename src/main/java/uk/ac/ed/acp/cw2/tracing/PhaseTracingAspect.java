@@ -0,0 +1,59 @@
+package uk.ac.ed.acp.cw2.tracing;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+import uk.ac.ed.acp.cw2.tracing.PhaseTrace.Phase;
+
+/**
+ * Charges the time of sampled requests to their phases: controller handlers to
+ * compute, then to serialize once they return, {@code RequestParser} to
+ * deserialize, and any bean of the client package, or a wait for the ILP
+ * reference data, to upstream. New client and service beans are covered by
+ * package, not by name.
+ * <p>
+ * An unsampled request pays one thread-local read per advised call.
+ */
+@Aspect
+@Component
+public class PhaseTracingAspect {
+
+    @Around("execution(public * uk.ac.ed.acp.cw2.controller..*.*(..)) "
+            + "&& @within(org.springframework.web.bind.annotation.RestController)")
+    public Object handler(ProceedingJoinPoint call) throws Throwable {
+        PhaseTrace trace = PhaseTrace.current();
+        if (trace == null)
+            return call.proceed();
+        trace.switchTo(Phase.COMPUTE);
+        try {
+            return call.proceed();
+        } finally {
+            // until the interceptor sees the handler complete, time goes on writing the body
+            trace.switchTo(Phase.SERIALIZE);
+        }
+    }
+
+    @Around("execution(public * uk.ac.ed.acp.cw2.parser.RequestParser.*(..))")
+    public Object deserialize(ProceedingJoinPoint call) throws Throwable {
+        return within(Phase.DESERIALIZE, call);
+    }
+
+    @Around("execution(public * uk.ac.ed.acp.cw2.client..*.*(..)) "
+            + "|| execution(public * uk.ac.ed.acp.cw2.service.ReferenceDataService.current(..))")
+    public Object upstream(ProceedingJoinPoint call) throws Throwable {
+        return within(Phase.UPSTREAM, call);
+    }
+
+    private static Object within(Phase phase, ProceedingJoinPoint call) throws Throwable {
+        PhaseTrace trace = PhaseTrace.current();
+        if (trace == null)
+            return call.proceed();
+        Phase enclosing = trace.switchTo(phase);
+        try {
+            return call.proceed();
+        } finally {
+            trace.switchTo(enclosing);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package uk.ac.ed.acp.cw2.tracing;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * One sampled request as /actuator/slowrequests lists it: its endpoint, when it
+ * finished, and its total and per-phase times in milliseconds.
+ */
+public record SlowRequest(String method, String uri, int status, Instant finishedAt, double totalMs,
+                          Map<String, Double> phasesMs) {
+}
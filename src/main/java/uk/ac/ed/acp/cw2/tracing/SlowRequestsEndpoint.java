@@ -0,0 +1,33 @@
+package uk.ac.ed.acp.cw2.tracing;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code /actuator/slowrequests}: the slowest recently sampled requests with their
+ * phase breakdowns, and how all sampled time divides between the phases.
+ */
+@Component
+@Endpoint(id = "slowrequests")
+public class SlowRequestsEndpoint {
+
+    private final PhaseProfile profile;
+
+    public SlowRequestsEndpoint(PhaseProfile profile) {
+        this.profile = profile;
+    }
+
+    @ReadOperation
+    public Map<String, Object> slowRequests() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("sampleRate", profile.sampleRate());
+        report.put("sampled", profile.sampledCount());
+        report.put("phaseShare", profile.phaseShares());
+        report.put("slowest", profile.slowest());
+        return report;
+    }
+}
@@ -0,0 +1,52 @@
+package uk.ac.ed.acp.cw2.tracing;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Decides which /api/v1 requests {@link PhaseTracingAspect} traces, and hands
+ * each finished trace to {@link PhaseProfile}. A servlet request stays on one
+ * thread from here to completion, which the thread-local trace relies on; the
+ * reactive stack has no such thread and is not traced.
+ */
+@Component
+@Profile("!reactive")
+public class TracingInterceptor implements HandlerInterceptor, WebMvcConfigurer {
+
+    private final PhaseProfile profile;
+
+    public TracingInterceptor(PhaseProfile profile) {
+        this.profile = profile;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(this).addPathPatterns("/api/v1/**");
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // a thread reused after a request that never completed must not carry its trace
+        PhaseTrace.end();
+        if (profile.sample())
+            PhaseTrace.begin();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        PhaseTrace trace = PhaseTrace.end();
+        if (trace == null)
+            return;
+        Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        profile.record(request.getMethod(), uri == null ? request.getRequestURI() : uri.toString(),
+                response.getStatus(), trace);
+    }
+}
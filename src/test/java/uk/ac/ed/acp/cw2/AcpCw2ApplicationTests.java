@@ -1,26 +1,92 @@
 package uk.ac.ed.acp.cw2;
 
+import com.jayway.jsonpath.JsonPath;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthEndpoint;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import uk.ac.ed.acp.cw2.controller.AdmissionControl;
+import uk.ac.ed.acp.cw2.controller.ApiErrorMetrics;
+import uk.ac.ed.acp.cw2.controller.ConcurrencyLimit;
+import uk.ac.ed.acp.cw2.controller.DroneController;
+import uk.ac.ed.acp.cw2.controller.GeofenceController;
+import uk.ac.ed.acp.cw2.controller.JobController;
+import uk.ac.ed.acp.cw2.controller.PathController;
+import uk.ac.ed.acp.cw2.controller.RegionController;
 import uk.ac.ed.acp.cw2.controller.ServiceController;
+import uk.ac.ed.acp.cw2.controller.ServicePointController;
+import uk.ac.ed.acp.cw2.controller.StreamController;
+import uk.ac.ed.acp.cw2.dto.AvailabilityWindow;
+import uk.ac.ed.acp.cw2.dto.Drone;
+import uk.ac.ed.acp.cw2.dto.DroneAvailability;
+import uk.ac.ed.acp.cw2.dto.DroneCapability;
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.dto.ReferenceData;
+import uk.ac.ed.acp.cw2.dto.ServicePoint;
+import uk.ac.ed.acp.cw2.dto.ServicePointDrones;
+import uk.ac.ed.acp.cw2.parser.RequestParser;
+import uk.ac.ed.acp.cw2.planner.DeliveryScheduler;
+import uk.ac.ed.acp.cw2.planner.PathCache;
+import uk.ac.ed.acp.cw2.planner.PathPlanner;
+import uk.ac.ed.acp.cw2.planner.PathService;
+import uk.ac.ed.acp.cw2.planner.ServicePointFields;
+import uk.ac.ed.acp.cw2.service.DroneRegistry;
+import uk.ac.ed.acp.cw2.service.GeofenceTracker;
+import uk.ac.ed.acp.cw2.service.JobService;
+import uk.ac.ed.acp.cw2.service.PathValidator;
+import uk.ac.ed.acp.cw2.service.ReferenceDataService;
+import uk.ac.ed.acp.cw2.service.RegionRegistry;
+import uk.ac.ed.acp.cw2.service.ServicePointIndex;
+import uk.ac.ed.acp.cw2.tracing.PhaseProfile;
 
 import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 
 //@SpringBootTest
-@WebMvcTest(ServiceController.class)
+@WebMvcTest({ServiceController.class, RegionController.class, PathController.class, StreamController.class,
+        GeofenceController.class, ServicePointController.class, DroneController.class, JobController.class})
+@Import({RequestParser.class, RegionRegistry.class, PathPlanner.class, PathCache.class, ServicePointFields.class,
+        PathService.class, PathValidator.class, GeofenceTracker.class, ServicePointIndex.class, DroneRegistry.class,
+        JobService.class, ApiErrorMetrics.class, AdmissionControl.class, PhaseProfile.class, DeliveryScheduler.class,
+        SimpleMeterRegistry.class})
 class AcpCw2ApplicationTests {
 
+    @MockitoBean
+    private HealthEndpoint healthEndpoint;
+
+    @MockitoBean
+    private ReferenceDataService referenceDataService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AdmissionControl admissionControl;
+
     @Test
     void contextLoads() {
     }
@@ -37,11 +103,33 @@ class AcpCw2ApplicationTests {
 
     @Test
     void testHealth() throws Exception {
+        when(healthEndpoint.health()).thenReturn(Health.up().build());
         mockMvc.perform(get("/api/v1/actuator/health"))
                 .andExpect(status().isOk())  // 200
                 .andExpect(jsonPath("$.status", is("UP")));
     }
 
+    @Test
+    void testHealthReportsOutOfService() throws Exception {
+        when(healthEndpoint.health()).thenReturn(Health.outOfService().build());
+        mockMvc.perform(get("/api/v1/actuator/health"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.status", is("OUT_OF_SERVICE")));
+    }
+
+    @Test
+    void testBadRequestsCountedByReason() throws Exception {
+        Counter errors = meterRegistry.counter("api.request.errors",
+                "uri", "/api/v1/distanceTo", "status", "400", "reason", "missing_positions");
+        double before = errors.count();
+        mockMvc.perform(post("/api/v1/distanceTo")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"position1\": {\"lng\": -3.192473, \"lat\": 55.946233}}"))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(before + 1, errors.count());
+    }
+
 
     @Test
     void testDistanceTo() throws Exception {
@@ -141,6 +229,31 @@ class AcpCw2ApplicationTests {
 
     }
 
+    @Test
+    void testDistanceToLngTypeError() throws Exception {
+        String body = """
+            {
+               "position1": {"lng": "-3.192473", "lat": 55.946233},
+               "position2": {"lng": -3.192473, "lat": 55.942617}
+            }
+            """;
+        mockMvc.perform(post("/api/v1/distanceTo")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is("lng or lat type error ")));
+
+    }
+    @Test
+    void testDistanceToMalformedBody() throws Exception {
+        mockMvc.perform(post("/api/v1/distanceTo")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1, 2]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status", is(400)));
+
+    }
+
     @Test
     void testIsCloseToTure() throws Exception {
         String body = """
@@ -211,6 +324,29 @@ class AcpCw2ApplicationTests {
                 .andExpect(status().isOk())
                 .andExpect(content().json(body_Result));
 
+    }
+    @Test
+    void testNextPositions() throws Exception {
+        String body = """
+                {
+                   "start": {
+                   "lng": -3.192473,
+                   "lat": 55.946233
+                   },
+                   "angles": [45, 45]
+                  }
+            """;
+        mockMvc.perform(post("/api/v1/nextPositions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].lng", comparesEqualTo(-3.192473)))
+                .andExpect(jsonPath("$[1].lng", comparesEqualTo(-3.192367)))
+                .andExpect(jsonPath("$[1].lat", comparesEqualTo(55.946339)))
+                .andExpect(jsonPath("$[2].lng", comparesEqualTo(-3.192261)))
+                .andExpect(jsonPath("$[2].lat", comparesEqualTo(55.946445)));
+
     }
     @Test
     void testNextPositionLngAndLatNull() throws Exception {
@@ -556,6 +692,638 @@ class AcpCw2ApplicationTests {
 
 
 
+    @Test
+    void testDistanceToBatch() throws Exception {
+        String body = """
+            {
+              "pairs": [
+                {"position1": {"lng": -3.192473, "lat": 55.946233}, "position2": {"lng": -3.192473, "lat": 55.942617}},
+                {"position1": {"lng": -3.192473, "lat": 55.942657}, "position2": {"lng": -3.192473, "lat": 55.942657}}
+              ]
+            }
+            """;
+        mockMvc.perform(post("/api/v1/batch/distanceTo")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0]", comparesEqualTo(new BigDecimal("0.003616000000000952"))))
+                .andExpect(jsonPath("$[1]").value(0.0));
+    }
+
+    @Test
+    void testDistanceMatrix() throws Exception {
+        String body = """
+            {
+              "from": [{"lng": -3.192473, "lat": 55.946233}, {"lng": -3.192473, "lat": 55.942617}],
+              "to": {"lng": [-3.192473, -3.192473, -3.182473], "lat": [55.942617, 55.946233, 55.946233]}
+            }
+            """;
+        mockMvc.perform(post("/api/v1/batch/distanceMatrix")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rows").value(2))
+                .andExpect(jsonPath("$.columns").value(3))
+                .andExpect(jsonPath("$.distances", hasSize(6)))
+                .andExpect(jsonPath("$.distances[0]", comparesEqualTo(new BigDecimal("0.003616000000000952"))))
+                .andExpect(jsonPath("$.distances[1]").value(0.0))
+                .andExpect(jsonPath("$.distances[3]").value(0.0))
+                .andExpect(jsonPath("$.squaredDistances").doesNotExist());
+    }
+
+    @Test
+    void testDistanceMatrixIsCloseToBits() throws Exception {
+        // close pairs are (0, 1) and (1, 0): bits 1 and 3 of the first byte, 0x0a
+        String body = """
+            {
+              "from": [{"lng": -3.19, "lat": 55.94}, {"lng": -3.18, "lat": 55.94}],
+              "to": [{"lng": -3.18, "lat": 55.94001}, {"lng": -3.19001, "lat": 55.94}, {"lng": -3.17, "lat": 55.94}],
+              "output": "isCloseTo"
+            }
+            """;
+        mockMvc.perform(post("/api/v1/batch/distanceMatrix")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.isCloseTo").value("Cg=="))
+                .andExpect(jsonPath("$.distances").doesNotExist());
+    }
+
+    @Test
+    void testDistanceMatrixRejectsBadRequests() throws Exception {
+        mockMvc.perform(post("/api/v1/batch/distanceMatrix")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"from\": {\"lng\": [-3.19, -3.18], \"lat\": [55.94]}, \"to\": []}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("lng and lat must be number arrays of equal length"));
+        mockMvc.perform(post("/api/v1/batch/distanceMatrix")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"from\": [], \"to\": [], \"output\": \"bearing\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("output must be distance, squared or isCloseTo"));
+
+        // one row more than ilp.matrix.max-cells allows against 2000 columns
+        String rows = String.join(",", Collections.nCopies(2001, "-3.19"));
+        String columns = String.join(",", Collections.nCopies(2000, "55.94"));
+        mockMvc.perform(post("/api/v1/batch/distanceMatrix")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"from\": {\"lng\": [" + rows + "], \"lat\": [" + rows + "]},"
+                                + " \"to\": {\"lng\": [" + columns + "], \"lat\": [" + columns + "]}}"))
+                .andExpect(status().is(413));
+    }
+
+    @Test
+    void testIsCloseToBatchMissingPosition() throws Exception {
+        String body = """
+            {
+              "pairs": [
+                {"position1": {"lng": -3.192473, "lat": 55.946233}}
+              ]
+            }
+            """;
+        mockMvc.perform(post("/api/v1/batch/isCloseTo")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testIsInRegionBatch() throws Exception {
+        String body = """
+                {
+                   "positions": [
+                     {"lng": 1.234, "lat": 1.222},
+                     {"lng": -3.188, "lat": 55.944}
+                   ],
+                   "region": {
+                   "name": "central",
+                   "vertices": [
+                   {"lng": -3.192473, "lat": 55.946233},
+                   {"lng": -3.192473, "lat": 55.942617},
+                   {"lng": -3.184319, "lat": 55.942617},
+                   {"lng": -3.184319, "lat": 55.946233},
+                   {"lng": -3.192473, "lat": 55.946233}
+                   ]
+                   }
+                  }
+            """;
+        mockMvc.perform(post("/api/v1/batch/isInRegion")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[false, true]"));
+    }
+
+    @Test
+    void testIsInRegionConcavePolygon() throws Exception {
+        String body = """
+                {
+                   "position": {"lng": 1.5, "lat": 2},
+                   "region": {
+                   "name": "u-shape",
+                   "vertices": [
+                   {"lng": 0, "lat": 0}, {"lng": 3, "lat": 0}, {"lng": 3, "lat": 3},
+                   {"lng": 2, "lat": 3}, {"lng": 2, "lat": 1}, {"lng": 1, "lat": 1},
+                   {"lng": 1, "lat": 3}, {"lng": 0, "lat": 3}, {"lng": 0, "lat": 0}
+                   ]
+                   }
+                  }
+            """;
+        mockMvc.perform(post("/api/v1/isInRegion")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"isInRegion\": false}"));
+    }
+
+    @Test
+    void testIsInRegionDegeneratePolygon() throws Exception {
+        String line = """
+                {
+                   "position": {"lng": 1, "lat": 1},
+                   "region": {"name": "line", "vertices": [
+                   {"lng": 0, "lat": 0}, {"lng": 1, "lat": 1}, {"lng": 2, "lat": 2},
+                   {"lng": 1, "lat": 1}, {"lng": 0, "lat": 0}]}
+                  }
+            """;
+        String repeated = """
+                {"name": "point", "vertices": [
+                {"lng": 1, "lat": 1}, {"lng": 1, "lat": 1}, {"lng": 1, "lat": 1}, {"lng": 1, "lat": 1}]}
+            """;
+        mockMvc.perform(post("/api/v1/isInRegion")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(line))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("a region needs three distinct vertices not all on one line"));
+        mockMvc.perform(post("/api/v1/regions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(repeated))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testRegisteredRegion() throws Exception {
+        String region = """
+                {
+                   "name": "central",
+                   "vertices": [
+                   {"lng": -3.192473, "lat": 55.946233},
+                   {"lng": -3.192473, "lat": 55.942617},
+                   {"lng": -3.184319, "lat": 55.942617},
+                   {"lng": -3.184319, "lat": 55.946233},
+                   {"lng": -3.192473, "lat": 55.946233}
+                   ]
+                  }
+            """;
+        String response = mockMvc.perform(post("/api/v1/regions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(region))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id", notNullValue()))
+                .andReturn().getResponse().getContentAsString();
+        String id = JsonPath.read(response, "$.id");
+
+        mockMvc.perform(post("/api/v1/regions/" + id + "/isInRegion")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"position\": {\"lng\": -3.188, \"lat\": 55.944}}"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"isInRegion\": true}"));
+
+        mockMvc.perform(post("/api/v1/regions/" + id + "/batch/isInRegion")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"positions\": [{\"lng\": 1.234, \"lat\": 1.222}, {\"lng\": -3.188, \"lat\": 55.944}]}"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[false, true]"));
+
+        mockMvc.perform(delete("/api/v1/regions/" + id))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(post("/api/v1/regions/" + id + "/isInRegion")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"position\": {\"lng\": -3.188, \"lat\": 55.944}}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testRegionsContaining() throws Exception {
+        String square = """
+                {"name": "square", "vertices": [
+                {"lng": 10, "lat": 10}, {"lng": 12, "lat": 10}, {"lng": 12, "lat": 12},
+                {"lng": 10, "lat": 12}, {"lng": 10, "lat": 10}]}
+            """;
+        String triangle = """
+                {"name": "triangle", "vertices": [
+                {"lng": 11, "lat": 11}, {"lng": 14, "lat": 11}, {"lng": 11, "lat": 14},
+                {"lng": 11, "lat": 11}]}
+            """;
+        String squareId = JsonPath.read(mockMvc.perform(post("/api/v1/regions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(square))
+                .andReturn().getResponse().getContentAsString(), "$.id");
+        String triangleId = JsonPath.read(mockMvc.perform(post("/api/v1/regions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(triangle))
+                .andReturn().getResponse().getContentAsString(), "$.id");
+
+        mockMvc.perform(post("/api/v1/regions/containing")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"position\": {\"lng\": 11.5, \"lat\": 11.5}}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.regions", hasItems(squareId, triangleId)));
+        // other tests share the registry, so only these two regions are asserted on
+        mockMvc.perform(post("/api/v1/regions/containing")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"position\": {\"lng\": 13, \"lat\": 11.5}}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.regions", hasItem(triangleId)))
+                .andExpect(jsonPath("$.regions", not(hasItem(squareId))));
+    }
+
+    @Test
+    void testStreamIsInRegion() throws Exception {
+        String square = """
+                {"name": "square", "vertices": [
+                {"lng": 10, "lat": 10}, {"lng": 12, "lat": 10}, {"lng": 12, "lat": 12},
+                {"lng": 10, "lat": 12}, {"lng": 10, "lat": 10}]}
+            """;
+        String id = JsonPath.read(mockMvc.perform(post("/api/v1/regions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(square))
+                .andReturn().getResponse().getContentAsString(), "$.id");
+
+        mockMvc.perform(post("/api/v1/stream/isInRegion").param("region", id)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("""
+                                {"lng": 11, "lat": 11}
+                                {"lng": 13, "lat": 11, "droneId": "d1"}
+
+                                {"lng": 11.5, "lat": 10.5}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("""
+                        {"isInRegion":true}
+                        {"isInRegion":false}
+                        {"isInRegion":true}
+                        """));
+    }
+
+    @Test
+    void testStreamIsInRegionUnknownRegion() throws Exception {
+        mockMvc.perform(post("/api/v1/stream/isInRegion").param("region", "no-such-region")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"lng\": 11, \"lat\": 11}\n"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testStreamIsCloseToEndsWithErrorLine() throws Exception {
+        String response = mockMvc.perform(post("/api/v1/stream/isCloseTo")
+                        .param("lng", "-3.19").param("lat", "55.94")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("""
+                                {"lng": -3.19, "lat": 55.94001}
+                                {"lng": -3.18, "lat": 55.94}
+                                {"lng": -3.19}
+                                {"lng": -3.19, "lat": 55.94}
+                                """))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = response.split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("true", lines[0]);
+        assertEquals("false", lines[1]);
+        assertEquals("missing  position or lng or lat", JsonPath.read(lines[2], "$.message"));
+    }
+
+    @Test
+    void testStreamQueryParameterErrors() throws Exception {
+        mockMvc.perform(post("/api/v1/stream/isCloseTo")
+                        .param("lng", "-3.19")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"lng\": -3.19, \"lat\": 55.94}\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("missing  position or lng or lat"));
+        mockMvc.perform(post("/api/v1/stream/isCloseTo")
+                        .param("lng", "-3.19").param("lat", "north")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"lng\": -3.19, \"lat\": 55.94}\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("lng or lat type error "));
+        mockMvc.perform(post("/api/v1/stream/isInRegion")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"lng\": -3.19, \"lat\": 55.94}\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("missing  region"));
+    }
+
+    @Test
+    void testGeofenceSession() throws Exception {
+        String square = """
+                {"name": "square", "vertices": [
+                {"lng": 20, "lat": 20}, {"lng": 22, "lat": 20}, {"lng": 22, "lat": 22},
+                {"lng": 20, "lat": 22}, {"lng": 20, "lat": 20}]}
+            """;
+        String id = JsonPath.read(mockMvc.perform(post("/api/v1/regions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(square))
+                .andReturn().getResponse().getContentAsString(), "$.id");
+
+        mockMvc.perform(post("/api/v1/geofence/drones/d1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"position\": {\"lng\": 21, \"lat\": 21}}"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[{\"droneId\": \"d1\", \"event\": \"enter\", \"region\": \"" + id + "\"}]"));
+        mockMvc.perform(post("/api/v1/geofence/drones/d1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"position\": {\"lng\": 21.5, \"lat\": 21}}"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[]"));
+        mockMvc.perform(get("/api/v1/geofence/drones/d1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.position.lng", is(21.5)))
+                .andExpect(jsonPath("$.regions", contains(id)));
+
+        mockMvc.perform(delete("/api/v1/geofence/drones/d1"))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/v1/geofence/drones/d1"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testStreamGeofence() throws Exception {
+        String square = """
+                {"name": "square", "vertices": [
+                {"lng": 30, "lat": 30}, {"lng": 32, "lat": 30}, {"lng": 32, "lat": 32},
+                {"lng": 30, "lat": 32}, {"lng": 30, "lat": 30}]}
+            """;
+        String id = JsonPath.read(mockMvc.perform(post("/api/v1/regions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(square))
+                .andReturn().getResponse().getContentAsString(), "$.id");
+
+        String response = mockMvc.perform(post("/api/v1/stream/geofence")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("""
+                                {"droneId": "s1", "lng": 29, "lat": 31}
+                                {"droneId": "s2", "lng": 31, "lat": 31}
+                                {"droneId": "s1", "lng": 30.5, "lat": 31}
+                                {"droneId": "s2", "lng": 31.5, "lat": 31}
+                                {"droneId": "s2", "lng": 33, "lat": 31}
+                                {"lng": 33, "lat": 31}
+                                """))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = response.split("\n");
+        assertEquals(4, lines.length);
+        assertEquals(List.of("s2", "enter", id), List.of(JsonPath.read(lines[0], "$.droneId"),
+                JsonPath.read(lines[0], "$.event"), JsonPath.read(lines[0], "$.region")));
+        assertEquals(List.of("s1", "enter"), List.of(JsonPath.read(lines[1], "$.droneId"),
+                JsonPath.read(lines[1], "$.event")));
+        assertEquals(List.of("s2", "exit"), List.of(JsonPath.read(lines[2], "$.droneId"),
+                JsonPath.read(lines[2], "$.event")));
+        assertEquals("missing droneId", JsonPath.read(lines[3], "$.message"));
+    }
+
+    @Test
+    void testPathAroundNoFlyZone() throws Exception {
+        String wall = """
+                {"name": "wall", "vertices": [
+                {"lng": -3.1800, "lat": 55.9430}, {"lng": -3.1795, "lat": 55.9430},
+                {"lng": -3.1795, "lat": 55.9460}, {"lng": -3.1800, "lat": 55.9460},
+                {"lng": -3.1800, "lat": 55.9430}]}
+            """;
+        String wallId = JsonPath.read(mockMvc.perform(post("/api/v1/regions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(wall))
+                .andReturn().getResponse().getContentAsString(), "$.id");
+        String body = """
+                {
+                  "from": {"lng": -3.1830, "lat": 55.9445},
+                  "to": {"lng": -3.1765, "lat": 55.9445},
+                  "noFlyZones": ["%s"]
+                }
+            """.formatted(wallId);
+
+        String response = mockMvc.perform(post("/api/v1/path")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<Double> lats = JsonPath.read(response, "$.path[*].lat");
+        List<Double> angles = JsonPath.read(response, "$.angles");
+        assertEquals(lats.size(), angles.size() + 1);
+        // the straight line is blocked, so the flight must leave the wall's latitude band
+        assertTrue(lats.stream().anyMatch(lat -> lat > 55.9460 || lat < 55.9430));
+    }
+
+    @Test
+    void testPathAvoidsRegisteredNoFlyZones() throws Exception {
+        // far from the other tests' regions, which are not no-fly zones and are not avoided
+        String wall = """
+                {"name": "wall", "vertices": [
+                {"lng": -3.2800, "lat": 55.9430}, {"lng": -3.2795, "lat": 55.9430},
+                {"lng": -3.2795, "lat": 55.9460}, {"lng": -3.2800, "lat": 55.9460},
+                {"lng": -3.2800, "lat": 55.9430}]}
+            """;
+        mockMvc.perform(post("/api/v1/regions?noFly=maybe")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(wall))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("noFly must be true or false"));
+        mockMvc.perform(post("/api/v1/regions?noFly=true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(wall))
+                .andExpect(status().isCreated());
+        String body = """
+                {"from": {"lng": -3.2830, "lat": 55.9445}, "to": {"lng": -3.2765, "lat": 55.9445}}
+            """;
+
+        String response = mockMvc.perform(post("/api/v1/path")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<Double> lats = JsonPath.read(response, "$.path[*].lat");
+        assertTrue(lats.stream().anyMatch(lat -> lat > 55.9460 || lat < 55.9430));
+    }
+
+    @Test
+    void testPathCheckFindsClippedCorner() throws Exception {
+        String triangle = """
+                {"name": "triangle", "vertices": [
+                {"lng": -3.190, "lat": 55.950}, {"lng": -3.189, "lat": 55.950},
+                {"lng": -3.190, "lat": 55.951}, {"lng": -3.190, "lat": 55.950}]}
+            """;
+        String id = JsonPath.read(mockMvc.perform(post("/api/v1/regions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(triangle))
+                .andReturn().getResponse().getContentAsString(), "$.id");
+        // move 1 has both ends outside the triangle but cuts across its bottom edge
+        String body = """
+                {
+                  "paths": [
+                    [{"lng": -3.1900, "lat": 55.9490}, {"lng": -3.1895, "lat": 55.9498},
+                     {"lng": -3.1888, "lat": 55.9503}, {"lng": -3.1880, "lat": 55.9510}],
+                    {"lng": [-3.19, -3.18], "lat": [55.949, 55.949]}
+                  ],
+                  "noFlyZones": ["%s"]
+                }
+            """.formatted(id);
+
+        mockMvc.perform(post("/api/v1/path/check")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].legal").value(false))
+                .andExpect(jsonPath("$[0].move").value(1))
+                .andExpect(jsonPath("$[0].from.lng").value(-3.1895))
+                .andExpect(jsonPath("$[0].noFlyZone").value(id))
+                .andExpect(jsonPath("$[1].legal").value(true))
+                .andExpect(jsonPath("$[1].move").doesNotExist());
+    }
+
+    @Test
+    void testPathCheckRejectsSinglePositions() throws Exception {
+        mockMvc.perform(post("/api/v1/path/check")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"paths\": [[{\"lng\": -3.19, \"lat\": 55.94}]]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("every path needs at least two positions"));
+    }
+
+    @Test
+    void testPathUnknownNoFlyZone() throws Exception {
+        String body = """
+                {
+                  "from": {"lng": -3.1830, "lat": 55.9445},
+                  "to": {"lng": -3.1765, "lat": 55.9445},
+                  "noFlyZones": ["no-such-region"]
+                }
+            """;
+        mockMvc.perform(post("/api/v1/path")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testSchedule() throws Exception {
+        String body = """
+                {
+                  "deliveries": [
+                    {"id": "a", "location": {"lng": -3.1880, "lat": 55.9440}, "weight": 2},
+                    {"id": "b", "location": {"lng": -3.1860, "lat": 55.9440}, "weight": 2},
+                    {"id": "c", "location": {"lng": -3.1700, "lat": 55.9440}, "weight": 2}
+                  ],
+                  "drones": [
+                    {"id": "d1", "start": {"lng": -3.19, "lat": 55.944}, "capacity": 4, "maxMoves": 200}
+                  ]
+                }
+            """;
+        mockMvc.perform(post("/api/v1/schedule")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.routes", hasSize(1)))
+                .andExpect(jsonPath("$.routes[0].droneId").value("d1"))
+                .andExpect(jsonPath("$.routes[0].deliveries[0]").value("a"))
+                .andExpect(jsonPath("$.routes[0].deliveries[1]").value("b"))
+                .andExpect(jsonPath("$.unassigned[0]").value("c"));
+    }
+
+    @Test
+    void testScheduleValidation() throws Exception {
+        mockMvc.perform(post("/api/v1/schedule")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"deliveries\": []}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("missing deliveries or drones"));
+        mockMvc.perform(post("/api/v1/schedule")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"deliveries\": [{\"id\": \"a\", \"location\": {\"lng\": -3.18, \"lat\": 55.94},"
+                                + " \"weight\": -1}], \"drones\": []}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("weights, capacities, maxMoves and costs must be non-negative numbers"));
+    }
+
+    @Test
+    void testPathJobLifecycle() throws Exception {
+        String body = """
+                {
+                  "from": {"lng": -3.1830, "lat": 55.9445},
+                  "to": {"lng": -3.1765, "lat": 55.9445}
+                }
+            """;
+        String submitted = mockMvc.perform(post("/api/v1/jobs/path?deadlineMs=30000")
+                        .header("X-Tenant-Id", "t1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.tenant").value("t1"))
+                .andExpect(jsonPath("$.state").value("queued"))
+                .andReturn().getResponse().getContentAsString();
+        String id = JsonPath.read(submitted, "$.id");
+
+        String state = "queued";
+        for (int i = 0; i < 500 && (state.equals("queued") || state.equals("running")); i++) {
+            Thread.sleep(10);
+            state = JsonPath.read(mockMvc.perform(get("/api/v1/jobs/" + id))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString(), "$.state");
+        }
+        assertEquals("succeeded", state);
+        mockMvc.perform(get("/api/v1/jobs/" + id + "/result"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.path[0].lng").value(-3.1830));
+        mockMvc.perform(delete("/api/v1/jobs/" + id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("succeeded"));
+    }
+
+    @Test
+    void testJobRequestValidation() throws Exception {
+        mockMvc.perform(post("/api/v1/jobs/path?deadlineMs=soon")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"from\": {\"lng\": -3.18, \"lat\": 55.94}, \"to\": {\"lng\": -3.17, \"lat\": 55.94}}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("deadlineMs must be a positive whole number"));
+        mockMvc.perform(get("/api/v1/jobs/no-such-job/result"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("unknown or expired job id"));
+    }
+
+    @Test
+    void testSaturatedEndpointIsShed() throws Exception {
+        ConcurrencyLimit limit = admissionControl.limit("/api/v1/path");
+        int held = 0;
+        while (limit.tryAcquire())
+            held++;
+        // counted after the refused tryAcquire above; other tests may have been shed here too
+        double shed = meterRegistry.get("admission.requests")
+                .tag("uri", "/api/v1/path").tag("decision", "shed").functionCounter().count();
+        try {
+            mockMvc.perform(post("/api/v1/path")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"from\": {\"lng\": -3.18, \"lat\": 55.94}, \"to\": {\"lng\": -3.17, \"lat\": 55.94}}"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "1"))
+                    .andExpect(jsonPath("$.message").value("too many concurrent requests, retry later"));
+            // other endpoints have limits of their own
+            mockMvc.perform(post("/api/v1/distanceTo")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"position1\": {\"lng\": -3.18, \"lat\": 55.94}, \"position2\": {\"lng\": -3.17, \"lat\": 55.94}}"))
+                    .andExpect(status().isOk());
+        } finally {
+            for (int i = 0; i < held; i++) {
+                limit.release(1_000_000);
+            }
+        }
+        assertEquals(shed + 1, meterRegistry.get("admission.requests")
+                .tag("uri", "/api/v1/path").tag("decision", "shed").functionCounter().count());
+    }
+
     @Test
     void testIndex() throws Exception {
         mockMvc.perform(get("/api/v1/"))
@@ -575,4 +1343,80 @@ class AcpCw2ApplicationTests {
 
 
 
-}
\ No newline at end of file
+
+    @Test
+    void testNearestServicePoints() throws Exception {
+        when(referenceDataService.current()).thenReturn(new ReferenceData(1, Instant.now(), List.of(),
+                List.of(new ServicePoint("Appleton Tower", 1, new LngLat(-3.186874, 55.944494)),
+                        new ServicePoint("Ocean Terminal", 2, new LngLat(-3.17732, 55.981867))),
+                List.of(), null, List.of()));
+
+        mockMvc.perform(post("/api/v1/servicePoints/nearest")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"position\": {\"lng\": -3.18, \"lat\": 55.97}, \"k\": 2}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name", contains("Ocean Terminal", "Appleton Tower")))
+                .andExpect(jsonPath("$[0].location.lat").value(55.981867));
+        mockMvc.perform(post("/api/v1/servicePoints/within")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"position\": {\"lng\": -3.186874, \"lat\": 55.944}, \"distance\": 0.001}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].distance", closeTo(0.000494, 1e-9), Double.class));
+    }
+
+    @Test
+    void testServicePointQueryValidation() throws Exception {
+        mockMvc.perform(post("/api/v1/servicePoints/nearest")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"position\": {\"lng\": -3.18, \"lat\": 55.97}, \"k\": 0}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("k must be a positive whole number"));
+        mockMvc.perform(post("/api/v1/servicePoints/within")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"position\": {\"lng\": -3.18, \"lat\": 55.97}}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("missing or negative distance"));
+    }
+
+    @Test
+    void testQueryDrones() throws Exception {
+        when(referenceDataService.current()).thenReturn(new ReferenceData(1, Instant.now(),
+                List.of(new Drone("Drone 1", "1", new DroneCapability(true, false, 4.0, 2000, 0.01, 4.3, 6.5)),
+                        new Drone("Drone 2", "2", new DroneCapability(false, true, 8.0, 1000, 0.03, 2.6, 5.4))),
+                List.of(), List.of(), null,
+                List.of(new ServicePointDrones(1, List.of(new DroneAvailability("1", List.of(
+                        new AvailabilityWindow(DayOfWeek.MONDAY, LocalTime.of(9, 0), LocalTime.of(17, 0)))))))));
+
+        mockMvc.perform(post("/api/v1/drones/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"minCapacity\": 4, \"maxCostPerMove\": 0.05}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", contains("1", "2")));
+        mockMvc.perform(post("/api/v1/drones/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"cooling\": true, \"servicePointId\": 1, \"dayOfWeek\": \"monday\", \"time\": \"12:30\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", contains("1")));
+        mockMvc.perform(post("/api/v1/drones/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"heating\": true, \"dayOfWeek\": \"MONDAY\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    void testDroneQueryValidation() throws Exception {
+        mockMvc.perform(post("/api/v1/drones/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"cooling\": \"yes\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("cooling and heating must be true or false"));
+        mockMvc.perform(post("/api/v1/drones/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"dayOfWeek\": \"someday\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("dayOfWeek must be a day name and time a time of day such as 14:30"));
+    }
+}
@@ -0,0 +1,83 @@
+package uk.ac.ed.acp.cw2.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitTests {
+
+    private static final long MILLI = 1_000_000;
+
+    /** Runs {@code rounds} rounds of filling the limit and completing each request after {@code latency}. */
+    private static void drive(ConcurrencyLimit limit, int rounds, long latency) {
+        for (int round = 0; round < rounds; round++) {
+            int admitted = 0;
+            while (limit.tryAcquire())
+                admitted++;
+            for (int i = 0; i < admitted; i++) {
+                limit.release(latency);
+            }
+        }
+    }
+
+    @Test
+    void testShedsBeyondTheLimit() {
+        ConcurrencyLimit limit = new ConcurrencyLimit(2, 1, 10, 2.0, 0);
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        assertEquals(2, limit.inFlight());
+        limit.release(MILLI);
+        assertTrue(limit.tryAcquire());
+        assertEquals(3, limit.admittedCount());
+        assertEquals(1, limit.shedCount());
+    }
+
+    @Test
+    void testGrowsWhileLatencyHolds() {
+        ConcurrencyLimit limit = new ConcurrencyLimit(4, 1, 64, 2.0, 0);
+        drive(limit, 200, MILLI);
+        assertTrue(limit.limit() > 16, "limit " + limit.limit());
+        drive(limit, 2000, MILLI);
+        assertEquals(64, limit.limit());
+    }
+
+    @Test
+    void testBacksOffWhenLatencyRises() {
+        ConcurrencyLimit limit = new ConcurrencyLimit(32, 1, 64, 2.0, 0);
+        drive(limit, 1, MILLI);
+        int before = limit.limit();
+        drive(limit, 10, 10 * MILLI);
+        assertTrue(limit.limit() < before * 0.5, before + " -> " + limit.limit());
+        drive(limit, 200, 10 * MILLI);
+        assertEquals(1, limit.limit(), "never below the minimum");
+    }
+
+    @Test
+    void testFixedLimitIgnoresLatency() {
+        ConcurrencyLimit limit = ConcurrencyLimit.fixed(4);
+        drive(limit, 1, MILLI);
+        drive(limit, 50, 60_000 * MILLI);
+        assertEquals(4, limit.limit());
+        drive(limit, 500, MILLI);
+        assertEquals(4, limit.limit());
+    }
+
+    @Test
+    void testDoesNotGrowWhenIdle() {
+        ConcurrencyLimit limit = new ConcurrencyLimit(8, 1, 64, 2.0, 0);
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(MILLI);
+        }
+        assertEquals(8, limit.limit());
+    }
+
+    @Test
+    void testSlackAbsorbsNoiseOnFastEndpoints() {
+        ConcurrencyLimit limit = new ConcurrencyLimit(8, 1, 64, 2.0, 5 * MILLI);
+        drive(limit, 1, 10_000);
+        drive(limit, 50, 2 * MILLI);
+        assertTrue(limit.limit() > 8);
+    }
+}
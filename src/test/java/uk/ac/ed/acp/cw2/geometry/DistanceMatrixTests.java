@@ -0,0 +1,84 @@
+package uk.ac.ed.acp.cw2.geometry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistanceMatrixTests {
+
+    @Test
+    void testKernelsMatchGeometry() {
+        Random random = new Random(42);
+        for (DistanceMatrix matrix : new DistanceMatrix[]{DistanceMatrix.scalar(), DistanceMatrix.get()}) {
+            // sizes off the vector width, so rows end in a scalar tail and straddle bitset words
+            for (int[] size : new int[][]{{1, 1}, {3, 7}, {5, 61}, {17, 130}}) {
+                int rows = size[0];
+                int columns = size[1];
+                double[] fromLng = coordinates(random, rows, -3.19);
+                double[] fromLat = coordinates(random, rows, 55.94);
+                double[] toLng = coordinates(random, columns, -3.19);
+                double[] toLat = coordinates(random, columns, 55.94);
+                double[] distances = new double[rows * columns];
+                double[] squared = new double[rows * columns];
+                long[] bits = new long[DistanceMatrix.words(rows * columns)];
+                matrix.distances(fromLng, fromLat, toLng, toLat, distances);
+                matrix.squaredDistances(fromLng, fromLat, toLng, toLat, squared);
+                matrix.isClose(fromLng, fromLat, toLng, toLat, bits);
+
+                for (int i = 0; i < rows; i++) {
+                    for (int j = 0; j < columns; j++) {
+                        int k = i * columns + j;
+                        double distance = Geometry.distance(fromLng[i], fromLat[i], toLng[j], toLat[j]);
+                        String cell = matrix.name() + " " + rows + "x" + columns + " at " + i + "," + j;
+                        assertEquals(distance, distances[k], 0.0, cell);
+                        assertEquals(distance, Math.sqrt(squared[k]), 0.0, cell);
+                        assertEquals(Geometry.isClose(fromLng[i], fromLat[i], toLng[j], toLat[j]),
+                                (bits[k >>> 6] & 1L << k) != 0, cell);
+                    }
+                }
+                for (int k = rows * columns; k < bits.length * 64; k++) {
+                    assertEquals(0, bits[k >>> 6] & 1L << k, "bit past the matrix");
+                }
+            }
+        }
+    }
+
+    @Test
+    void testIsCloseAtTheThreshold() {
+        Random random = new Random(7);
+        double[] fromLng = new double[1];
+        double[] fromLat = new double[1];
+        double[] toLng = new double[9];
+        double[] toLat = new double[9];
+        long[] bits = new long[1];
+        for (int trial = 0; trial < 100_000; trial++) {
+            fromLng[0] = -3.19 + random.nextDouble() * 0.01;
+            fromLat[0] = 55.94 + random.nextDouble() * 0.01;
+            for (int j = 0; j < toLng.length; j++) {
+                double angle = random.nextDouble() * 2 * Math.PI;
+                double distance = Geometry.CLOSE_DISTANCE * (1 + (random.nextDouble() - 0.5) * 1e-12);
+                toLng[j] = fromLng[0] + distance * Math.cos(angle);
+                toLat[j] = fromLat[0] + distance * Math.sin(angle);
+            }
+            for (DistanceMatrix matrix : new DistanceMatrix[]{DistanceMatrix.scalar(), DistanceMatrix.get()}) {
+                bits[0] = 0;
+                matrix.isClose(fromLng, fromLat, toLng, toLat, bits);
+                for (int j = 0; j < toLng.length; j++) {
+                    assertEquals(Geometry.isClose(fromLng[0], fromLat[0], toLng[j], toLat[j]),
+                            (bits[0] & 1L << j) != 0, matrix.name());
+                }
+            }
+        }
+    }
+
+    private static double[] coordinates(Random random, int count, double origin) {
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            // a spread a few times CLOSE_DISTANCE, so both verdicts are common
+            values[i] = origin + random.nextDouble() * 4 * Geometry.CLOSE_DISTANCE;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,63 @@
+package uk.ac.ed.acp.cw2.geometry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KdTreeTests {
+
+    @Test
+    void testQueriesMatchLinearScan() {
+        Random random = new Random(42);
+        for (int size : new int[]{0, 1, 2, 7, 100, 2000}) {
+            double[] lng = new double[size];
+            double[] lat = new double[size];
+            for (int i = 0; i < size; i++) {
+                // a coarse grid, so duplicate positions and equal distances are common
+                lng[i] = -3.2 + random.nextInt(40) * 0.001;
+                lat[i] = 55.94 + random.nextInt(20) * 0.001;
+            }
+            KdTree tree = KdTree.build(lng, lat);
+            for (int query = 0; query < 500; query++) {
+                double qLng = -3.21 + random.nextDouble() * 0.06;
+                double qLat = 55.93 + random.nextDouble() * 0.04;
+                if (query % 3 == 0 && size > 0) {
+                    int on = random.nextInt(size);
+                    qLng = lng[on];
+                    qLat = lat[on];
+                }
+                int[] byDistance = linearScan(lng, lat, qLng, qLat);
+                int k = 1 + random.nextInt(12);
+                assertArrayEquals(IntStream.of(byDistance).limit(k).toArray(), tree.nearest(qLng, qLat, k),
+                        "nearest " + k + " of " + size);
+
+                double radius = random.nextInt(10) * 0.001;
+                double lngAt = qLng;
+                double latAt = qLat;
+                assertArrayEquals(IntStream.of(byDistance)
+                                .filter(i -> Geometry.distance(lngAt, latAt, lng[i], lat[i]) <= radius).toArray(),
+                        tree.within(qLng, qLat, radius), "within " + radius + " of " + size);
+            }
+        }
+    }
+
+    @Test
+    void testBuildDoesNotKeepTheInputArrays() {
+        double[] lng = {0, 1, 2};
+        double[] lat = {0, 0, 0};
+        KdTree tree = KdTree.build(lng, lat);
+        lng[0] = 5;
+        assertArrayEquals(new int[]{0}, tree.nearest(-1, 0, 1));
+    }
+
+    private static int[] linearScan(double[] lng, double[] lat, double qLng, double qLat) {
+        return IntStream.range(0, lng.length).boxed()
+                .sorted(Comparator.<Integer>comparingDouble(i -> Geometry.distance(qLng, qLat, lng[i], lat[i]))
+                        .thenComparingInt(i -> i))
+                .mapToInt(Integer::intValue).toArray();
+    }
+}
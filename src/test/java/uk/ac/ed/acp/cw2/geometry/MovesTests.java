@@ -0,0 +1,52 @@
+package uk.ac.ed.acp.cw2.geometry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MovesTests {
+
+    @Test
+    void testNextMatchesBigDecimalReference() {
+        Random random = new Random(42);
+        double[] fast = new double[2];
+        double[] exact = new double[2];
+        for (int i = 0; i < 200_000; i++) {
+            // positions as clients send them (six decimals) and arbitrary doubles
+            double lng = -3.3 + random.nextDouble() * 0.2;
+            double lat = 55.9 + random.nextDouble() * 0.1;
+            if (i % 2 == 0) {
+                lng = Math.round(lng * 1e6) / 1e6;
+                lat = Math.round(lat * 1e6) / 1e6;
+            }
+            double angle = i % 5 == 4 ? random.nextDouble() * 360 : random.nextInt(16) * Moves.DIRECTION_ANGLE;
+
+            Moves.next(lng, lat, angle, fast);
+            Moves.exactNext(lng, lat, angle, exact);
+            assertEquals(exact[0], fast[0], 0.0, "lng for " + lng + ", " + lat + " at " + angle);
+            assertEquals(exact[1], fast[1], 0.0, "lat for " + lng + ", " + lat + " at " + angle);
+        }
+    }
+
+    @Test
+    void testNextFallsBackOnHalfWayValues() {
+        double[] fast = new double[2];
+        double[] exact = new double[2];
+        // moving east from x.0000005 lands next to a HALF_UP tie
+        Moves.next(-3.1924735, 55.9462335, 0, fast);
+        Moves.exactNext(-3.1924735, 55.9462335, 0, exact);
+        assertArrayEquals(exact, fast);
+    }
+
+    @Test
+    void testDirectionIndex() {
+        assertEquals(0, Moves.directionIndex(0));
+        assertEquals(2, Moves.directionIndex(45));
+        assertEquals(15, Moves.directionIndex(337.5));
+        assertEquals(-1, Moves.directionIndex(360));
+        assertEquals(-1, Moves.directionIndex(10));
+        assertEquals(-1, Moves.directionIndex(-22.5));
+    }
+}
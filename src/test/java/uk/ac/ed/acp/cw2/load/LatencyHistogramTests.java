@@ -0,0 +1,42 @@
+package uk.ac.ed.acp.cw2.load;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTests {
+
+    @Test
+    void testBucketsCoverTheirValues() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long value = i < 1000 ? i : random.nextLong() >>> (1 + random.nextInt(63));
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(value <= LatencyHistogram.highestInBucket(bucket), "above bucket for " + value);
+            assertTrue(bucket == 0 || value > LatencyHistogram.highestInBucket(bucket - 1), "below bucket for " + value);
+        }
+    }
+
+    @Test
+    void testPercentilesWithinPrecision() {
+        Random random = new Random(7);
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            // a long-tailed spread from microseconds to seconds
+            values[i] = (long) (1000 * Math.exp(random.nextDouble() * 14));
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double quantile : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            long exact = values[(int) Math.ceil(quantile * values.length) - 1];
+            long reported = histogram.valueAt(quantile);
+            assertTrue(reported >= exact && reported <= exact * 1.008, quantile + ": " + reported + " vs " + exact);
+        }
+        assertEquals(values[values.length - 1], histogram.valueAt(1.0));
+        assertEquals(values.length, histogram.count());
+    }
+}
@@ -0,0 +1,322 @@
+package uk.ac.ed.acp.cw2.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import uk.ac.ed.acp.cw2.Application;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a JSONL request log ({@link ReplayRequest}) against the service and reports
+ * per-endpoint latency percentiles and error rates. Unless {@code --url} points at a
+ * running instance, the application is started in-process on a random port.
+ * <p>
+ * The log is replayed in one phase per level given, cycling through it as often as
+ * needed:
+ * <ul>
+ *     <li>{@code --concurrency=1,4,16,64} (the default) runs a closed loop of that many
+ *     clients, each sending its next request when the previous one returns;</li>
+ *     <li>{@code --rate=100,500,2000} runs an open loop, sending that many requests per
+ *     second whatever the response times. Latency is measured from when a request was
+ *     due, not when it went out, so a stalled server is not hidden by the client
+ *     falling behind.</li>
+ * </ul>
+ * Other options: {@code --log} (default {@code src/test/resources/load/requests.jsonl}),
+ * {@code --requests} per phase (default 5000), {@code --warmup} requests sent before
+ * the first phase and not recorded (default 1000) and {@code --report} (default
+ * {@code target/load-report.json}). Any other {@code --name=value} argument is passed
+ * to the application.
+ * <p>
+ * Run with {@code mvn -P load test-compile exec:exec -Dload.args="--rate=200,1000"}.
+ */
+public final class LoadReplay {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String[] QUANTILE_NAMES = {"p50", "p90", "p99", "p99.9"};
+
+    private final HttpClient httpClient;
+    private final URI baseUrl;
+    private final List<ReplayRequest> log;
+
+    private LoadReplay(HttpClient httpClient, URI baseUrl, List<ReplayRequest> log) {
+        this.httpClient = httpClient;
+        this.baseUrl = baseUrl;
+        this.log = log;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        List<String> applicationArgs = new ArrayList<>();
+        parseArguments(args, options, applicationArgs);
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, Object> report = run(options, applicationArgs, objectMapper);
+        writeReport(report, Path.of(options.getOrDefault("report", "target/load-report.json")), objectMapper);
+    }
+
+    /**
+     * Splits {@code --name=value} arguments into the harness's own options and the
+     * arguments for the application.
+     */
+    static void parseArguments(String[] args, Map<String, String> options, List<String> applicationArgs) {
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            String name = arg.startsWith("--") && equals > 2 ? arg.substring(2, equals) : "";
+            switch (name) {
+                case "url", "log", "rate", "concurrency", "requests", "warmup", "report" ->
+                        options.put(name, arg.substring(equals + 1));
+                default -> applicationArgs.add(arg);
+            }
+        }
+    }
+
+    /** Runs every phase, starting and stopping the application unless a url is given. */
+    static Map<String, Object> run(Map<String, String> options, List<String> applicationArgs,
+                                   ObjectMapper objectMapper) throws Exception {
+        Path logPath = Path.of(options.getOrDefault("log", "src/test/resources/load/requests.jsonl"));
+        List<ReplayRequest> log = ReplayRequest.read(logPath, objectMapper);
+        boolean openLoop = options.containsKey("rate");
+        int[] levels = levels(openLoop ? options.get("rate") : options.getOrDefault("concurrency", "1,4,16,64"));
+        int requests = Integer.parseInt(options.getOrDefault("requests", "5000"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "1000"));
+
+        ConfigurableApplicationContext application = null;
+        URI baseUrl;
+        if (options.containsKey("url")) {
+            baseUrl = URI.create(options.get("url"));
+        } else {
+            List<String> arguments = new ArrayList<>(applicationArgs);
+            arguments.add("--server.port=0");
+            application = new SpringApplicationBuilder(Application.class).run(arguments.toArray(String[]::new));
+            baseUrl = URI.create("http://localhost:" + application.getEnvironment().getProperty("local.server.port"));
+        }
+
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        try {
+            LoadReplay replay = new LoadReplay(httpClient, baseUrl, log);
+            if (warmup > 0)
+                replay.closedLoop(Math.min(4, levels[0]), warmup, null);
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("startedAt", Instant.now().toString());
+            report.put("target", baseUrl.toString());
+            report.put("log", logPath.toString());
+            report.put("applicationArgs", applicationArgs);
+            report.put("mode", openLoop ? "rate" : "concurrency");
+            List<Map<String, Object>> phases = new ArrayList<>();
+            for (int level : levels) {
+                Phase phase = new Phase();
+                long start = System.nanoTime();
+                if (openLoop)
+                    replay.openLoop(level, requests, phase);
+                else
+                    replay.closedLoop(level, requests, phase);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                phases.add(phase.report(openLoop ? "rate" : "concurrency", level, seconds));
+                phase.print(openLoop ? "rate " + level + "/s" : "concurrency " + level, seconds);
+            }
+            report.put("phases", phases);
+            return report;
+        } finally {
+            httpClient.close();
+            if (application != null)
+                application.close();
+        }
+    }
+
+    static void writeReport(Object report, Path path, ObjectMapper objectMapper) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null)
+            Files.createDirectories(parent);
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(path.toFile(), report);
+        System.out.println("Report written to " + path.toAbsolutePath());
+    }
+
+    /** {@code clients} virtual threads, each sending a request as soon as its last one returns. */
+    private void closedLoop(int clients, int requests, Phase phase) throws InterruptedException {
+        AtomicLong next = new AtomicLong();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int client = 0; client < clients; client++) {
+                executor.execute(() -> {
+                    for (long i = next.getAndIncrement(); i < requests; i = next.getAndIncrement()) {
+                        ReplayRequest request = log.get((int) (i % log.size()));
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = httpClient.send(toHttpRequest(request),
+                                    HttpResponse.BodyHandlers.discarding());
+                            if (phase != null)
+                                phase.record(request, response.statusCode(), System.nanoTime() - start);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        } catch (Exception e) {
+                            if (phase != null)
+                                phase.failure(request, System.nanoTime() - start);
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    /** Sends {@code rate} requests per second on schedule, without waiting for responses. */
+    private void openLoop(int rate, int requests, Phase phase) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(requests);
+        double interval = 1e9 / rate;
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            long due = start + (long) (i * interval);
+            for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            ReplayRequest request = log.get(i % log.size());
+            httpClient.sendAsync(toHttpRequest(request), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        if (failure == null)
+                            phase.record(request, response.statusCode(), System.nanoTime() - due);
+                        else
+                            phase.failure(request, System.nanoTime() - due);
+                        done.countDown();
+                    });
+        }
+        if (!done.await(REQUEST_TIMEOUT.toSeconds() + 5, TimeUnit.SECONDS))
+            System.err.println(done.getCount() + " requests still outstanding at rate " + rate);
+    }
+
+    private HttpRequest toHttpRequest(ReplayRequest request) {
+        HttpRequest.BodyPublisher body = request.body() == null
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofByteArray(request.body());
+        HttpRequest.Builder builder = HttpRequest.newBuilder(baseUrl.resolve(request.path()))
+                .timeout(REQUEST_TIMEOUT)
+                .method(request.method(), body);
+        if (request.body() != null)
+            builder.header("Content-Type", "application/json");
+        return builder.build();
+    }
+
+    private static int[] levels(String list) {
+        int[] levels = Arrays.stream(list.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+        if (levels.length == 0 || Arrays.stream(levels).anyMatch(level -> level <= 0))
+            throw new IllegalArgumentException("levels must be positive: " + list);
+        return levels;
+    }
+
+    /** Results of one phase, per endpoint and overall. */
+    private static final class Phase {
+
+        private final Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+        private final EndpointStats all = new EndpointStats();
+
+        void record(ReplayRequest request, int status, long nanos) {
+            boolean error = request.isError(status);
+            all.record(status, error, nanos);
+            endpoints.computeIfAbsent(request.endpoint(), endpoint -> new EndpointStats()).record(status, error, nanos);
+        }
+
+        void failure(ReplayRequest request, long nanos) {
+            all.failure(nanos);
+            endpoints.computeIfAbsent(request.endpoint(), endpoint -> new EndpointStats()).failure(nanos);
+        }
+
+        Map<String, Object> report(String levelName, int level, double seconds) {
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put(levelName, level);
+            report.put("durationSeconds", seconds);
+            report.put("throughput", all.histogram.count() / seconds);
+            report.put("all", all.report());
+            Map<String, Object> byEndpoint = new TreeMap<>();
+            endpoints.forEach((endpoint, stats) -> byEndpoint.put(endpoint, stats.report()));
+            report.put("endpoints", byEndpoint);
+            return report;
+        }
+
+        void print(String title, double seconds) {
+            System.out.printf(Locale.ROOT, "%n%s: %d requests in %.1f s (%.0f/s)%n",
+                    title, all.histogram.count(), seconds, all.histogram.count() / seconds);
+            System.out.printf(Locale.ROOT, "%-40s %8s %7s %9s %9s %9s %9s%n",
+                    "endpoint", "count", "errors", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+            new TreeMap<>(endpoints).forEach((endpoint, stats) -> stats.print(endpoint));
+            all.print("all");
+        }
+    }
+
+    private static final class EndpointStats {
+
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        void record(int status, boolean error, long nanos) {
+            histogram.record(nanos);
+            statuses.computeIfAbsent(status, code -> new LongAdder()).increment();
+            if (error)
+                errors.increment();
+        }
+
+        /** A request that got no response at all; counted as an error. */
+        void failure(long nanos) {
+            histogram.record(nanos);
+            failures.increment();
+            errors.increment();
+        }
+
+        Map<String, Object> report() {
+            long count = histogram.count();
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("count", count);
+            report.put("errors", errors.sum());
+            report.put("errorRate", count == 0 ? 0.0 : (double) errors.sum() / count);
+            report.put("failures", failures.sum());
+            Map<String, Long> statusCounts = new TreeMap<>();
+            statuses.forEach((status, counter) -> statusCounts.put(String.valueOf(status), counter.sum()));
+            report.put("statuses", statusCounts);
+            Map<String, Double> latency = new LinkedHashMap<>();
+            for (int i = 0; i < QUANTILES.length; i++) {
+                latency.put(QUANTILE_NAMES[i], millis(histogram.valueAt(QUANTILES[i])));
+            }
+            latency.put("max", millis(histogram.max()));
+            latency.put("mean", histogram.mean() / 1e6);
+            report.put("latencyMs", latency);
+            return report;
+        }
+
+        void print(String endpoint) {
+            System.out.printf(Locale.ROOT, "%-40s %8d %7d %9.3f %9.3f %9.3f %9.3f%n", endpoint,
+                    histogram.count(), errors.sum(), millis(histogram.valueAt(0.5)),
+                    millis(histogram.valueAt(0.99)), millis(histogram.valueAt(0.999)), millis(histogram.max()));
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package uk.ac.ed.acp.cw2.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One line of a request log:
+ * <pre>
+ * {"endpoint": "distanceTo", "method": "POST", "path": "/api/v1/distanceTo",
+ *  "body": {...}, "expectedStatus": 200}
+ * </pre>
+ * Only {@code path} is required. The endpoint defaults to the method and path and
+ * names the line's bucket in the report. Without an expected status any 4xx or 5xx
+ * response counts as an error.
+ */
+record ReplayRequest(String endpoint, String method, String path, byte[] body, int expectedStatus) {
+
+    boolean isError(int status) {
+        return expectedStatus > 0 ? status != expectedStatus : status >= 400;
+    }
+
+    static List<ReplayRequest> read(Path log, ObjectMapper objectMapper) throws IOException {
+        List<ReplayRequest> requests = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(log, StandardCharsets.UTF_8)) {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                if (line.isBlank())
+                    continue;
+                JsonNode node = objectMapper.readTree(line);
+                String path = node.path("path").asText(null);
+                if (path == null)
+                    throw new IllegalArgumentException(log + ":" + number + ": missing path");
+                String method = node.path("method").asText("GET").toUpperCase();
+                JsonNode bodyNode = node.get("body");
+                byte[] body = bodyNode == null || bodyNode.isNull() ? null
+                        : bodyNode.isTextual() ? bodyNode.asText().getBytes(StandardCharsets.UTF_8)
+                        : objectMapper.writeValueAsBytes(bodyNode);
+                String endpoint = node.path("endpoint").asText(method + " " + path);
+                requests.add(new ReplayRequest(endpoint, method, path, body, node.path("expectedStatus").asInt(0)));
+            }
+        }
+        if (requests.isEmpty())
+            throw new IllegalArgumentException(log + " has no requests");
+        return requests;
+    }
+}
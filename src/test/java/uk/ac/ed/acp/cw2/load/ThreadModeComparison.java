@@ -0,0 +1,89 @@
+package uk.ac.ed.acp.cw2.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Replays the same log against two fresh instances, one on Tomcat's platform thread
+ * pool and one with {@code spring.threads.virtual.enabled}. The two reports
+ * go to {@code target/thread-mode-report.json} with a per-level summary of
+ * throughput and tail latency side by side.
+ * <p>
+ * Takes the {@link LoadReplay} options, except {@code --url}, and defaults to high
+ * concurrency: {@code --concurrency=64,256,1024}. Other arguments go to both
+ * instances, e.g. {@code --server.tomcat.threads.max=50} to make the platform pool
+ * the bottleneck. Run with
+ * {@code mvn -P load test-compile exec:exec -Dload.main=uk.ac.ed.acp.cw2.load.ThreadModeComparison}.
+ */
+public final class ThreadModeComparison {
+
+    private ThreadModeComparison() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        List<String> applicationArgs = new ArrayList<>();
+        LoadReplay.parseArguments(args, options, applicationArgs);
+        if (options.remove("url") != null)
+            System.err.println("--url ignored: both instances are started here");
+        if (!options.containsKey("rate"))
+            options.putIfAbsent("concurrency", "64,256,1024");
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        Map<String, Map<String, Object>> reports = new LinkedHashMap<>();
+        for (boolean virtual : new boolean[]{false, true}) {
+            String mode = virtual ? "virtual" : "platform";
+            System.out.println("\n=== " + mode + " threads ===");
+            List<String> arguments = new ArrayList<>(applicationArgs);
+            arguments.add("--spring.threads.virtual.enabled=" + virtual);
+            reports.put(mode, LoadReplay.run(options, arguments, objectMapper));
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("summary", summary(reports.get("platform"), reports.get("virtual")));
+        report.putAll(reports);
+        LoadReplay.writeReport(report,
+                Path.of(options.getOrDefault("report", "target/thread-mode-report.json")), objectMapper);
+    }
+
+    /** One row per level: throughput and p99/p99.9 of all requests in each mode. */
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> summary(Map<String, Object> platform, Map<String, Object> virtual) {
+        List<Map<String, Object>> platformPhases = (List<Map<String, Object>>) platform.get("phases");
+        List<Map<String, Object>> virtualPhases = (List<Map<String, Object>>) virtual.get("phases");
+        String levelName = (String) platform.get("mode");
+        System.out.printf(Locale.ROOT, "%n%-12s %14s %14s %12s %12s %14s %14s%n", levelName,
+                "platform req/s", "virtual req/s", "platform p99", "virtual p99", "platform p99.9", "virtual p99.9");
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < platformPhases.size(); i++) {
+            Map<String, Object> p = platformPhases.get(i);
+            Map<String, Object> v = virtualPhases.get(i);
+            Map<String, Double> pLatency = latency(p);
+            Map<String, Double> vLatency = latency(v);
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put(levelName, p.get(levelName));
+            row.put("platformThroughput", p.get("throughput"));
+            row.put("virtualThroughput", v.get("throughput"));
+            row.put("platformP99Ms", pLatency.get("p99"));
+            row.put("virtualP99Ms", vLatency.get("p99"));
+            row.put("platformP999Ms", pLatency.get("p99.9"));
+            row.put("virtualP999Ms", vLatency.get("p99.9"));
+            rows.add(row);
+            System.out.printf(Locale.ROOT, "%-12s %14.0f %14.0f %12.3f %12.3f %14.3f %14.3f%n", p.get(levelName),
+                    (Double) p.get("throughput"), (Double) v.get("throughput"),
+                    pLatency.get("p99"), vLatency.get("p99"), pLatency.get("p99.9"), vLatency.get("p99.9"));
+        }
+        return rows;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Double> latency(Map<String, Object> phase) {
+        return (Map<String, Double>) ((Map<String, Object>) phase.get("all")).get("latencyMs");
+    }
+}
@@ -0,0 +1,126 @@
+package uk.ac.ed.acp.cw2.planner;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.dto.FlightPath;
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.geometry.GridIndex;
+import uk.ac.ed.acp.cw2.geometry.Moves;
+import uk.ac.ed.acp.cw2.geometry.Polygon;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CostToGoFieldTests {
+
+    private static final LngLat TARGET = new LngLat(-3.186874, 55.944494);
+    private static final double RADIUS = 0.01;
+    private static final GridIndex NO_ZONES = GridIndex.build(new Polygon[0]);
+
+    // a wall a little east of the target, crossing the straight line to it from the east
+    private static final Polygon WALL = rectangle(TARGET.lng() + 0.002, TARGET.lat() - 0.003,
+            TARGET.lng() + 0.0025, TARGET.lat() + 0.003);
+    private static final Polygon BLOCK = rectangle(TARGET.lng() - 0.004, TARGET.lat() + 0.001,
+            TARGET.lng() - 0.003, TARGET.lat() + 0.002);
+
+    private final PathPlanner planner = new PathPlanner(2_000_000);
+
+    private static Polygon rectangle(double minLng, double minLat, double maxLng, double maxLat) {
+        return Polygon.compile(List.of(new LngLat(minLng, minLat), new LngLat(maxLng, minLat),
+                new LngLat(maxLng, maxLat), new LngLat(minLng, maxLat), new LngLat(minLng, minLat)));
+    }
+
+    private static LngLat around(double degrees, int steps) {
+        double angle = Math.toRadians(degrees);
+        return new LngLat(TARGET.lng() + Math.cos(angle) * steps * Moves.STEP,
+                TARGET.lat() + Math.sin(angle) * steps * Moves.STEP);
+    }
+
+    @Test
+    void testOpenSkyCountsMatchPlannedPaths() {
+        CostToGoField field = CostToGoField.build(TARGET, RADIUS, NO_ZONES);
+
+        assertEquals(0, field.moves(TARGET.lng(), TARGET.lat()));
+        assertTrue(field.targets(TARGET.lng(), TARGET.lat()));
+        assertEquals(-1, field.moves(TARGET.lng() + 2 * RADIUS, TARGET.lat()));
+        for (double degrees = 0; degrees < 360; degrees += 25) {
+            LngLat from = around(degrees, 40);
+            int planned = planner.plan(from, TARGET, NO_ZONES).moves();
+            assertEquals(planned, field.moves(from.lng(), from.lat()), 2, "at " + degrees + " degrees");
+        }
+    }
+
+    @Test
+    void testCountsGoAroundZones() {
+        GridIndex zones = GridIndex.build(new Polygon[]{WALL});
+        CostToGoField open = CostToGoField.build(TARGET, RADIUS, NO_ZONES);
+        CostToGoField walled = CostToGoField.build(TARGET, RADIUS, zones);
+        LngLat behind = around(0, 30);
+
+        int planned = planner.plan(behind, TARGET, zones).moves();
+        int counted = walled.moves(behind.lng(), behind.lat());
+        assertTrue(counted > open.moves(behind.lng(), behind.lat()) + 5);
+        assertEquals(planned, counted, 3);
+        assertEquals(-1, walled.moves(TARGET.lng() + 0.00225, TARGET.lat()));
+    }
+
+    @Test
+    void testUpdateMatchesAFullBuild() {
+        GridIndex wall = GridIndex.build(new Polygon[]{WALL});
+        GridIndex both = GridIndex.build(new Polygon[]{WALL, BLOCK});
+        CostToGoField open = CostToGoField.build(TARGET, RADIUS, NO_ZONES);
+
+        CostToGoField added = open.update(wall, List.of(WALL), List.of());
+        CostToGoField more = added.update(both, List.of(BLOCK), List.of());
+        CostToGoField removed = more.update(NO_ZONES, List.of(), List.of(WALL, BLOCK));
+        assertAgree(CostToGoField.build(TARGET, RADIUS, wall), added);
+        assertAgree(CostToGoField.build(TARGET, RADIUS, both), more);
+        assertAgree(open, removed);
+        // updating leaves the original as it was
+        assertEquals(open.moves(around(0, 30).lng(), around(0, 30).lat()),
+                CostToGoField.build(TARGET, RADIUS, NO_ZONES).moves(around(0, 30).lng(), around(0, 30).lat()));
+    }
+
+    private void assertAgree(CostToGoField expected, CostToGoField actual) {
+        assertEquals(expected.reached(), actual.reached());
+        for (int i = -60; i <= 60; i += 3) {
+            for (int j = -60; j <= 60; j += 3) {
+                double lng = TARGET.lng() + i * Moves.STEP;
+                double lat = TARGET.lat() + j * Moves.STEP;
+                int want = expected.moves(lng, lat);
+                int got = actual.moves(lng, lat);
+                assertEquals(want < 0, got < 0, "at " + i + ", " + j);
+                assertEquals(want, got, 1, "at " + i + ", " + j);
+            }
+        }
+    }
+
+    @Test
+    void testGuidedPlanningStaysShortAndEndsClose() {
+        GridIndex zones = GridIndex.build(new Polygon[]{WALL, BLOCK});
+        CostToGoField[] fields = {CostToGoField.build(TARGET, RADIUS, zones)};
+        for (double degrees = 0; degrees < 360; degrees += 45) {
+            LngLat from = around(degrees, 45);
+            FlightPath plain = planner.plan(from, TARGET, zones);
+            FlightPath guided = planner.plan(from, TARGET, zones, fields);
+
+            assertNotNull(guided);
+            assertEquals(plain.moves(), guided.moves(), 2, "at " + degrees + " degrees");
+            LngLat end = guided.path().get(guided.path().size() - 1);
+            assertTrue(Math.hypot(end.lng() - TARGET.lng(), end.lat() - TARGET.lat()) < Moves.STEP);
+            assertEquals(from, guided.path().get(0));
+        }
+    }
+
+    @Test
+    void testTargetInsideAZoneReachesNothing() {
+        Polygon around = rectangle(TARGET.lng() - 0.001, TARGET.lat() - 0.001,
+                TARGET.lng() + 0.001, TARGET.lat() + 0.001);
+        CostToGoField field = CostToGoField.build(TARGET, RADIUS, GridIndex.build(new Polygon[]{around}));
+
+        assertEquals(0, field.reached());
+        assertEquals(-1, field.moves(TARGET.lng() + 0.005, TARGET.lat()));
+        CostToGoField cleared = field.update(NO_ZONES, List.of(), List.of(around));
+        assertEquals(CostToGoField.build(TARGET, RADIUS, NO_ZONES).reached(), cleared.reached());
+    }
+}
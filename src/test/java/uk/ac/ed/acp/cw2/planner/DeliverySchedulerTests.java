@@ -0,0 +1,166 @@
+package uk.ac.ed.acp.cw2.planner;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.dto.CandidateDrone;
+import uk.ac.ed.acp.cw2.dto.Delivery;
+import uk.ac.ed.acp.cw2.dto.DroneRoute;
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.dto.Schedule;
+import uk.ac.ed.acp.cw2.dto.ScheduleRequest;
+import uk.ac.ed.acp.cw2.geometry.Moves;
+import uk.ac.ed.acp.cw2.parser.ApiError;
+import uk.ac.ed.acp.cw2.parser.InvalidRequestException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeliverySchedulerTests {
+
+    private static final LngLat BASE = new LngLat(-3.1869, 55.9445);
+
+    private final List<DeliveryScheduler> schedulers = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        schedulers.forEach(DeliveryScheduler::shutdown);
+    }
+
+    private DeliveryScheduler scheduler(int parallelism) {
+        DeliveryScheduler scheduler = new DeliveryScheduler(1000, 200, parallelism);
+        schedulers.add(scheduler);
+        return scheduler;
+    }
+
+    /** A delivery {@code steps} moves east of the base. */
+    private static Delivery east(String id, int steps, double weight) {
+        return new Delivery(id, new LngLat(BASE.lng() + steps * Moves.STEP, BASE.lat()), weight);
+    }
+
+    private static CandidateDrone drone(String id, double capacity, int maxMoves, double costPerMove) {
+        return new CandidateDrone(id, BASE, capacity, maxMoves, costPerMove, 0, 0);
+    }
+
+    @Test
+    void testOneDroneVisitsStopsInLineOrder() {
+        ScheduleRequest request = new ScheduleRequest(
+                List.of(east("c", 30, 0), east("a", 10, 0), east("b", 20, 0)),
+                List.of(drone("d", Double.POSITIVE_INFINITY, Integer.MAX_VALUE, 1)));
+        Schedule schedule = scheduler(2).schedule(request);
+
+        assertEquals(1, schedule.routes().size());
+        DroneRoute route = schedule.routes().get(0);
+        assertEquals(List.of("a", "b", "c"), route.deliveries());
+        // out to each stop in turn, ending each leg one step short, then home
+        assertEquals(10 + 10 + 10 + 30, route.moves());
+        assertEquals(60.0, route.cost());
+        assertEquals(List.of(), schedule.unassigned());
+        assertEquals(60, schedule.moves());
+    }
+
+    @Test
+    void testCapacitySplitsDeliveriesAcrossDrones() {
+        ScheduleRequest request = new ScheduleRequest(
+                List.of(east("a", 10, 1), east("b", 12, 1), east("c", 14, 1), east("d", 16, 1)),
+                List.of(drone("x", 2, Integer.MAX_VALUE, 1), drone("y", 2, Integer.MAX_VALUE, 1),
+                        drone("z", 2, Integer.MAX_VALUE, 1)));
+        Schedule schedule = scheduler(4).schedule(request);
+
+        assertEquals(2, schedule.routes().size());
+        for (DroneRoute route : schedule.routes()) {
+            assertEquals(2, route.deliveries().size());
+        }
+        assertEquals(List.of(), schedule.unassigned());
+    }
+
+    @Test
+    void testDronesUntouchedByAChoiceKeepTheirTrips() {
+        LngLat west = new LngLat(BASE.lng() - 0.01, BASE.lat());
+        ScheduleRequest request = new ScheduleRequest(
+                List.of(east("e", 10, 1), new Delivery("w", new LngLat(west.lng() - 12 * Moves.STEP, west.lat()), 1)),
+                List.of(drone("d", 1, Integer.MAX_VALUE, 1), new CandidateDrone("v", west, 1, Integer.MAX_VALUE, 1, 0, 0)));
+        Schedule schedule = scheduler(2).schedule(request);
+
+        assertEquals(2, schedule.routes().size());
+        assertEquals(List.of("e"), schedule.routes().get(0).deliveries());
+        assertEquals(List.of("w"), schedule.routes().get(1).deliveries());
+        assertEquals(List.of(), schedule.unassigned());
+    }
+
+    @Test
+    void testMoveBudgetLeavesFarDeliveriesUnassigned() {
+        ScheduleRequest request = new ScheduleRequest(
+                List.of(east("near", 10, 0), east("far", 100, 0)),
+                List.of(drone("d", Double.POSITIVE_INFINITY, 50, 1)));
+        Schedule schedule = scheduler(2).schedule(request);
+
+        assertEquals(List.of("near"), schedule.routes().get(0).deliveries());
+        assertTrue(schedule.routes().get(0).moves() <= 50);
+        assertEquals(List.of("far"), schedule.unassigned());
+    }
+
+    @Test
+    void testCheaperDroneTakesTheWork() {
+        ScheduleRequest request = new ScheduleRequest(
+                List.of(east("a", 10, 0), east("b", 20, 0)),
+                List.of(drone("dear", Double.POSITIVE_INFINITY, Integer.MAX_VALUE, 2),
+                        drone("cheap", Double.POSITIVE_INFINITY, Integer.MAX_VALUE, 1)));
+        Schedule schedule = scheduler(2).schedule(request);
+
+        assertEquals(1, schedule.routes().size());
+        assertEquals("cheap", schedule.routes().get(0).droneId());
+    }
+
+    @Test
+    void testRoutesAreConsistentAndIndependentOfParallelism() {
+        Random random = new Random(7);
+        List<Delivery> deliveries = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            deliveries.add(new Delivery("o" + i, new LngLat(BASE.lng() + (random.nextDouble() - 0.5) * 0.02,
+                    BASE.lat() + (random.nextDouble() - 0.5) * 0.01), 1 + random.nextInt(3)));
+        }
+        List<CandidateDrone> drones = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            LngLat start = new LngLat(BASE.lng() + (i % 3) * 0.004, BASE.lat() + (i / 3) * 0.002);
+            drones.add(new CandidateDrone("d" + i, start, 12, 600, 0.01, 4.3, 6.5));
+        }
+        ScheduleRequest request = new ScheduleRequest(deliveries, drones);
+
+        Schedule sequential = scheduler(1).schedule(request);
+        Schedule parallel = scheduler(8).schedule(request);
+        assertEquals(sequential, parallel);
+
+        // every delivery is either routed once or left unassigned, and each route keeps to its drone's limits
+        Map<String, Delivery> byId = new HashMap<>();
+        deliveries.forEach(delivery -> byId.put(delivery.id(), delivery));
+        int seen = sequential.unassigned().size();
+        for (DroneRoute route : sequential.routes()) {
+            CandidateDrone drone = drones.stream().filter(d -> d.id().equals(route.droneId())).findFirst().orElseThrow();
+            double load = 0;
+            for (String id : route.deliveries()) {
+                load += byId.remove(id).weight();
+                seen++;
+            }
+            assertTrue(load <= drone.capacity());
+            assertTrue(route.moves() <= drone.maxMoves());
+            assertEquals(drone.cost(route.moves()), route.cost(), 1e-9);
+        }
+        assertEquals(deliveries.size(), seen);
+        assertTrue(sequential.routes().size() > 1);
+    }
+
+    @Test
+    void testTooLargeRequestsAreRefused() {
+        DeliveryScheduler scheduler = new DeliveryScheduler(1, 1, 1);
+        schedulers.add(scheduler);
+        ScheduleRequest request = new ScheduleRequest(List.of(east("a", 1, 0), east("b", 2, 0)),
+                List.of(drone("d", 1, 1, 1)));
+        InvalidRequestException e = assertThrows(InvalidRequestException.class, () -> scheduler.schedule(request));
+        assertEquals(ApiError.SCHEDULE_TOO_LARGE, e.error());
+    }
+}
@@ -0,0 +1,47 @@
+package uk.ac.ed.acp.cw2.planner;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.geometry.GridIndex;
+import uk.ac.ed.acp.cw2.geometry.Moves;
+import uk.ac.ed.acp.cw2.geometry.Polygon;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveMatrixTests {
+
+    @Test
+    void testLegsAlongACompassDirection() {
+        // 0.0015 east is ten steps; after nine the target is still exactly one step away, not close
+        MoveMatrix matrix = MoveMatrix.of(new double[] {-3.19, -3.1885, -3.19}, new double[] {55.94, 55.94, 55.94001});
+        assertEquals(10, matrix.moves(0, 1));
+        assertEquals(10, matrix.moves(1, 0));
+        assertEquals(0, matrix.moves(0, 2), "already close");
+        assertEquals(0, matrix.moves(1, 1));
+    }
+
+    @Test
+    void testOffCompassLegsTakeTheLatticeDetour() {
+        double distance = 100 * Moves.STEP;
+        double between = Math.toRadians(Moves.DIRECTION_ANGLE / 2);
+        int aligned = MoveMatrix.estimate(distance, distance, 0);
+        int worst = MoveMatrix.estimate(distance, distance * Math.cos(between), distance * Math.sin(between));
+        assertEquals(100, aligned);
+        assertEquals(101, worst);
+        assertEquals(worst, MoveMatrix.estimate(distance, -distance * Math.cos(between), -distance * Math.sin(between)));
+    }
+
+    @Test
+    void testMatchesPlannedPathsInOpenSky() {
+        PathPlanner planner = new PathPlanner(200_000);
+        GridIndex none = GridIndex.build(new Polygon[0]);
+        LngLat from = new LngLat(-3.1830, 55.9445);
+        for (int degrees = 0; degrees < 360; degrees += 13) {
+            double radians = Math.toRadians(degrees);
+            LngLat to = new LngLat(from.lng() + 0.004 * Math.cos(radians), from.lat() + 0.004 * Math.sin(radians));
+            MoveMatrix matrix = MoveMatrix.of(new double[] {from.lng(), to.lng()}, new double[] {from.lat(), to.lat()});
+            int planned = planner.plan(from, to, none).moves();
+            assertTrue(Math.abs(matrix.moves(0, 1) - planned) <= 1, degrees + "°: " + matrix.moves(0, 1) + " vs " + planned);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package uk.ac.ed.acp.cw2.planner;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.dto.FlightPath;
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.geometry.GridIndex;
+import uk.ac.ed.acp.cw2.geometry.Polygon;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathCacheTests {
+
+    private static final LngLat FROM = new LngLat(-3.1830, 55.9445);
+    private static final LngLat TO = new LngLat(-3.1790, 55.9445);
+
+    private final AtomicInteger builds = new AtomicInteger();
+
+    private Supplier<GridIndex> noZones() {
+        return () -> {
+            builds.incrementAndGet();
+            return GridIndex.build(new Polygon[0]);
+        };
+    }
+
+    @Test
+    void testRepeatRouteIsServedFromCache() {
+        PathCache cache = new PathCache(new PathPlanner(200_000), 10_000);
+        FlightPath first = cache.plan(FROM, TO, null, 1, noZones());
+        FlightPath second = cache.plan(new LngLat(FROM.lng(), FROM.lat()), new LngLat(TO.lng(), TO.lat()), null, 1,
+                noZones());
+
+        assertSame(first, second);
+        assertEquals(1, builds.get());
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+        assertEquals(first.path().size(), cache.weight());
+    }
+
+    @Test
+    void testNearbyEndpointsAndOtherZonesArePlannedAfresh() {
+        PathCache cache = new PathCache(new PathPlanner(200_000), 10_000);
+        cache.plan(FROM, TO, null, 1, noZones());
+        // a path must start exactly at its from, so a nearby one is planned and cached apart
+        LngLat nearbyFrom = new LngLat(FROM.lng() + 1e-8, FROM.lat());
+        FlightPath nearby = cache.plan(nearbyFrom, TO, null, 1, noZones());
+        cache.plan(FROM, TO, List.of("a"), 1, noZones());
+
+        assertEquals(FROM.lng() + 1e-8, nearby.path().get(0).lng());
+        assertEquals(0, cache.hitCount());
+        assertEquals(3, cache.missCount());
+        assertEquals(3, cache.size());
+        // both endpoints keep their own entry
+        assertSame(nearby, cache.plan(nearbyFrom, TO, null, 1, noZones()));
+        cache.plan(FROM, TO, null, 1, noZones());
+        assertEquals(2, cache.hitCount());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedByWeight() {
+        LngLat[] ends = {new LngLat(-3.1790, 55.9445), new LngLat(-3.1800, 55.9445), new LngLat(-3.1810, 55.9445)};
+        PathCache probe = new PathCache(new PathPlanner(200_000), 10_000);
+        long twoPaths = 0;
+        for (int i = 0; i < 2; i++) {
+            twoPaths += probe.plan(FROM, ends[i], null, 1, noZones()).path().size();
+        }
+
+        PathCache cache = new PathCache(new PathPlanner(200_000), twoPaths);
+        cache.plan(FROM, ends[0], null, 1, noZones());
+        cache.plan(FROM, ends[1], null, 1, noZones());
+        cache.plan(FROM, ends[0], null, 1, noZones());
+        cache.plan(FROM, ends[2], null, 1, noZones());
+
+        assertEquals(1, cache.evictionCount());
+        assertTrue(cache.weight() <= twoPaths);
+        long misses = cache.missCount();
+        cache.plan(FROM, ends[0], null, 1, noZones());
+        assertEquals(misses, cache.missCount(), "the recently used path survives");
+        cache.plan(FROM, ends[1], null, 1, noZones());
+        assertEquals(misses + 1, cache.missCount(), "the least recently used path was evicted");
+    }
+
+    @Test
+    void testNewRegionVersionInvalidates() {
+        PathCache cache = new PathCache(new PathPlanner(200_000), 10_000);
+        cache.plan(FROM, TO, null, 1, noZones());
+        cache.plan(FROM, TO, null, 2, noZones());
+        assertEquals(1, cache.invalidationCount());
+        assertEquals(2, cache.missCount());
+
+        // a request still holding the older snapshot neither reads nor replaces the cache
+        cache.plan(FROM, TO, null, 1, noZones());
+        assertEquals(3, cache.missCount());
+        cache.plan(FROM, TO, null, 2, noZones());
+        assertEquals(1, cache.hitCount());
+    }
+
+    @Test
+    void testZeroWeightDisablesCache() {
+        PathCache cache = new PathCache(new PathPlanner(200_000), 0);
+        cache.plan(FROM, TO, null, 1, noZones());
+        cache.plan(FROM, TO, null, 1, noZones());
+        assertEquals(0, cache.hitCount());
+        assertEquals(2, builds.get());
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,282 @@
+package uk.ac.ed.acp.cw2.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import uk.ac.ed.acp.cw2.controller.AdmissionControl;
+import uk.ac.ed.acp.cw2.controller.ApiErrorMetrics;
+import uk.ac.ed.acp.cw2.parser.RequestParser;
+import uk.ac.ed.acp.cw2.planner.DeliveryScheduler;
+import uk.ac.ed.acp.cw2.planner.PathCache;
+import uk.ac.ed.acp.cw2.planner.PathPlanner;
+import uk.ac.ed.acp.cw2.planner.PathService;
+import uk.ac.ed.acp.cw2.service.DroneRegistry;
+import uk.ac.ed.acp.cw2.service.GeofenceTracker;
+import uk.ac.ed.acp.cw2.service.JobService;
+import uk.ac.ed.acp.cw2.service.PathValidator;
+import uk.ac.ed.acp.cw2.service.ReferenceDataService;
+import uk.ac.ed.acp.cw2.service.RegionRegistry;
+import uk.ac.ed.acp.cw2.service.ServicePointIndex;
+
+import java.net.URL;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * The functional endpoints answer the same requests as the MVC controllers in
+ * {@code AcpCw2ApplicationTests}.
+ */
+class ReactiveApiTests {
+
+    private static final String SQUARE = """
+            {"name": "square", "vertices": [
+              {"lng": -3.19, "lat": 55.94}, {"lng": -3.18, "lat": 55.94}, {"lng": -3.18, "lat": 55.95},
+              {"lng": -3.19, "lat": 55.95}, {"lng": -3.19, "lat": 55.94}]}
+            """;
+
+    private WebTestClient client;
+    private JobService jobService;
+    private DeliveryScheduler scheduler;
+    private AdmissionControl admission;
+
+    @BeforeEach
+    void bindRoutes() throws Exception {
+        RequestParser parser = new RequestParser(new ObjectMapper());
+        RegionRegistry registry = new RegionRegistry();
+        PathService pathService = new PathService(registry, new PathCache(new PathPlanner(200_000), 200_000));
+        scheduler = new DeliveryScheduler(1000, 200, 2);
+        ApiHandler api = new ApiHandler(parser, pathService, new PathValidator(registry), scheduler,
+                mock(HealthEndpoint.class), new URL("http://localhost/"), 4_000_000);
+        RegionHandler regions = new RegionHandler(parser, registry);
+        ApiErrorMetrics errorMetrics = new ApiErrorMetrics(new SimpleMeterRegistry());
+        GeofenceTracker tracker = new GeofenceTracker(registry, 600_000);
+        GeofenceHandler geofence = new GeofenceHandler(parser, tracker);
+        StreamHandler streams = new StreamHandler(parser, registry, tracker, errorMetrics);
+        ReferenceDataService referenceData = mock(ReferenceDataService.class);
+        ServicePointHandler servicePoints = new ServicePointHandler(parser, new ServicePointIndex(referenceData));
+        DroneHandler drones = new DroneHandler(parser, new DroneRegistry(referenceData));
+        jobService = new JobService(1, 16, 16, 60_000, 600_000, 600_000);
+        JobHandler jobs = new JobHandler(parser, pathService, scheduler, jobService);
+        admission = new AdmissionControl(errorMetrics, new SimpleMeterRegistry(), new ObjectMapper(), true,
+                List.of("/api/v1/path"), List.of("/api/v1/stream/isCloseTo"), 128, 1024, 1, 1, 32, 2.0, 5, 1);
+        client = WebTestClient.bindToRouterFunction(new ReactiveApiConfig()
+                        .apiRoutes(api, regions, geofence, streams, servicePoints, drones, jobs, errorMetrics,
+                                admission))
+                .build();
+    }
+
+    @AfterEach
+    void stopJobs() {
+        jobService.shutdown();
+        scheduler.shutdown();
+    }
+
+    @Test
+    void testDistanceTo() {
+        client.post().uri("/api/v1/distanceTo").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("""
+                        {"position1": {"lng": -3.192473, "lat": 55.946233},
+                         "position2": {"lng": -3.192473, "lat": 55.942617}}
+                        """)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Double.class).isEqualTo(0.003616000000000952);
+    }
+
+    @Test
+    void testMissingPositionIsBadRequest() {
+        client.post().uri("/api/v1/distanceTo").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"position1\": {\"lng\": -3.192473, \"lat\": 55.946233}}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("missing position1 or position2");
+    }
+
+    @Test
+    void testBatchStreamsJsonArray() {
+        client.post().uri("/api/v1/batch/isCloseTo").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("""
+                        {"pairs": [
+                          {"position1": {"lng": -3.19, "lat": 55.94}, "position2": {"lng": -3.19, "lat": 55.94001}},
+                          {"position1": {"lng": -3.19, "lat": 55.94}, "position2": {"lng": -3.18, "lat": 55.94}}]}
+                        """)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("[true, false]");
+    }
+
+    @Test
+    void testDistanceMatrixSquared() {
+        client.post().uri("/api/v1/batch/distanceMatrix").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("""
+                        {"from": {"lng": [-3.19], "lat": [55.94]},
+                         "to": {"lng": [-3.19, -3.18], "lat": [55.94, 55.94]},
+                         "output": "squared"}
+                        """)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.rows").isEqualTo(1)
+                .jsonPath("$.squaredDistances[0]").isEqualTo(0.0)
+                .jsonPath("$.squaredDistances[1]").isEqualTo(9.999999999999574E-5);
+    }
+
+    @Test
+    void testTrajectoryStreamsAsNdjson() {
+        client.post().uri("/api/v1/nextPositions").contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue("{\"start\": {\"lng\": -3.19, \"lat\": 55.94}, \"angles\": [0, 90]}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class).isEqualTo("""
+                        {"lng":-3.19,"lat":55.94}
+                        {"lng":-3.18985,"lat":55.94}
+                        {"lng":-3.18985,"lat":55.94015}
+                        """);
+    }
+
+    @Test
+    void testRegisteredRegionLifecycle() {
+        byte[] created = client.post().uri("/api/v1/regions").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(SQUARE)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody().returnResult().getResponseBody();
+        String id = com.jayway.jsonpath.JsonPath.read(new String(created), "$.id");
+
+        client.post().uri("/api/v1/regions/" + id + "/isInRegion").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"position\": {\"lng\": -3.185, \"lat\": 55.945}}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.isInRegion").isEqualTo(true);
+
+        client.delete().uri("/api/v1/regions/" + id).exchange().expectStatus().isNoContent();
+        client.get().uri("/api/v1/regions/" + id).exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    void testInvalidNoFlyIsBadRequest() {
+        client.post().uri("/api/v1/regions?noFly=maybe").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(SQUARE)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("noFly must be true or false");
+    }
+
+    @Test
+    void testStreamIsCloseTo() {
+        client.post().uri("/api/v1/stream/isCloseTo?lng=-3.19&lat=55.94").contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue("""
+                        {"lng": -3.19, "lat": 55.94001}
+
+                        {"lng": -3.18, "lat": 55.94}
+                        """)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class).isEqualTo("true\nfalse\n");
+    }
+
+    @Test
+    void testStreamIsInRegionNeedsARegion() {
+        client.post().uri("/api/v1/stream/isInRegion").contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue("{\"lng\": -3.19, \"lat\": 55.94}\n")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("missing  region");
+        client.post().uri("/api/v1/stream/isInRegion?region=no-such-region").contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue("{\"lng\": -3.19, \"lat\": 55.94}\n")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.message").isEqualTo("unknown region id");
+    }
+
+    @Test
+    void testStreamGeofence() {
+        byte[] created = client.post().uri("/api/v1/regions").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(SQUARE)
+                .exchange()
+                .expectBody().returnResult().getResponseBody();
+        String id = com.jayway.jsonpath.JsonPath.read(new String(created), "$.id");
+
+        client.post().uri("/api/v1/stream/geofence").contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue("""
+                        {"droneId": "d1", "lng": -3.195, "lat": 55.945}
+                        {"droneId": "d1", "lng": -3.185, "lat": 55.945}
+                        {"droneId": "d1", "lng": -3.184, "lat": 55.945}
+                        """)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("{\"droneId\":\"d1\",\"event\":\"enter\",\"region\":\"" + id + "\"}\n");
+        client.get().uri("/api/v1/geofence/drones/d1").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.regions[0]").isEqualTo(id);
+    }
+
+    @Test
+    void testServicePointsUnavailableWithoutReferenceData() {
+        client.post().uri("/api/v1/servicePoints/nearest").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"position\": {\"lng\": -3.18, \"lat\": 55.97}}")
+                .exchange()
+                .expectStatus().isEqualTo(503)
+                .expectBody().jsonPath("$.message").isEqualTo("ILP reference data is not available");
+    }
+
+    @Test
+    void testDronesUnavailableWithoutReferenceData() {
+        client.post().uri("/api/v1/drones/query").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"cooling\": true}")
+                .exchange()
+                .expectStatus().isEqualTo(503)
+                .expectBody().jsonPath("$.message").isEqualTo("ILP reference data is not available");
+    }
+
+    @Test
+    void testPathJobIsAcceptedAndCancellable() {
+        byte[] submitted = client.post().uri("/api/v1/jobs/path").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"from\": {\"lng\": -3.18, \"lat\": 55.94}, \"to\": {\"lng\": -3.17, \"lat\": 55.94}}")
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody().jsonPath("$.tenant").isEqualTo("default")
+                .returnResult().getResponseBody();
+        String id = com.jayway.jsonpath.JsonPath.read(new String(submitted), "$.id");
+
+        client.delete().uri("/api/v1/jobs/" + id).exchange().expectStatus().isOk();
+        client.get().uri("/api/v1/jobs/no-such-job").exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    void testSchedule() {
+        client.post().uri("/api/v1/schedule").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("""
+                        {"deliveries": [{"id": 1, "location": {"lng": -3.1880, "lat": 55.9440}},
+                                        {"id": 2, "location": {"lng": -3.1860, "lat": 55.9440}}],
+                         "drones": [{"id": "d1", "start": {"lng": -3.19, "lat": 55.944}}]}
+                        """)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.routes[0].droneId").isEqualTo("d1")
+                .jsonPath("$.routes[0].deliveries[0]").isEqualTo("1")
+                .jsonPath("$.routes[0].deliveries[1]").isEqualTo("2")
+                .jsonPath("$.unassigned").isEmpty();
+    }
+
+    @Test
+    void testSaturatedEndpointIsShed() {
+        admission.limit("/api/v1/path").tryAcquire();
+        client.post().uri("/api/v1/path").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"from\": {\"lng\": -3.18, \"lat\": 55.94}, \"to\": {\"lng\": -3.17, \"lat\": 55.94}}")
+                .exchange()
+                .expectStatus().isEqualTo(503)
+                .expectHeader().valueEquals("Retry-After", "1")
+                .expectBody().jsonPath("$.message").isEqualTo("too many concurrent requests, retry later");
+    }
+}
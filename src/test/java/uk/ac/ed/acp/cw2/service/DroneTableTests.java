@@ -0,0 +1,143 @@
+package uk.ac.ed.acp.cw2.service;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.dto.AvailabilityWindow;
+import uk.ac.ed.acp.cw2.dto.Drone;
+import uk.ac.ed.acp.cw2.dto.DroneAvailability;
+import uk.ac.ed.acp.cw2.dto.DroneCapability;
+import uk.ac.ed.acp.cw2.dto.DroneQuery;
+import uk.ac.ed.acp.cw2.dto.ReferenceData;
+import uk.ac.ed.acp.cw2.dto.ServicePointDrones;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DroneTableTests {
+
+    private static final double ANY = Double.NaN;
+
+    private static final ReferenceData DATA = new ReferenceData(1, Instant.EPOCH,
+            List.of(new Drone("Drone 1", "1", new DroneCapability(true, false, 4.0, 2000, 0.01, 4.3, 6.5)),
+                    new Drone("Drone 2", "2", new DroneCapability(false, true, 8.0, 1000, 0.03, 2.6, 5.4)),
+                    new Drone("Drone 3", "3", new DroneCapability(true, true, 20.0, 4000, 0.05, 9.5, 11.5)),
+                    new Drone("Drone 4", "4", null)),
+            List.of(), List.of(), null,
+            List.of(new ServicePointDrones(1, List.of(
+                            new DroneAvailability("1", List.of(
+                                    new AvailabilityWindow(DayOfWeek.MONDAY, LocalTime.of(9, 0), LocalTime.of(12, 0)))),
+                            new DroneAvailability("2", List.of(
+                                    new AvailabilityWindow(DayOfWeek.TUESDAY, LocalTime.of(0, 0), LocalTime.of(23, 59)))),
+                            new DroneAvailability("no-such-drone", List.of()))),
+                    new ServicePointDrones(2, List.of(
+                            new DroneAvailability("1", List.of(
+                                    new AvailabilityWindow(DayOfWeek.TUESDAY, LocalTime.of(14, 0), LocalTime.of(18, 0)))),
+                            new DroneAvailability("4", null))),
+                    new ServicePointDrones(3, null)));
+
+    private static final DroneTable TABLE = DroneTable.of(DATA);
+
+    private static DroneQuery capabilities(Boolean cooling, Boolean heating, double minCapacity, double minMaxMoves,
+                                           double maxCostPerMove) {
+        return new DroneQuery(cooling, heating, minCapacity, minMaxMoves, maxCostPerMove, null, null, null);
+    }
+
+    private static DroneQuery availability(Integer servicePointId, DayOfWeek day, LocalTime time) {
+        return new DroneQuery(null, null, ANY, ANY, ANY, servicePointId, day, time);
+    }
+
+    @Test
+    void testEmptyQueryMatchesEveryDrone() {
+        assertEquals(4, TABLE.size());
+        assertEquals(List.of("1", "2", "3", "4"), TABLE.query(capabilities(null, null, ANY, ANY, ANY)));
+    }
+
+    @Test
+    void testFlagsAndRangesIntersect() {
+        assertEquals(List.of("1", "3"), TABLE.query(capabilities(true, null, ANY, ANY, ANY)));
+        assertEquals(List.of("1"), TABLE.query(capabilities(true, false, ANY, ANY, ANY)));
+        assertEquals(List.of("2", "3"), TABLE.query(capabilities(null, null, 8.0, ANY, ANY)));
+        assertEquals(List.of("1", "2"), TABLE.query(capabilities(null, null, ANY, ANY, 0.03)));
+        assertEquals(List.of("2"), TABLE.query(capabilities(null, true, 5, ANY, 0.03)));
+        assertEquals(List.of("3"), TABLE.query(capabilities(null, null, ANY, 2001, ANY)));
+        assertEquals(List.of(), TABLE.query(capabilities(null, null, 21, ANY, ANY)));
+    }
+
+    @Test
+    void testAvailabilityByServicePointDayAndTime() {
+        assertEquals(List.of("1", "2"), TABLE.query(availability(1, null, null)));
+        assertEquals(List.of("1", "4"), TABLE.query(availability(2, null, null)));
+        assertEquals(List.of(), TABLE.query(availability(3, null, null)));
+        assertEquals(List.of("1", "2"), TABLE.query(availability(null, DayOfWeek.TUESDAY, null)));
+        // drone 1 flies on Tuesdays, but only from service point 2
+        assertEquals(List.of("2"), TABLE.query(availability(1, DayOfWeek.TUESDAY, null)));
+        assertEquals(List.of("1"), TABLE.query(availability(null, DayOfWeek.MONDAY, LocalTime.of(12, 0))));
+        assertEquals(List.of(), TABLE.query(availability(null, DayOfWeek.MONDAY, LocalTime.of(12, 1))));
+        assertEquals(List.of("1", "2"), TABLE.query(availability(null, null, LocalTime.of(15, 0))));
+        assertEquals(List.of("2"), TABLE.query(availability(1, null, LocalTime.of(15, 0))));
+    }
+
+    @Test
+    void testAgreesWithAScan() {
+        Random random = new Random(24);
+        List<Drone> drones = new ArrayList<>();
+        List<DroneAvailability> listed = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            DroneCapability capability = random.nextInt(20) == 0 ? null : new DroneCapability(random.nextBoolean(),
+                    random.nextBoolean(), random.nextInt(10), 500 * random.nextInt(8), random.nextInt(5) / 100.0, 0, 0);
+            drones.add(new Drone("Drone " + i, String.valueOf(i), capability));
+            DayOfWeek day = DayOfWeek.of(1 + random.nextInt(7));
+            LocalTime from = LocalTime.of(random.nextInt(12), 0);
+            listed.add(new DroneAvailability(String.valueOf(i),
+                    List.of(new AvailabilityWindow(day, from, from.plusHours(1 + random.nextInt(11))))));
+        }
+        ReferenceData data = new ReferenceData(1, Instant.EPOCH, drones, List.of(), List.of(), null,
+                List.of(new ServicePointDrones(1, listed.subList(0, 150)),
+                        new ServicePointDrones(2, listed.subList(100, 300))));
+        DroneTable table = DroneTable.of(data);
+
+        for (int q = 0; q < 500; q++) {
+            Boolean cooling = random.nextBoolean() ? null : random.nextBoolean();
+            Boolean heating = random.nextBoolean() ? null : random.nextBoolean();
+            double minCapacity = random.nextBoolean() ? ANY : random.nextInt(11);
+            double minMaxMoves = random.nextBoolean() ? ANY : 250 * random.nextInt(16);
+            double maxCostPerMove = random.nextBoolean() ? ANY : random.nextInt(5) / 100.0;
+            Integer servicePointId = random.nextBoolean() ? null : 1 + random.nextInt(2);
+            DayOfWeek day = random.nextBoolean() ? null : DayOfWeek.of(1 + random.nextInt(7));
+            LocalTime time = random.nextBoolean() ? null : LocalTime.of(random.nextInt(24), 30);
+            DroneQuery query = new DroneQuery(cooling, heating, minCapacity, minMaxMoves, maxCostPerMove,
+                    servicePointId, day, time);
+
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < drones.size(); i++) {
+                DroneCapability c = drones.get(i).capability();
+                boolean capable = (cooling == null || (c != null && c.cooling() == cooling))
+                        && (heating == null || (c != null && c.heating() == heating))
+                        && (Double.isNaN(minCapacity) || (c != null && c.capacity() >= minCapacity))
+                        && (Double.isNaN(minMaxMoves) || (c != null && c.maxMoves() >= minMaxMoves))
+                        && (Double.isNaN(maxCostPerMove) || (c != null && c.costPerMove() <= maxCostPerMove));
+                boolean available = false;
+                for (ServicePointDrones point : data.dronesForServicePoints()) {
+                    if (servicePointId != null && point.servicePointId() != servicePointId)
+                        continue;
+                    for (DroneAvailability a : point.drones()) {
+                        if (!a.id().equals(String.valueOf(i)))
+                            continue;
+                        AvailabilityWindow w = a.availability().get(0);
+                        available |= (day == null || w.dayOfWeek() == day)
+                                && (time == null || (!time.isBefore(w.from()) && !time.isAfter(w.until())));
+                    }
+                }
+                boolean unconstrained = servicePointId == null && day == null && time == null;
+                if (capable && (unconstrained || available))
+                    expected.add(String.valueOf(i));
+            }
+            assertEquals(expected, table.query(query), query.toString());
+        }
+    }
+}
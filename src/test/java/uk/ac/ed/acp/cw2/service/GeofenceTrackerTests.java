@@ -0,0 +1,109 @@
+package uk.ac.ed.acp.cw2.service;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.dto.GeofenceEvent;
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.dto.Region;
+import uk.ac.ed.acp.cw2.geometry.Moves;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeofenceTrackerTests {
+
+    private static Region square(double lng, double lat, double size) {
+        return new Region("square", List.of(new LngLat(lng, lat), new LngLat(lng + size, lat),
+                new LngLat(lng + size, lat + size), new LngLat(lng, lat + size), new LngLat(lng, lat)));
+    }
+
+    @Test
+    void testEventsOnlyOnTransitions() {
+        RegionRegistry registry = new RegionRegistry();
+        String id = registry.register(square(0, 0, 0.003)).id();
+        GeofenceTracker tracker = new GeofenceTracker(registry, 600_000);
+
+        assertEquals(List.of(), tracker.update("d1", -0.001, 0.0015));
+        double[] position = {-0.001, 0.0015};
+        List<GeofenceEvent> events = new ArrayList<>();
+        // fly east through the square and out the other side
+        for (int move = 0; move < 40; move++) {
+            Moves.next(position[0], position[1], 0, position);
+            events.addAll(tracker.update("d1", position[0], position[1]));
+        }
+        assertEquals(List.of(GeofenceEvent.enter("d1", id), GeofenceEvent.exit("d1", id)), events);
+        assertTrue(tracker.skippedUpdates() > tracker.evaluatedUpdates());
+        assertEquals(List.of(), tracker.get("d1").regions());
+    }
+
+    @Test
+    void testRegionChangesForceEvaluation() {
+        RegionRegistry registry = new RegionRegistry();
+        GeofenceTracker tracker = new GeofenceTracker(registry, 600_000);
+        assertEquals(List.of(), tracker.update("d1", 0.001, 0.001));
+
+        String id = registry.register(square(0, 0, 0.003)).id();
+        assertEquals(List.of(GeofenceEvent.enter("d1", id)), tracker.update("d1", 0.001, 0.001));
+        assertEquals(List.of(id), tracker.get("d1").regions());
+
+        registry.remove(id);
+        assertEquals(List.of(GeofenceEvent.exit("d1", id)), tracker.update("d1", 0.001, 0.001));
+    }
+
+    @Test
+    void testMatchesFullEvaluationOnRandomWalks() {
+        Random random = new Random(7);
+        RegionRegistry registry = new RegionRegistry();
+        for (int i = 0; i < 6; i++) {
+            registry.register(square(random.nextDouble() * 0.008, random.nextDouble() * 0.008,
+                    0.001 + random.nextDouble() * 0.003));
+        }
+        GeofenceTracker tracker = new GeofenceTracker(registry, 600_000);
+        double[] position = {0.005, 0.005};
+        Set<String> inside = new HashSet<>();
+        int direction = 0;
+        for (int move = 0; move < 20_000; move++) {
+            if (random.nextInt(10) == 0)
+                direction = random.nextInt(Moves.DIRECTION_COUNT);
+            Moves.next(position[0], position[1], direction * Moves.DIRECTION_ANGLE, position);
+            if (position[0] < 0 || position[0] > 0.012 || position[1] < 0 || position[1] > 0.012)
+                direction = (direction + Moves.DIRECTION_COUNT / 2) % Moves.DIRECTION_COUNT;
+
+            Set<String> now = new HashSet<>();
+            for (RegisteredRegion region : registry.snapshot().containing(position[0], position[1])) {
+                now.add(region.id());
+            }
+            Set<String> expected = new HashSet<>();
+            for (String id : inside) {
+                if (!now.contains(id))
+                    expected.add("exit " + id);
+            }
+            for (String id : now) {
+                if (!inside.contains(id))
+                    expected.add("enter " + id);
+            }
+            Set<String> actual = new HashSet<>();
+            for (GeofenceEvent event : tracker.update("d1", position[0], position[1])) {
+                actual.add(event.event() + " " + event.region());
+            }
+            assertEquals(expected, actual, "move " + move);
+            inside = now;
+        }
+        assertTrue(tracker.skippedUpdates() > tracker.evaluatedUpdates());
+    }
+
+    @Test
+    void testIdleSessionsExpire() {
+        GeofenceTracker tracker = new GeofenceTracker(new RegionRegistry(), 0);
+        tracker.update("d1", 0, 0);
+        assertEquals(1, tracker.sessionCount());
+        tracker.expireIdleSessions();
+        assertNull(tracker.get("d1"));
+        assertEquals(0, tracker.sessionCount());
+        assertFalse(tracker.remove("d1"));
+    }
+}
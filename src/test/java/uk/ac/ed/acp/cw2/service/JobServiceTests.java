@@ -0,0 +1,161 @@
+package uk.ac.ed.acp.cw2.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.dto.JobStatus;
+import uk.ac.ed.acp.cw2.parser.ApiError;
+import uk.ac.ed.acp.cw2.parser.InvalidRequestException;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JobServiceTests {
+
+    private JobService jobs;
+
+    @AfterEach
+    void shutdown() {
+        if (jobs != null)
+            jobs.shutdown();
+    }
+
+    /** Polls until the job has finished, returning its final status. */
+    private JobStatus await(String id) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            JobStatus status = jobs.status(id);
+            if (!status.state().equals("queued") && !status.state().equals("running"))
+                return status;
+            Thread.sleep(10);
+        }
+        fail("job " + id + " did not finish");
+        return null;
+    }
+
+    private static Supplier<Object> blockUntil(CountDownLatch release) {
+        return () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new CancellationException();
+            }
+            return "released";
+        };
+    }
+
+    private static Supplier<Object> spinUntilInterrupted() {
+        return () -> {
+            while (!Thread.currentThread().isInterrupted())
+                Thread.onSpinWait();
+            throw new CancellationException();
+        };
+    }
+
+    @Test
+    void testJobRunsToResult() throws Exception {
+        jobs = new JobService(2, 16, 16, 60_000, 600_000, 600_000);
+        JobStatus submitted = jobs.submit("t", null, () -> List.of(1, 2));
+        assertEquals("t", submitted.tenant());
+        assertNotNull(submitted.deadline());
+
+        JobStatus finished = await(submitted.id());
+        assertEquals("succeeded", finished.state());
+        assertEquals(List.of(1, 2), jobs.result(submitted.id()));
+        assertEquals(1, jobs.finishedCount(JobService.State.SUCCEEDED));
+    }
+
+    @Test
+    void testTenantsTakeTurns() throws Exception {
+        jobs = new JobService(1, 16, 16, 60_000, 600_000, 600_000);
+        CountDownLatch release = new CountDownLatch(1);
+        String blocker = jobs.submit("x", null, blockUntil(release)).id();
+        List<String> order = new CopyOnWriteArrayList<>();
+        String last = null;
+        for (String name : List.of("a1", "a2", "a3")) {
+            last = jobs.submit("a", null, () -> order.add(name)).id();
+        }
+        jobs.submit("b", null, () -> order.add("b1"));
+        release.countDown();
+
+        await(blocker);
+        await(last);
+        assertEquals(List.of("a1", "b1", "a2", "a3"), order);
+    }
+
+    @Test
+    void testFullQueueRejectsAtOnce() throws Exception {
+        jobs = new JobService(1, 3, 2, 60_000, 600_000, 600_000);
+        CountDownLatch release = new CountDownLatch(1);
+        String running = jobs.submit("a", null, blockUntil(release)).id();
+        while (!jobs.status(running).state().equals("running"))
+            Thread.sleep(1);
+        jobs.submit("a", null, blockUntil(release));
+        jobs.submit("a", null, blockUntil(release));
+        InvalidRequestException tenantFull = assertThrows(InvalidRequestException.class,
+                () -> jobs.submit("a", null, blockUntil(release)));
+        assertEquals(ApiError.JOB_QUEUE_FULL, tenantFull.error());
+
+        jobs.submit("b", null, blockUntil(release));
+        InvalidRequestException queueFull = assertThrows(InvalidRequestException.class,
+                () -> jobs.submit("c", null, blockUntil(release)));
+        assertEquals(ApiError.JOB_QUEUE_FULL, queueFull.error());
+        assertEquals(2, jobs.rejectedCount());
+        release.countDown();
+    }
+
+    @Test
+    void testCancelQueuedAndRunningJobs() throws Exception {
+        jobs = new JobService(1, 16, 16, 60_000, 600_000, 600_000);
+        String running = jobs.submit("t", null, spinUntilInterrupted()).id();
+        String queued = jobs.submit("t", null, () -> "never").id();
+
+        assertEquals("cancelled", jobs.cancel(queued).state());
+        while (!jobs.status(running).state().equals("running"))
+            Thread.sleep(1);
+        assertEquals("cancelled", jobs.cancel(running).state());
+        assertEquals(0, jobs.queuedCount());
+        InvalidRequestException e = assertThrows(InvalidRequestException.class, () -> jobs.result(queued));
+        assertEquals(ApiError.JOB_CANCELLED, e.error());
+
+        // the worker is free again, its interrupt cleared
+        String next = jobs.submit("t", null, () -> "done").id();
+        assertEquals("succeeded", await(next).state());
+    }
+
+    @Test
+    void testDeadlineInterruptsRunningJob() throws Exception {
+        jobs = new JobService(1, 16, 16, 60_000, 600_000, 600_000);
+        String id = jobs.submit("t", 50L, spinUntilInterrupted()).id();
+        assertEquals("expired", await(id).state());
+        InvalidRequestException e = assertThrows(InvalidRequestException.class, () -> jobs.result(id));
+        assertEquals(ApiError.JOB_EXPIRED, e.error());
+    }
+
+    @Test
+    void testFailedJobKeepsItsError() throws Exception {
+        jobs = new JobService(1, 16, 16, 60_000, 600_000, 600_000);
+        String id = jobs.submit("t", null, () -> {
+            throw ApiError.NO_PATH.exception();
+        }).id();
+        JobStatus status = await(id);
+        assertEquals("failed", status.state());
+        assertEquals(ApiError.NO_PATH.message(), status.error());
+        InvalidRequestException e = assertThrows(InvalidRequestException.class, () -> jobs.result(id));
+        assertEquals(ApiError.NO_PATH, e.error());
+    }
+
+    @Test
+    void testResultsExpire() throws Exception {
+        jobs = new JobService(1, 16, 16, 60_000, 600_000, 0);
+        String id = jobs.submit("t", null, () -> "done").id();
+        while (jobs.status(id) != null)
+            Thread.sleep(1);
+        jobs.expireResults();
+        InvalidRequestException e = assertThrows(InvalidRequestException.class, () -> jobs.result(id));
+        assertEquals(ApiError.UNKNOWN_JOB, e.error());
+    }
+}
@@ -0,0 +1,81 @@
+package uk.ac.ed.acp.cw2.service;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.dto.FlightPath;
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.dto.PathCheck;
+import uk.ac.ed.acp.cw2.dto.PositionBatch;
+import uk.ac.ed.acp.cw2.dto.Region;
+import uk.ac.ed.acp.cw2.geometry.Moves;
+import uk.ac.ed.acp.cw2.planner.PathPlanner;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathValidatorTests {
+
+    private static Region square(String name, double lng, double lat, double size) {
+        return new Region(name, List.of(new LngLat(lng, lat), new LngLat(lng + size, lat),
+                new LngLat(lng + size, lat + size), new LngLat(lng, lat + size), new LngLat(lng, lat)));
+    }
+
+    private static PositionBatch batch(List<LngLat> positions) {
+        double[] lng = new double[positions.size()];
+        double[] lat = new double[positions.size()];
+        for (int i = 0; i < lng.length; i++) {
+            lng[i] = positions.get(i).lng();
+            lat[i] = positions.get(i).lat();
+        }
+        return new PositionBatch(lng, lat);
+    }
+
+    @Test
+    void testPlannedPathsAreLegal() {
+        RegionRegistry registry = new RegionRegistry();
+        registry.register(square("a", -3.1810, 55.9430, 0.0010), true);
+        registry.register(square("b", -3.1790, 55.9445, 0.0010), true);
+        FlightPath path = new PathPlanner(200_000).plan(new LngLat(-3.1830, 55.9440), new LngLat(-3.1760, 55.9450),
+                registry.snapshot().index());
+
+        List<PathCheck> checks = new PathValidator(registry).check(List.of(batch(path.path())), null);
+        assertEquals(List.of(PathCheck.LEGAL), checks);
+    }
+
+    @Test
+    void testFirstIllegalMoveNamesItsZone() {
+        RegionRegistry registry = new RegionRegistry();
+        registry.register(square("a", -3.1810, 55.9430, 0.0010), true);
+        String b = registry.register(square("b", -3.1790, 55.9445, 0.0010), true).id();
+        // straight east along lat 55.9446: clear of a, then into b
+        double[] lng = new double[30];
+        double[] lat = new double[30];
+        double[] next = {-3.1830, 55.9446};
+        for (int i = 0; i < lng.length; i++) {
+            lng[i] = next[0];
+            lat[i] = next[1];
+            Moves.next(next[0], next[1], 0, next);
+        }
+
+        PathCheck check = new PathValidator(registry).check(List.of(new PositionBatch(lng, lat)), null).get(0);
+        assertFalse(check.legal());
+        assertEquals(b, check.noFlyZone());
+        int move = check.move();
+        assertTrue(lng[move] < -3.1790 && lng[move + 1] >= -3.1790, "entered at move " + move);
+        assertEquals(new LngLat(lng[move], lat[move]), check.from());
+
+        // only the listed zones count
+        assertEquals(List.of(PathCheck.LEGAL),
+                new PathValidator(registry).check(List.of(new PositionBatch(lng, lat)), List.of("region-1")));
+    }
+
+    @Test
+    void testOnlyNoFlyRegionsCountByDefault() {
+        RegionRegistry registry = new RegionRegistry();
+        registry.register(square("central", -3.1810, 55.9430, 0.0010));
+        PositionBatch across = new PositionBatch(new double[]{-3.1815, -3.1795}, new double[]{55.9435, 55.9435});
+
+        assertEquals(List.of(PathCheck.LEGAL), new PathValidator(registry).check(List.of(across), null));
+        assertFalse(new PathValidator(registry).check(List.of(across), List.of("region-1")).get(0).legal());
+    }
+}
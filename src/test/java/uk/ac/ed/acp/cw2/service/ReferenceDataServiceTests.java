@@ -0,0 +1,241 @@
+package uk.ac.ed.acp.cw2.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import uk.ac.ed.acp.cw2.client.IlpRestClient;
+import uk.ac.ed.acp.cw2.dto.NearbyServicePoint;
+import uk.ac.ed.acp.cw2.dto.ReferenceData;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs {@link ReferenceDataService} against a local stub of the ILP REST service.
+ */
+class ReferenceDataServiceTests {
+
+    private static final Map<String, String> BODIES = Map.of(
+            "/drones", """
+                    [{"name": "Drone 1", "id": "1", "capability": {"cooling": true, "heating": false,
+                      "capacity": 4.0, "maxMoves": 2000, "costPerMove": 0.01, "costInitial": 4.3, "costFinal": 6.5}}]
+                    """,
+            "/service-points", """
+                    [{"name": "Appleton Tower", "id": 1, "location": {"lng": -3.186874, "lat": 55.944494, "alt": 50}}]
+                    """,
+            "/restricted-areas", """
+                    [{"name": "George Square Area", "id": 1, "limits": {"lower": 0, "upper": -1},
+                      "vertices": [{"lng": -3.190578818321228, "lat": 55.94402412577528},
+                                   {"lng": -3.1899887323379517, "lat": 55.94284650540911},
+                                   {"lng": -3.187097311019897, "lat": 55.94328811724263},
+                                   {"lng": -3.190578818321228, "lat": 55.94402412577528}]}]
+                    """,
+            "/drones-for-service-points", """
+                    [{"servicePointId": 1, "drones": [{"id": "1",
+                      "availability": [{"dayOfWeek": "MONDAY", "from": "00:00:00", "until": "23:59:59"}]}]}]
+                    """);
+
+    private HttpServer server;
+    private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> notModified = new ConcurrentHashMap<>();
+    private volatile CountDownLatch release = new CountDownLatch(0);
+    private IlpRestClient client;
+    private ReferenceDataService service;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.createContext("/", this::handle);
+        server.start();
+
+        URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+        client = new IlpRestClient(HttpClient.newHttpClient(),
+                Jackson2ObjectMapperBuilder.json().build(), url, 5000);
+        service = new ReferenceDataService(client, new ReferenceDataSnapshot(""), "central-area");
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        calls.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        String body = BODIES.get(path);
+        if (body == null) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+        String etag = "\"" + Integer.toHexString(body.hashCode()) + "\"";
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            notModified.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("ETag", etag);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Test
+    void testLoadsSnapshot() {
+        ReferenceData data = service.current();
+
+        assertEquals(1, data.version());
+        assertEquals("Drone 1", data.drones().get(0).name());
+        assertTrue(data.drones().get(0).capability().cooling());
+        assertEquals(-3.186874, data.servicePoints().get(0).location().lng());
+        assertEquals(4, data.restrictedAreas().get(0).vertices().size());
+        assertNull(data.centralArea());
+        assertEquals(1, data.dronesForServicePoints().get(0).drones().get(0).availability().size());
+    }
+
+    @Test
+    void testRefreshRevalidatesWithoutReloading() {
+        ReferenceData first = service.current();
+        ReferenceData second = service.refresh().join();
+
+        assertSame(first, second);
+        assertEquals(2, calls.get("/drones").get());
+        assertEquals(1, notModified.get("/drones").get());
+        assertEquals(1, notModified.get("/restricted-areas").get());
+    }
+
+    @Test
+    void testConcurrentMissesShareOneUpstreamCall() throws Exception {
+        release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<ReferenceData>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(callers.submit(service::current));
+            }
+            // let every caller reach the service before upstream answers
+            Thread.sleep(200);
+            release.countDown();
+
+            ReferenceData first = results.get(0).get();
+            for (Future<ReferenceData> result : results) {
+                assertSame(first, result.get());
+            }
+            assertEquals(1, calls.get("/drones").get());
+            assertEquals(1, calls.get("/service-points").get());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void testHealthFollowsLoadsAndFailures() {
+        ReferenceDataHealthIndicator indicator = new ReferenceDataHealthIndicator(service);
+        assertEquals(Status.OUT_OF_SERVICE, indicator.health().getStatus());
+
+        service.current();
+        Health loaded = indicator.health();
+        assertEquals(Status.UP, loaded.getStatus());
+        assertEquals(1L, loaded.getDetails().get("version"));
+
+        // a failed refresh keeps the snapshot, so the instance stays up
+        server.stop(0);
+        assertThrows(CompletionException.class, () -> service.refresh().join());
+        Health stale = indicator.health();
+        assertEquals(Status.UP, stale.getStatus());
+        assertTrue(stale.getDetails().containsKey("lastRefreshError"));
+        assertEquals(1, service.failureCount());
+    }
+
+    @Test
+    void testServicePointIndexFollowsRefreshes() {
+        ServicePointIndex index = new ServicePointIndex(service);
+        assertEquals(0, index.version());
+
+        // the first query loads the reference data, and the load builds the tree
+        List<NearbyServicePoint> nearest = index.nearest(-3.186874, 55.945494, 3);
+        assertEquals(1, index.version());
+        assertEquals(1, nearest.size());
+        assertEquals("Appleton Tower", nearest.get(0).name());
+        assertEquals(0.001, nearest.get(0).distance(), 1e-9);
+        assertEquals(List.of(), index.within(-3.186874, 55.945494, 0.0009));
+
+        // an index created after loading indexes the snapshot it finds
+        assertEquals(1, new ServicePointIndex(service).version());
+    }
+
+    @Test
+    void testWarmStartServesSavedSnapshotWhileUpstreamIsDown() throws IOException {
+        Path file = Files.createTempDirectory("snapshot").resolve("reference-data.snapshot");
+        try {
+            ReferenceData loaded = new ReferenceDataService(client, new ReferenceDataSnapshot(file.toString()),
+                    "central-area").current();
+            server.stop(0);
+
+            ReferenceDataService restarted =
+                    new ReferenceDataService(client, new ReferenceDataSnapshot(file.toString()), "central-area");
+            assertTrue(restarted.restored());
+            assertEquals(loaded, restarted.currentIfLoaded());
+            assertThrows(CompletionException.class, () -> restarted.refresh().join());
+            assertEquals(loaded, restarted.current());
+            assertEquals(Status.UP, new ReferenceDataHealthIndicator(restarted).health().getStatus());
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(file.getParent());
+        }
+    }
+
+    @Test
+    void testReconcilingKeepsAMatchingRestoredSnapshot() throws IOException {
+        Path file = Files.createTempDirectory("snapshot").resolve("reference-data.snapshot");
+        try {
+            new ReferenceDataService(client, new ReferenceDataSnapshot(file.toString()), "central-area").current();
+            ReferenceDataService restarted =
+                    new ReferenceDataService(client, new ReferenceDataSnapshot(file.toString()), "central-area");
+            ReferenceData restored = restarted.currentIfLoaded();
+            List<ReferenceData> published = new ArrayList<>();
+            restarted.addListener(published::add);
+
+            assertSame(restored, restarted.refresh().join());
+            assertFalse(restarted.restored());
+            assertEquals(List.of(), published);
+            assertEquals(2, calls.get("/drones").get());
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(file.getParent());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package uk.ac.ed.acp.cw2.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.dto.AvailabilityWindow;
+import uk.ac.ed.acp.cw2.dto.Drone;
+import uk.ac.ed.acp.cw2.dto.DroneAvailability;
+import uk.ac.ed.acp.cw2.dto.DroneCapability;
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.dto.ReferenceData;
+import uk.ac.ed.acp.cw2.dto.Region;
+import uk.ac.ed.acp.cw2.dto.RestrictedArea;
+import uk.ac.ed.acp.cw2.dto.ServicePoint;
+import uk.ac.ed.acp.cw2.dto.ServicePointDrones;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReferenceDataSnapshotTests {
+
+    private static final ReferenceData DATA = new ReferenceData(7, Instant.ofEpochSecond(1_700_000_000L, 123_456_789),
+            List.of(new Drone("Drone 1", "1", new DroneCapability(true, false, 4.0, 2000, 0.01, 4.3, 6.5)),
+                    new Drone("Drône ∑", null, null)),
+            List.of(new ServicePoint("Appleton Tower", 1, new LngLat(-3.186874, 55.944494)),
+                    new ServicePoint(null, 2, null)),
+            List.of(new RestrictedArea("George Square Area", 1, List.of(new LngLat(-3.1905, 55.9440),
+                            new LngLat(-3.1899, 55.9428), new LngLat(-3.1870, 55.9432), new LngLat(-3.1905, 55.9440))),
+                    new RestrictedArea("unnumbered", null, null)),
+            new Region("central", List.of(new LngLat(-3.192, 55.946), new LngLat(-3.184, 55.942))),
+            List.of(new ServicePointDrones(1, List.of(new DroneAvailability("1", List.of(
+                            new AvailabilityWindow(DayOfWeek.MONDAY, LocalTime.MIDNIGHT, LocalTime.of(23, 59, 59)),
+                            new AvailabilityWindow(null, null, null))),
+                            new DroneAvailability("2", null))),
+                    new ServicePointDrones(2, null)));
+
+    private Path dir;
+    private Path file;
+
+    @BeforeEach
+    void createDir() throws IOException {
+        dir = Files.createTempDirectory("snapshot");
+        file = dir.resolve("reference-data.snapshot");
+    }
+
+    @AfterEach
+    void deleteDir() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(dir);
+    }
+
+    @Test
+    void testRoundTrip() {
+        ReferenceDataSnapshot snapshot = new ReferenceDataSnapshot(file.toString());
+        assertNull(snapshot.load());
+        snapshot.save(DATA);
+        ReferenceData loaded = snapshot.load();
+        assertEquals(DATA, loaded);
+
+        ReferenceData empty = new ReferenceData(1, Instant.EPOCH, List.of(), List.of(), List.of(), null, List.of());
+        snapshot.save(empty);
+        assertEquals(empty, snapshot.load());
+    }
+
+    @Test
+    void testCoordinatesAreOneFlatArray() {
+        ByteBuffer file = ByteBuffer.wrap(ReferenceDataSnapshot.encode(DATA));
+        // one service point location, four restricted area vertices, two central area vertices
+        assertEquals(7, file.getInt(36));
+        assertEquals(-3.186874, file.getDouble(ReferenceDataSnapshot.HEADER_BYTES));
+        assertEquals(7L, file.getLong(16));
+    }
+
+    @Test
+    void testDamagedFilesAreIgnored() throws IOException {
+        ReferenceDataSnapshot snapshot = new ReferenceDataSnapshot(file.toString());
+        byte[] bytes = ReferenceDataSnapshot.encode(DATA);
+
+        byte[] flipped = bytes.clone();
+        flipped[flipped.length / 2] ^= 1;
+        Files.write(file, flipped);
+        assertNull(snapshot.load());
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        assertNull(snapshot.load());
+
+        byte[] future = bytes.clone();
+        future[7] = 2;
+        Files.write(file, future);
+        assertNull(snapshot.load());
+
+        Files.write(file, new byte[0]);
+        assertNull(snapshot.load());
+
+        Files.write(file, bytes);
+        assertEquals(DATA, snapshot.load());
+    }
+
+    @Test
+    void testBlankPathTurnsItOff() {
+        ReferenceDataSnapshot snapshot = new ReferenceDataSnapshot(" ");
+        assertFalse(snapshot.enabled());
+        snapshot.save(DATA);
+        assertNull(snapshot.load());
+    }
+}
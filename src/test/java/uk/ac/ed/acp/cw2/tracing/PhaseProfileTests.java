@@ -0,0 +1,96 @@
+package uk.ac.ed.acp.cw2.tracing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.tracing.PhaseTrace.Phase;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhaseProfileTests {
+
+    @AfterEach
+    void clear() {
+        PhaseTrace.end();
+    }
+
+    private static void spin(long nanos) {
+        long until = System.nanoTime() + nanos;
+        while (System.nanoTime() < until)
+            Thread.onSpinWait();
+    }
+
+    /** A finished trace of about {@code computeMs} of compute inside a short request. */
+    private static PhaseTrace trace(long computeMs) {
+        PhaseTrace trace = PhaseTrace.begin();
+        trace.switchTo(Phase.COMPUTE);
+        spin(computeMs * 1_000_000);
+        trace.switchTo(Phase.SERIALIZE);
+        return PhaseTrace.end();
+    }
+
+    @Test
+    void testNestedPhasesAddUpToTheWhole() {
+        PhaseTrace trace = PhaseTrace.begin();
+        assertSame(trace, PhaseTrace.current());
+        assertEquals(Phase.OTHER, trace.switchTo(Phase.COMPUTE));
+        spin(2_000_000);
+        assertEquals(Phase.COMPUTE, trace.switchTo(Phase.UPSTREAM));
+        spin(3_000_000);
+        assertEquals(Phase.UPSTREAM, trace.switchTo(Phase.COMPUTE));
+        trace.switchTo(Phase.SERIALIZE);
+        assertSame(trace, PhaseTrace.end());
+        assertNull(PhaseTrace.current());
+
+        assertTrue(trace.nanos(Phase.UPSTREAM) >= 3_000_000);
+        assertTrue(trace.nanos(Phase.COMPUTE) >= 2_000_000);
+        long sum = 0;
+        for (Phase phase : Phase.values()) {
+            sum += trace.nanos(phase);
+        }
+        assertEquals(trace.totalNanos(), sum);
+    }
+
+    @Test
+    void testKeepsOnlyTheSlowest() {
+        PhaseProfile profile = new PhaseProfile(1.0, 2, 60_000);
+        for (long ms : new long[] {1, 6, 2, 4}) {
+            profile.record("POST", "/api/v1/path", 200, trace(ms));
+        }
+        List<SlowRequest> slowest = profile.slowest();
+        assertEquals(2, slowest.size());
+        assertTrue(slowest.get(0).totalMs() >= 6);
+        assertTrue(slowest.get(1).totalMs() >= 4 && slowest.get(1).totalMs() < slowest.get(0).totalMs());
+        assertEquals(4, profile.sampledCount());
+        assertEquals("/api/v1/path", slowest.get(0).uri());
+        assertTrue(slowest.get(0).phasesMs().get("compute") >= 6);
+    }
+
+    @Test
+    void testPhaseSharesSumToOne() {
+        PhaseProfile profile = new PhaseProfile(1.0, 5, 60_000);
+        assertEquals(0.0, profile.phaseShares().get("compute"));
+        profile.record("GET", "/api/v1/uuid", 200, trace(20));
+        Map<String, Double> shares = profile.phaseShares();
+        assertEquals(1.0, shares.values().stream().mapToDouble(Double::doubleValue).sum(), 1e-9);
+        assertTrue(shares.get("compute") > 0.5);
+    }
+
+    @Test
+    void testOldWindowsAgeOut() throws InterruptedException {
+        PhaseProfile profile = new PhaseProfile(1.0, 5, 500);
+        profile.record("GET", "/api/v1/uuid", 200, trace(0));
+        Thread.sleep(600);
+        assertEquals(1, profile.slowest().size(), "the previous window is still reported");
+        Thread.sleep(1100);
+        assertEquals(0, profile.slowest().size());
+    }
+
+    @Test
+    void testSampleRateBounds() {
+        assertFalse(new PhaseProfile(0, 5, 60_000).sample());
+        assertTrue(new PhaseProfile(1, 5, 60_000).sample());
+    }
+}